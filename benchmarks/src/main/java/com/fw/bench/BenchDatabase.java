@@ -0,0 +1,135 @@
+package com.fw.bench;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Hashtable;
+
+import javax.naming.Context;
+import javax.naming.spi.InitialContextFactory;
+import javax.servlet.ServletContext;
+
+import org.h2.jdbcx.JdbcDataSource;
+
+import com.fw.db.DBAgent;
+
+/**
+ * ベンチマーク用のインメモリデータベース（H2）
+ * <p>
+ * {@link DBAgent} は JNDI からデータソースを取得するため、
+ * 本クラスを {@link InitialContextFactory} として登録し、H2 のデータソースを返す。
+ * コネクションプールを有効にし、計測対象にコネクションの取得コストを含めない。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+public final class BenchDatabase implements InitialContextFactory
+{
+	// 接続 URL（最後のコネクションをクローズしても破棄しない）
+	private static final String URL = "jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1";
+
+	// ベンチマーク用のサーブレットコンテキスト
+	private static final ServletContext CONTEXT = (ServletContext)Proxy.newProxyInstance
+	(
+		BenchDatabase.class.getClassLoader(),
+		new Class<?>[] { ServletContext.class },
+		(proxy, method, args) ->
+		{
+			switch(method.getName())
+			{
+				case "getInitParameter":
+					return "db.pool.enabled".equals(args[0]) ? "true" : null;
+				case "getAttribute":
+				case "log":
+					return null;
+				default:
+					throw new UnsupportedOperationException(method.getName());
+			}
+		}
+	);
+
+	/**
+	 * サーブレットコンテキストを返す。
+	 *
+	 * @return {@link ServletContext}
+	 */
+	public static ServletContext getContext()
+	{
+		return CONTEXT;
+	}
+
+	/**
+	 * {@link DBAgent} を初期化する。
+	 *
+	 * @throws SQLException データベース関連例外
+	 */
+	public static synchronized void init() throws SQLException
+	{
+		System.setProperty(Context.INITIAL_CONTEXT_FACTORY, BenchDatabase.class.getName());
+		DBAgent.init(CONTEXT);
+	}
+
+	/**
+	 * {@link DBAgent} を破棄する。
+	 */
+	public static synchronized void shutdown()
+	{
+		DBAgent.shutdown();
+	}
+
+	/**
+	 * DDL 等、計測対象外のクエリを直接実行する。
+	 *
+	 * @param sqls クエリ
+	 * @throws SQLException データベース関連例外
+	 */
+	public static void execute(String... sqls) throws SQLException
+	{
+		try
+		(
+			Connection conn = createDataSource().getConnection();
+			Statement stmt = conn.createStatement();
+		)
+		{
+			for(String sql : sqls)
+			{
+				stmt.execute(sql);
+			}
+		}
+	}
+
+	/**
+	 * H2 のデータソースを生成する。
+	 *
+	 * @return データソース
+	 */
+	private static JdbcDataSource createDataSource()
+	{
+		JdbcDataSource ds = new JdbcDataSource();
+		ds.setURL(URL);
+		return ds;
+	}
+
+	@Override
+	public Context getInitialContext(Hashtable<?, ?> environment)
+	{
+		return (Context)Proxy.newProxyInstance
+		(
+			BenchDatabase.class.getClassLoader(),
+			new Class<?>[] { Context.class },
+			(proxy, method, args) ->
+			{
+				switch(method.getName())
+				{
+					case "lookup":
+						return createDataSource();
+					case "close":
+						return null;
+					default:
+						throw new UnsupportedOperationException(method.getName());
+				}
+			}
+		);
+	}
+}
@@ -0,0 +1,34 @@
+package com.fw.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * ベンチマークの実行
+ * <p>
+ * コマンドライン引数は JMH のオプションとして解釈する（例: "HTMLUtils" で対象を絞り込む）。
+ * 常に GC プロファイラを有効にし、結果を target/jmh-result.json に JSON 形式で保存する。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+public class BenchmarkMain
+{
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException
+	{
+		Options options = new OptionsBuilder()
+			.parent(new CommandLineOptions(args))
+			.addProfiler(GCProfiler.class)
+			.resultFormat(ResultFormatType.JSON)
+			.result("target/jmh-result.json")
+			.build();
+
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,101 @@
+package com.fw.bench;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fw.form.FormBinder;
+
+/**
+ * フォームバインド（{@link FormBinder}）のベンチマーク
+ * <p>
+ * {@link com.fw.core.MainServlet} と同様に、リクエストパラメータを 40 項目のフォームに設定する。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FormBindingBenchmark
+{
+	private final Map<String, String[]> _params = new HashMap<>();
+
+	private final BiConsumer<String, Exception> _onError = (name, ex) -> { throw new IllegalStateException(name, ex); };
+
+	private FormBinder<WideForm> _binder;
+
+	@Setup
+	public void setup()
+	{
+		_params.put("pageId", new String[] { "bench" });
+		_params.put("eventId", new String[] { "submit" });
+		_params.put("field00", new String[] { "value" });
+		_params.put("field01", new String[] { "123" });
+		_params.put("field02", new String[] { "1234567890123" });
+		_params.put("field03", new String[] { "on" });
+		_params.put("field04", new String[] { "42" });
+		_params.put("field05", new String[] { "12345.67" });
+		_params.put("field06", new String[] { "2024-01-31" });
+		_params.put("field07", new String[] { "value" });
+		_params.put("field08", new String[] { "value" });
+		_params.put("field09", new String[] { "123" });
+		_params.put("field10", new String[] { "1234567890123" });
+		_params.put("field11", new String[] { "on" });
+		_params.put("field12", new String[] { "42" });
+		_params.put("field13", new String[] { "12345.67" });
+		_params.put("field14", new String[] { "2024-01-31" });
+		_params.put("field15", new String[] { "value" });
+		_params.put("field16", new String[] { "value" });
+		_params.put("field17", new String[] { "123" });
+		_params.put("field18", new String[] { "1234567890123" });
+		_params.put("field19", new String[] { "on" });
+		_params.put("field20", new String[] { "42" });
+		_params.put("field21", new String[] { "12345.67" });
+		_params.put("field22", new String[] { "2024-01-31" });
+		_params.put("field23", new String[] { "value" });
+		_params.put("field24", new String[] { "value" });
+		_params.put("field25", new String[] { "123" });
+		_params.put("field26", new String[] { "1234567890123" });
+		_params.put("field27", new String[] { "on" });
+		_params.put("field28", new String[] { "42" });
+		_params.put("field29", new String[] { "12345.67" });
+		_params.put("field30", new String[] { "2024-01-31" });
+		_params.put("field31", new String[] { "value" });
+		_params.put("field32", new String[] { "value" });
+		_params.put("field33", new String[] { "123" });
+		_params.put("field34", new String[] { "1234567890123" });
+		_params.put("field35", new String[] { "on" });
+		_params.put("field36", new String[] { "42" });
+		_params.put("field37", new String[] { "12345.67" });
+		_params.put("field38", new String[] { "2024-01-31" });
+		_params.put("field39", new String[] { "value" });
+		// フォームに存在しないパラメータ（ボタン名等）
+		_params.put("submit", new String[] { "送信" });
+
+		_binder = FormBinder.of(WideForm.class);
+	}
+
+	@Benchmark
+	public WideForm bind()
+	{
+		WideForm form = new WideForm();
+		_binder.bind(form, _params, _onError);
+		return form;
+	}
+}
@@ -0,0 +1,98 @@
+package com.fw.bench;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fw.util.HTMLUtils;
+
+/**
+ * {@link HTMLUtils} のベンチマーク
+ * <p>
+ * 入力欄の値程度（64 文字）から、掲示板の本文程度（16K 文字）までのテキストを変換する。
+ * "plain" はエスケープ対象を含まないテキスト、"markup" は記号と改行を含むテキスト。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HTMLUtilsBenchmark
+{
+	// エスケープ対象を含まない文
+	private static final String PLAIN = "本日はお問い合わせいただきありがとうございます。担当者より折り返しご連絡いたします。 ";
+
+	// エスケープ対象と改行を含む文
+	private static final String MARKUP = "<p class=\"note\">Tom & Jerry's \"show\"</p>\r\n価格 < 1,000円 > 500円\n";
+
+	@Param({ "64", "1024", "16384" })
+	public int length;
+
+	@Param({ "plain", "markup" })
+	public String kind;
+
+	private String _text;
+
+	// JSP の出力バッファに相当する出力先
+	private final CharArrayWriter _out = new CharArrayWriter(32 * 1024);
+
+	@Setup
+	public void setup()
+	{
+		String unit = "plain".equals(kind) ? PLAIN : MARKUP;
+		StringBuilder builder = new StringBuilder(length + unit.length());
+		while(builder.length() < length)
+		{
+			builder.append(unit);
+		}
+		_text = builder.substring(0, length);
+	}
+
+	@Benchmark
+	public String sanitize()
+	{
+		return HTMLUtils.sanitize(_text);
+	}
+
+	@Benchmark
+	public String convRetCodeToTag()
+	{
+		return HTMLUtils.convRetCodeToTag(_text);
+	}
+
+	@Benchmark
+	public String sanitizeAndConvRetCodeToTag()
+	{
+		return HTMLUtils.convRetCodeToTag(HTMLUtils.sanitize(_text));
+	}
+
+	@Benchmark
+	public String sanitizeAndConvRetCodeToTagFused()
+	{
+		return HTMLUtils.sanitizeAndConvRetCodeToTag(_text);
+	}
+
+	@Benchmark
+	public CharArrayWriter sanitizeAndConvRetCodeToTagWriter() throws IOException
+	{
+		_out.reset();
+		HTMLUtils.sanitizeAndConvRetCodeToTag(_text, _out);
+		return _out;
+	}
+}
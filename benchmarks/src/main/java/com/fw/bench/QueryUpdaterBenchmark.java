@@ -0,0 +1,104 @@
+package com.fw.bench;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fw.db.DBAgent;
+import com.fw.db.QueryUpdater;
+
+/**
+ * {@link QueryUpdater} のベンチマーク
+ * <p>
+ * 1 件ずつの更新と、100 件単位のバッチ更新を計測する。
+ * 更新はイテレーション毎にロールバックし、テーブルの状態を一定に保つ。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QueryUpdaterBenchmark
+{
+	// テーブルの行数
+	private static final int ROWS = 1000;
+
+	// バッチ更新の件数
+	private static final int BATCH_SIZE = 100;
+
+	// 更新クエリ
+	private static final String UPDATE = "UPDATE bench_counter SET hits = hits + 1, label = ? WHERE id = ?";
+
+	@Setup(Level.Trial)
+	public void setupTrial() throws SQLException
+	{
+		BenchDatabase.execute
+		(
+			"DROP TABLE IF EXISTS bench_counter",
+			"CREATE TABLE bench_counter (id INT PRIMARY KEY, hits BIGINT NOT NULL, label VARCHAR(64))",
+			"INSERT INTO bench_counter SELECT x, 0, NULL FROM SYSTEM_RANGE(1, " + ROWS + ")"
+		);
+		BenchDatabase.init();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDownTrial()
+	{
+		BenchDatabase.shutdown();
+	}
+
+	@Setup(Level.Iteration)
+	public void setupIteration() throws SQLException
+	{
+		DBAgent.beginTransaction(BenchDatabase.getContext());
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDownIteration() throws SQLException
+	{
+		try
+		{
+			DBAgent.rollback();
+		}
+		finally
+		{
+			DBAgent.dispose();
+		}
+	}
+
+	@Benchmark
+	public int update() throws SQLException
+	{
+		int id = ThreadLocalRandom.current().nextInt(ROWS) + 1;
+		return QueryUpdater.update(UPDATE, "label", id);
+	}
+
+	@Benchmark
+	public int[] updateBatch() throws SQLException
+	{
+		int start = ThreadLocalRandom.current().nextInt(ROWS - BATCH_SIZE) + 1;
+		QueryUpdater.Batch batch = QueryUpdater.batch(UPDATE);
+		for(int i=0; i<BATCH_SIZE; i++)
+		{
+			batch.add("label", start + i);
+		}
+		return batch.execute();
+	}
+}
@@ -0,0 +1,137 @@
+package com.fw.bench;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fw.db.DBAgent;
+import com.fw.db.QueryLoader;
+
+/**
+ * {@link QueryLoader#loadAsList(Class, String, Object...)} のベンチマーク
+ * <p>
+ * 取得行数とカラム数を変えて、インメモリデータベース（H2）からエンティティへの変換を計測する。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RowMappingBenchmark
+{
+	// テーブルの行数
+	private static final int MAX_ROWS = 10_000;
+
+	@Param({ "10", "1000", "10000" })
+	public int rows;
+
+	@Param({ "4", "16" })
+	public int columns;
+
+	private String _query;
+
+	@Setup(Level.Trial)
+	public void setupTrial() throws SQLException
+	{
+		StringBuilder ddl = new StringBuilder("CREATE TABLE IF NOT EXISTS bench_rows (c0 BIGINT PRIMARY KEY");
+		StringBuilder select = new StringBuilder("SELECT ");
+		for(int i=1; i<16; i++)
+		{
+			ddl.append(", c").append(i).append(' ').append(sqlType(i));
+		}
+		ddl.append(')');
+
+		StringBuilder insert = new StringBuilder("INSERT INTO bench_rows SELECT x");
+		for(int i=1; i<16; i++)
+		{
+			insert.append(", ").append(sqlValue(i));
+		}
+		insert.append(" FROM SYSTEM_RANGE(1, ").append(MAX_ROWS).append(')');
+
+		BenchDatabase.execute("DROP TABLE IF EXISTS bench_rows", ddl.toString(), insert.toString());
+		BenchDatabase.init();
+
+		for(int i=0; i<columns; i++)
+		{
+			if(i > 0) select.append(", ");
+			select.append('c').append(i);
+		}
+		_query = select.append(" FROM bench_rows WHERE c0 <= ? ORDER BY c0").toString();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDownTrial()
+	{
+		BenchDatabase.shutdown();
+	}
+
+	@Setup(Level.Iteration)
+	public void setupIteration() throws SQLException
+	{
+		DBAgent.beginTransaction(BenchDatabase.getContext(), true);
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDownIteration() throws SQLException
+	{
+		DBAgent.dispose();
+	}
+
+	@Benchmark
+	public List<WideRow> loadAsList() throws SQLException
+	{
+		return QueryLoader.loadAsList(WideRow.class, _query, rows);
+	}
+
+	/**
+	 * カラムの型を返す（{@link WideRow} のプロパティに対応）。
+	 *
+	 * @param index カラム番号
+	 * @return SQL の型
+	 */
+	private static String sqlType(int index)
+	{
+		switch(index % 4)
+		{
+			case 0:  return "BIGINT";
+			case 1:  return "VARCHAR(64)";
+			case 2:  return "INT";
+			default: return "DOUBLE";
+		}
+	}
+
+	/**
+	 * カラムの値の式を返す。
+	 *
+	 * @param index カラム番号
+	 * @return SQL の式
+	 */
+	private static String sqlValue(int index)
+	{
+		switch(index % 4)
+		{
+			case 0:  return "x * " + index;
+			case 1:  return "CONCAT('value-', x, '-" + index + "')";
+			case 2:  return "MOD(x, 1000)";
+			default: return "x / 7.0";
+		}
+	}
+}
@@ -0,0 +1,455 @@
+package com.fw.bench;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import com.fw.form.BaseForm;
+
+/**
+ * フォームバインドのベンチマーク用フォーム（40 項目）
+ *
+ * @author t.yoshida
+ */
+public class WideForm extends BaseForm
+{
+	private String field00;
+	private int field01;
+	private long field02;
+	private boolean field03;
+	private Integer field04;
+	private BigDecimal field05;
+	private LocalDate field06;
+	private String field07;
+	private String field08;
+	private int field09;
+	private long field10;
+	private boolean field11;
+	private Integer field12;
+	private BigDecimal field13;
+	private LocalDate field14;
+	private String field15;
+	private String field16;
+	private int field17;
+	private long field18;
+	private boolean field19;
+	private Integer field20;
+	private BigDecimal field21;
+	private LocalDate field22;
+	private String field23;
+	private String field24;
+	private int field25;
+	private long field26;
+	private boolean field27;
+	private Integer field28;
+	private BigDecimal field29;
+	private LocalDate field30;
+	private String field31;
+	private String field32;
+	private int field33;
+	private long field34;
+	private boolean field35;
+	private Integer field36;
+	private BigDecimal field37;
+	private LocalDate field38;
+	private String field39;
+
+	public String getField00()
+	{
+		return field00;
+	}
+
+	public void setField00(String field00)
+	{
+		this.field00 = field00;
+	}
+
+	public int getField01()
+	{
+		return field01;
+	}
+
+	public void setField01(int field01)
+	{
+		this.field01 = field01;
+	}
+
+	public long getField02()
+	{
+		return field02;
+	}
+
+	public void setField02(long field02)
+	{
+		this.field02 = field02;
+	}
+
+	public boolean getField03()
+	{
+		return field03;
+	}
+
+	public void setField03(boolean field03)
+	{
+		this.field03 = field03;
+	}
+
+	public Integer getField04()
+	{
+		return field04;
+	}
+
+	public void setField04(Integer field04)
+	{
+		this.field04 = field04;
+	}
+
+	public BigDecimal getField05()
+	{
+		return field05;
+	}
+
+	public void setField05(BigDecimal field05)
+	{
+		this.field05 = field05;
+	}
+
+	public LocalDate getField06()
+	{
+		return field06;
+	}
+
+	public void setField06(LocalDate field06)
+	{
+		this.field06 = field06;
+	}
+
+	public String getField07()
+	{
+		return field07;
+	}
+
+	public void setField07(String field07)
+	{
+		this.field07 = field07;
+	}
+
+	public String getField08()
+	{
+		return field08;
+	}
+
+	public void setField08(String field08)
+	{
+		this.field08 = field08;
+	}
+
+	public int getField09()
+	{
+		return field09;
+	}
+
+	public void setField09(int field09)
+	{
+		this.field09 = field09;
+	}
+
+	public long getField10()
+	{
+		return field10;
+	}
+
+	public void setField10(long field10)
+	{
+		this.field10 = field10;
+	}
+
+	public boolean getField11()
+	{
+		return field11;
+	}
+
+	public void setField11(boolean field11)
+	{
+		this.field11 = field11;
+	}
+
+	public Integer getField12()
+	{
+		return field12;
+	}
+
+	public void setField12(Integer field12)
+	{
+		this.field12 = field12;
+	}
+
+	public BigDecimal getField13()
+	{
+		return field13;
+	}
+
+	public void setField13(BigDecimal field13)
+	{
+		this.field13 = field13;
+	}
+
+	public LocalDate getField14()
+	{
+		return field14;
+	}
+
+	public void setField14(LocalDate field14)
+	{
+		this.field14 = field14;
+	}
+
+	public String getField15()
+	{
+		return field15;
+	}
+
+	public void setField15(String field15)
+	{
+		this.field15 = field15;
+	}
+
+	public String getField16()
+	{
+		return field16;
+	}
+
+	public void setField16(String field16)
+	{
+		this.field16 = field16;
+	}
+
+	public int getField17()
+	{
+		return field17;
+	}
+
+	public void setField17(int field17)
+	{
+		this.field17 = field17;
+	}
+
+	public long getField18()
+	{
+		return field18;
+	}
+
+	public void setField18(long field18)
+	{
+		this.field18 = field18;
+	}
+
+	public boolean getField19()
+	{
+		return field19;
+	}
+
+	public void setField19(boolean field19)
+	{
+		this.field19 = field19;
+	}
+
+	public Integer getField20()
+	{
+		return field20;
+	}
+
+	public void setField20(Integer field20)
+	{
+		this.field20 = field20;
+	}
+
+	public BigDecimal getField21()
+	{
+		return field21;
+	}
+
+	public void setField21(BigDecimal field21)
+	{
+		this.field21 = field21;
+	}
+
+	public LocalDate getField22()
+	{
+		return field22;
+	}
+
+	public void setField22(LocalDate field22)
+	{
+		this.field22 = field22;
+	}
+
+	public String getField23()
+	{
+		return field23;
+	}
+
+	public void setField23(String field23)
+	{
+		this.field23 = field23;
+	}
+
+	public String getField24()
+	{
+		return field24;
+	}
+
+	public void setField24(String field24)
+	{
+		this.field24 = field24;
+	}
+
+	public int getField25()
+	{
+		return field25;
+	}
+
+	public void setField25(int field25)
+	{
+		this.field25 = field25;
+	}
+
+	public long getField26()
+	{
+		return field26;
+	}
+
+	public void setField26(long field26)
+	{
+		this.field26 = field26;
+	}
+
+	public boolean getField27()
+	{
+		return field27;
+	}
+
+	public void setField27(boolean field27)
+	{
+		this.field27 = field27;
+	}
+
+	public Integer getField28()
+	{
+		return field28;
+	}
+
+	public void setField28(Integer field28)
+	{
+		this.field28 = field28;
+	}
+
+	public BigDecimal getField29()
+	{
+		return field29;
+	}
+
+	public void setField29(BigDecimal field29)
+	{
+		this.field29 = field29;
+	}
+
+	public LocalDate getField30()
+	{
+		return field30;
+	}
+
+	public void setField30(LocalDate field30)
+	{
+		this.field30 = field30;
+	}
+
+	public String getField31()
+	{
+		return field31;
+	}
+
+	public void setField31(String field31)
+	{
+		this.field31 = field31;
+	}
+
+	public String getField32()
+	{
+		return field32;
+	}
+
+	public void setField32(String field32)
+	{
+		this.field32 = field32;
+	}
+
+	public int getField33()
+	{
+		return field33;
+	}
+
+	public void setField33(int field33)
+	{
+		this.field33 = field33;
+	}
+
+	public long getField34()
+	{
+		return field34;
+	}
+
+	public void setField34(long field34)
+	{
+		this.field34 = field34;
+	}
+
+	public boolean getField35()
+	{
+		return field35;
+	}
+
+	public void setField35(boolean field35)
+	{
+		this.field35 = field35;
+	}
+
+	public Integer getField36()
+	{
+		return field36;
+	}
+
+	public void setField36(Integer field36)
+	{
+		this.field36 = field36;
+	}
+
+	public BigDecimal getField37()
+	{
+		return field37;
+	}
+
+	public void setField37(BigDecimal field37)
+	{
+		this.field37 = field37;
+	}
+
+	public LocalDate getField38()
+	{
+		return field38;
+	}
+
+	public void setField38(LocalDate field38)
+	{
+		this.field38 = field38;
+	}
+
+	public String getField39()
+	{
+		return field39;
+	}
+
+	public void setField39(String field39)
+	{
+		this.field39 = field39;
+	}
+}
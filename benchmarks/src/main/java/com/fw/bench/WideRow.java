@@ -0,0 +1,186 @@
+package com.fw.bench;
+
+/**
+ * 行マッピングのベンチマーク用エンティティ（最大 16 カラム）
+ *
+ * @author t.yoshida
+ */
+public class WideRow
+{
+	private long c0;
+	private String c1;
+	private int c2;
+	private double c3;
+	private long c4;
+	private String c5;
+	private int c6;
+	private double c7;
+	private long c8;
+	private String c9;
+	private int c10;
+	private double c11;
+	private long c12;
+	private String c13;
+	private int c14;
+	private double c15;
+
+	public long getC0()
+	{
+		return c0;
+	}
+
+	public void setC0(long c0)
+	{
+		this.c0 = c0;
+	}
+
+	public String getC1()
+	{
+		return c1;
+	}
+
+	public void setC1(String c1)
+	{
+		this.c1 = c1;
+	}
+
+	public int getC2()
+	{
+		return c2;
+	}
+
+	public void setC2(int c2)
+	{
+		this.c2 = c2;
+	}
+
+	public double getC3()
+	{
+		return c3;
+	}
+
+	public void setC3(double c3)
+	{
+		this.c3 = c3;
+	}
+
+	public long getC4()
+	{
+		return c4;
+	}
+
+	public void setC4(long c4)
+	{
+		this.c4 = c4;
+	}
+
+	public String getC5()
+	{
+		return c5;
+	}
+
+	public void setC5(String c5)
+	{
+		this.c5 = c5;
+	}
+
+	public int getC6()
+	{
+		return c6;
+	}
+
+	public void setC6(int c6)
+	{
+		this.c6 = c6;
+	}
+
+	public double getC7()
+	{
+		return c7;
+	}
+
+	public void setC7(double c7)
+	{
+		this.c7 = c7;
+	}
+
+	public long getC8()
+	{
+		return c8;
+	}
+
+	public void setC8(long c8)
+	{
+		this.c8 = c8;
+	}
+
+	public String getC9()
+	{
+		return c9;
+	}
+
+	public void setC9(String c9)
+	{
+		this.c9 = c9;
+	}
+
+	public int getC10()
+	{
+		return c10;
+	}
+
+	public void setC10(int c10)
+	{
+		this.c10 = c10;
+	}
+
+	public double getC11()
+	{
+		return c11;
+	}
+
+	public void setC11(double c11)
+	{
+		this.c11 = c11;
+	}
+
+	public long getC12()
+	{
+		return c12;
+	}
+
+	public void setC12(long c12)
+	{
+		this.c12 = c12;
+	}
+
+	public String getC13()
+	{
+		return c13;
+	}
+
+	public void setC13(String c13)
+	{
+		this.c13 = c13;
+	}
+
+	public int getC14()
+	{
+		return c14;
+	}
+
+	public void setC14(int c14)
+	{
+		this.c14 = c14;
+	}
+
+	public double getC15()
+	{
+		return c15;
+	}
+
+	public void setC15(double c15)
+	{
+		this.c15 = c15;
+	}
+}
@@ -0,0 +1,81 @@
+package com.fw.core;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fw.form.BaseForm;
+
+/**
+ * {@link ActionManager#find(String, String)} のベンチマーク
+ * <p>
+ * 登録された {@link Action} 実装の数を変えて、画面ID、イベントIDからの検索と生成を計測する。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ActionDispatchBenchmark
+{
+	// 検索する画面IDの数（2 のべき乗）
+	private static final int KEYS = 1024;
+
+	@Param({ "8", "64", "256" })
+	public int actions;
+
+	private ActionManager<BaseForm> _manager;
+
+	private String[] _pageIds;
+
+	private int _cursor;
+
+	@Setup
+	public void setup()
+	{
+		System.setProperty(BenchActionRegistry.COUNT_PROPERTY, String.valueOf(actions));
+		_manager = new ActionManager<>(new ActionSpecificInfo()
+		{
+			@Override
+			@SuppressWarnings("unchecked")
+			public <P extends BaseForm> Action<P> createDefaultAction()
+			{
+				return (Action<P>)new BenchActions.Base() { };
+			}
+
+			@Override
+			public String getPackageNameWhereActionImplExists()
+			{
+				return "com.fw.core";
+			}
+		});
+
+		// 登録済みの画面IDと、未登録の画面ID（デフォルトアクション）を混在させる
+		_pageIds = new String[KEYS];
+		for(int i=0; i<KEYS; i++)
+		{
+			_pageIds[i] = String.format("page%03d", ThreadLocalRandom.current().nextInt(actions + actions / 8 + 1));
+		}
+	}
+
+	@Benchmark
+	public Action<BaseForm> find()
+	{
+		return _manager.find(_pageIds[_cursor++ & (KEYS - 1)], "show");
+	}
+}
@@ -0,0 +1,25 @@
+package com.fw.core;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ディスパッチのベンチマーク用の登録情報
+ * <p>
+ * システムプロパティ "fw.bench.actions" に指定された数の {@link BenchActions} を返す（デフォルト: 全て）。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+public class BenchActionRegistry implements ActionRegistry
+{
+	// 登録数を指定するシステムプロパティ
+	static final String COUNT_PROPERTY = "fw.bench.actions";
+
+	@Override
+	public List<Class<?>> getActionClasses()
+	{
+		int count = Integer.getInteger(COUNT_PROPERTY, BenchActions.MAX);
+		return Arrays.asList(BenchActions.classes(count));
+	}
+}
@@ -0,0 +1,330 @@
+package com.fw.core;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import com.fw.form.BaseForm;
+
+/**
+ * ディスパッチのベンチマーク用 {@link Action} 実装
+ * <p>
+ * 画面ID "page000"～"page255" に、それぞれイベントID "show"（ステートレス）を割り当てる。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+public final class BenchActions
+{
+	// 登録可能な Action 実装の数
+	public static final int MAX = 256;
+
+	private BenchActions()
+	{
+
+	}
+
+	/**
+	 * 何もしない {@link Action} 実装の基底クラス
+	 */
+	public static abstract class Base implements Action<BaseForm>
+	{
+		@Override
+		public boolean isReadOnly()
+		{
+			return true;
+		}
+
+		@Override
+		public void execute(BaseForm form, DataContainer container) throws SQLException
+		{
+
+		}
+
+		@Override
+		public String moveTo()
+		{
+			return "/bench.jsp";
+		}
+	}
+
+	/**
+	 * 先頭から指定数の {@link Action} 実装クラスを返す。
+	 *
+	 * @param count 数
+	 * @return {@link Action} 実装クラス
+	 */
+	public static Class<?>[] classes(int count)
+	{
+		Class<?>[] classes = BenchActions.class.getDeclaredClasses();
+		Arrays.sort(classes, Comparator.comparing(Class::getSimpleName));
+
+		List<Class<?>> actions = new ArrayList<>();
+		for(Class<?> clazz : classes)
+		{
+			if(actions.size() == count) break;
+			if(clazz.getAnnotation(Page.class) != null) actions.add(clazz);
+		}
+
+		return actions.toArray(new Class<?>[0]);
+	}
+
+	@Page(pageId = "page000", eventId = "show", stateless = true) public static final class A000 extends Base { }
+	@Page(pageId = "page001", eventId = "show", stateless = true) public static final class A001 extends Base { }
+	@Page(pageId = "page002", eventId = "show", stateless = true) public static final class A002 extends Base { }
+	@Page(pageId = "page003", eventId = "show", stateless = true) public static final class A003 extends Base { }
+	@Page(pageId = "page004", eventId = "show", stateless = true) public static final class A004 extends Base { }
+	@Page(pageId = "page005", eventId = "show", stateless = true) public static final class A005 extends Base { }
+	@Page(pageId = "page006", eventId = "show", stateless = true) public static final class A006 extends Base { }
+	@Page(pageId = "page007", eventId = "show", stateless = true) public static final class A007 extends Base { }
+	@Page(pageId = "page008", eventId = "show", stateless = true) public static final class A008 extends Base { }
+	@Page(pageId = "page009", eventId = "show", stateless = true) public static final class A009 extends Base { }
+	@Page(pageId = "page010", eventId = "show", stateless = true) public static final class A010 extends Base { }
+	@Page(pageId = "page011", eventId = "show", stateless = true) public static final class A011 extends Base { }
+	@Page(pageId = "page012", eventId = "show", stateless = true) public static final class A012 extends Base { }
+	@Page(pageId = "page013", eventId = "show", stateless = true) public static final class A013 extends Base { }
+	@Page(pageId = "page014", eventId = "show", stateless = true) public static final class A014 extends Base { }
+	@Page(pageId = "page015", eventId = "show", stateless = true) public static final class A015 extends Base { }
+	@Page(pageId = "page016", eventId = "show", stateless = true) public static final class A016 extends Base { }
+	@Page(pageId = "page017", eventId = "show", stateless = true) public static final class A017 extends Base { }
+	@Page(pageId = "page018", eventId = "show", stateless = true) public static final class A018 extends Base { }
+	@Page(pageId = "page019", eventId = "show", stateless = true) public static final class A019 extends Base { }
+	@Page(pageId = "page020", eventId = "show", stateless = true) public static final class A020 extends Base { }
+	@Page(pageId = "page021", eventId = "show", stateless = true) public static final class A021 extends Base { }
+	@Page(pageId = "page022", eventId = "show", stateless = true) public static final class A022 extends Base { }
+	@Page(pageId = "page023", eventId = "show", stateless = true) public static final class A023 extends Base { }
+	@Page(pageId = "page024", eventId = "show", stateless = true) public static final class A024 extends Base { }
+	@Page(pageId = "page025", eventId = "show", stateless = true) public static final class A025 extends Base { }
+	@Page(pageId = "page026", eventId = "show", stateless = true) public static final class A026 extends Base { }
+	@Page(pageId = "page027", eventId = "show", stateless = true) public static final class A027 extends Base { }
+	@Page(pageId = "page028", eventId = "show", stateless = true) public static final class A028 extends Base { }
+	@Page(pageId = "page029", eventId = "show", stateless = true) public static final class A029 extends Base { }
+	@Page(pageId = "page030", eventId = "show", stateless = true) public static final class A030 extends Base { }
+	@Page(pageId = "page031", eventId = "show", stateless = true) public static final class A031 extends Base { }
+	@Page(pageId = "page032", eventId = "show", stateless = true) public static final class A032 extends Base { }
+	@Page(pageId = "page033", eventId = "show", stateless = true) public static final class A033 extends Base { }
+	@Page(pageId = "page034", eventId = "show", stateless = true) public static final class A034 extends Base { }
+	@Page(pageId = "page035", eventId = "show", stateless = true) public static final class A035 extends Base { }
+	@Page(pageId = "page036", eventId = "show", stateless = true) public static final class A036 extends Base { }
+	@Page(pageId = "page037", eventId = "show", stateless = true) public static final class A037 extends Base { }
+	@Page(pageId = "page038", eventId = "show", stateless = true) public static final class A038 extends Base { }
+	@Page(pageId = "page039", eventId = "show", stateless = true) public static final class A039 extends Base { }
+	@Page(pageId = "page040", eventId = "show", stateless = true) public static final class A040 extends Base { }
+	@Page(pageId = "page041", eventId = "show", stateless = true) public static final class A041 extends Base { }
+	@Page(pageId = "page042", eventId = "show", stateless = true) public static final class A042 extends Base { }
+	@Page(pageId = "page043", eventId = "show", stateless = true) public static final class A043 extends Base { }
+	@Page(pageId = "page044", eventId = "show", stateless = true) public static final class A044 extends Base { }
+	@Page(pageId = "page045", eventId = "show", stateless = true) public static final class A045 extends Base { }
+	@Page(pageId = "page046", eventId = "show", stateless = true) public static final class A046 extends Base { }
+	@Page(pageId = "page047", eventId = "show", stateless = true) public static final class A047 extends Base { }
+	@Page(pageId = "page048", eventId = "show", stateless = true) public static final class A048 extends Base { }
+	@Page(pageId = "page049", eventId = "show", stateless = true) public static final class A049 extends Base { }
+	@Page(pageId = "page050", eventId = "show", stateless = true) public static final class A050 extends Base { }
+	@Page(pageId = "page051", eventId = "show", stateless = true) public static final class A051 extends Base { }
+	@Page(pageId = "page052", eventId = "show", stateless = true) public static final class A052 extends Base { }
+	@Page(pageId = "page053", eventId = "show", stateless = true) public static final class A053 extends Base { }
+	@Page(pageId = "page054", eventId = "show", stateless = true) public static final class A054 extends Base { }
+	@Page(pageId = "page055", eventId = "show", stateless = true) public static final class A055 extends Base { }
+	@Page(pageId = "page056", eventId = "show", stateless = true) public static final class A056 extends Base { }
+	@Page(pageId = "page057", eventId = "show", stateless = true) public static final class A057 extends Base { }
+	@Page(pageId = "page058", eventId = "show", stateless = true) public static final class A058 extends Base { }
+	@Page(pageId = "page059", eventId = "show", stateless = true) public static final class A059 extends Base { }
+	@Page(pageId = "page060", eventId = "show", stateless = true) public static final class A060 extends Base { }
+	@Page(pageId = "page061", eventId = "show", stateless = true) public static final class A061 extends Base { }
+	@Page(pageId = "page062", eventId = "show", stateless = true) public static final class A062 extends Base { }
+	@Page(pageId = "page063", eventId = "show", stateless = true) public static final class A063 extends Base { }
+	@Page(pageId = "page064", eventId = "show", stateless = true) public static final class A064 extends Base { }
+	@Page(pageId = "page065", eventId = "show", stateless = true) public static final class A065 extends Base { }
+	@Page(pageId = "page066", eventId = "show", stateless = true) public static final class A066 extends Base { }
+	@Page(pageId = "page067", eventId = "show", stateless = true) public static final class A067 extends Base { }
+	@Page(pageId = "page068", eventId = "show", stateless = true) public static final class A068 extends Base { }
+	@Page(pageId = "page069", eventId = "show", stateless = true) public static final class A069 extends Base { }
+	@Page(pageId = "page070", eventId = "show", stateless = true) public static final class A070 extends Base { }
+	@Page(pageId = "page071", eventId = "show", stateless = true) public static final class A071 extends Base { }
+	@Page(pageId = "page072", eventId = "show", stateless = true) public static final class A072 extends Base { }
+	@Page(pageId = "page073", eventId = "show", stateless = true) public static final class A073 extends Base { }
+	@Page(pageId = "page074", eventId = "show", stateless = true) public static final class A074 extends Base { }
+	@Page(pageId = "page075", eventId = "show", stateless = true) public static final class A075 extends Base { }
+	@Page(pageId = "page076", eventId = "show", stateless = true) public static final class A076 extends Base { }
+	@Page(pageId = "page077", eventId = "show", stateless = true) public static final class A077 extends Base { }
+	@Page(pageId = "page078", eventId = "show", stateless = true) public static final class A078 extends Base { }
+	@Page(pageId = "page079", eventId = "show", stateless = true) public static final class A079 extends Base { }
+	@Page(pageId = "page080", eventId = "show", stateless = true) public static final class A080 extends Base { }
+	@Page(pageId = "page081", eventId = "show", stateless = true) public static final class A081 extends Base { }
+	@Page(pageId = "page082", eventId = "show", stateless = true) public static final class A082 extends Base { }
+	@Page(pageId = "page083", eventId = "show", stateless = true) public static final class A083 extends Base { }
+	@Page(pageId = "page084", eventId = "show", stateless = true) public static final class A084 extends Base { }
+	@Page(pageId = "page085", eventId = "show", stateless = true) public static final class A085 extends Base { }
+	@Page(pageId = "page086", eventId = "show", stateless = true) public static final class A086 extends Base { }
+	@Page(pageId = "page087", eventId = "show", stateless = true) public static final class A087 extends Base { }
+	@Page(pageId = "page088", eventId = "show", stateless = true) public static final class A088 extends Base { }
+	@Page(pageId = "page089", eventId = "show", stateless = true) public static final class A089 extends Base { }
+	@Page(pageId = "page090", eventId = "show", stateless = true) public static final class A090 extends Base { }
+	@Page(pageId = "page091", eventId = "show", stateless = true) public static final class A091 extends Base { }
+	@Page(pageId = "page092", eventId = "show", stateless = true) public static final class A092 extends Base { }
+	@Page(pageId = "page093", eventId = "show", stateless = true) public static final class A093 extends Base { }
+	@Page(pageId = "page094", eventId = "show", stateless = true) public static final class A094 extends Base { }
+	@Page(pageId = "page095", eventId = "show", stateless = true) public static final class A095 extends Base { }
+	@Page(pageId = "page096", eventId = "show", stateless = true) public static final class A096 extends Base { }
+	@Page(pageId = "page097", eventId = "show", stateless = true) public static final class A097 extends Base { }
+	@Page(pageId = "page098", eventId = "show", stateless = true) public static final class A098 extends Base { }
+	@Page(pageId = "page099", eventId = "show", stateless = true) public static final class A099 extends Base { }
+	@Page(pageId = "page100", eventId = "show", stateless = true) public static final class A100 extends Base { }
+	@Page(pageId = "page101", eventId = "show", stateless = true) public static final class A101 extends Base { }
+	@Page(pageId = "page102", eventId = "show", stateless = true) public static final class A102 extends Base { }
+	@Page(pageId = "page103", eventId = "show", stateless = true) public static final class A103 extends Base { }
+	@Page(pageId = "page104", eventId = "show", stateless = true) public static final class A104 extends Base { }
+	@Page(pageId = "page105", eventId = "show", stateless = true) public static final class A105 extends Base { }
+	@Page(pageId = "page106", eventId = "show", stateless = true) public static final class A106 extends Base { }
+	@Page(pageId = "page107", eventId = "show", stateless = true) public static final class A107 extends Base { }
+	@Page(pageId = "page108", eventId = "show", stateless = true) public static final class A108 extends Base { }
+	@Page(pageId = "page109", eventId = "show", stateless = true) public static final class A109 extends Base { }
+	@Page(pageId = "page110", eventId = "show", stateless = true) public static final class A110 extends Base { }
+	@Page(pageId = "page111", eventId = "show", stateless = true) public static final class A111 extends Base { }
+	@Page(pageId = "page112", eventId = "show", stateless = true) public static final class A112 extends Base { }
+	@Page(pageId = "page113", eventId = "show", stateless = true) public static final class A113 extends Base { }
+	@Page(pageId = "page114", eventId = "show", stateless = true) public static final class A114 extends Base { }
+	@Page(pageId = "page115", eventId = "show", stateless = true) public static final class A115 extends Base { }
+	@Page(pageId = "page116", eventId = "show", stateless = true) public static final class A116 extends Base { }
+	@Page(pageId = "page117", eventId = "show", stateless = true) public static final class A117 extends Base { }
+	@Page(pageId = "page118", eventId = "show", stateless = true) public static final class A118 extends Base { }
+	@Page(pageId = "page119", eventId = "show", stateless = true) public static final class A119 extends Base { }
+	@Page(pageId = "page120", eventId = "show", stateless = true) public static final class A120 extends Base { }
+	@Page(pageId = "page121", eventId = "show", stateless = true) public static final class A121 extends Base { }
+	@Page(pageId = "page122", eventId = "show", stateless = true) public static final class A122 extends Base { }
+	@Page(pageId = "page123", eventId = "show", stateless = true) public static final class A123 extends Base { }
+	@Page(pageId = "page124", eventId = "show", stateless = true) public static final class A124 extends Base { }
+	@Page(pageId = "page125", eventId = "show", stateless = true) public static final class A125 extends Base { }
+	@Page(pageId = "page126", eventId = "show", stateless = true) public static final class A126 extends Base { }
+	@Page(pageId = "page127", eventId = "show", stateless = true) public static final class A127 extends Base { }
+	@Page(pageId = "page128", eventId = "show", stateless = true) public static final class A128 extends Base { }
+	@Page(pageId = "page129", eventId = "show", stateless = true) public static final class A129 extends Base { }
+	@Page(pageId = "page130", eventId = "show", stateless = true) public static final class A130 extends Base { }
+	@Page(pageId = "page131", eventId = "show", stateless = true) public static final class A131 extends Base { }
+	@Page(pageId = "page132", eventId = "show", stateless = true) public static final class A132 extends Base { }
+	@Page(pageId = "page133", eventId = "show", stateless = true) public static final class A133 extends Base { }
+	@Page(pageId = "page134", eventId = "show", stateless = true) public static final class A134 extends Base { }
+	@Page(pageId = "page135", eventId = "show", stateless = true) public static final class A135 extends Base { }
+	@Page(pageId = "page136", eventId = "show", stateless = true) public static final class A136 extends Base { }
+	@Page(pageId = "page137", eventId = "show", stateless = true) public static final class A137 extends Base { }
+	@Page(pageId = "page138", eventId = "show", stateless = true) public static final class A138 extends Base { }
+	@Page(pageId = "page139", eventId = "show", stateless = true) public static final class A139 extends Base { }
+	@Page(pageId = "page140", eventId = "show", stateless = true) public static final class A140 extends Base { }
+	@Page(pageId = "page141", eventId = "show", stateless = true) public static final class A141 extends Base { }
+	@Page(pageId = "page142", eventId = "show", stateless = true) public static final class A142 extends Base { }
+	@Page(pageId = "page143", eventId = "show", stateless = true) public static final class A143 extends Base { }
+	@Page(pageId = "page144", eventId = "show", stateless = true) public static final class A144 extends Base { }
+	@Page(pageId = "page145", eventId = "show", stateless = true) public static final class A145 extends Base { }
+	@Page(pageId = "page146", eventId = "show", stateless = true) public static final class A146 extends Base { }
+	@Page(pageId = "page147", eventId = "show", stateless = true) public static final class A147 extends Base { }
+	@Page(pageId = "page148", eventId = "show", stateless = true) public static final class A148 extends Base { }
+	@Page(pageId = "page149", eventId = "show", stateless = true) public static final class A149 extends Base { }
+	@Page(pageId = "page150", eventId = "show", stateless = true) public static final class A150 extends Base { }
+	@Page(pageId = "page151", eventId = "show", stateless = true) public static final class A151 extends Base { }
+	@Page(pageId = "page152", eventId = "show", stateless = true) public static final class A152 extends Base { }
+	@Page(pageId = "page153", eventId = "show", stateless = true) public static final class A153 extends Base { }
+	@Page(pageId = "page154", eventId = "show", stateless = true) public static final class A154 extends Base { }
+	@Page(pageId = "page155", eventId = "show", stateless = true) public static final class A155 extends Base { }
+	@Page(pageId = "page156", eventId = "show", stateless = true) public static final class A156 extends Base { }
+	@Page(pageId = "page157", eventId = "show", stateless = true) public static final class A157 extends Base { }
+	@Page(pageId = "page158", eventId = "show", stateless = true) public static final class A158 extends Base { }
+	@Page(pageId = "page159", eventId = "show", stateless = true) public static final class A159 extends Base { }
+	@Page(pageId = "page160", eventId = "show", stateless = true) public static final class A160 extends Base { }
+	@Page(pageId = "page161", eventId = "show", stateless = true) public static final class A161 extends Base { }
+	@Page(pageId = "page162", eventId = "show", stateless = true) public static final class A162 extends Base { }
+	@Page(pageId = "page163", eventId = "show", stateless = true) public static final class A163 extends Base { }
+	@Page(pageId = "page164", eventId = "show", stateless = true) public static final class A164 extends Base { }
+	@Page(pageId = "page165", eventId = "show", stateless = true) public static final class A165 extends Base { }
+	@Page(pageId = "page166", eventId = "show", stateless = true) public static final class A166 extends Base { }
+	@Page(pageId = "page167", eventId = "show", stateless = true) public static final class A167 extends Base { }
+	@Page(pageId = "page168", eventId = "show", stateless = true) public static final class A168 extends Base { }
+	@Page(pageId = "page169", eventId = "show", stateless = true) public static final class A169 extends Base { }
+	@Page(pageId = "page170", eventId = "show", stateless = true) public static final class A170 extends Base { }
+	@Page(pageId = "page171", eventId = "show", stateless = true) public static final class A171 extends Base { }
+	@Page(pageId = "page172", eventId = "show", stateless = true) public static final class A172 extends Base { }
+	@Page(pageId = "page173", eventId = "show", stateless = true) public static final class A173 extends Base { }
+	@Page(pageId = "page174", eventId = "show", stateless = true) public static final class A174 extends Base { }
+	@Page(pageId = "page175", eventId = "show", stateless = true) public static final class A175 extends Base { }
+	@Page(pageId = "page176", eventId = "show", stateless = true) public static final class A176 extends Base { }
+	@Page(pageId = "page177", eventId = "show", stateless = true) public static final class A177 extends Base { }
+	@Page(pageId = "page178", eventId = "show", stateless = true) public static final class A178 extends Base { }
+	@Page(pageId = "page179", eventId = "show", stateless = true) public static final class A179 extends Base { }
+	@Page(pageId = "page180", eventId = "show", stateless = true) public static final class A180 extends Base { }
+	@Page(pageId = "page181", eventId = "show", stateless = true) public static final class A181 extends Base { }
+	@Page(pageId = "page182", eventId = "show", stateless = true) public static final class A182 extends Base { }
+	@Page(pageId = "page183", eventId = "show", stateless = true) public static final class A183 extends Base { }
+	@Page(pageId = "page184", eventId = "show", stateless = true) public static final class A184 extends Base { }
+	@Page(pageId = "page185", eventId = "show", stateless = true) public static final class A185 extends Base { }
+	@Page(pageId = "page186", eventId = "show", stateless = true) public static final class A186 extends Base { }
+	@Page(pageId = "page187", eventId = "show", stateless = true) public static final class A187 extends Base { }
+	@Page(pageId = "page188", eventId = "show", stateless = true) public static final class A188 extends Base { }
+	@Page(pageId = "page189", eventId = "show", stateless = true) public static final class A189 extends Base { }
+	@Page(pageId = "page190", eventId = "show", stateless = true) public static final class A190 extends Base { }
+	@Page(pageId = "page191", eventId = "show", stateless = true) public static final class A191 extends Base { }
+	@Page(pageId = "page192", eventId = "show", stateless = true) public static final class A192 extends Base { }
+	@Page(pageId = "page193", eventId = "show", stateless = true) public static final class A193 extends Base { }
+	@Page(pageId = "page194", eventId = "show", stateless = true) public static final class A194 extends Base { }
+	@Page(pageId = "page195", eventId = "show", stateless = true) public static final class A195 extends Base { }
+	@Page(pageId = "page196", eventId = "show", stateless = true) public static final class A196 extends Base { }
+	@Page(pageId = "page197", eventId = "show", stateless = true) public static final class A197 extends Base { }
+	@Page(pageId = "page198", eventId = "show", stateless = true) public static final class A198 extends Base { }
+	@Page(pageId = "page199", eventId = "show", stateless = true) public static final class A199 extends Base { }
+	@Page(pageId = "page200", eventId = "show", stateless = true) public static final class A200 extends Base { }
+	@Page(pageId = "page201", eventId = "show", stateless = true) public static final class A201 extends Base { }
+	@Page(pageId = "page202", eventId = "show", stateless = true) public static final class A202 extends Base { }
+	@Page(pageId = "page203", eventId = "show", stateless = true) public static final class A203 extends Base { }
+	@Page(pageId = "page204", eventId = "show", stateless = true) public static final class A204 extends Base { }
+	@Page(pageId = "page205", eventId = "show", stateless = true) public static final class A205 extends Base { }
+	@Page(pageId = "page206", eventId = "show", stateless = true) public static final class A206 extends Base { }
+	@Page(pageId = "page207", eventId = "show", stateless = true) public static final class A207 extends Base { }
+	@Page(pageId = "page208", eventId = "show", stateless = true) public static final class A208 extends Base { }
+	@Page(pageId = "page209", eventId = "show", stateless = true) public static final class A209 extends Base { }
+	@Page(pageId = "page210", eventId = "show", stateless = true) public static final class A210 extends Base { }
+	@Page(pageId = "page211", eventId = "show", stateless = true) public static final class A211 extends Base { }
+	@Page(pageId = "page212", eventId = "show", stateless = true) public static final class A212 extends Base { }
+	@Page(pageId = "page213", eventId = "show", stateless = true) public static final class A213 extends Base { }
+	@Page(pageId = "page214", eventId = "show", stateless = true) public static final class A214 extends Base { }
+	@Page(pageId = "page215", eventId = "show", stateless = true) public static final class A215 extends Base { }
+	@Page(pageId = "page216", eventId = "show", stateless = true) public static final class A216 extends Base { }
+	@Page(pageId = "page217", eventId = "show", stateless = true) public static final class A217 extends Base { }
+	@Page(pageId = "page218", eventId = "show", stateless = true) public static final class A218 extends Base { }
+	@Page(pageId = "page219", eventId = "show", stateless = true) public static final class A219 extends Base { }
+	@Page(pageId = "page220", eventId = "show", stateless = true) public static final class A220 extends Base { }
+	@Page(pageId = "page221", eventId = "show", stateless = true) public static final class A221 extends Base { }
+	@Page(pageId = "page222", eventId = "show", stateless = true) public static final class A222 extends Base { }
+	@Page(pageId = "page223", eventId = "show", stateless = true) public static final class A223 extends Base { }
+	@Page(pageId = "page224", eventId = "show", stateless = true) public static final class A224 extends Base { }
+	@Page(pageId = "page225", eventId = "show", stateless = true) public static final class A225 extends Base { }
+	@Page(pageId = "page226", eventId = "show", stateless = true) public static final class A226 extends Base { }
+	@Page(pageId = "page227", eventId = "show", stateless = true) public static final class A227 extends Base { }
+	@Page(pageId = "page228", eventId = "show", stateless = true) public static final class A228 extends Base { }
+	@Page(pageId = "page229", eventId = "show", stateless = true) public static final class A229 extends Base { }
+	@Page(pageId = "page230", eventId = "show", stateless = true) public static final class A230 extends Base { }
+	@Page(pageId = "page231", eventId = "show", stateless = true) public static final class A231 extends Base { }
+	@Page(pageId = "page232", eventId = "show", stateless = true) public static final class A232 extends Base { }
+	@Page(pageId = "page233", eventId = "show", stateless = true) public static final class A233 extends Base { }
+	@Page(pageId = "page234", eventId = "show", stateless = true) public static final class A234 extends Base { }
+	@Page(pageId = "page235", eventId = "show", stateless = true) public static final class A235 extends Base { }
+	@Page(pageId = "page236", eventId = "show", stateless = true) public static final class A236 extends Base { }
+	@Page(pageId = "page237", eventId = "show", stateless = true) public static final class A237 extends Base { }
+	@Page(pageId = "page238", eventId = "show", stateless = true) public static final class A238 extends Base { }
+	@Page(pageId = "page239", eventId = "show", stateless = true) public static final class A239 extends Base { }
+	@Page(pageId = "page240", eventId = "show", stateless = true) public static final class A240 extends Base { }
+	@Page(pageId = "page241", eventId = "show", stateless = true) public static final class A241 extends Base { }
+	@Page(pageId = "page242", eventId = "show", stateless = true) public static final class A242 extends Base { }
+	@Page(pageId = "page243", eventId = "show", stateless = true) public static final class A243 extends Base { }
+	@Page(pageId = "page244", eventId = "show", stateless = true) public static final class A244 extends Base { }
+	@Page(pageId = "page245", eventId = "show", stateless = true) public static final class A245 extends Base { }
+	@Page(pageId = "page246", eventId = "show", stateless = true) public static final class A246 extends Base { }
+	@Page(pageId = "page247", eventId = "show", stateless = true) public static final class A247 extends Base { }
+	@Page(pageId = "page248", eventId = "show", stateless = true) public static final class A248 extends Base { }
+	@Page(pageId = "page249", eventId = "show", stateless = true) public static final class A249 extends Base { }
+	@Page(pageId = "page250", eventId = "show", stateless = true) public static final class A250 extends Base { }
+	@Page(pageId = "page251", eventId = "show", stateless = true) public static final class A251 extends Base { }
+	@Page(pageId = "page252", eventId = "show", stateless = true) public static final class A252 extends Base { }
+	@Page(pageId = "page253", eventId = "show", stateless = true) public static final class A253 extends Base { }
+	@Page(pageId = "page254", eventId = "show", stateless = true) public static final class A254 extends Base { }
+	@Page(pageId = "page255", eventId = "show", stateless = true) public static final class A255 extends Base { }
+}
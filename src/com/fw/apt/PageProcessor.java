@@ -0,0 +1,246 @@
+package com.fw.apt;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+import com.fw.core.Action;
+import com.fw.core.ActionRegistry;
+import com.fw.core.Page;
+
+/**
+ * {@link Page} アノテーションが付加された {@link Action} 実装クラスをコンパイル時に収集し、
+ * {@link ActionRegistry} の実装クラスを生成するアノテーションプロセッサ
+ * <p>
+ * 生成されるクラスは、収集した実装クラスに共通するパッケージ直下の
+ * {@value #REGISTRY_SIMPLE_NAME} であり、{@link java.util.ServiceLoader} 用の
+ * 定義ファイルも併せて出力する。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+@SupportedAnnotationTypes("com.fw.core.Page")
+public class PageProcessor extends AbstractProcessor
+{
+	// 生成するクラス名
+	static final String REGISTRY_SIMPLE_NAME = "GeneratedActionRegistry";
+
+	// ServiceLoader 用の定義ファイル
+	private static final String SERVICE_FILE = "META-INF/services/" + ActionRegistry.class.getName();
+
+	// 生成済みか否か
+	private boolean _generated;
+
+	@Override
+	public SourceVersion getSupportedSourceVersion()
+	{
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+	{
+		List<TypeElement> actions = new ArrayList<>();
+		for(Element element : roundEnv.getElementsAnnotatedWith(Page.class))
+		{
+			if(validate(element)) actions.add((TypeElement)element);
+		}
+
+		if(actions.isEmpty()) return false;
+
+		if(_generated)
+		{
+			// 後続ラウンドで生成されたクラスは登録情報に含められない
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+				"@Page class found after " + REGISTRY_SIMPLE_NAME + " was generated; it will not be registered", actions.get(0));
+			return false;
+		}
+
+		if(checkDuplicates(actions))
+		{
+			generate(actions);
+		}
+		_generated = true;
+
+		return false;
+	}
+
+	/**
+	 * {@link Page} アノテーションが付加された要素が、
+	 * インスタンス化可能な {@link Action} 実装クラスか否かを検証する。
+	 *
+	 * @param element 対象要素
+	 * @return 登録可能な場合: true
+	 */
+	private boolean validate(Element element)
+	{
+		if(element.getKind() != ElementKind.CLASS || element.getModifiers().contains(Modifier.ABSTRACT))
+		{
+			error(element, "@Page must be placed on a concrete class");
+			return false;
+		}
+
+		TypeMirror actionType = processingEnv.getTypeUtils().erasure(
+			processingEnv.getElementUtils().getTypeElement(Action.class.getName()).asType());
+		if(!processingEnv.getTypeUtils().isAssignable(processingEnv.getTypeUtils().erasure(element.asType()), actionType))
+		{
+			error(element, "@Page class must implement " + Action.class.getName());
+			return false;
+		}
+
+		if(!element.getModifiers().contains(Modifier.PUBLIC))
+		{
+			error(element, "@Page class must be public");
+			return false;
+		}
+
+		boolean hasConstructor = false;
+		for(ExecutableElement constructor : ElementFilter.constructorsIn(element.getEnclosedElements()))
+		{
+			if(constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC))
+			{
+				hasConstructor = true;
+			}
+		}
+		if(!hasConstructor)
+		{
+			error(element, "@Page class must have a public no-arg constructor");
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * 画面ID、イベントIDの重複を検査する。
+	 *
+	 * @param actions {@link Action} 実装クラス
+	 * @return 重複が無い場合: true
+	 */
+	private boolean checkDuplicates(List<TypeElement> actions)
+	{
+		boolean valid = true;
+		Map<String, TypeElement> registered = new HashMap<>();
+		for(TypeElement action : actions)
+		{
+			Page page = action.getAnnotation(Page.class);
+			String key = "pageId=" + page.pageId() + ", eventId=" + page.eventId();
+			TypeElement other = registered.putIfAbsent(key, action);
+			if(other != null)
+			{
+				error(action, "Duplicate @Page(" + key + ") also declared on " + other.getQualifiedName());
+				valid = false;
+			}
+		}
+
+		return valid;
+	}
+
+	/**
+	 * {@link ActionRegistry} 実装クラスと ServiceLoader 用の定義ファイルを出力する。
+	 *
+	 * @param actions {@link Action} 実装クラス
+	 */
+	private void generate(List<TypeElement> actions)
+	{
+		String packageName = commonPackage(actions);
+		String className = packageName.isEmpty() ? REGISTRY_SIMPLE_NAME : packageName + "." + REGISTRY_SIMPLE_NAME;
+		Element[] origins = actions.toArray(new Element[0]);
+
+		try
+		{
+			JavaFileObject source = processingEnv.getFiler().createSourceFile(className, origins);
+			try(Writer out = source.openWriter())
+			{
+				if(!packageName.isEmpty())
+				{
+					out.write("package " + packageName + ";\n\n");
+				}
+				out.write("public final class " + REGISTRY_SIMPLE_NAME + " implements " + ActionRegistry.class.getName() + "\n");
+				out.write("{\n");
+				out.write("\t@Override\n");
+				out.write("\tpublic java.util.List<Class<?>> getActionClasses()\n");
+				out.write("\t{\n");
+				out.write("\t\treturn java.util.Arrays.<Class<?>>asList(\n");
+				for(int i=0; i<actions.size(); i++)
+				{
+					out.write("\t\t\t" + actions.get(i).getQualifiedName() + ".class");
+					out.write(i < actions.size() - 1 ? ",\n" : "\n");
+				}
+				out.write("\t\t);\n");
+				out.write("\t}\n");
+				out.write("}\n");
+			}
+
+			FileObject service = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE, origins);
+			try(Writer out = service.openWriter())
+			{
+				out.write(className + "\n");
+			}
+		}
+		catch(IOException ex)
+		{
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to generate " + className + ": " + ex);
+		}
+	}
+
+	/**
+	 * 指定クラス群に共通するパッケージ名を返す。
+	 *
+	 * @param actions {@link Action} 実装クラス
+	 * @return 共通パッケージ名（共通部分が無い場合、空文字）
+	 */
+	private String commonPackage(List<TypeElement> actions)
+	{
+		String common = null;
+		for(TypeElement action : actions)
+		{
+			String name = processingEnv.getElementUtils().getPackageOf(action).getQualifiedName().toString();
+			if(common == null)
+			{
+				common = name;
+				continue;
+			}
+
+			while(!(name.equals(common) || name.startsWith(common + ".")))
+			{
+				int idx = common.lastIndexOf('.');
+				common = idx < 0 ? "" : common.substring(0, idx);
+				if(common.isEmpty()) return common;
+			}
+		}
+
+		return common == null ? "" : common;
+	}
+
+	/**
+	 * コンパイルエラーを出力する。
+	 *
+	 * @param element 対象要素
+	 * @param message メッセージ
+	 */
+	private void error(Element element, String message)
+	{
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+	}
+}
@@ -1,172 +1,257 @@
-package com.fw.core;
-
-import java.io.File;
-import java.io.IOException;
-import java.net.JarURLConnection;
-import java.net.URL;
-import java.util.ArrayList;
-import java.util.Enumeration;
-import java.util.List;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
-
-import com.fw.form.BaseForm;
-
-/**
- * アクション管理クラス
- *
- * @author t.yoshida
- */
-public class ActionManager<P extends BaseForm>
-{
-	// アクションクラスリスト
-	private List<Class<Action<P>>> _actionClasses;
-
-	// 固有情報
-	private ActionSpecificInfo _info;
-
-	/**
-	 * {@link ActionManager} を生成する。
-	 *
-	 * @param info 固有情報
-	 */
-	ActionManager(ActionSpecificInfo info)
-	{
-		_actionClasses = new ArrayList<>();
-		_info = info;
-		searchActions(info.getPackageNameWhereActionImplExists());
-	}
-
-	/**
-	 * 指定されたパッケージ直下に存在する {@link Action} 実装クラスを検索し、
-	 * 取得した実装クラスを保持する。
-	 * <p>
-	 * Action 実装クラスは必ず {@link Page} アノテーションを付加すること。
-	 * </p>
-	 *
-	 * @param packageName 検索対象パッケージ名
-	 */
-	private void searchActions(String packageName)
-	{
-		String resourceName = packageName.replace('.', '/');
-		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
-		URL root = classLoader.getResource(resourceName);
-
-		/**
-		 * 検索対象のクラスファイルが JAR で圧縮されていない場合
-		 */
-		if("file".equals(root.getProtocol()))
-		{
-			File[] files = new File(root.getFile()).listFiles((dir, name) -> name.endsWith(".class"));
-			for(File file : files)
-			{
-				String name = file.getName();
-				name = name.replaceAll(".class$", "");
-				String fullName = packageName + "." + name;
-
-				try
-				{
-					Class<?> clazz = Class.forName(fullName);
-					Class<?>[] interfaces = clazz.getInterfaces();
-					for(Class<?> inf : interfaces)
-					{
-						if(Action.class.getName().equals(inf.getName()))
-						{
-							if(clazz.getAnnotation(Page.class) != null)
-							{
-								// Action 実装クラスをリストに追加
-								_actionClasses.add((Class<Action<P>>)clazz);
-							}
-						}
-					}
-				}
-				catch(ClassNotFoundException ex) { }
-			}
-		}
-
-		/*
-		 * 検索対象のクラスファイルが JAR で圧縮されている場合
-		 */
-		if("jar".equals(root.getProtocol()))
-		{
-			try
-			(
-				JarFile jarFile = ((JarURLConnection)root.openConnection()).getJarFile()
-			)
-			{
-				Enumeration<JarEntry> e = jarFile.entries();
-				while(e.hasMoreElements())
-				{
-					JarEntry entry = e.nextElement();
-					String name = entry.getName();
-					if(!name.startsWith(resourceName)) continue;
-					if(!name.endsWith(".class")) continue;
-
-					try
-					{
-						String fullName = name.replace('/', '.').replaceAll(".class$", "");
-						Class<?> clazz = classLoader.loadClass(fullName);
-						if(Action.class.isAssignableFrom(clazz))
-						{
-							if(clazz.getAnnotation(Page.class) != null)
-							{
-								// Action 実装クラスをリストに追加
-								_actionClasses.add((Class<Action<P>>)clazz);
-							}
-						}
-					}
-					catch(ClassNotFoundException ex) { }
-				}
-			}
-			catch(IOException ex) { }
-		}
-	}
-
-	/**
-	 * 指定されたページID、イベントIDに対応する {@link Action} の実装を返す。
-	 * <p>
-	 * ※前提として、両IDは実装クラスのクラスアノテーションとして定義されていること。
-	 * </p>
-	 *
-	 * @param pageId ページID
-	 * @param eventId イベントID
-	 * @return 対応する {@link Action} の実装。存在しない場合、{@link ActionSpecificInfo#createDefaultAction()} の返り値。
-	 */
-	Action<P> find(String pageId, String eventId)
-	{
-		if(pageId == null) return _info.createDefaultAction();
-
-		for(Class<Action<P>> clazz : _actionClasses)
-		{
-			Page page = clazz.getAnnotation(Page.class);
-			if(pageId.equals(page.pageId()))
-			{
-				try
-				{
-					if(eventId == null)
-					{
-						// イベントIDの指定が無い場合でも、アノテーションのイベントIDが"*"であればＯＫ
-						if(page.eventId().equals("*"))
-						{
-							return (Action<P>)clazz.getDeclaredConstructor().newInstance();
-						}
-					}
-					else
-					{
-						if(eventId.equals(page.eventId()))
-						{
-							return (Action<P>)clazz.getDeclaredConstructor().newInstance();
-						}
-					}
-				}
-				catch(Exception ex)
-				{
-					// Action 実装クラスをインスタンス化する過程で例外が発生した場合
-					throw new RuntimeException("Action instantiation error", ex);
-				}
-			}
-		}
-
-		return _info.createDefaultAction();
-	}
-}
+package com.fw.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import com.fw.form.BaseForm;
+
+/**
+ * アクション管理クラス
+ *
+ * @author t.yoshida
+ */
+public class ActionManager<P extends BaseForm>
+{
+	// イベントIDの指定が無い場合に対応するワイルドカード
+	static final String WILDCARD_EVENT_ID = "*";
+
+	// アクションクラスリスト
+	private List<Class<Action<P>>> _actionClasses;
+
+	// ルーティングテーブル（画面ID → イベントID → アクションのメタ情報）
+	private final Map<String, Map<String, ActionMeta<P>>> _routes;
+
+	// デフォルトアクションのメタ情報
+	private final ActionMeta<P> _defaultMeta;
+
+	// 固有情報
+	private ActionSpecificInfo _info;
+
+	/**
+	 * {@link ActionManager} を生成する。
+	 *
+	 * @param info 固有情報
+	 */
+	ActionManager(ActionSpecificInfo info)
+	{
+		_actionClasses = new ArrayList<>();
+		_info = info;
+
+		// コンパイル時に生成された登録情報が無い場合のみクラスパスを検索
+		if(!loadRegistries(info.getPackageNameWhereActionImplExists()))
+		{
+			searchActions(info.getPackageNameWhereActionImplExists());
+		}
+
+		_defaultMeta = new ActionMeta<>(_info::createDefaultAction);
+		_routes = buildRoutes();
+	}
+
+	/**
+	 * 検索済みの {@link Action} 実装クラスから、画面ID、イベントIDをキーとした
+	 * ルーティングテーブルを作成する。
+	 * <p>
+	 * 同一の画面ID、イベントIDが複数の実装クラスに指定されている場合、
+	 * どの実装クラスが選択されるかが不定となるため、起動時にエラーとする。
+	 * </p>
+	 *
+	 * @return 変更不可のルーティングテーブル
+	 * @throws IllegalStateException 画面ID、イベントIDの重複がある場合
+	 */
+	private Map<String, Map<String, ActionMeta<P>>> buildRoutes()
+	{
+		Map<String, Map<String, Class<Action<P>>>> registered = new HashMap<>();
+		List<String> conflicts = new ArrayList<>();
+		for(Class<Action<P>> clazz : _actionClasses)
+		{
+			Page page = clazz.getAnnotation(Page.class);
+			Map<String, Class<Action<P>>> events = registered.computeIfAbsent(page.pageId(), k -> new HashMap<>());
+			Class<Action<P>> other = events.putIfAbsent(page.eventId(), clazz);
+			if(other != null && other != clazz)
+			{
+				conflicts.add("pageId=" + page.pageId() + ", eventId=" + page.eventId()
+					+ " [" + other.getName() + ", " + clazz.getName() + "]");
+			}
+		}
+
+		if(!conflicts.isEmpty())
+		{
+			throw new IllegalStateException("Duplicate @Page registrations: " + conflicts);
+		}
+
+		Map<String, Map<String, ActionMeta<P>>> routes = new HashMap<>();
+		registered.forEach((pageId, events) ->
+		{
+			Map<String, ActionMeta<P>> metas = new HashMap<>();
+			events.forEach((eventId, clazz) -> metas.put(eventId, new ActionMeta<>(clazz)));
+			routes.put(pageId, Collections.unmodifiableMap(metas));
+		});
+
+		return Collections.unmodifiableMap(routes);
+	}
+
+	/**
+	 * {@link com.fw.apt.PageProcessor} が生成した {@link ActionRegistry} を読み込み、
+	 * 指定されたパッケージ配下（サブパッケージを含む）の {@link Action} 実装クラスを保持する。
+	 * <p>
+	 * ライブラリ等、別のパッケージの登録情報のみが存在する場合は、登録情報が存在しないものとして扱う。
+	 * </p>
+	 *
+	 * @param packageName 対象パッケージ名
+	 * @return 対象パッケージの {@link Action} 実装クラスが登録されていた場合: true
+	 */
+	@SuppressWarnings("unchecked")
+	private boolean loadRegistries(String packageName)
+	{
+		boolean found = false;
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		for(ActionRegistry registry : ServiceLoader.load(ActionRegistry.class, classLoader))
+		{
+			for(Class<?> clazz : registry.getActionClasses())
+			{
+				if(!clazz.getName().startsWith(packageName + ".")) continue;
+
+				if(Action.class.isAssignableFrom(clazz) && clazz.getAnnotation(Page.class) != null)
+				{
+					// Action 実装クラスをリストに追加
+					_actionClasses.add((Class<Action<P>>)clazz);
+					found = true;
+				}
+			}
+		}
+
+		return found;
+	}
+
+	/**
+	 * 指定されたパッケージ直下に存在する {@link Action} 実装クラスを検索し、
+	 * 取得した実装クラスを保持する。
+	 * <p>
+	 * Action 実装クラスは必ず {@link Page} アノテーションを付加すること。
+	 * </p>
+	 *
+	 * @param packageName 検索対象パッケージ名
+	 */
+	private void searchActions(String packageName)
+	{
+		String resourceName = packageName.replace('.', '/');
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		URL root = classLoader.getResource(resourceName);
+
+		/**
+		 * 検索対象のクラスファイルが JAR で圧縮されていない場合
+		 */
+		if("file".equals(root.getProtocol()))
+		{
+			File[] files = new File(root.getFile()).listFiles((dir, name) -> name.endsWith(".class"));
+			for(File file : files)
+			{
+				String name = file.getName();
+				name = name.replaceAll(".class$", "");
+				String fullName = packageName + "." + name;
+
+				try
+				{
+					Class<?> clazz = Class.forName(fullName);
+					Class<?>[] interfaces = clazz.getInterfaces();
+					for(Class<?> inf : interfaces)
+					{
+						if(Action.class.getName().equals(inf.getName()))
+						{
+							if(clazz.getAnnotation(Page.class) != null)
+							{
+								// Action 実装クラスをリストに追加
+								_actionClasses.add((Class<Action<P>>)clazz);
+							}
+						}
+					}
+				}
+				catch(ClassNotFoundException ex) { }
+			}
+		}
+
+		/*
+		 * 検索対象のクラスファイルが JAR で圧縮されている場合
+		 */
+		if("jar".equals(root.getProtocol()))
+		{
+			try
+			(
+				JarFile jarFile = ((JarURLConnection)root.openConnection()).getJarFile()
+			)
+			{
+				Enumeration<JarEntry> e = jarFile.entries();
+				while(e.hasMoreElements())
+				{
+					JarEntry entry = e.nextElement();
+					String name = entry.getName();
+					if(!name.startsWith(resourceName)) continue;
+					if(!name.endsWith(".class")) continue;
+
+					try
+					{
+						String fullName = name.replace('/', '.').replaceAll(".class$", "");
+						Class<?> clazz = classLoader.loadClass(fullName);
+						if(Action.class.isAssignableFrom(clazz))
+						{
+							if(clazz.getAnnotation(Page.class) != null)
+							{
+								// Action 実装クラスをリストに追加
+								_actionClasses.add((Class<Action<P>>)clazz);
+							}
+						}
+					}
+					catch(ClassNotFoundException ex) { }
+				}
+			}
+			catch(IOException ex) { }
+		}
+	}
+
+	/**
+	 * 指定されたページID、イベントIDに対応する {@link Action} の実装を返す。
+	 * <p>
+	 * ※前提として、両IDは実装クラスのクラスアノテーションとして定義されていること。
+	 * </p>
+	 *
+	 * @param pageId ページID
+	 * @param eventId イベントID
+	 * @return 対応する {@link Action} の実装。存在しない場合、{@link ActionSpecificInfo#createDefaultAction()} の返り値。
+	 */
+	Action<P> find(String pageId, String eventId)
+	{
+		return lookup(pageId, eventId).newAction();
+	}
+
+	/**
+	 * 指定されたページID、イベントIDに対応する {@link Action} のメタ情報を返す。
+	 *
+	 * @param pageId ページID
+	 * @param eventId イベントID
+	 * @return 対応する {@link Action} のメタ情報。存在しない場合、デフォルトアクションのメタ情報。
+	 */
+	ActionMeta<P> lookup(String pageId, String eventId)
+	{
+		if(pageId == null) return _defaultMeta;
+
+		Map<String, ActionMeta<P>> events = _routes.get(pageId);
+		if(events == null) return _defaultMeta;
+
+		// イベントIDの指定が無い場合でも、アノテーションのイベントIDが"*"であればＯＫ
+		ActionMeta<P> meta = events.get(eventId == null ? WILDCARD_EVENT_ID : eventId);
+		if(meta == null) return _defaultMeta;
+
+		return meta;
+	}
+}
@@ -0,0 +1,290 @@
+package com.fw.core;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.function.Supplier;
+
+import com.fw.form.BaseForm;
+import com.fw.form.FormBinder;
+
+/**
+ * {@link Action} 実装クラス毎のメタ情報
+ * <p>
+ * 起動時に一度だけ作成し、リクエスト毎のリフレクション処理を不要にする。
+ * </p>
+ *
+ * @author t.yoshida
+ *
+ * @param <P> フォームデータ
+ */
+final class ActionMeta<P extends BaseForm>
+{
+	// ページID、イベントIDが無い場合の表示名
+	private static final String DEFAULT_ID = "(default)";
+
+	// Action 生成
+	private final Supplier<Action<P>> _actionFactory;
+
+	// Action 実装クラスとフォームクラスの情報（生成処理が別途提供される場合、最初の生成時に設定）
+	private volatile Linked<P> _linked;
+
+	// ページID（計測結果の分類に利用）
+	private final String _pageId;
+
+	// イベントID（計測結果の分類に利用）
+	private final String _eventId;
+
+	/**
+	 * {@link Action} 実装クラスとフォームクラスの情報
+	 *
+	 * @param <P> フォームデータ
+	 */
+	private static final class Linked<P extends BaseForm>
+	{
+		// Action 実装クラス
+		final Class<?> actionClass;
+
+		// Action 実装クラスで扱うフォームクラス
+		final Class<P> formClass;
+
+		// フォームクラスのコンストラクタ
+		final MethodHandle formConstructor;
+
+		// フォームクラスへのパラメータ設定
+		final FormBinder<P> formBinder;
+
+		/**
+		 * {@link Action} 実装クラスからフォームクラスを解決する。
+		 *
+		 * @param actionClass {@link Action} 実装クラス
+		 */
+		Linked(Class<?> actionClass)
+		{
+			this.actionClass = actionClass;
+			this.formClass = resolveFormClass(actionClass);
+			this.formConstructor = findConstructor(formClass, BaseForm.class);
+			this.formBinder = FormBinder.of(formClass);
+		}
+	}
+
+	/**
+	 * {@link Page} アノテーションが付加された {@link Action} 実装クラスのメタ情報を生成する。
+	 * <p>
+	 * {@link Page#stateless()} が true の場合、インスタンスを一つだけ生成し共有する。
+	 * </p>
+	 *
+	 * @param actionClass {@link Action} 実装クラス
+	 */
+	ActionMeta(Class<? extends Action<P>> actionClass)
+	{
+		_linked = new Linked<>(actionClass);
+
+		MethodHandle constructor = findConstructor(actionClass, Action.class);
+		Page page = actionClass.getAnnotation(Page.class);
+		_pageId = page == null ? DEFAULT_ID : page.pageId();
+		_eventId = page == null ? DEFAULT_ID : page.eventId();
+		if(page != null && page.stateless())
+		{
+			Action<P> shared = newInstance(constructor);
+			_actionFactory = () -> shared;
+		}
+		else
+		{
+			_actionFactory = () -> newInstance(constructor);
+		}
+	}
+
+	/**
+	 * 生成処理が別途提供される {@link Action} 実装のメタ情報を生成する。
+	 * <p>
+	 * {@link ActionSpecificInfo#createDefaultAction()} のように、
+	 * インスタンスの生成をフレームワーク外に委ねる場合に利用する。
+	 * 起動時に生成処理を実行しないよう、クラス情報は最初に生成したインスタンスから取得する。
+	 * </p>
+	 *
+	 * @param factory {@link Action} 生成処理
+	 */
+	ActionMeta(Supplier<Action<P>> factory)
+	{
+		_actionFactory = () ->
+		{
+			Action<P> action = factory.get();
+			if(_linked == null)
+			{
+				_linked = new Linked<>(action.getClass());
+			}
+			return action;
+		};
+		_pageId = DEFAULT_ID;
+		_eventId = DEFAULT_ID;
+	}
+
+	/**
+	 * {@link Action} 実装クラスを返す。
+	 *
+	 * @return {@link Action} 実装クラス
+	 */
+	Class<?> getActionClass()
+	{
+		return linked().actionClass;
+	}
+
+	/**
+	 * {@link Page#pageId()} を返す。
+	 *
+	 * @return ページID（デフォルトアクションの場合、"(default)"）
+	 */
+	String getPageId()
+	{
+		return _pageId;
+	}
+
+	/**
+	 * {@link Page#eventId()} を返す。
+	 *
+	 * @return イベントID（デフォルトアクションの場合、"(default)"）
+	 */
+	String getEventId()
+	{
+		return _eventId;
+	}
+
+	/**
+	 * {@link Action} 実装クラスで扱うフォームクラスを返す。
+	 *
+	 * @return フォームクラス
+	 */
+	Class<P> getFormClass()
+	{
+		return linked().formClass;
+	}
+
+	/**
+	 * フォームクラスへのパラメータ設定を返す。
+	 *
+	 * @return {@link FormBinder}
+	 */
+	FormBinder<P> getFormBinder()
+	{
+		return linked().formBinder;
+	}
+
+	/**
+	 * {@link Action} 実装を返す。
+	 * <p>
+	 * ステートレスな実装の場合、共有インスタンスを返す。
+	 * </p>
+	 *
+	 * @return {@link Action} 実装
+	 */
+	Action<P> newAction()
+	{
+		return _actionFactory.get();
+	}
+
+	/**
+	 * フォームクラスをインスタンス化する。
+	 *
+	 * @return フォーム
+	 */
+	@SuppressWarnings("unchecked")
+	P newForm()
+	{
+		try
+		{
+			return (P)(BaseForm)linked().formConstructor.invokeExact();
+		}
+		catch(Throwable ex)
+		{
+			throw new RuntimeException("Form class instantiation error", ex);
+		}
+	}
+
+	/**
+	 * {@link Action} 実装クラスとフォームクラスの情報を返す。
+	 * <p>
+	 * 生成処理が別途提供され、まだ一度も生成していない場合は生成して取得する。
+	 * </p>
+	 *
+	 * @return {@link Action} 実装クラスとフォームクラスの情報
+	 */
+	private Linked<P> linked()
+	{
+		Linked<P> linked = _linked;
+		if(linked == null)
+		{
+			newAction();
+			linked = _linked;
+		}
+
+		return linked;
+	}
+
+	/**
+	 * 引数無しコンストラクタを実行し、{@link Action} 実装をインスタンス化する。
+	 *
+	 * @param constructor コンストラクタ
+	 * @return {@link Action} 実装
+	 */
+	@SuppressWarnings("unchecked")
+	private static <P extends BaseForm> Action<P> newInstance(MethodHandle constructor)
+	{
+		try
+		{
+			return (Action<P>)(Action<?>)constructor.invokeExact();
+		}
+		catch(Throwable ex)
+		{
+			// Action 実装クラスをインスタンス化する過程で例外が発生した場合
+			throw new RuntimeException("Action instantiation error", ex);
+		}
+	}
+
+	/**
+	 * 指定クラスの引数無しコンストラクタを取得し、戻り値の型を指定型に変換したハンドルを返す。
+	 *
+	 * @param clazz 対象クラス
+	 * @param returnType 戻り値の型
+	 * @return コンストラクタのハンドル
+	 */
+	static MethodHandle findConstructor(Class<?> clazz, Class<?> returnType)
+	{
+		try
+		{
+			return MethodHandles.lookup()
+				.unreflectConstructor(clazz.getDeclaredConstructor())
+				.asType(MethodType.methodType(returnType));
+		}
+		catch(ReflectiveOperationException ex)
+		{
+			throw new IllegalStateException("No accessible default constructor: " + clazz.getName(), ex);
+		}
+	}
+
+	/**
+	 * {@link Action} 実装クラスの型引数からフォームクラスを取得する。
+	 *
+	 * @param actionClass {@link Action} 実装クラス
+	 * @return フォームクラス
+	 */
+	@SuppressWarnings("unchecked")
+	private static <P extends BaseForm> Class<P> resolveFormClass(Class<?> actionClass)
+	{
+		for(Class<?> clazz = actionClass; clazz != null; clazz = clazz.getSuperclass())
+		{
+			for(Type type : clazz.getGenericInterfaces())
+			{
+				if(type instanceof ParameterizedType && ((ParameterizedType)type).getRawType() == Action.class)
+				{
+					Type arg = ((ParameterizedType)type).getActualTypeArguments()[0];
+					if(arg instanceof Class) return (Class<P>)arg;
+				}
+			}
+		}
+
+		throw new IllegalStateException("Cannot resolve form class: " + actionClass.getName());
+	}
+}
@@ -0,0 +1,23 @@
+package com.fw.core;
+
+import java.util.List;
+
+/**
+ * コンパイル時に生成される {@link Action} 実装クラスの登録情報を提供するインターフェース定義
+ * <p>
+ * 実装クラスは {@link com.fw.apt.PageProcessor} により自動生成され、
+ * {@link java.util.ServiceLoader} を通じて {@link ActionManager} に読み込まれる。
+ * 対象パッケージの登録情報が存在しない場合、{@link ActionManager} はクラスパスの検索を行う。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+public interface ActionRegistry
+{
+	/**
+	 * {@link Page} アノテーションが付加された {@link Action} 実装クラスを返す。
+	 *
+	 * @return {@link Action} 実装クラスのリスト
+	 */
+	List<Class<?>> getActionClasses();
+}
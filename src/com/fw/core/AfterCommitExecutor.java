@@ -0,0 +1,332 @@
+package com.fw.core;
+
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.servlet.ServletContext;
+
+import com.fw.db.DBAgent;
+import com.fw.db.Transaction;
+
+/**
+ * コミット完了後の処理（{@link AfterCommitTask}）を実行するスレッド
+ * <p>
+ * スレッド数と実行待ちの処理数に上限を設け、上限に達した場合は
+ * リクエストのスレッドで実行する（"caller-runs"）か、ログに出力して破棄する（"discard"）。
+ * 各処理はそれぞれ新たなトランザクション内で実行し、正常に終了した場合はコミット、例外が発生した場合はロールバックする。
+ * web.xml のコンテキストパラメータで設定する。
+ * </p>
+ * <ul>
+ * <li>"aftercommit.threads": スレッド数（デフォルト: 2）</li>
+ * <li>"aftercommit.queue.size": 実行待ちの処理数の上限（デフォルト: 1000）</li>
+ * <li>"aftercommit.rejection": 上限に達した場合の扱い（"caller-runs" または "discard"、デフォルト: "caller-runs"）</li>
+ * <li>"aftercommit.shutdown.timeout": 終了時に実行待ちの処理の完了を待つ時間（ミリ秒、デフォルト: 10000）</li>
+ * </ul>
+ * <p>
+ * "metrics.jmx" が false でない場合、実行状況を "com.fw:type=AfterCommitExecutor" として
+ * プラットフォーム MBean サーバーに登録する。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+public final class AfterCommitExecutor implements AfterCommitExecutorMXBean
+{
+	// MBean の名前
+	private static final String JMX_NAME = "com.fw:type=AfterCommitExecutor";
+
+	// スレッド
+	private final ThreadPoolExecutor _executor;
+
+	// 実行待ちの処理数の上限
+	private final int _capacity;
+
+	// 上限に達した場合にリクエストのスレッドで実行するか否か
+	private final boolean _callerRuns;
+
+	// 終了時に完了を待つ時間（ミリ秒）
+	private final long _shutdownTimeoutMillis;
+
+	// ログ出力
+	private final BiConsumer<String, Throwable> _logger;
+
+	// サーブレットコンテキスト（トランザクションの開始に利用）
+	private final ServletContext _context;
+
+	// 実行待ちの処理数の最大値
+	private final AtomicInteger _peakQueueSize = new AtomicInteger();
+
+	// 登録した MBean（登録していない場合、null）
+	private ObjectName _registered;
+
+	/*
+	 * 統計情報
+	 */
+	private final LongAdder _completed = new LongAdder();
+	private final LongAdder _failed = new LongAdder();
+	private final LongAdder _rejected = new LongAdder();
+
+	/**
+	 * スレッド数等を指定して {@link AfterCommitExecutor} を生成する。
+	 *
+	 * @param threads スレッド数
+	 * @param capacity 実行待ちの処理数の上限
+	 * @param callerRuns 上限に達した場合にリクエストのスレッドで実行する場合: true、破棄する場合: false
+	 * @param shutdownTimeoutMillis 終了時に完了を待つ時間（ミリ秒）
+	 * @param logger ログ出力
+	 * @param context サーブレットコンテキスト（トランザクションの開始に利用）
+	 */
+	public AfterCommitExecutor(int threads, int capacity, boolean callerRuns, long shutdownTimeoutMillis, BiConsumer<String, Throwable> logger, ServletContext context)
+	{
+		AtomicInteger sequence = new AtomicInteger();
+		_capacity = Math.max(capacity, 1);
+		_callerRuns = callerRuns;
+		_shutdownTimeoutMillis = shutdownTimeoutMillis;
+		_logger = logger;
+		_context = context;
+		_executor = new ThreadPoolExecutor
+		(
+			Math.max(threads, 1), Math.max(threads, 1), 60, TimeUnit.SECONDS,
+			new ArrayBlockingQueue<>(_capacity),
+			r ->
+			{
+				Thread thread = new Thread(r, "fw-after-commit-" + sequence.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			},
+			new ThreadPoolExecutor.AbortPolicy()
+		);
+		_executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * コンテキストパラメータを基に {@link AfterCommitExecutor} を生成する。
+	 *
+	 * @param context サーブレットコンテキスト
+	 * @return {@link AfterCommitExecutor}
+	 */
+	static AfterCommitExecutor create(ServletContext context)
+	{
+		String threads = context.getInitParameter("aftercommit.threads");
+		String queueSize = context.getInitParameter("aftercommit.queue.size");
+		String timeout = context.getInitParameter("aftercommit.shutdown.timeout");
+
+		AfterCommitExecutor executor = new AfterCommitExecutor
+		(
+			threads == null ? 2 : Integer.parseInt(threads),
+			queueSize == null ? 1000 : Integer.parseInt(queueSize),
+			!"discard".equals(context.getInitParameter("aftercommit.rejection")),
+			timeout == null ? 10_000 : Long.parseLong(timeout),
+			context::log,
+			context
+		);
+
+		if(!"false".equals(context.getInitParameter("metrics.jmx")))
+		{
+			executor.register();
+		}
+
+		return executor;
+	}
+
+	/**
+	 * 処理を実行待ちに追加する。
+	 * <p>
+	 * 実行待ちの処理数が上限に達している場合、設定に従いこのスレッドで実行するか破棄する。
+	 * </p>
+	 *
+	 * @param tasks 処理
+	 */
+	void submit(List<AfterCommitTask> tasks)
+	{
+		for(AfterCommitTask task : tasks)
+		{
+			try
+			{
+				_executor.execute(() -> run(task));
+			}
+			catch(RejectedExecutionException ex)
+			{
+				_rejected.increment();
+				if(_callerRuns)
+				{
+					run(task);
+				}
+				else
+				{
+					_logger.accept("After-commit task discarded: " + task, ex);
+				}
+				continue;
+			}
+
+			int size = _executor.getQueue().size();
+			_peakQueueSize.accumulateAndGet(size, Math::max);
+		}
+	}
+
+	/**
+	 * 新たなトランザクション内で処理を実行する。
+	 * <p>
+	 * リクエストのスレッドで実行する場合も、リクエストのトランザクションとは別のトランザクションとし、
+	 * 終了後にリクエストのトランザクションを登録し直す。
+	 * </p>
+	 *
+	 * @param task 処理
+	 */
+	private void run(AfterCommitTask task)
+	{
+		Transaction previous = DBAgent.attach(null);
+		try
+		{
+			DBAgent.beginTransaction(_context);
+			task.run();
+			DBAgent.commit();
+			_completed.increment();
+		}
+		catch(Exception ex)
+		{
+			_failed.increment();
+			_logger.accept("After-commit task error", ex);
+			try
+			{
+				if(DBAgent.currentTransaction() != null)
+				{
+					DBAgent.rollback();
+				}
+			}
+			catch(SQLException ex2)
+			{
+				_logger.accept("After-commit task rollback error", ex2);
+			}
+		}
+		finally
+		{
+			try
+			{
+				DBAgent.dispose();
+			}
+			catch(SQLException ex)
+			{
+				_logger.accept("After-commit task dispose error", ex);
+			}
+			DBAgent.attach(previous);
+		}
+	}
+
+	/**
+	 * 実行待ちの処理の完了を待って終了する。
+	 * <p>
+	 * 待ち時間内に完了しなかった処理は破棄し、件数をログに出力する。
+	 * </p>
+	 */
+	void shutdown()
+	{
+		_executor.shutdown();
+		try
+		{
+			if(!_executor.awaitTermination(_shutdownTimeoutMillis, TimeUnit.MILLISECONDS))
+			{
+				int remaining = _executor.shutdownNow().size();
+				_logger.accept("After-commit executor did not terminate, " + remaining + " tasks discarded", null);
+			}
+		}
+		catch(InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			_executor.shutdownNow();
+		}
+		finally
+		{
+			unregister();
+		}
+	}
+
+	/**
+	 * MBean を登録する。
+	 */
+	private void register()
+	{
+		try
+		{
+			ObjectName name = new ObjectName(JMX_NAME);
+			if(!ManagementFactory.getPlatformMBeanServer().isRegistered(name))
+			{
+				ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+				_registered = name;
+			}
+		}
+		catch(JMException ex)
+		{
+			_logger.accept("MBean registration error: " + JMX_NAME, ex);
+		}
+	}
+
+	/**
+	 * MBean の登録を解除する。
+	 */
+	private void unregister()
+	{
+		if(_registered == null) return;
+
+		try
+		{
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(_registered);
+		}
+		catch(JMException ex)
+		{
+			// 登録済みでない場合は無視
+		}
+		_registered = null;
+	}
+
+	@Override
+	public int getQueueSize()
+	{
+		return _executor.getQueue().size();
+	}
+
+	@Override
+	public int getQueueCapacity()
+	{
+		return _capacity;
+	}
+
+	@Override
+	public int getPeakQueueSize()
+	{
+		return _peakQueueSize.get();
+	}
+
+	@Override
+	public int getActiveCount()
+	{
+		return _executor.getActiveCount();
+	}
+
+	@Override
+	public long getCompletedCount()
+	{
+		return _completed.sum();
+	}
+
+	@Override
+	public long getFailedCount()
+	{
+		return _failed.sum();
+	}
+
+	@Override
+	public long getRejectedCount()
+	{
+		return _rejected.sum();
+	}
+}
@@ -0,0 +1,61 @@
+package com.fw.core;
+
+/**
+ * {@link AfterCommitExecutor} の監視用インターフェース定義
+ * <p>
+ * "com.fw:type=AfterCommitExecutor" としてプラットフォーム MBean サーバーに登録される。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+public interface AfterCommitExecutorMXBean
+{
+	/**
+	 * 実行待ちの処理数を返す。
+	 *
+	 * @return 処理数
+	 */
+	int getQueueSize();
+
+	/**
+	 * 実行待ちの処理数の上限を返す。
+	 *
+	 * @return 処理数
+	 */
+	int getQueueCapacity();
+
+	/**
+	 * 実行待ちの処理数の最大値を返す。
+	 *
+	 * @return 処理数
+	 */
+	int getPeakQueueSize();
+
+	/**
+	 * 実行中の処理数を返す。
+	 *
+	 * @return 処理数
+	 */
+	int getActiveCount();
+
+	/**
+	 * 正常に完了した処理数を返す（失敗は含まない）。
+	 *
+	 * @return 処理数
+	 */
+	long getCompletedCount();
+
+	/**
+	 * 例外が発生した処理数を返す。
+	 *
+	 * @return 処理数
+	 */
+	long getFailedCount();
+
+	/**
+	 * 実行待ちの上限に達し、受け付けなかった処理数を返す（リクエストのスレッドで実行した場合を含む）。
+	 *
+	 * @return 処理数
+	 */
+	long getRejectedCount();
+}
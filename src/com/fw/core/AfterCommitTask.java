@@ -0,0 +1,26 @@
+package com.fw.core;
+
+/**
+ * コミット完了後に非同期で実行する処理のインターフェース定義
+ * <p>
+ * {@link DataContainer#afterCommit(AfterCommitTask)} で登録し、
+ * トランザクションが正常に完了した場合のみ、レスポンスとは別のスレッドで実行される。
+ * リクエスト、セッション、{@link DataContainer} は参照できないため、必要な値は登録時に取得しておくこと。
+ * </p>
+ * <p>
+ * 処理毎に新たなトランザクションが開始されるため、{@link com.fw.db.QueryLoader}, {@link com.fw.db.QueryUpdater} を利用できる。
+ * 正常に終了した場合はコミット、例外を送出した場合はロールバックされる。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+@FunctionalInterface
+public interface AfterCommitTask
+{
+	/**
+	 * 処理を実行する。
+	 *
+	 * @throws Exception 処理中に発生した例外（ログに出力される）
+	 */
+	void run() throws Exception;
+}
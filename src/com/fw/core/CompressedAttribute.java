@@ -0,0 +1,120 @@
+package com.fw.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * シリアライズして圧縮したセッション属性
+ * <p>
+ * {@link DataContainer#setCompressedAttrAsSession(String, Serializable)} で設定した値をセッションに保持する。
+ * 圧縮後のバイト列が等しい場合は等しいものとして扱い、同じ内容の再設定ではセッションに反映しない。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+final class CompressedAttribute implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	// シリアライズして圧縮した値
+	private final byte[] _data;
+
+	/**
+	 * 値をシリアライズして圧縮する。
+	 *
+	 * @param value 値
+	 * @throws IllegalArgumentException シリアライズできない場合
+	 */
+	CompressedAttribute(Serializable value)
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try
+		(
+			ObjectOutputStream out = new ObjectOutputStream(new DeflaterOutputStream(bytes, deflater));
+		)
+		{
+			out.writeObject(value);
+		}
+		catch(IOException ex)
+		{
+			throw new IllegalArgumentException("Session attribute serialization error: " + value.getClass().getName(), ex);
+		}
+		finally
+		{
+			deflater.end();
+		}
+
+		_data = bytes.toByteArray();
+	}
+
+	/**
+	 * 展開した値を返す。
+	 *
+	 * @return 値（呼び出しの都度、新しいインスタンス）
+	 * @throws IllegalStateException 展開できない場合
+	 */
+	Object get()
+	{
+		try
+		(
+			ObjectInputStream in = new ContextObjectInputStream(new InflaterInputStream(new ByteArrayInputStream(_data)));
+		)
+		{
+			return in.readObject();
+		}
+		catch(IOException | ClassNotFoundException ex)
+		{
+			throw new IllegalStateException("Session attribute deserialization error", ex);
+		}
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Arrays.hashCode(_data);
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		return obj instanceof CompressedAttribute && Arrays.equals(_data, ((CompressedAttribute)obj)._data);
+	}
+
+	/**
+	 * スレッドのコンテキストクラスローダー（Web アプリケーションのクラス）からクラスを解決する {@link ObjectInputStream}
+	 */
+	private static final class ContextObjectInputStream extends ObjectInputStream
+	{
+		ContextObjectInputStream(InputStream in) throws IOException
+		{
+			super(in);
+		}
+
+		@Override
+		protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException
+		{
+			ClassLoader loader = Thread.currentThread().getContextClassLoader();
+			if(loader == null) return super.resolveClass(desc);
+
+			try
+			{
+				return Class.forName(desc.getName(), false, loader);
+			}
+			catch(ClassNotFoundException ex)
+			{
+				return super.resolveClass(desc);
+			}
+		}
+	}
+}
@@ -1,106 +1,274 @@
-package com.fw.core;
-
-import javax.servlet.http.HttpServletRequest;
-import javax.servlet.http.HttpSession;
-
-/**
- * データ保持クラス
- *
- * @author t.yoshida
- */
-public class DataContainer
-{
-	// リクエスト変数
-	private HttpServletRequest request;
-
-	/**
-	 * リクエスト変数を指定して {@link DataContainer} を生成する。
-	 *
-	 * @param request リクエスト変数
-	 */
-	DataContainer(HttpServletRequest request)
-	{
-		this.request = request;
-	}
-
-	/**
-	 * リクエスト変数に設定した値を取得する。
-	 *
-	 * @param key キー
-	 * @return 値
-	 */
-	public Object getAttr(String key)
-	{
-		return request.getAttribute(key);
-	}
-
-	/**
-	 * リクエスト変数に値を設定する。
-	 *
-	 * @param key キー
-	 * @param value 値
-	 */
-	public void setAttr(String key, Object value)
-	{
-		request.setAttribute(key, value);
-	}
-
-	/**
-	 * リクエスト変数に値を設定する。
-	 * キーは値のクラス名が自動的に指定される。
-	 *
-	 * @param value 値
-	 */
-	public void setAttr(Object value)
-	{
-		String key = value.getClass().getSimpleName();
-		setAttr(key, value);
-	}
-
-	/**
-	 * セッションから設定した値を取得する。
-	 *
-	 * @param key セッションキー
-	 * @return 値
-	 */
-	public Object getAttrFromSession(String key)
-	{
-		HttpSession session = request.getSession(true);
-		return session.getAttribute(key);
-	}
-
-	/**
-	 * セッションに値を設定する。
-	 *
-	 * @param key セッションキー
-	 * @param value 値
-	 */
-	public void setAttrAsSession(String key, Object value)
-	{
-		HttpSession session = request.getSession(true);
-		session.setAttribute(key, value);
-	}
-
-	/**
-	 * セッションに値を設定する。
-	 * キーは値のクラス名が自動的に指定される。
-	 *
-	 * @param value 値
-	 */
-	public void setAttrAsSession(Object value)
-	{
-		String key = value.getClass().getSimpleName();
-		setAttrAsSession(key, value);
-	}
-
-	/**
-	 * 指定したセッションキーの値を削除する。
-	 *
-	 * @param key セッションキー
-	 */
-	public void removeSession(String key)
-	{
-		HttpSession session = request.getSession();
-		session.removeAttribute(key);
-	}
-}
+package com.fw.core;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+/**
+ * データ保持クラス
+ * <p>
+ * セッションの参照ではセッションを生成しない。
+ * セッションへの設定・削除はリクエスト中は保持しておき、遷移先ページへの遷移前に変更があった属性のみをまとめて反映する。
+ * 既にセッションにある値と等しい別のインスタンスを設定した場合は反映しないため、
+ * クラスタ環境でのセッションの複製が不要に発生することは無い。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+public class DataContainer
+{
+	// 削除を表す値
+	private static final Object REMOVED = new Object();
+
+	// リクエスト変数
+	private HttpServletRequest request;
+
+	// 未反映のセッション属性（削除の場合、REMOVED）
+	private Map<String, Object> pendingSession;
+
+	// コミット完了後の処理
+	private List<AfterCommitTask> afterCommitTasks;
+
+	/**
+	 * リクエスト変数を指定して {@link DataContainer} を生成する。
+	 *
+	 * @param request リクエスト変数
+	 */
+	DataContainer(HttpServletRequest request)
+	{
+		this.request = request;
+	}
+
+	/**
+	 * リクエスト変数に設定した値を取得する。
+	 *
+	 * @param key キー
+	 * @return 値
+	 */
+	public Object getAttr(String key)
+	{
+		return request.getAttribute(key);
+	}
+
+	/**
+	 * リクエスト変数に値を設定する。
+	 *
+	 * @param key キー
+	 * @param value 値
+	 */
+	public void setAttr(String key, Object value)
+	{
+		request.setAttribute(key, value);
+	}
+
+	/**
+	 * リクエスト変数に値を設定する。
+	 * キーは値のクラス名が自動的に指定される。
+	 *
+	 * @param value 値
+	 */
+	public void setAttr(Object value)
+	{
+		String key = value.getClass().getSimpleName();
+		setAttr(key, value);
+	}
+
+	/**
+	 * セッションから設定した値を取得する。
+	 * <p>
+	 * セッションが存在しない場合、セッションを生成せずに null を返す。
+	 * {@link #setCompressedAttrAsSession(String, Serializable)} で設定した値は展開して返す。
+	 * </p>
+	 *
+	 * @param key セッションキー
+	 * @return 値
+	 */
+	public Object getAttrFromSession(String key)
+	{
+		Object value;
+		if(pendingSession != null && pendingSession.containsKey(key))
+		{
+			value = pendingSession.get(key);
+			if(value == REMOVED) return null;
+		}
+		else
+		{
+			HttpSession session = request.getSession(false);
+			if(session == null) return null;
+
+			value = session.getAttribute(key);
+		}
+
+		if(value instanceof CompressedAttribute)
+		{
+			return ((CompressedAttribute)value).get();
+		}
+
+		return value;
+	}
+
+	/**
+	 * セッションに値を設定する。
+	 * <p>
+	 * 遷移先ページへの遷移前に反映する。
+	 * セッションに保持しているインスタンスの内容を変更した場合も、変更を複製させるため再度設定すること。
+	 * </p>
+	 *
+	 * @param key セッションキー
+	 * @param value 値
+	 */
+	public void setAttrAsSession(String key, Object value)
+	{
+		if(value == null)
+		{
+			removeSession(key);
+			return;
+		}
+
+		pending().put(key, value);
+	}
+
+	/**
+	 * セッションに値を設定する。
+	 * キーは値のクラス名が自動的に指定される。
+	 *
+	 * @param value 値
+	 */
+	public void setAttrAsSession(Object value)
+	{
+		String key = value.getClass().getSimpleName();
+		setAttrAsSession(key, value);
+	}
+
+	/**
+	 * セッションに値を圧縮して設定する。
+	 * <p>
+	 * 一覧の検索結果等、大きく参照頻度の低い値のセッションあたりのメモリ量と複製量を削減する。
+	 * 値はシリアライズして圧縮したバイト列として保持し、{@link #getAttrFromSession(String)} は
+	 * 参照の都度展開した新しいインスタンスを返す。展開した値を変更した場合は再度設定すること。
+	 * </p>
+	 *
+	 * @param key セッションキー
+	 * @param value 値
+	 */
+	public void setCompressedAttrAsSession(String key, Serializable value)
+	{
+		if(value == null)
+		{
+			removeSession(key);
+			return;
+		}
+
+		pending().put(key, new CompressedAttribute(value));
+	}
+
+	/**
+	 * 指定したセッションキーの値を削除する。
+	 *
+	 * @param key セッションキー
+	 */
+	public void removeSession(String key)
+	{
+		pending().put(key, REMOVED);
+	}
+
+	/**
+	 * コミット完了後に非同期で実行する処理を登録する。
+	 * <p>
+	 * トランザクションが正常にコミットされた場合のみ、{@link Action#onCommitCompleted(DataContainer)} の後に
+	 * 遷移先ページの描画とは別のスレッドで登録順に実行を開始する。
+	 * コミット前に例外が発生した場合、登録した処理は実行しない。
+	 * コミット後に {@link Action#onCommitCompleted(DataContainer)} で例外が発生した場合も、それまでに登録した処理は実行する。
+	 * 参照のみの {@link Action}（コミットしない）で登録した処理は実行せず、ログに出力して破棄する。
+	 * レスポンスに反映する必要がある処理は {@link Action#onCommitCompleted(DataContainer)} で行うこと。
+	 * </p>
+	 *
+	 * @param task 処理
+	 */
+	public void afterCommit(AfterCommitTask task)
+	{
+		if(afterCommitTasks == null)
+		{
+			afterCommitTasks = new ArrayList<>();
+		}
+
+		afterCommitTasks.add(task);
+	}
+
+	/**
+	 * 登録されたコミット完了後の処理を取り出す。
+	 *
+	 * @return 処理（登録されていない場合、空のリスト）
+	 */
+	List<AfterCommitTask> takeAfterCommitTasks()
+	{
+		List<AfterCommitTask> tasks = afterCommitTasks;
+		afterCommitTasks = null;
+
+		return tasks == null ? Collections.emptyList() : tasks;
+	}
+
+	/**
+	 * 未反映のセッション属性を返す。
+	 *
+	 * @return 未反映のセッション属性
+	 */
+	private Map<String, Object> pending()
+	{
+		if(pendingSession == null)
+		{
+			pendingSession = new LinkedHashMap<>();
+		}
+
+		return pendingSession;
+	}
+
+	/**
+	 * 未反映のセッション属性の変更をセッションに反映する。
+	 * <p>
+	 * 設定する値がある場合のみセッションを生成する。
+	 * セッションにある値と等しい別のインスタンス（文字列、数値等）は反映しない。
+	 * 同じインスタンスは内容が変更されたものとして反映する。
+	 * </p>
+	 */
+	void flushSession()
+	{
+		if(pendingSession == null) return;
+
+		Map<String, Object> changes = pendingSession;
+		pendingSession = null;
+
+		HttpSession session = request.getSession(false);
+		for(Map.Entry<String, Object> change : changes.entrySet())
+		{
+			String key = change.getKey();
+			Object value = change.getValue();
+			if(value == REMOVED)
+			{
+				if(session != null && session.getAttribute(key) != null)
+				{
+					session.removeAttribute(key);
+				}
+				continue;
+			}
+
+			if(session == null)
+			{
+				session = request.getSession(true);
+			}
+			else
+			{
+				Object current = session.getAttribute(key);
+				if(current != value && Objects.equals(current, value)) continue;
+			}
+			session.setAttribute(key, value);
+		}
+	}
+}
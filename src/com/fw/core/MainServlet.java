@@ -1,237 +1,689 @@
-package com.fw.core;
-
-import java.beans.PropertyDescriptor;
-import java.io.IOException;
-import java.lang.reflect.Method;
-import java.lang.reflect.ParameterizedType;
-import java.sql.SQLException;
-import java.util.Enumeration;
-
-import javax.servlet.RequestDispatcher;
-import javax.servlet.ServletConfig;
-import javax.servlet.ServletContext;
-import javax.servlet.ServletException;
-import javax.servlet.http.HttpServlet;
-import javax.servlet.http.HttpServletRequest;
-import javax.servlet.http.HttpServletResponse;
-
-import com.fw.db.DBAgent;
-import com.fw.form.BaseForm;
-
-/**
- * サーブレット共通化
- *
- * @author T.Yoshida
- */
-public abstract class MainServlet<P extends BaseForm> extends HttpServlet
-{
-	private static final long serialVersionUID = 1L;
-
-	// ActionManager の実装クラス
-	private ActionManager<P> _actionManager;
-
-	@Override
-	public void init() throws ServletException
-	{
-		ServletConfig config = getServletConfig();
-		ServletContext context = config.getServletContext();
-
-		/*
-		 * web.xml から ActionSpecificInfo の実装クラス名を取得し、
-		 * インスタンス化した後、ActionManager コンストラクタ引数として指定。
-		 */
-		String infoClassName = context.getInitParameter("class.manager.action.info");
-		try
-		{
-			Class<?> infoClass = Class.forName(infoClassName);
-			ActionSpecificInfo info = (ActionSpecificInfo)infoClass.getDeclaredConstructor().newInstance();
-			_actionManager = new ActionManager<P>(info);
-		}
-		catch(Exception ex)
-		{
-			log("ActionManager instantiation error", ex);
-			throw new ServletException(ex);
-		}
-	}
-
-	/**
-	 * @see HttpServlet#doPost(HttpServletRequest request, HttpServletResponse response)
-	 */
-	@Override
-	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
-	{
-		doMain(request, response);
-	}
-
-	/**
-	 * @see HttpServlet#doPost(HttpServletRequest request, HttpServletResponse response)
-	 */
-	@Override
-	protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
-	{
-		doMain(request, response);
-	}
-
-	/**
-	 * サーバーメイン処理
-	 *
-	 * @param request リクエスト
-	 * @param response レスポンス
-	 */
-	private void doMain(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
-	{
-		// 文字コード指定
-		request.setCharacterEncoding("UTF-8");
-		response.setCharacterEncoding("UTF-8");
-
-		/*
-		 * 画面ID、イベントIDに対応する Action を取得
-		 */
-		String pageId = request.getParameter("pageId");
-		String eventId = request.getParameter("eventId");
-		Action<P> action = _actionManager.find(pageId, eventId);
-
-		/*
-		 * Action 実装クラスで扱うフォームクラスのインスタンス化
-		 */
-		ParameterizedType type = (ParameterizedType)action.getClass().getGenericInterfaces()[0];
-
-		@SuppressWarnings("unchecked")
-		Class<P> formClass = (Class<P>)type.getActualTypeArguments()[0];
-
-		P form;
-		try
-		{
-			form = formClass.getDeclaredConstructor().newInstance();
-		}
-		catch(Exception ex)
-		{
-			log("Form class instantiation error", ex);
-			throw new ServletException(ex);
-		}
-
-		/*
-		 * フォームクラスにクライアントのパラメータ値を設定
-		 * ※パラメータ名を基にリフレクション機能により対応するセッターメソッドを実行
-		 * ※SELECTタグの複数選択には未対応
-		 */
-		Enumeration<String> names = request.getParameterNames();
-		while(names.hasMoreElements())
-		{
-			String name = names.nextElement();
-			try
-			{
-				PropertyDescriptor prop = new PropertyDescriptor(name, formClass);
-				Method method = prop.getWriteMethod();
-				method.invoke(form, request.getParameter(name));
-			}
-			catch(Exception ex)
-			{
-				// フォームクラスへの値の設定中に例外が発生しても、次の値の設定に進む
-				log("Wrong parameter [" + name + "]", ex);
-			}
-		}
-
-		// トランザクション処理
-		doTransaction(request, response, action, form);
-	}
-
-	/**
-	 * トランザクション処理
-	 *
-	 * @param request リクエスト
-	 * @param response レスポンス
-	 * @param action アクション
-	 * @param form フォーム
-	 */
-	protected void doTransaction
-	(
-		HttpServletRequest request, HttpServletResponse response, Action<P> action, P form
-	)
-		throws ServletException
-	{
-		/*
-		 * Action を実行し、処理結果を遷移先ページに反映させる。
-		 */
-		DataContainer container = new DataContainer(request);
-		try
-		{
-			// トランザクションの開始
-			DBAgent.beginTransaction(getServletContext());
-
-			// 処理実行
-			action.execute(form, container);
-
-			if(!action.isReadOnly())
-			{
-				// コミット
-				DBAgent.commit();
-
-				// コミット完了通知
-				action.onCommitCompleted(container);
-			}
-
-			// 指定されたページへ遷移
-			String path = action.moveTo();
-			moveTo(path, request, response);
-		}
-		catch(Exception ex)
-		{
-			log("Transaction error", ex);
-			container.setAttr("error", ex);
-
-			if(!action.isReadOnly())
-			{
-				// ロールバック
-				try
-				{
-					DBAgent.rollback();
-				}
-				catch(SQLException ex2)
-				{
-					log("Rollback error", ex2);
-				}
-			}
-
-			// エラー時ページ遷移
-			try
-			{
-				moveToInCaseOfError(ex, request, response);
-			}
-			catch(Exception ex3)
-			{
-				log("Error page moving error", ex3);
-			}
-		}
-		finally
-		{
-			// コネクションの破棄
-			try
-			{
-				DBAgent.dispose();
-			}
-			catch(SQLException ex)
-			{
-				log("Disposed error", ex);
-			}
-		}
-	}
-
-	/*
-	 * ページ遷移
-	 */
-	protected void moveTo(String path, HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
-	{
-		RequestDispatcher dispatcher = request.getRequestDispatcher(path);
-		dispatcher.forward(request, response);
-	}
-
-	/**
-	 * エラー（例外）が発生した場合のページ遷移
-	 *
-	 * @param ex 発生例外
-	 * @param request リクエスト変数
-	 * @param response レスポンス変数
-	 */
-	protected abstract void moveToInCaseOfError(Exception ex, HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException;
-}
+package com.fw.core;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import com.fw.db.DBAgent;
+import com.fw.db.Transaction;
+import com.fw.form.BaseForm;
+import com.fw.metrics.MetricsRegistry;
+import com.fw.metrics.Phase;
+import com.fw.metrics.PhaseTimer;
+import com.fw.metrics.SqlMetrics;
+
+/**
+ * サーブレット共通化
+ * <p>
+ * web.xml のコンテキストパラメータ "execution.mode" に "async" を指定した場合、
+ * {@link AsyncContext} を利用し、{@link #doTransaction} をコンテナのスレッドとは別のスレッドで実行する。
+ * この場合、サーブレットの定義に &lt;async-supported&gt;true&lt;/async-supported&gt; を指定すること。
+ * </p>
+ * <ul>
+ * <li>"execution.executor": "virtual"（仮想スレッド、Java 21 以降）または "fixed"（固定サイズのスレッドプール、デフォルト）</li>
+ * <li>"execution.max.concurrency": 同時に実行するトランザクション数の上限（デフォルト: 20）。
+ * 利用可能なデータベースコネクション数以下を指定すること。</li>
+ * <li>"execution.queue.size": 実行待ちのリクエスト数の上限（デフォルト: 100）。
+ * 上限を超えた場合は 503 を返す。仮想スレッドの場合は適用されない。</li>
+ * <li>"execution.timeout": 実行待ちのタイムアウト（ミリ秒、デフォルト: 30000、0 以下の場合は無制限）。
+ * 実行開始前にタイムアウトした場合は 503 を返す。実行中のスレッドがレスポンスを扱うため、実行開始後はタイムアウトしない。</li>
+ * </ul>
+ * <p>
+ * 非同期実行の場合、遷移先ページへは {@link AsyncContext#dispatch(String)} で遷移するため、{@link #moveTo} は利用しない。
+ * ただし、描画結果をキャッシュする場合は出力を取得するため、実行したスレッドで {@link #moveTo} を利用する。
+ * </p>
+ * <p>
+ * 参照のみの {@link Action} は、リードレプリカが設定されている場合（{@link DBAgent} 参照）リードレプリカで実行する。
+ * ただし、同一セッションで更新系の {@link Action} がコミットしてから
+ * "db.replica.read.your.writes"（ミリ秒、デフォルト: 5000）以内の場合、更新結果を参照できるようプライマリで実行する。
+ * </p>
+ * <p>
+ * "metrics.enabled" に true を指定した場合、ページID、イベントID毎に処理時間を段階別に計測する（{@link MetricsRegistry} 参照）。
+ * </p>
+ * <p>
+ * {@link Page#cacheSeconds()} を指定した参照のみの {@link Action} は、遷移先ページの描画結果をキャッシュする（{@link PageCache} 参照）。
+ * </p>
+ * <p>
+ * {@link DataContainer#afterCommit(AfterCommitTask)} で登録された処理は、コミット完了後に別のスレッドで実行する（{@link AfterCommitExecutor} 参照）。
+ * 参照のみの {@link Action} で登録された処理は実行しない。
+ * </p>
+ *
+ * @author T.Yoshida
+ */
+public abstract class MainServlet<P extends BaseForm> extends HttpServlet
+{
+	private static final long serialVersionUID = 1L;
+
+	// 非同期実行時の同時実行数上限のデフォルト値
+	private static final int DEFAULT_MAX_CONCURRENCY = 20;
+
+	// 非同期実行時の実行待ちの上限のデフォルト値
+	private static final int DEFAULT_QUEUE_SIZE = 100;
+
+	// 非同期実行時のタイムアウトのデフォルト値（ミリ秒）
+	private static final long DEFAULT_TIMEOUT = 30_000;
+
+	// 最終コミット時刻を保持するセッションキー
+	private static final String LAST_WRITE_KEY = "com.fw.db.lastWrite";
+
+	// 処理時間の計測を保持するリクエストキー
+	private static final String TIMER_KEY = "com.fw.metrics.timer";
+
+	// 遷移前の非同期処理のコンテキストを保持するリクエストキー
+	private static final String ASYNC_KEY = "com.fw.core.async";
+
+	// ActionManager の実装クラス
+	private ActionManager<P> _actionManager;
+
+	// 非同期実行用のスレッド（同期実行の場合、null）
+	private transient ExecutorService _executor;
+
+	// 同時実行数の制限
+	private transient Semaphore _permits;
+
+	// 非同期実行時の実行待ちのタイムアウト（ミリ秒）
+	private long _asyncTimeoutMillis;
+
+	// 実行待ちのタイムアウトを検出するスレッド（同期実行の場合、null）
+	private transient ScheduledExecutorService _timeouts;
+
+	// 更新後にプライマリで参照を行う期間（ミリ秒）
+	private long _readYourWritesMillis;
+
+	// 処理時間の計測結果
+	private transient MetricsRegistry _metrics;
+
+	// 描画結果のキャッシュ
+	private transient PageCache _pageCache;
+
+	// コミット完了後の処理を実行するスレッド
+	private transient AfterCommitExecutor _afterCommit;
+
+	@Override
+	public void init() throws ServletException
+	{
+		ServletConfig config = getServletConfig();
+		ServletContext context = config.getServletContext();
+
+		/*
+		 * web.xml から ActionSpecificInfo の実装クラス名を取得し、
+		 * インスタンス化した後、ActionManager コンストラクタ引数として指定。
+		 */
+		String infoClassName = context.getInitParameter("class.manager.action.info");
+		try
+		{
+			Class<?> infoClass = Class.forName(infoClassName);
+			ActionSpecificInfo info = (ActionSpecificInfo)infoClass.getDeclaredConstructor().newInstance();
+			_actionManager = new ActionManager<P>(info);
+		}
+		catch(Exception ex)
+		{
+			log("ActionManager instantiation error", ex);
+			throw new ServletException(ex);
+		}
+
+		String readYourWrites = context.getInitParameter("db.replica.read.your.writes");
+		_readYourWritesMillis = readYourWrites == null ? 5000 : Long.parseLong(readYourWrites);
+
+		_metrics = MetricsRegistry.getInstance();
+		_metrics.init(context);
+
+		_pageCache = PageCache.create(context);
+		PageCache.setInstance(_pageCache);
+
+		_afterCommit = AfterCommitExecutor.create(context);
+
+		/*
+		 * 非同期実行の設定
+		 */
+		if("async".equals(context.getInitParameter("execution.mode")))
+		{
+			String maxConcurrency = context.getInitParameter("execution.max.concurrency");
+			String queueSize = context.getInitParameter("execution.queue.size");
+			String timeout = context.getInitParameter("execution.timeout");
+			int permits = maxConcurrency == null ? DEFAULT_MAX_CONCURRENCY : Integer.parseInt(maxConcurrency);
+			_permits = new Semaphore(permits);
+			_asyncTimeoutMillis = timeout == null ? DEFAULT_TIMEOUT : Long.parseLong(timeout);
+			_executor = createExecutor(context.getInitParameter("execution.executor"), permits,
+				queueSize == null ? DEFAULT_QUEUE_SIZE : Integer.parseInt(queueSize));
+			_timeouts = Executors.newSingleThreadScheduledExecutor(r ->
+			{
+				Thread thread = new Thread(r, "fw-async-timeout");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	@Override
+	public void destroy()
+	{
+		if(_executor != null)
+		{
+			_executor.shutdown();
+			_timeouts.shutdownNow();
+		}
+		_afterCommit.shutdown();
+		DBAgent.shutdown();
+		_metrics.shutdown();
+		PageCache.setInstance(null);
+		super.destroy();
+	}
+
+	/**
+	 * 非同期実行用のスレッドを生成する。
+	 * <p>
+	 * 独自のスレッドを利用する場合、サブクラスでオーバーライドすること。
+	 * 実行待ちが上限を超えた場合は {@link RejectedExecutionException} を送出すること（503 を返す）。
+	 * </p>
+	 *
+	 * @param type 種別（"virtual" または "fixed"）
+	 * @param maxConcurrency 同時実行数の上限
+	 * @param queueSize 実行待ちの上限
+	 * @return スレッド
+	 */
+	protected ExecutorService createExecutor(String type, int maxConcurrency, int queueSize)
+	{
+		if("virtual".equals(type))
+		{
+			try
+			{
+				// Java 21 以降でのみ利用可能なため、リフレクションで取得
+				return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			}
+			catch(ReflectiveOperationException ex)
+			{
+				log("Virtual threads are not available, falling back to a fixed thread pool");
+			}
+		}
+
+		return new ThreadPoolExecutor
+		(
+			maxConcurrency, maxConcurrency, 0, TimeUnit.MILLISECONDS,
+			new ArrayBlockingQueue<>(Math.max(queueSize, 1)),
+			new ThreadPoolExecutor.AbortPolicy()
+		);
+	}
+
+	/**
+	 * @see HttpServlet#doPost(HttpServletRequest request, HttpServletResponse response)
+	 */
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
+	{
+		doMain(request, response);
+	}
+
+	/**
+	 * @see HttpServlet#doPost(HttpServletRequest request, HttpServletResponse response)
+	 */
+	@Override
+	protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
+	{
+		doMain(request, response);
+	}
+
+	/**
+	 * サーバーメイン処理
+	 *
+	 * @param request リクエスト
+	 * @param response レスポンス
+	 */
+	private void doMain(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
+	{
+		// 文字コード指定
+		request.setCharacterEncoding("UTF-8");
+		response.setCharacterEncoding("UTF-8");
+
+		/*
+		 * 画面ID、イベントIDに対応する Action を取得
+		 */
+		PhaseTimer timer = _metrics.startTimer();
+		String pageId = request.getParameter("pageId");
+		String eventId = request.getParameter("eventId");
+		ActionMeta<P> meta = _actionManager.lookup(pageId, eventId);
+		Action<P> action = meta.newAction();
+		timer.setAction(meta.getPageId(), meta.getEventId());
+		timer.mark(Phase.LOOKUP);
+
+		/*
+		 * Action 実装クラスで扱うフォームクラスのインスタンス化
+		 */
+		P form;
+		try
+		{
+			form = meta.newForm();
+		}
+		catch(Exception ex)
+		{
+			log("Form class instantiation error", ex);
+			timer.error();
+			timer.finish();
+			throw new ServletException(ex);
+		}
+
+		/*
+		 * フォームクラスにクライアントのパラメータ値を設定
+		 * ※パラメータ名を基に、フォームクラス毎に解析済みのセッターを実行
+		 * ※フォームクラスへの値の設定中に例外が発生しても、次の値の設定に進む
+		 */
+		meta.getFormBinder().bind(form, request.getParameterMap(), (name, ex) -> log("Wrong parameter [" + name + "]", ex));
+		timer.mark(Phase.BIND);
+		if(timer.isEnabled())
+		{
+			request.setAttribute(TIMER_KEY, timer);
+		}
+
+		// トランザクション処理
+		if(_executor == null || !request.isAsyncSupported())
+		{
+			doTransaction(request, response, action, form);
+			return;
+		}
+
+		// 非同期実行（実行開始とタイムアウトのいずれか先に到達した方のみが処理する）
+		// コンテナのタイムアウトは実行中にも発生するため利用せず、実行待ちのタイムアウトのみを検出する
+		AsyncContext async = request.startAsync();
+		async.setTimeout(0);
+		AtomicBoolean claimed = new AtomicBoolean();
+		ScheduledFuture<?> timeout = _asyncTimeoutMillis <= 0 ? null : _timeouts.schedule(() ->
+		{
+			if(!claimed.compareAndSet(false, true)) return;
+
+			log("Async execution timed out while waiting");
+			timer.error();
+			timer.finish();
+			try
+			{
+				((HttpServletResponse)async.getResponse()).sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+			}
+			catch(IOException | IllegalStateException ex)
+			{
+				log("Async timeout response error", ex);
+			}
+			finally
+			{
+				async.complete();
+			}
+		}, _asyncTimeoutMillis, TimeUnit.MILLISECONDS);
+		try
+		{
+			_executor.execute(() -> doTransactionAsync(async, claimed, timeout, action, form));
+		}
+		catch(RejectedExecutionException ex)
+		{
+			if(!claimed.compareAndSet(false, true)) return;
+			if(timeout != null)
+			{
+				timeout.cancel(false);
+			}
+
+			log("Async execution rejected", ex);
+			timer.error();
+			timer.finish();
+			response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+			async.complete();
+		}
+	}
+
+	/**
+	 * 非同期実行用のスレッドでトランザクション処理を行う。
+	 * <p>
+	 * 同時実行数の上限に達している場合、空きができるまで待機する。
+	 * 待機中にタイムアウトした場合は何もしない。実行を開始した場合、タイムアウトの検出を取り消す。
+	 * </p>
+	 *
+	 * @param async 非同期処理のコンテキスト
+	 * @param claimed 実行開始またはタイムアウトのいずれかが処理済みか否か
+	 * @param timeout 実行待ちのタイムアウトの検出（無制限の場合、null）
+	 * @param action アクション
+	 * @param form フォーム
+	 */
+	private void doTransactionAsync(AsyncContext async, AtomicBoolean claimed, ScheduledFuture<?> timeout, Action<P> action, P form)
+	{
+		boolean started = false;
+		try
+		{
+			_permits.acquire();
+			try
+			{
+				// タイムアウト済みの場合、レスポンスは返却済みのためリクエストにも触れない
+				if(!claimed.compareAndSet(false, true)) return;
+				started = true;
+				if(timeout != null)
+				{
+					timeout.cancel(false);
+				}
+
+				HttpServletRequest request = (HttpServletRequest)async.getRequest();
+				HttpServletResponse response = (HttpServletResponse)async.getResponse();
+
+				// 待機時間はいずれの段階にも含めない
+				timerOf(request).skip();
+
+				request.setAttribute(ASYNC_KEY, async);
+				doTransaction(request, response, action, form);
+			}
+			finally
+			{
+				_permits.release();
+			}
+		}
+		catch(InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			log("Async execution interrupted", ex);
+		}
+		catch(Exception ex)
+		{
+			log("Async execution error", ex);
+		}
+		finally
+		{
+			// 遷移先ページへ dispatch していない場合（エラー時等）は、ここで完了させる
+			if(started)
+			{
+				try
+				{
+					if(async.getRequest().getAttribute(ASYNC_KEY) != null)
+					{
+						async.getRequest().removeAttribute(ASYNC_KEY);
+						async.complete();
+					}
+				}
+				catch(IllegalStateException ex)
+				{
+					// クライアントの切断等によりコンテナが完了済み
+				}
+			}
+		}
+	}
+
+	/**
+	 * トランザクション処理
+	 *
+	 * @param request リクエスト
+	 * @param response レスポンス
+	 * @param action アクション
+	 * @param form フォーム
+	 */
+	protected void doTransaction
+	(
+		HttpServletRequest request, HttpServletResponse response, Action<P> action, P form
+	)
+		throws ServletException
+	{
+		/*
+		 * Action を実行し、処理結果を遷移先ページに反映させる。
+		 */
+		DataContainer container = new DataContainer(request);
+		PhaseTimer timer = timerOf(request);
+
+		/*
+		 * 描画結果のキャッシュがあれば Action を実行せずに返し、
+		 * 無ければ遷移先ページの出力を取得してキャッシュする。
+		 */
+		String cacheKey = action.isReadOnly() ? _pageCache.keyOf(action, request) : null;
+		PageCache.Capture capture = null;
+		if(cacheKey != null)
+		{
+			try
+			{
+				if(_pageCache.serve(cacheKey, request, response))
+				{
+					timer.mark(Phase.FORWARD);
+					timer.finish();
+					return;
+				}
+			}
+			catch(IOException ex)
+			{
+				log("Page cache sending error", ex);
+				timer.error();
+				timer.finish();
+				return;
+			}
+			capture = _pageCache.capture(cacheKey, action, request, response);
+		}
+
+		try
+		{
+			// トランザクションの開始
+			Transaction tx = DBAgent.beginTransaction(getServletContext(), action.isReadOnly(), isWithinWriteWindow(request));
+			if(SqlMetrics.getInstance().isEnabled())
+			{
+				// 低速クエリ、N+1 の疑いのあるクエリのログに出力する実行元
+				tx.setLabel(request.getParameter("pageId") + "/" + request.getParameter("eventId"));
+			}
+			timer.mark(Phase.BEGIN);
+
+			// 処理実行
+			action.execute(form, container);
+			timer.mark(Phase.EXECUTE);
+
+			if(!action.isReadOnly())
+			{
+				// コミット
+				DBAgent.commit();
+				markWritten(tx, request, container);
+				timer.mark(Phase.COMMIT);
+
+				try
+				{
+					// コミット完了通知
+					action.onCommitCompleted(container);
+					timer.mark(Phase.ON_COMMIT_COMPLETED);
+				}
+				finally
+				{
+					// コミット完了後の処理を別スレッドで実行（コミット完了通知で例外が発生しても実行する）
+					submitAfterCommit(container);
+				}
+			}
+			else
+			{
+				// コミットしないため、登録された処理は実行しない
+				discardAfterCommit(action, container);
+			}
+
+			// セッション属性の変更を反映し、指定されたページへ遷移
+			container.flushSession();
+			String path = action.moveTo();
+			AsyncContext async = (AsyncContext)request.getAttribute(ASYNC_KEY);
+			if(capture != null)
+			{
+				moveTo(path, request, capture);
+				capture.commit();
+			}
+			else if(async != null)
+			{
+				// 非同期実行の場合、描画はコンテナのスレッドで行う
+				request.removeAttribute(ASYNC_KEY);
+				async.dispatch(path);
+			}
+			else
+			{
+				moveTo(path, request, response);
+			}
+			timer.mark(Phase.FORWARD);
+		}
+		catch(Exception ex)
+		{
+			log("Transaction error", ex);
+			container.setAttr("error", ex);
+			timer.error();
+
+			if(!action.isReadOnly())
+			{
+				// ロールバック
+				timer.rollback();
+				try
+				{
+					DBAgent.rollback();
+				}
+				catch(SQLException ex2)
+				{
+					log("Rollback error", ex2);
+				}
+			}
+
+			// エラー時ページ遷移（取得途中の出力は破棄）
+			if(capture != null)
+			{
+				capture.discard();
+			}
+			try
+			{
+				container.flushSession();
+			}
+			catch(Exception ex3)
+			{
+				log("Session update error", ex3);
+			}
+			try
+			{
+				moveToInCaseOfError(ex, request, response);
+			}
+			catch(Exception ex3)
+			{
+				log("Error page moving error", ex3);
+			}
+		}
+		finally
+		{
+			// コネクションの破棄
+			try
+			{
+				DBAgent.dispose();
+			}
+			catch(SQLException ex)
+			{
+				log("Disposed error", ex);
+			}
+			if(capture != null)
+			{
+				capture.discard();
+			}
+			timer.finish();
+		}
+	}
+
+	/**
+	 * 登録されたコミット完了後の処理を別スレッドで実行する。
+	 *
+	 * @param container データ保持クラス
+	 */
+	private void submitAfterCommit(DataContainer container)
+	{
+		List<AfterCommitTask> tasks = container.takeAfterCommitTasks();
+		if(!tasks.isEmpty())
+		{
+			_afterCommit.submit(tasks);
+		}
+	}
+
+	/**
+	 * 参照のみの {@link Action} で登録されたコミット完了後の処理を破棄し、ログに出力する。
+	 *
+	 * @param action 実行した {@link Action}
+	 * @param container データ保持クラス
+	 */
+	private void discardAfterCommit(Action<P> action, DataContainer container)
+	{
+		List<AfterCommitTask> tasks = container.takeAfterCommitTasks();
+		if(!tasks.isEmpty())
+		{
+			log("After-commit tasks discarded, read-only action " + action.getClass().getName() + " registered " + tasks.size() + " tasks");
+		}
+	}
+
+	/**
+	 * リクエストの処理時間の計測を返す。
+	 *
+	 * @param request リクエスト
+	 * @return {@link PhaseTimer}（計測しない場合、{@link PhaseTimer#DISABLED}）
+	 */
+	private PhaseTimer timerOf(HttpServletRequest request)
+	{
+		if(!_metrics.isEnabled()) return PhaseTimer.DISABLED;
+
+		PhaseTimer timer = (PhaseTimer)request.getAttribute(TIMER_KEY);
+		return timer == null ? PhaseTimer.DISABLED : timer;
+	}
+
+	/**
+	 * 同一セッションでの最終コミットから、プライマリで参照を行う期間内か否かを返す。
+	 *
+	 * @param request リクエスト
+	 * @return 期間内の場合: true
+	 */
+	private boolean isWithinWriteWindow(HttpServletRequest request)
+	{
+		if(!DBAgent.hasReplicas()) return false;
+
+		HttpSession session = request.getSession(false);
+		if(session == null) return false;
+
+		Long lastWrite = (Long)session.getAttribute(LAST_WRITE_KEY);
+		return lastWrite != null && System.currentTimeMillis() - lastWrite < _readYourWritesMillis;
+	}
+
+	/**
+	 * 同一セッションでの最終コミット時刻を記録する。
+	 * <p>
+	 * データベースにアクセスしなかった場合は記録しない。
+	 * 他のセッション属性と同様、遷移先ページへの遷移前にまとめて反映する。
+	 * </p>
+	 *
+	 * @param tx コミットしたトランザクション
+	 * @param request リクエスト
+	 * @param container データ保持クラス
+	 */
+	private void markWritten(Transaction tx, HttpServletRequest request, DataContainer container)
+	{
+		if(!DBAgent.hasReplicas() || !tx.isConnected()) return;
+
+		if(request.getSession(false) != null)
+		{
+			container.setAttrAsSession(LAST_WRITE_KEY, System.currentTimeMillis());
+		}
+	}
+
+	/*
+	 * ページ遷移
+	 */
+	protected void moveTo(String path, HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
+	{
+		RequestDispatcher dispatcher = request.getRequestDispatcher(path);
+		dispatcher.forward(request, response);
+	}
+
+	/**
+	 * エラー（例外）が発生した場合のページ遷移
+	 *
+	 * @param ex 発生例外
+	 * @param request リクエスト変数
+	 * @param response レスポンス変数
+	 */
+	protected abstract void moveToInCaseOfError(Exception ex, HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException;
+}
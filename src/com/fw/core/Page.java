@@ -1,30 +1,83 @@
-package com.fw.core;
-
-import java.lang.annotation.ElementType;
-import java.lang.annotation.Retention;
-import java.lang.annotation.RetentionPolicy;
-import java.lang.annotation.Target;
-
-/**
- * {@link Action} 実装クラスにてサポートする画面ID、イベントIDを指定するためのアノテーション
- *
- * @author t.yoshida
- */
-@Retention(RetentionPolicy.RUNTIME)
-@Target(ElementType.TYPE)
-public @interface Page
-{
-	/**
-	 * 画面IDを返す。
-	 *
-	 * @return 画面ID
-	 */
-	String pageId();
-
-	/**
-	 * イベントIDを返す。
-	 *
-	 * @return イベントID
-	 */
-	String eventId();
-}
+package com.fw.core;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * {@link Action} 実装クラスにてサポートする画面ID、イベントIDを指定するためのアノテーション
+ *
+ * @author t.yoshida
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Page
+{
+	/**
+	 * 画面IDを返す。
+	 *
+	 * @return 画面ID
+	 */
+	String pageId();
+
+	/**
+	 * イベントIDを返す。
+	 *
+	 * @return イベントID
+	 */
+	String eventId();
+
+	/**
+	 * ステートレスか否かを返す。
+	 * <p>
+	 * true の場合、{@link Action} 実装のインスタンスを一つだけ生成し、全リクエストで共有する。
+	 * 複数スレッドから同時に実行されるため、リクエスト毎の状態をフィールドに保持しないこと。
+	 * </p>
+	 *
+	 * @return ステートレスの場合: true
+	 */
+	boolean stateless() default false;
+
+	/**
+	 * 描画結果のキャッシュ有効期間を返す。
+	 * <p>
+	 * 1 以上の場合、参照のみ（{@link Action#isReadOnly()} が true）の GET リクエストについて、
+	 * 遷移先ページの描画結果を {@link PageCache} に保持し、期間内は {@link Action} を実行せずに返す。
+	 * キーは画面ID、イベントID、{@link #cacheParams()}、{@link #cacheSessionKey()} の値の組み合わせとする。
+	 * </p>
+	 *
+	 * @return 有効期間（秒、0 の場合はキャッシュしない）
+	 */
+	int cacheSeconds() default 0;
+
+	/**
+	 * 有効期間の経過後、古い描画結果を返すことができる期間を返す。
+	 * <p>
+	 * 期間内は 1 リクエストのみが再描画を行い、その間の他のリクエストには古い描画結果を返す。
+	 * </p>
+	 *
+	 * @return 期間（秒）
+	 */
+	int staleSeconds() default 0;
+
+	/**
+	 * キャッシュのキーに含めるリクエストパラメータ名を返す。
+	 * <p>
+	 * ここに指定していないパラメータは、描画結果に影響しないものとして扱う。
+	 * </p>
+	 *
+	 * @return パラメータ名
+	 */
+	String[] cacheParams() default {};
+
+	/**
+	 * キャッシュのキーに含めるセッション属性名を返す。
+	 * <p>
+	 * 利用者の権限等、セッション毎に描画結果が異なる場合に指定する。
+	 * </p>
+	 *
+	 * @return セッション属性名（空文字列の場合、含めない）
+	 */
+	String cacheSessionKey() default "";
+}
@@ -0,0 +1,844 @@
+package com.fw.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import javax.servlet.http.HttpSession;
+
+/**
+ * 参照のみの {@link Action} の描画結果を保持するキャッシュ
+ * <p>
+ * {@link Page#cacheSeconds()} が指定された {@link Action} について、{@link MainServlet} が遷移先ページへの
+ * フォワードの出力を {@link Capture} で取得し、レスポンス本体と Content-Type を保持する。
+ * 有効期間内の同じキーのリクエストには {@link Action} を実行せずに保持した内容を返すため、
+ * データベースにはアクセスしない。内容のハッシュ値による強い ETag を付与し、If-None-Match が一致する場合は 304 を返す。
+ * </p>
+ * <p>
+ * 同じキーの描画は 1 リクエストのみが行い、描画中に届いた同じキーのリクエストは、
+ * 古い描画結果（{@link Page#staleSeconds()} の期間内）があればそれを返し、無ければ描画の完了を待つ。
+ * 状態コードが 200 以外の場合、Cookie を設定した場合、本体が上限を超えた場合はキャッシュしない。
+ * また、レスポンスヘッダは保持しないため、ヘッダを設定するページには指定しないこと。
+ * </p>
+ * <p>
+ * 合計サイズが上限を超えた場合、最も参照されていない描画結果から破棄する。
+ * web.xml のコンテキストパラメータで設定する。
+ * </p>
+ * <ul>
+ * <li>"page.cache.size": 合計サイズの上限（バイト、デフォルト: 32MB、0 の場合はキャッシュしない）</li>
+ * <li>"page.cache.max.entry.size": 1 ページのサイズの上限（バイト、デフォルト: 1MB）</li>
+ * <li>"page.cache.wait": 他のリクエストの描画の完了を待つ時間（ミリ秒、デフォルト: 3000）</li>
+ * </ul>
+ *
+ * @author t.yoshida
+ */
+public final class PageCache
+{
+	// 描画結果 1 件あたりの管理領域のサイズ（概算）
+	private static final int ENTRY_OVERHEAD = 256;
+
+	// 無効なインスタンス
+	private static final PageCache DISABLED = new PageCache(0, 0, 0);
+
+	// Action 実装クラス毎のキャッシュ方針（キャッシュしない場合、null）
+	private static final ClassValue<Policy> _policies = new ClassValue<Policy>()
+	{
+		@Override
+		protected Policy computeValue(Class<?> type)
+		{
+			Page page = type.getAnnotation(Page.class);
+			return page == null || page.cacheSeconds() <= 0 ? null : new Policy(page);
+		}
+	};
+
+	// デフォルトのインスタンス
+	private static volatile PageCache _instance = DISABLED;
+
+	// 描画結果（アクセス順）
+	private final LinkedHashMap<String, Entry> _entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	// 描画中のキー
+	private final Map<String, CompletableFuture<Entry>> _loading = new ConcurrentHashMap<>();
+
+	// 合計サイズの上限（バイト）
+	private final long _maxBytes;
+
+	// 1 ページのサイズの上限（バイト）
+	private final int _maxEntryBytes;
+
+	// 描画の完了を待つ時間（ミリ秒）
+	private final long _waitMillis;
+
+	// 合計サイズ（バイト）
+	private long _totalBytes;
+
+	/*
+	 * 統計情報
+	 */
+	private final LongAdder _hits = new LongAdder();
+	private final LongAdder _staleHits = new LongAdder();
+	private final LongAdder _misses = new LongAdder();
+	private final LongAdder _notModified = new LongAdder();
+	private final LongAdder _evictions = new LongAdder();
+	private final LongAdder _expirations = new LongAdder();
+
+	/**
+	 * {@link Page} アノテーションから取得したキャッシュ方針
+	 */
+	private static final class Policy
+	{
+		final String prefix;
+		final long ttlMillis;
+		final long staleMillis;
+		final String[] params;
+		final String sessionKey;
+
+		Policy(Page page)
+		{
+			this.prefix = page.pageId() + '\0' + page.eventId();
+			this.ttlMillis = TimeUnit.SECONDS.toMillis(page.cacheSeconds());
+			this.staleMillis = TimeUnit.SECONDS.toMillis(Math.max(page.staleSeconds(), 0));
+			this.params = page.cacheParams().clone();
+			this.sessionKey = page.cacheSessionKey();
+		}
+	}
+
+	/**
+	 * キャッシュされた描画結果
+	 */
+	private static final class Entry
+	{
+		final byte[] body;
+		final String contentType;
+		final String etag;
+		final long expiresAt;
+		final long staleUntil;
+		final long size;
+
+		Entry(String key, byte[] body, String contentType, String etag, long expiresAt, long staleUntil)
+		{
+			this.body = body;
+			this.contentType = contentType;
+			this.etag = etag;
+			this.expiresAt = expiresAt;
+			this.staleUntil = staleUntil;
+			this.size = body.length + key.length() * 2L + ENTRY_OVERHEAD;
+		}
+	}
+
+	/**
+	 * 合計サイズの上限等を指定して {@link PageCache} を生成する。
+	 *
+	 * @param maxBytes 合計サイズの上限（バイト、0 の場合はキャッシュしない）
+	 * @param maxEntryBytes 1 ページのサイズの上限（バイト）
+	 * @param waitMillis 他のリクエストの描画の完了を待つ時間（ミリ秒）
+	 */
+	public PageCache(long maxBytes, int maxEntryBytes, long waitMillis)
+	{
+		_maxBytes = Math.max(maxBytes, 0);
+		_maxEntryBytes = (int)Math.min(Math.max(maxEntryBytes, 0), _maxBytes);
+		_waitMillis = Math.max(waitMillis, 0);
+	}
+
+	/**
+	 * コンテキストパラメータを基に {@link PageCache} を生成する。
+	 *
+	 * @param context サーブレットコンテキスト
+	 * @return {@link PageCache}
+	 */
+	static PageCache create(ServletContext context)
+	{
+		String size = context.getInitParameter("page.cache.size");
+		String maxEntrySize = context.getInitParameter("page.cache.max.entry.size");
+		String wait = context.getInitParameter("page.cache.wait");
+
+		return new PageCache
+		(
+			size == null ? 32L * 1024 * 1024 : Long.parseLong(size),
+			maxEntrySize == null ? 1024 * 1024 : Integer.parseInt(maxEntrySize),
+			wait == null ? 3000 : Long.parseLong(wait)
+		);
+	}
+
+	/**
+	 * デフォルトのインスタンスを返す。
+	 *
+	 * @return {@link PageCache}
+	 */
+	public static PageCache getInstance()
+	{
+		return _instance;
+	}
+
+	/**
+	 * デフォルトのインスタンスを置き換える。
+	 *
+	 * @param cache {@link PageCache}（null の場合、キャッシュしない）
+	 */
+	public static void setInstance(PageCache cache)
+	{
+		_instance = cache == null ? DISABLED : cache;
+	}
+
+	/**
+	 * キャッシュが有効か否かを返す。
+	 *
+	 * @return 有効な場合: true
+	 */
+	public boolean isEnabled()
+	{
+		return _maxBytes > 0;
+	}
+
+	/**
+	 * リクエストに対応するキャッシュのキーを返す。
+	 *
+	 * @param action {@link Action} 実装（参照のみであること）
+	 * @param request リクエスト
+	 * @return キー（キャッシュの対象外の場合、null）
+	 */
+	String keyOf(Action<?> action, HttpServletRequest request)
+	{
+		if(!isEnabled() || !"GET".equals(request.getMethod())) return null;
+
+		Policy policy = _policies.get(action.getClass());
+		if(policy == null) return null;
+
+		StringBuilder key = new StringBuilder(policy.prefix);
+		for(String name : policy.params)
+		{
+			key.append('\0').append(name).append('=');
+			String[] values = request.getParameterValues(name);
+			if(values == null) continue;
+
+			for(int i=0; i<values.length; i++)
+			{
+				if(i > 0) key.append('\u0001');
+				key.append(values[i]);
+			}
+		}
+
+		if(!policy.sessionKey.isEmpty())
+		{
+			HttpSession session = request.getSession(false);
+			Object value = session == null ? null : session.getAttribute(policy.sessionKey);
+			key.append('\0').append(value == null ? "" : value);
+		}
+
+		return key.toString();
+	}
+
+	/**
+	 * キャッシュした描画結果をレスポンスに書き込む。
+	 * <p>
+	 * 有効期間内の描画結果が無い場合でも、他のリクエストが描画中であれば、
+	 * 古い描画結果を返すか、描画の完了を待って返す。
+	 * </p>
+	 *
+	 * @param key キー
+	 * @param request リクエスト
+	 * @param response レスポンス
+	 * @return 書き込んだ場合: true、描画が必要な場合: false
+	 * @throws IOException 出力エラー
+	 */
+	boolean serve(String key, HttpServletRequest request, HttpServletResponse response) throws IOException
+	{
+		long now = System.currentTimeMillis();
+		Entry entry = get(key, now);
+		if(entry != null && now <= entry.expiresAt)
+		{
+			_hits.increment();
+			send(entry, request, response);
+			return true;
+		}
+
+		CompletableFuture<Entry> loading = _loading.get(key);
+		if(loading == null)
+		{
+			_misses.increment();
+			return false;
+		}
+
+		if(entry != null)
+		{
+			// 再描画中は古い描画結果を返す
+			_staleHits.increment();
+			send(entry, request, response);
+			return true;
+		}
+
+		// 他のリクエストの描画の完了を待つ
+		try
+		{
+			Entry loaded = loading.get(_waitMillis, TimeUnit.MILLISECONDS);
+			if(loaded != null)
+			{
+				_hits.increment();
+				send(loaded, request, response);
+				return true;
+			}
+		}
+		catch(InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch(ExecutionException | TimeoutException ex)
+		{
+			// 待たずに描画する
+		}
+
+		_misses.increment();
+		return false;
+	}
+
+	/**
+	 * 遷移先ページの出力を取得する {@link Capture} を生成する。
+	 * <p>
+	 * 同じキーを他のリクエストが描画中でない場合、描画中として登録する。
+	 * </p>
+	 *
+	 * @param key キー
+	 * @param action {@link Action} 実装
+	 * @param request リクエスト
+	 * @param response レスポンス
+	 * @return {@link Capture}
+	 */
+	Capture capture(String key, Action<?> action, HttpServletRequest request, HttpServletResponse response)
+	{
+		CompletableFuture<Entry> future = new CompletableFuture<>();
+		boolean owner = _loading.putIfAbsent(key, future) == null;
+
+		return new Capture(key, _policies.get(action.getClass()), owner ? future : null, request, response);
+	}
+
+	/**
+	 * 指定した画面IDの描画結果を全て破棄する。
+	 *
+	 * @param pageId 画面ID
+	 */
+	public synchronized void invalidate(String pageId)
+	{
+		String prefix = pageId + '\0';
+		Iterator<Map.Entry<String, Entry>> it = _entries.entrySet().iterator();
+		while(it.hasNext())
+		{
+			Map.Entry<String, Entry> entry = it.next();
+			if(entry.getKey().startsWith(prefix))
+			{
+				_totalBytes -= entry.getValue().size;
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * 全ての描画結果を破棄する。
+	 */
+	public synchronized void clear()
+	{
+		_entries.clear();
+		_totalBytes = 0;
+	}
+
+	/**
+	 * 描画結果を返す。
+	 *
+	 * @param key キー
+	 * @param now 現在時刻（ミリ秒）
+	 * @return 描画結果（存在しない場合、古い描画結果を返せる期間も過ぎている場合、null）
+	 */
+	private synchronized Entry get(String key, long now)
+	{
+		Entry entry = _entries.get(key);
+		if(entry != null && now > entry.staleUntil)
+		{
+			_entries.remove(key);
+			_totalBytes -= entry.size;
+			_expirations.increment();
+			return null;
+		}
+
+		return entry;
+	}
+
+	/**
+	 * 描画結果を保持する。
+	 *
+	 * @param key キー
+	 * @param policy キャッシュ方針
+	 * @param body レスポンス本体
+	 * @param contentType Content-Type
+	 * @return 保持した描画結果
+	 */
+	private Entry put(String key, Policy policy, byte[] body, String contentType)
+	{
+		long now = System.currentTimeMillis();
+		Entry entry = new Entry(key, body, contentType, etag(body), now + policy.ttlMillis, now + policy.ttlMillis + policy.staleMillis);
+		synchronized(this)
+		{
+			Entry old = _entries.put(key, entry);
+			if(old != null)
+			{
+				_totalBytes -= old.size;
+			}
+			_totalBytes += entry.size;
+
+			Iterator<Entry> it = _entries.values().iterator();
+			while(_totalBytes > _maxBytes && it.hasNext())
+			{
+				_totalBytes -= it.next().size;
+				it.remove();
+				_evictions.increment();
+			}
+		}
+
+		return entry;
+	}
+
+	/**
+	 * 描画結果をレスポンスに書き込む。
+	 * <p>
+	 * If-None-Match が ETag と一致する場合は 304 を返す。
+	 * </p>
+	 *
+	 * @param entry 描画結果
+	 * @param request リクエスト
+	 * @param response レスポンス
+	 * @throws IOException 出力エラー
+	 */
+	private void send(Entry entry, HttpServletRequest request, HttpServletResponse response) throws IOException
+	{
+		response.setHeader("ETag", entry.etag);
+		if(matches(request.getHeader("If-None-Match"), entry.etag))
+		{
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			_notModified.increment();
+			return;
+		}
+
+		if(entry.contentType != null)
+		{
+			response.setContentType(entry.contentType);
+		}
+		response.setContentLength(entry.body.length);
+		response.getOutputStream().write(entry.body);
+	}
+
+	/**
+	 * If-None-Match が ETag と一致するか否かを返す。
+	 *
+	 * @param ifNoneMatch If-None-Match ヘッダ
+	 * @param etag ETag
+	 * @return 一致する場合: true
+	 */
+	private static boolean matches(String ifNoneMatch, String etag)
+	{
+		if(ifNoneMatch == null) return false;
+
+		for(String candidate : ifNoneMatch.split(","))
+		{
+			candidate = candidate.trim();
+			if(candidate.startsWith("W/"))
+			{
+				candidate = candidate.substring(2);
+			}
+			if(candidate.equals("*") || candidate.equals(etag)) return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * レスポンス本体の ETag を返す。
+	 *
+	 * @param body レスポンス本体
+	 * @return ETag（SHA-256 の Base64 表現を引用符で囲んだもの）
+	 */
+	private static String etag(byte[] body)
+	{
+		try
+		{
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+			return '"' + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + '"';
+		}
+		catch(NoSuchAlgorithmException ex)
+		{
+			// SHA-256 は全ての Java 実装で利用可能
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * キャッシュ件数を返す。
+	 *
+	 * @return キャッシュ件数
+	 */
+	public synchronized int size()
+	{
+		return _entries.size();
+	}
+
+	/**
+	 * 合計サイズを返す。
+	 *
+	 * @return 合計サイズ（バイト、概算）
+	 */
+	public synchronized long getTotalBytes()
+	{
+		return _totalBytes;
+	}
+
+	/**
+	 * ヒット数を返す。
+	 *
+	 * @return ヒット数（描画の完了を待って返した場合を含む）
+	 */
+	public long getHitCount()
+	{
+		return _hits.sum();
+	}
+
+	/**
+	 * 再描画中に古い描画結果を返した回数を返す。
+	 *
+	 * @return 回数
+	 */
+	public long getStaleHitCount()
+	{
+		return _staleHits.sum();
+	}
+
+	/**
+	 * ミス数（描画を行った回数）を返す。
+	 *
+	 * @return ミス数
+	 */
+	public long getMissCount()
+	{
+		return _misses.sum();
+	}
+
+	/**
+	 * If-None-Match が一致し、304 を返した回数を返す。
+	 *
+	 * @return 回数
+	 */
+	public long getNotModifiedCount()
+	{
+		return _notModified.sum();
+	}
+
+	/**
+	 * 合計サイズの上限による破棄数を返す。
+	 *
+	 * @return 破棄数
+	 */
+	public long getEvictionCount()
+	{
+		return _evictions.sum();
+	}
+
+	/**
+	 * 有効期限切れによる破棄数を返す。
+	 *
+	 * @return 破棄数
+	 */
+	public long getExpirationCount()
+	{
+		return _expirations.sum();
+	}
+
+	/**
+	 * 遷移先ページの出力を取得するレスポンス
+	 * <p>
+	 * 出力はメモリに保持し、{@link #commit()} でキャッシュに登録してから元のレスポンスに書き込む。
+	 * 1 ページのサイズの上限を超えた場合、以降はキャッシュせずに元のレスポンスにそのまま書き込む。
+	 * </p>
+	 */
+	final class Capture extends HttpServletResponseWrapper
+	{
+		// キー
+		private final String _key;
+
+		// キャッシュ方針
+		private final Policy _policy;
+
+		// 描画の完了通知（他のリクエストが描画中の場合、null）
+		private final CompletableFuture<Entry> _future;
+
+		// リクエスト
+		private final HttpServletRequest _request;
+
+		// 出力内容
+		private final ByteArrayOutputStream _buffer = new ByteArrayOutputStream(8192);
+
+		// 出力先
+		private final ServletOutputStream _stream = new ServletOutputStream()
+		{
+			@Override
+			public void write(int b) throws IOException
+			{
+				target(1).write(b);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException
+			{
+				target(len).write(b, off, len);
+			}
+
+			@Override
+			public boolean isReady()
+			{
+				return true;
+			}
+
+			@Override
+			public void setWriteListener(WriteListener listener)
+			{
+				throw new IllegalStateException("Captured responses do not support non-blocking I/O");
+			}
+		};
+
+		// getWriter() で返した出力先
+		private PrintWriter _writer;
+
+		// 元のレスポンスにそのまま書き込むか否か（上限超過、エラー、リダイレクト）
+		private boolean _bypassed;
+
+		// キャッシュ可能か否か
+		private boolean _cacheable = true;
+
+		// 完了したか否か
+		private boolean _done;
+
+		/**
+		 * {@link Capture} を生成する。
+		 *
+		 * @param key キー
+		 * @param policy キャッシュ方針
+		 * @param future 描画の完了通知（他のリクエストが描画中の場合、null）
+		 * @param request リクエスト
+		 * @param response 元のレスポンス
+		 */
+		private Capture(String key, Policy policy, CompletableFuture<Entry> future, HttpServletRequest request, HttpServletResponse response)
+		{
+			super(response);
+			_key = key;
+			_policy = policy;
+			_future = future;
+			_request = request;
+		}
+
+		/**
+		 * 書き込み先を返す。
+		 * <p>
+		 * 上限を超える場合、保持した出力内容を元のレスポンスに書き込み、以降はそのまま書き込む。
+		 * </p>
+		 *
+		 * @param length 書き込むバイト数
+		 * @return 書き込み先
+		 * @throws IOException 出力エラー
+		 */
+		private OutputStream target(int length) throws IOException
+		{
+			if(_bypassed) return getResponse().getOutputStream();
+
+			if(_buffer.size() + length > _maxEntryBytes)
+			{
+				_bypassed = true;
+				_cacheable = false;
+				OutputStream out = getResponse().getOutputStream();
+				_buffer.writeTo(out);
+				_buffer.reset();
+				return out;
+			}
+
+			return _buffer;
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream()
+		{
+			if(_writer != null) throw new IllegalStateException("getWriter() has already been called");
+
+			return _stream;
+		}
+
+		@Override
+		public PrintWriter getWriter() throws IOException
+		{
+			if(_writer == null)
+			{
+				_writer = new PrintWriter(new OutputStreamWriter(_stream, getCharacterEncoding()));
+			}
+
+			return _writer;
+		}
+
+		@Override
+		public void flushBuffer() throws IOException
+		{
+			if(_writer != null) _writer.flush();
+			if(_bypassed) super.flushBuffer();
+		}
+
+		@Override
+		public void resetBuffer()
+		{
+			_buffer.reset();
+			super.resetBuffer();
+		}
+
+		@Override
+		public void reset()
+		{
+			_buffer.reset();
+			super.reset();
+		}
+
+		@Override
+		public void setContentLength(int len)
+		{
+			// 書き込み時に設定
+		}
+
+		@Override
+		public void setContentLengthLong(long len)
+		{
+			// 書き込み時に設定
+		}
+
+		@Override
+		public void setStatus(int sc)
+		{
+			if(sc != SC_OK) _cacheable = false;
+			super.setStatus(sc);
+		}
+
+		@Override
+		public void sendError(int sc) throws IOException
+		{
+			bypass();
+			super.sendError(sc);
+		}
+
+		@Override
+		public void sendError(int sc, String msg) throws IOException
+		{
+			bypass();
+			super.sendError(sc, msg);
+		}
+
+		@Override
+		public void sendRedirect(String location) throws IOException
+		{
+			bypass();
+			super.sendRedirect(location);
+		}
+
+		@Override
+		public void addCookie(Cookie cookie)
+		{
+			_cacheable = false;
+			super.addCookie(cookie);
+		}
+
+		/**
+		 * 出力内容を破棄し、以降は元のレスポンスにそのまま書き込む。
+		 */
+		private void bypass()
+		{
+			_bypassed = true;
+			_cacheable = false;
+			_buffer.reset();
+		}
+
+		/**
+		 * 遷移先ページの出力を完了する。
+		 * <p>
+		 * キャッシュ可能な場合は描画結果を保持し、元のレスポンスに書き込む。
+		 * </p>
+		 *
+		 * @throws IOException 出力エラー
+		 */
+		void commit() throws IOException
+		{
+			if(_done) return;
+
+			_done = true;
+			Entry entry = null;
+			try
+			{
+				if(_writer != null) _writer.flush();
+				if(_bypassed) return;
+
+				HttpServletResponse response = (HttpServletResponse)getResponse();
+				if(_cacheable)
+				{
+					entry = put(_key, _policy, _buffer.toByteArray(), getContentType());
+					send(entry, _request, response);
+				}
+				else
+				{
+					response.setContentLength(_buffer.size());
+					_buffer.writeTo(response.getOutputStream());
+				}
+			}
+			finally
+			{
+				release(entry);
+			}
+		}
+
+		/**
+		 * 出力内容を破棄する（エラー時）。
+		 * <p>
+		 * 元のレスポンスに書き込み済みでない場合、エラーページは元のレスポンスに出力できる。
+		 * 完了済みの場合は何もしない。
+		 * </p>
+		 */
+		void discard()
+		{
+			if(_done) return;
+
+			_done = true;
+			_buffer.reset();
+			release(null);
+		}
+
+		/**
+		 * 描画中の登録を解除し、完了を待つリクエストに描画結果を通知する。
+		 *
+		 * @param entry 描画結果（キャッシュしなかった場合、null）
+		 */
+		private void release(Entry entry)
+		{
+			if(_future == null) return;
+
+			_loading.remove(_key, _future);
+			_future.complete(entry);
+		}
+	}
+}
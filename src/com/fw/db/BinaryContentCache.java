@@ -0,0 +1,809 @@
+package com.fw.db;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * データベースから取得したバイナリデータをローカルディスクに保持するキャッシュ
+ * <p>
+ * キーはクエリとパラメータのハッシュ値とし、各データにはクエリが参照するテーブル名をタグとして付与する。
+ * {@link QueryUpdater} が更新したテーブルのタグは、{@link DBAgent#commit()} の成功後に無効化される。
+ * キャッシュしたファイルは {@link FileChannel#transferTo(long, long, WritableByteChannel)} でレスポンスに転送し、
+ * 内容のハッシュ値による強い ETag を付与する。If-None-Match が一致する場合は 304 を返す。
+ * </p>
+ * <p>
+ * 合計サイズの上限を超えた場合、最も長く参照されていないデータから破棄する。
+ * 上限を超える単一のデータはキャッシュせず、そのまま転送する。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+public final class BinaryContentCache
+{
+	// キャッシュファイルの拡張子
+	private static final String SUFFIX = ".fwcache";
+
+	// キャッシュファイル名（キーのハッシュ値 + 一時ファイルの連番 + 拡張子）
+	private static final Pattern FILE_NAME = Pattern.compile("[0-9a-f]{64}[0-9]+" + Pattern.quote(SUFFIX));
+
+	// 無効なキャッシュ（データベースから直接転送する）
+	private static final BinaryContentCache DISABLED = new BinaryContentCache();
+
+	// デフォルトのインスタンス
+	private static volatile BinaryContentCache _instance = DISABLED;
+
+	// レスポンスに直接転送済みのデータ（キャッシュしない）
+	private static final Entry SENT = new Entry(null, 0, null, new String[0]);
+
+	// キャッシュディレクトリ
+	private final Path _directory;
+
+	// 合計サイズの上限（バイト）
+	private final long _maxBytes;
+
+	// キャッシュ済みのデータ（アクセス順）
+	private final LinkedHashMap<String, Entry> _entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	// 合計サイズ（バイト）
+	private long _totalBytes;
+
+	// 無効化の世代（無効化される度に増加）
+	private final AtomicLong _generation = new AtomicLong();
+
+	/*
+	 * 統計情報
+	 */
+	private final LongAdder _hits = new LongAdder();
+	private final LongAdder _misses = new LongAdder();
+	private final LongAdder _notModified = new LongAdder();
+	private final LongAdder _evictions = new LongAdder();
+	private final LongAdder _invalidations = new LongAdder();
+
+	/**
+	 * キャッシュされたデータ
+	 */
+	private static final class Entry
+	{
+		final Path file;
+		final long length;
+		final String etag;
+		final String[] tables;
+
+		Entry(Path file, long length, String etag, String[] tables)
+		{
+			this.file = file;
+			this.length = length;
+			this.etag = etag;
+			this.tables = tables;
+		}
+	}
+
+	/**
+	 * データベースから取得したバイナリデータの出力先
+	 * <p>
+	 * 上限以内の間はファイルに保存し、上限を超えた場合（データ長が事前に分かる場合は転送開始時）は
+	 * 保存済みの内容に続けてレスポンスに直接転送する。
+	 * </p>
+	 */
+	private final class Spool implements QueryLoader.BinarySink
+	{
+		// キー（保存先ファイル名の接頭辞）
+		private final String _key;
+
+		// 上限を超えた場合の転送先
+		private final HttpServletResponse _response;
+
+		// ETag の算出
+		private final MessageDigest _digest = newDigest();
+
+		// 保存先ファイル（未作成の場合、null）
+		Path file;
+
+		// 出力先（未開始の場合、null）
+		private OutputStream _out;
+
+		// レスポンスに直接転送しているか否か
+		private boolean _direct;
+
+		// 書き出したバイト数
+		private long _written;
+
+		/**
+		 * キーと上限を超えた場合の転送先を指定して {@link Spool} を生成する。
+		 *
+		 * @param key キー
+		 * @param response 上限を超えた場合の転送先
+		 */
+		Spool(String key, HttpServletResponse response)
+		{
+			_key = key;
+			_response = response;
+		}
+
+		@Override
+		public void begin(long length) throws IOException
+		{
+			if(length > _maxBytes)
+			{
+				_response.setContentLengthLong(length);
+				_out = _response.getOutputStream();
+				_direct = true;
+			}
+			else
+			{
+				// 同じキーを並行して取得した場合に互いのファイルを削除しないよう、取得毎に別のファイルとする
+				file = Files.createTempFile(_directory, _key, SUFFIX);
+				_out = new DigestOutputStream(Files.newOutputStream(file), _digest);
+			}
+		}
+
+		@Override
+		public void write(ByteBuffer chunk) throws IOException
+		{
+			if(!_direct && _written + chunk.remaining() > _maxBytes)
+			{
+				// 保存済みの内容を転送し、以降はレスポンスに直接転送する
+				_out.close();
+				_out = _response.getOutputStream();
+				_direct = true;
+				Files.copy(file, _out);
+			}
+
+			_out.write(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+			_written += chunk.remaining();
+		}
+
+		/**
+		 * レスポンスに直接転送したか否かを返す。
+		 *
+		 * @return 直接転送した場合: true
+		 */
+		boolean isDirect()
+		{
+			return _direct;
+		}
+
+		/**
+		 * 保存した内容の ETag を返す。
+		 *
+		 * @return ETag
+		 */
+		String etag()
+		{
+			return '"' + Base64.getUrlEncoder().withoutPadding().encodeToString(_digest.digest()) + '"';
+		}
+
+		/**
+		 * ファイルへの出力を終了する（レスポンスはクローズしない）。
+		 *
+		 * @throws IOException 入出力例外
+		 */
+		void close() throws IOException
+		{
+			if(_out != null && !_direct)
+			{
+				_out.close();
+			}
+		}
+	}
+
+	/**
+	 * 無効な {@link BinaryContentCache} を生成する。
+	 */
+	private BinaryContentCache()
+	{
+		_directory = null;
+		_maxBytes = 0;
+	}
+
+	/**
+	 * キャッシュディレクトリと合計サイズの上限を指定して {@link BinaryContentCache} を生成する。
+	 * <p>
+	 * キャッシュディレクトリに残っている前回のファイルは削除する。
+	 * 削除するのはこのキャッシュが作成した形式のファイル名のみとし、他のファイルには触れない。
+	 * </p>
+	 *
+	 * @param directory キャッシュディレクトリ
+	 * @param maxBytes 合計サイズの上限（バイト）
+	 * @throws IOException キャッシュディレクトリが作成できない場合
+	 */
+	public BinaryContentCache(File directory, long maxBytes) throws IOException
+	{
+		if(maxBytes <= 0) throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+
+		_directory = Files.createDirectories(directory.toPath());
+		_maxBytes = maxBytes;
+
+		try(DirectoryStream<Path> files = Files.newDirectoryStream(_directory, "*" + SUFFIX))
+		{
+			for(Path file : files)
+			{
+				if(FILE_NAME.matcher(file.getFileName().toString()).matches() && Files.isRegularFile(file))
+				{
+					delete(file);
+				}
+			}
+		}
+	}
+
+	/**
+	 * デフォルトのインスタンスを返す。
+	 * <p>
+	 * 設定されていない場合、キャッシュせずにデータベースから直接転送するインスタンスを返す。
+	 * </p>
+	 *
+	 * @return {@link BinaryContentCache}
+	 */
+	public static BinaryContentCache getInstance()
+	{
+		return _instance;
+	}
+
+	/**
+	 * デフォルトのインスタンスを置き換える。
+	 *
+	 * @param cache {@link BinaryContentCache}（null の場合、キャッシュしない）
+	 */
+	public static void setInstance(BinaryContentCache cache)
+	{
+		BinaryContentCache previous = _instance;
+		_instance = cache == null ? DISABLED : cache;
+		if(previous != _instance)
+		{
+			previous.clear();
+		}
+	}
+
+	/**
+	 * キャッシュが有効か否かを返す。
+	 *
+	 * @return 有効な場合: true
+	 */
+	public boolean isEnabled()
+	{
+		return _directory != null;
+	}
+
+	/**
+	 * バイナリデータをレスポンスに書き出す。
+	 * <p>
+	 * 単一の BLOB 型等の値を取得するクエリを指定する。
+	 * キャッシュに無い場合はデータベースから取得してディスクに保存した上で転送する。
+	 * ただし、キャッシュしないデータ（リードレプリカから取得する場合、上限を超える場合）はディスクに保存せずに直接転送する。
+	 * Content-Type 等は呼び出し元で設定すること。
+	 * 値を取得できなかった場合はレスポンスに何も書き出さないため、呼び出し元でステータスを設定すること。
+	 * </p>
+	 *
+	 * @param request リクエスト
+	 * @param response レスポンス
+	 * @param tables クエリが参照するテーブル名
+	 * @param query クエリ
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @return 値を取得できた場合（304 を返した場合を含む）: true
+	 * @throws SQLException データベース関連例外
+	 * @throws IOException 入出力例外
+	 */
+	public boolean serve(HttpServletRequest request, HttpServletResponse response, String[] tables, String query, Object... params) throws SQLException, IOException
+	{
+		if(!isEnabled()) return QueryLoader.writeBinary(response, query, params) >= 0;
+
+		String[] tags = new String[tables.length];
+		for(int i=0; i<tables.length; i++)
+		{
+			tags[i] = QueryCache.normalize(tables[i]);
+		}
+
+		// 自トランザクションでの未コミットの更新を参照できるよう、キャッシュを利用しない
+		Transaction tx = DBAgent.requireTransaction();
+		if(tx.hasWritten(tags)) return QueryLoader.writeBinary(response, query, params) >= 0;
+
+		String key = key(query, params);
+		Entry entry = get(key);
+		if(entry != null)
+		{
+			if(send(entry, request, response)) return true;
+
+			// 転送前に破棄された場合は取得し直す
+			remove(key, entry);
+		}
+		_misses.increment();
+
+		// リードレプリカから取得したデータはプライマリのコミットより遅れている可能性があるため、キャッシュしない
+		if(tx.isReplica()) return QueryLoader.writeBinary(response, query, params) >= 0;
+
+		long generation = _generation.get();
+		entry = load(key, tags, response, query, params);
+		if(entry == null) return false;
+		if(entry == SENT) return true;
+
+		// 取得中に無効化された場合
+		if(!put(key, entry, generation))
+		{
+			try
+			{
+				send(entry, request, response);
+			}
+			finally
+			{
+				delete(entry.file);
+			}
+			return true;
+		}
+		if(!send(entry, request, response))
+		{
+			// 破棄されたファイルを転送することは無いため、取得し直す
+			return QueryLoader.writeBinary(response, query, params) >= 0;
+		}
+
+		return true;
+	}
+
+	/**
+	 * 指定テーブルのタグが付与されたデータを無効化する。
+	 *
+	 * @param tables テーブル名
+	 */
+	public void invalidate(String... tables)
+	{
+		invalidateAll(Arrays.asList(tables));
+	}
+
+	/**
+	 * 指定クエリとパラメータのデータを無効化する。
+	 *
+	 * @param query クエリ
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 */
+	public void invalidateQuery(String query, Object... params)
+	{
+		if(!isEnabled()) return;
+
+		_generation.incrementAndGet();
+		_invalidations.increment();
+
+		Entry entry;
+		synchronized(this)
+		{
+			entry = _entries.remove(key(query, params));
+			if(entry != null)
+			{
+				_totalBytes -= entry.length;
+			}
+		}
+		if(entry != null)
+		{
+			delete(entry.file);
+		}
+	}
+
+	/**
+	 * 指定テーブルのタグが付与されたデータを無効化する。
+	 *
+	 * @param tables テーブル名
+	 */
+	void invalidateAll(Collection<String> tables)
+	{
+		if(!isEnabled() || tables.isEmpty()) return;
+
+		List<String> tags = new ArrayList<>(tables.size());
+		for(String table : tables)
+		{
+			tags.add(QueryCache.normalize(table));
+		}
+
+		_generation.incrementAndGet();
+		_invalidations.add(tags.size());
+
+		List<Path> removed = new ArrayList<>();
+		synchronized(this)
+		{
+			for(Iterator<Entry> it = _entries.values().iterator(); it.hasNext(); )
+			{
+				Entry entry = it.next();
+				for(String table : entry.tables)
+				{
+					if(tags.contains(table))
+					{
+						it.remove();
+						_totalBytes -= entry.length;
+						removed.add(entry.file);
+						break;
+					}
+				}
+			}
+		}
+		for(Path file : removed)
+		{
+			delete(file);
+		}
+	}
+
+	/**
+	 * 全てのデータを破棄する。
+	 */
+	public void clear()
+	{
+		if(!isEnabled()) return;
+
+		_generation.incrementAndGet();
+
+		List<Path> removed = new ArrayList<>();
+		synchronized(this)
+		{
+			for(Entry entry : _entries.values())
+			{
+				removed.add(entry.file);
+			}
+			_entries.clear();
+			_totalBytes = 0;
+		}
+		for(Path file : removed)
+		{
+			delete(file);
+		}
+	}
+
+	/**
+	 * キャッシュされているデータ数を返す。
+	 *
+	 * @return データ数
+	 */
+	public synchronized int size()
+	{
+		return _entries.size();
+	}
+
+	/**
+	 * キャッシュされているデータの合計サイズを返す。
+	 *
+	 * @return 合計サイズ（バイト）
+	 */
+	public synchronized long getTotalBytes()
+	{
+		return _totalBytes;
+	}
+
+	/**
+	 * キャッシュから転送した回数を返す。
+	 *
+	 * @return 回数
+	 */
+	public long getHitCount()
+	{
+		return _hits.sum();
+	}
+
+	/**
+	 * データベースから取得した回数を返す。
+	 *
+	 * @return 回数
+	 */
+	public long getMissCount()
+	{
+		return _misses.sum();
+	}
+
+	/**
+	 * If-None-Match が一致し、304 を返した回数を返す。
+	 *
+	 * @return 回数
+	 */
+	public long getNotModifiedCount()
+	{
+		return _notModified.sum();
+	}
+
+	/**
+	 * 合計サイズの上限により破棄した回数を返す。
+	 *
+	 * @return 回数
+	 */
+	public long getEvictionCount()
+	{
+		return _evictions.sum();
+	}
+
+	/**
+	 * 無効化した回数を返す。
+	 *
+	 * @return 回数
+	 */
+	public long getInvalidationCount()
+	{
+		return _invalidations.sum();
+	}
+
+	/**
+	 * キャッシュからデータを取得する。
+	 *
+	 * @param key キー
+	 * @return データ（キャッシュに無い場合、null）
+	 */
+	private synchronized Entry get(String key)
+	{
+		return _entries.get(key);
+	}
+
+	/**
+	 * データをキャッシュに追加する。
+	 * <p>
+	 * 取得開始後に無効化された場合、古いデータの可能性があるため追加しない。
+	 * </p>
+	 *
+	 * @param key キー
+	 * @param entry データ
+	 * @param generation 取得開始前の世代
+	 * @return 追加した場合: true
+	 */
+	private boolean put(String key, Entry entry, long generation)
+	{
+		List<Path> removed = new ArrayList<>();
+		synchronized(this)
+		{
+			if(_generation.get() != generation) return false;
+
+			Entry previous = _entries.put(key, entry);
+			if(previous != null)
+			{
+				_totalBytes -= previous.length;
+				removed.add(previous.file);
+			}
+			_totalBytes += entry.length;
+
+			for(Iterator<Entry> it = _entries.values().iterator(); _totalBytes > _maxBytes && it.hasNext(); )
+			{
+				Entry eldest = it.next();
+				if(eldest == entry) continue;
+
+				it.remove();
+				_totalBytes -= eldest.length;
+				removed.add(eldest.file);
+				_evictions.increment();
+			}
+		}
+		for(Path file : removed)
+		{
+			delete(file);
+		}
+
+		return true;
+	}
+
+	/**
+	 * 転送できなかったデータをキャッシュから除く。
+	 *
+	 * @param key キー
+	 * @param entry データ
+	 */
+	private synchronized void remove(String key, Entry entry)
+	{
+		if(_entries.remove(key, entry))
+		{
+			_totalBytes -= entry.length;
+		}
+	}
+
+	/**
+	 * データベースからバイナリデータを取得し、ディスクに保存する。
+	 * <p>
+	 * 上限を超えるデータは保存せず、レスポンスに直接転送する。
+	 * </p>
+	 *
+	 * @param key キー
+	 * @param tags タグ（正規化済みのテーブル名）
+	 * @param response レスポンス（上限を超える場合の転送先）
+	 * @param query クエリ
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @return データ（取得できなかった場合、null、レスポンスに直接転送した場合、{@link #SENT}）
+	 * @throws SQLException データベース関連例外
+	 * @throws IOException 入出力例外
+	 */
+	private Entry load(String key, String[] tags, HttpServletResponse response, String query, Object[] params) throws SQLException, IOException
+	{
+		Spool spool = new Spool(key, response);
+		boolean completed = false;
+		try
+		{
+			long length;
+			try
+			{
+				length = QueryLoader.transferBinary(query, params, spool);
+			}
+			finally
+			{
+				spool.close();
+			}
+			if(length < 0) return null;
+			if(spool.isDirect()) return SENT;
+
+			completed = true;
+			return new Entry(spool.file, length, spool.etag(), tags);
+		}
+		finally
+		{
+			if(!completed && spool.file != null)
+			{
+				delete(spool.file);
+			}
+		}
+	}
+
+	/**
+	 * キャッシュしたファイルをレスポンスに転送する。
+	 * <p>
+	 * If-None-Match が ETag と一致する場合は 304 を返す。
+	 * </p>
+	 *
+	 * @param entry データ
+	 * @param request リクエスト
+	 * @param response レスポンス
+	 * @return 転送した場合: true、ファイルが破棄されていた場合: false
+	 * @throws IOException 入出力例外
+	 */
+	private boolean send(Entry entry, HttpServletRequest request, HttpServletResponse response) throws IOException
+	{
+		if(matches(request.getHeader("If-None-Match"), entry.etag))
+		{
+			response.setHeader("ETag", entry.etag);
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			_notModified.increment();
+			return true;
+		}
+
+		FileChannel channel;
+		try
+		{
+			channel = FileChannel.open(entry.file, StandardOpenOption.READ);
+		}
+		catch(NoSuchFileException ex)
+		{
+			return false;
+		}
+
+		try(FileChannel in = channel)
+		{
+			response.setHeader("ETag", entry.etag);
+			response.setContentLengthLong(entry.length);
+
+			WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+			long position = 0;
+			while(position < entry.length)
+			{
+				long transferred = in.transferTo(position, entry.length - position, out);
+				if(transferred <= 0) break;
+
+				position += transferred;
+			}
+		}
+		_hits.increment();
+
+		return true;
+	}
+
+	/**
+	 * If-None-Match が ETag と一致するか否かを返す。
+	 *
+	 * @param ifNoneMatch If-None-Match ヘッダ
+	 * @param etag ETag
+	 * @return 一致する場合: true
+	 */
+	private static boolean matches(String ifNoneMatch, String etag)
+	{
+		if(ifNoneMatch == null) return false;
+
+		for(String candidate : ifNoneMatch.split(","))
+		{
+			candidate = candidate.trim();
+			if(candidate.startsWith("W/"))
+			{
+				candidate = candidate.substring(2);
+			}
+			if(candidate.equals("*") || candidate.equals(etag)) return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * クエリとパラメータからキーを生成する。
+	 *
+	 * @param query クエリ
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @return キー（ファイル名として利用可能な文字列）
+	 */
+	private static String key(String query, Object[] params)
+	{
+		StringBuilder builder = new StringBuilder(query);
+		for(Object param : params)
+		{
+			builder.append('\u0000');
+			if(param == null)
+			{
+				builder.append("null");
+			}
+			else if(param instanceof byte[])
+			{
+				builder.append("byte[]:").append(Base64.getEncoder().encodeToString((byte[])param));
+			}
+			else
+			{
+				builder.append(param.getClass().getName()).append(':').append(param);
+			}
+		}
+
+		// 大文字と小文字を区別しないファイルシステムでも衝突しないよう、16 進数で表す
+		byte[] hash = newDigest().digest(builder.toString().getBytes(StandardCharsets.UTF_8));
+		StringBuilder hex = new StringBuilder(hash.length * 2);
+		for(byte b : hash)
+		{
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+
+		return hex.toString();
+	}
+
+	/**
+	 * ハッシュ値の計算に利用する {@link MessageDigest} を生成する。
+	 *
+	 * @return {@link MessageDigest}
+	 */
+	private static MessageDigest newDigest()
+	{
+		try
+		{
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch(NoSuchAlgorithmException ex)
+		{
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * ファイルを削除する。
+	 * <p>
+	 * 転送中等で削除できない場合は無視する（次回起動時に削除される）。
+	 * </p>
+	 *
+	 * @param file ファイル
+	 */
+	private static void delete(Path file)
+	{
+		try
+		{
+			Files.deleteIfExists(file);
+		}
+		catch(IOException ex)
+		{
+			// 無視
+		}
+	}
+}
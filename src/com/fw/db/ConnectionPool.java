@@ -0,0 +1,491 @@
+package com.fw.db;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import javax.sql.DataSource;
+
+/**
+ * コネクションプール
+ * <p>
+ * 物理コネクションは生成時に一度だけトランザクション用の設定（オート・コミット、分離レベル）を行い、
+ * 以降はプール内で再利用する。空きコネクションはロックフリーのキューで保持する。
+ * </p>
+ * <ul>
+ * <li>最大数: 同時に貸し出せるコネクション数の上限。上限に達している場合、待機タイムアウトまで待機する。</li>
+ * <li>最小数: 定期処理により維持する物理コネクション数</li>
+ * <li>最大生存期間: 生成からの経過時間がこれを超えたコネクションは返却時、貸し出し時に破棄する。</li>
+ * <li>リーク検出: 貸し出しから閾値を超えて返却されないコネクションを、貸し出し箇所と共に報告する。</li>
+ * </ul>
+ * <p>
+ * {@link #close()} 後は貸し出しを行わず、その時点で貸し出し中のコネクションは返却時に破棄する。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+public final class ConnectionPool extends ConnectionSource
+{
+	// 一定時間内に利用されたコネクションは貸し出し時の検証を省略（ミリ秒）
+	private static final long VALIDATION_BYPASS_MILLIS = 500;
+
+	// 検証のタイムアウト（秒）
+	private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+	// 定期処理の間隔（ミリ秒）
+	private static final long HOUSEKEEPING_INTERVAL_MILLIS = 30_000;
+
+	// 空きコネクション（直近に返却されたものから貸し出す）
+	private final ConcurrentLinkedDeque<ManagedConnection> _idle = new ConcurrentLinkedDeque<>();
+
+	// 貸し出し中のコネクション
+	private final Map<ManagedConnection, Boolean> _inUse = new ConcurrentHashMap<>();
+
+	// 貸し出し数の制限
+	private final Semaphore _permits;
+
+	// 物理コネクション数
+	private final AtomicInteger _total = new AtomicInteger();
+
+	// 最大数
+	private final int _maxSize;
+
+	// 最小数
+	private final int _minIdle;
+
+	// 最大生存期間（ミリ秒）
+	private final long _maxLifetimeMillis;
+
+	// 待機タイムアウト（ミリ秒）
+	private final long _borrowTimeoutMillis;
+
+	// リーク検出の閾値（ミリ秒、0 以下の場合は無効）
+	private final long _leakThresholdMillis;
+
+	// ログ出力
+	private final BiConsumer<String, Throwable> _logger;
+
+	// 定期処理
+	private final ScheduledExecutorService _housekeeper;
+
+	// クローズ済みか否か
+	private volatile boolean _closed;
+
+	/*
+	 * 統計情報
+	 */
+	private final LongAdder _borrowCount = new LongAdder();
+	private final LongAdder _waitNanos = new LongAdder();
+	private final AtomicLong _maxWaitNanos = new AtomicLong();
+	private final LongAdder _timeoutCount = new LongAdder();
+	private final LongAdder _leakCount = new LongAdder();
+
+	/**
+	 * {@link ConnectionPool} を生成する。
+	 *
+	 * @param dataSource データソース
+	 * @param readOnly 参照専用（リードレプリカ）の場合: true
+	 * @param statementCacheSize 物理コネクション毎の PreparedStatement キャッシュの最大数（0 以下の場合、キャッシュしない）
+	 * @param maxSize 最大数
+	 * @param minIdle 最小数
+	 * @param maxLifetimeMillis 最大生存期間（ミリ秒）
+	 * @param borrowTimeoutMillis 待機タイムアウト（ミリ秒）
+	 * @param leakThresholdMillis リーク検出の閾値（ミリ秒、0 以下の場合は無効）
+	 * @param logger ログ出力（メッセージ, 例外）
+	 */
+	public ConnectionPool
+	(
+		DataSource dataSource, boolean readOnly, int statementCacheSize, int maxSize, int minIdle, long maxLifetimeMillis,
+		long borrowTimeoutMillis, long leakThresholdMillis, BiConsumer<String, Throwable> logger
+	)
+	{
+		super(dataSource, readOnly, statementCacheSize);
+		if(maxSize <= 0) throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+
+		_maxSize = maxSize;
+		_minIdle = Math.min(Math.max(minIdle, 0), maxSize);
+		_maxLifetimeMillis = maxLifetimeMillis;
+		_borrowTimeoutMillis = borrowTimeoutMillis;
+		_leakThresholdMillis = leakThresholdMillis;
+		_logger = logger;
+		_permits = new Semaphore(maxSize, true);
+
+		_housekeeper = Executors.newSingleThreadScheduledExecutor(r ->
+		{
+			Thread thread = new Thread(r, "fw-connection-pool-housekeeper");
+			thread.setDaemon(true);
+			return thread;
+		});
+		_housekeeper.scheduleWithFixedDelay(this::housekeep, 0, HOUSEKEEPING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	ManagedConnection acquire() throws SQLException
+	{
+		if(_closed) throw new SQLException("Connection pool is closed");
+
+		long start = System.nanoTime();
+		try
+		{
+			if(!_permits.tryAcquire(_borrowTimeoutMillis, TimeUnit.MILLISECONDS))
+			{
+				_timeoutCount.increment();
+				throw new SQLTransientConnectionException(
+					"Connection is not available, request timed out after " + _borrowTimeoutMillis + "ms (active=" + getActiveCount() + ")");
+			}
+		}
+		catch(InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			throw new SQLTransientConnectionException("Interrupted while waiting for a connection", ex);
+		}
+
+		long waited = System.nanoTime() - start;
+		_borrowCount.increment();
+		_waitNanos.add(waited);
+		_maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+		try
+		{
+			ManagedConnection con = borrowIdle();
+			if(con == null)
+			{
+				con = create();
+			}
+
+			con.borrowedAt = System.currentTimeMillis();
+			con.leakReported = false;
+			if(_leakThresholdMillis > 0)
+			{
+				con.borrowTrace = new Throwable("Connection borrowed here");
+			}
+			_inUse.put(con, Boolean.TRUE);
+
+			return con;
+		}
+		catch(SQLException | RuntimeException ex)
+		{
+			_permits.release();
+			throw ex;
+		}
+	}
+
+	@Override
+	void release(ManagedConnection con) throws SQLException
+	{
+		if(_inUse.remove(con) == null) return;
+
+		try
+		{
+			con.borrowTrace = null;
+			con.lastUsedAt = System.currentTimeMillis();
+			if(con.pending)
+			{
+				try
+				{
+					// 未完了のトランザクションを破棄してから返却・破棄（コミット・ロールバック済みの場合は不要）
+					con.connection.rollback();
+					con.pending = false;
+				}
+				catch(SQLException ex)
+				{
+					destroy(con);
+					return;
+				}
+			}
+
+			if(_closed || con.connection.isClosed() || isExpired(con, con.lastUsedAt))
+			{
+				destroy(con);
+				return;
+			}
+
+			_idle.offerFirst(con);
+
+			// 返却中にクローズされた場合、取り残さない
+			if(_closed && _idle.remove(con))
+			{
+				destroy(con);
+			}
+		}
+		finally
+		{
+			_permits.release();
+		}
+	}
+
+	@Override
+	int getActiveCount()
+	{
+		return _inUse.size();
+	}
+
+	@Override
+	void close()
+	{
+		_closed = true;
+		_housekeeper.shutdownNow();
+
+		ManagedConnection con;
+		while((con = _idle.pollFirst()) != null)
+		{
+			destroy(con);
+		}
+	}
+
+	/**
+	 * 空きコネクションを取り出す。
+	 * <p>
+	 * 最大生存期間を超えたもの、検証に失敗したものは破棄する。
+	 * </p>
+	 *
+	 * @return コネクション（空きが無い場合、null）
+	 */
+	private ManagedConnection borrowIdle()
+	{
+		ManagedConnection con;
+		while((con = _idle.pollFirst()) != null)
+		{
+			long now = System.currentTimeMillis();
+			if(isExpired(con, now))
+			{
+				destroy(con);
+				continue;
+			}
+
+			if(now - con.lastUsedAt > VALIDATION_BYPASS_MILLIS && !isValid(con))
+			{
+				destroy(con);
+				continue;
+			}
+
+			return con;
+		}
+
+		return null;
+	}
+
+	/**
+	 * 物理コネクションを生成する。
+	 *
+	 * @return コネクション
+	 * @throws SQLException データベース関連例外
+	 */
+	private ManagedConnection create() throws SQLException
+	{
+		ManagedConnection con = openManagedConnection();
+		_total.incrementAndGet();
+
+		return con;
+	}
+
+	/**
+	 * 物理コネクションを破棄する。
+	 *
+	 * @param con コネクション
+	 */
+	private void destroy(ManagedConnection con)
+	{
+		_total.decrementAndGet();
+		try
+		{
+			con.close();
+		}
+		catch(SQLException ex)
+		{
+			_logger.accept("Connection close error", ex);
+		}
+	}
+
+	/**
+	 * コネクションが有効か否かを検証する。
+	 *
+	 * @param con コネクション
+	 * @return 有効な場合: true
+	 */
+	private boolean isValid(ManagedConnection con)
+	{
+		try
+		{
+			return con.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+		}
+		catch(SQLException ex)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * コネクションが最大生存期間を超えているか否かを返す。
+	 *
+	 * @param con コネクション
+	 * @param now 現在時刻（ミリ秒）
+	 * @return 超えている場合: true
+	 */
+	private boolean isExpired(ManagedConnection con, long now)
+	{
+		return _maxLifetimeMillis > 0 && now - con.createdAt > _maxLifetimeMillis;
+	}
+
+	/**
+	 * 定期処理
+	 * <p>
+	 * 最大生存期間を超えた空きコネクションの破棄、最小数の維持、リーク検出を行う。
+	 * </p>
+	 */
+	private void housekeep()
+	{
+		try
+		{
+			long now = System.currentTimeMillis();
+			for(ManagedConnection con : _idle)
+			{
+				if(isExpired(con, now) && _idle.remove(con))
+				{
+					destroy(con);
+				}
+			}
+
+			while(!_closed && _total.get() < _minIdle && _permits.tryAcquire())
+			{
+				try
+				{
+					_idle.offerLast(create());
+				}
+				finally
+				{
+					_permits.release();
+				}
+			}
+
+			if(_leakThresholdMillis > 0)
+			{
+				for(ManagedConnection con : _inUse.keySet())
+				{
+					if(!con.leakReported && now - con.borrowedAt > _leakThresholdMillis)
+					{
+						con.leakReported = true;
+						_leakCount.increment();
+						_logger.accept("Connection leak detection: connection has not been returned for "
+							+ (now - con.borrowedAt) + "ms. Check that DBAgent.dispose() is called.", con.borrowTrace);
+					}
+				}
+			}
+		}
+		catch(Exception ex)
+		{
+			_logger.accept("Connection pool housekeeping error", ex);
+		}
+	}
+
+	/**
+	 * 最大数を返す。
+	 *
+	 * @return 最大数
+	 */
+	public int getMaxSize()
+	{
+		return _maxSize;
+	}
+
+	/**
+	 * 貸し出し中のコネクション数を返す。
+	 *
+	 * @return 貸し出し中のコネクション数
+	 */
+	public int getActiveConnections()
+	{
+		return getActiveCount();
+	}
+
+	/**
+	 * 空きコネクション数を返す。
+	 *
+	 * @return 空きコネクション数
+	 */
+	public int getIdleConnections()
+	{
+		return _idle.size();
+	}
+
+	/**
+	 * 物理コネクション数を返す。
+	 *
+	 * @return 物理コネクション数
+	 */
+	public int getTotalConnections()
+	{
+		return _total.get();
+	}
+
+	/**
+	 * コネクションの空きを待機しているスレッド数（概算）を返す。
+	 *
+	 * @return 待機スレッド数
+	 */
+	public int getWaitingThreads()
+	{
+		return _permits.getQueueLength();
+	}
+
+	/**
+	 * 貸し出し回数を返す。
+	 *
+	 * @return 貸し出し回数
+	 */
+	public long getBorrowCount()
+	{
+		return _borrowCount.sum();
+	}
+
+	/**
+	 * 貸し出しまでの平均待機時間（ミリ秒）を返す。
+	 *
+	 * @return 平均待機時間
+	 */
+	public double getAverageWaitMillis()
+	{
+		long count = _borrowCount.sum();
+		return count == 0 ? 0 : _waitNanos.sum() / 1_000_000.0 / count;
+	}
+
+	/**
+	 * 貸し出しまでの最大待機時間（ミリ秒）を返す。
+	 *
+	 * @return 最大待機時間
+	 */
+	public double getMaxWaitMillis()
+	{
+		return _maxWaitNanos.get() / 1_000_000.0;
+	}
+
+	/**
+	 * 待機タイムアウトの発生回数を返す。
+	 *
+	 * @return タイムアウト回数
+	 */
+	public long getTimeoutCount()
+	{
+		return _timeoutCount.sum();
+	}
+
+	/**
+	 * 検出したリークの数を返す。
+	 *
+	 * @return リーク数
+	 */
+	public long getLeakCount()
+	{
+		return _leakCount.sum();
+	}
+}
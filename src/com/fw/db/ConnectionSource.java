@@ -0,0 +1,156 @@
+package com.fw.db;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+/**
+ * {@link DataSource} からトランザクション用のコネクションを取得する基底クラス
+ *
+ * @author t.yoshida
+ */
+abstract class ConnectionSource
+{
+	// データソース
+	protected final DataSource _dataSource;
+
+	// 参照専用（リードレプリカ）か否か
+	private final boolean _readOnly;
+
+	// PreparedStatement キャッシュの最大数
+	private final int _statementCacheSize;
+
+	// トランザクション分離レベル（最初のコネクション取得時に決定）
+	private volatile int _isolation = -1;
+
+	/**
+	 * データソースを指定して {@link ConnectionSource} を生成する。
+	 *
+	 * @param dataSource データソース
+	 * @param readOnly 参照専用（リードレプリカ）の場合: true
+	 * @param statementCacheSize 物理コネクション毎の PreparedStatement キャッシュの最大数（0 以下の場合、キャッシュしない）
+	 */
+	ConnectionSource(DataSource dataSource, boolean readOnly, int statementCacheSize)
+	{
+		_dataSource = dataSource;
+		_readOnly = readOnly;
+		_statementCacheSize = statementCacheSize;
+	}
+
+	/**
+	 * 参照専用（リードレプリカ）か否かを返す。
+	 *
+	 * @return 参照専用の場合: true
+	 */
+	boolean isReadOnly()
+	{
+		return _readOnly;
+	}
+
+	/**
+	 * トランザクション用のコネクションを取得する。
+	 *
+	 * @return コネクション
+	 * @throws SQLException データベース関連例外
+	 */
+	abstract ManagedConnection acquire() throws SQLException;
+
+	/**
+	 * 利用を終えたコネクションを返却する。
+	 *
+	 * @param con コネクション
+	 * @throws SQLException データベース関連例外
+	 */
+	abstract void release(ManagedConnection con) throws SQLException;
+
+	/**
+	 * 利用中のコネクション数を返す。
+	 *
+	 * @return 利用中のコネクション数
+	 */
+	abstract int getActiveCount();
+
+	/**
+	 * 保持しているコネクションを全て破棄する。
+	 */
+	void close()
+	{
+
+	}
+
+	/**
+	 * データソースから新たにコネクションを取得し、{@link ManagedConnection} を生成する。
+	 *
+	 * @return コネクション
+	 * @throws SQLException データベース関連例外
+	 */
+	protected ManagedConnection openManagedConnection() throws SQLException
+	{
+		return new ManagedConnection(openConnection(), _statementCacheSize);
+	}
+
+	/**
+	 * データソースから新たにコネクションを取得し、トランザクション用の設定を行う。
+	 *
+	 * @return コネクション
+	 * @throws SQLException データベース関連例外
+	 */
+	private Connection openConnection() throws SQLException
+	{
+		Connection con = _dataSource.getConnection();
+		try
+		{
+			// オート・コミットOFF
+			con.setAutoCommit(false);
+
+			// トランザクション分離レベルの設定
+			con.setTransactionIsolation(resolveIsolation(con));
+
+			// 参照専用
+			if(_readOnly)
+			{
+				con.setReadOnly(true);
+			}
+		}
+		catch(SQLException ex)
+		{
+			con.close();
+			throw ex;
+		}
+
+		return con;
+	}
+
+	/**
+	 * データベースがサポートするトランザクション分離レベルを返す。
+	 * <p>
+	 * データベースのメタ情報の問い合わせは最初の一度のみ行う。
+	 * </p>
+	 *
+	 * @param con コネクション
+	 * @return トランザクション分離レベル
+	 * @throws SQLException データベース関連例外
+	 */
+	private int resolveIsolation(Connection con) throws SQLException
+	{
+		int isolation = _isolation;
+		if(isolation < 0)
+		{
+			DatabaseMetaData meta = con.getMetaData();
+			if(meta.supportsTransactionIsolationLevel(Connection.TRANSACTION_READ_COMMITTED))
+			{
+				// ※SQLite は未サポート
+				isolation = Connection.TRANSACTION_READ_COMMITTED;
+			}
+			else
+			{
+				isolation = Connection.TRANSACTION_SERIALIZABLE;
+			}
+			_isolation = isolation;
+		}
+
+		return isolation;
+	}
+}
@@ -1,147 +1,486 @@
-package com.fw.db;
-
-import java.sql.Connection;
-import java.sql.DatabaseMetaData;
-import java.sql.SQLException;
-
-import javax.naming.Context;
-import javax.naming.InitialContext;
-import javax.naming.NamingException;
-import javax.servlet.ServletContext;
-import javax.sql.DataSource;
-
-/**
- * データベースとの処理のやり取りを担当
- * <p>
- * コネクションはスレッド毎に設定される。
- * <p>
- * ※コネクションプール非対応
- *
- * @author t.yoshida
- */
-public class DBAgent
-{
-	// スレッド単位でコネクションを保持するスレッドローカル
-	private static final ThreadLocal<Connection> _conHolder = new ThreadLocal<>();
-
-	private DBAgent()
-	{
-
-	}
-
-	/**
-	 * トランザクションの開始
-	 */
-	public static void beginTransaction(ServletContext context) throws SQLException
-	{
-		Connection con = _conHolder.get();
-		if(con != null)
-		{
-			// 既にコネクションが取得されていた場合、そのコネクションは破棄
-			dispose();
-		}
-
-		// スレッドローカルにコネクションを登録
-		_conHolder.set(con = createConnection(context));
-	}
-
-	/**
-	 * トランザクションのコミット
-	 *
-	 * @throws SQLException データベース関連例外
-	 */
-	public static void commit() throws SQLException
-	{
-		Connection con = getConnection();
-		if(con != null)
-		{
-			con.commit();
-		}
-	}
-
-	/**
-	 * トランザクションのロールバック
-	 *
-	 * @throws SQLException データベース関連例外
-	 */
-	public static void rollback() throws SQLException
-	{
-		Connection con = getConnection();
-		if(con != null)
-		{
-			con.rollback();
-		}
-	}
-
-	/**
-	 * コネクションのクローズやリソースの開放等の最終処理
-	 */
-	public static void dispose() throws SQLException
-	{
-		Connection con = getConnection();
-		if(con != null)
-		{
-			// コネクションのクローズ
-			con.close();
-
-			// スレッドローカルが保持していたコネクションを開放
-			_conHolder.remove();
-		}
-	}
-
-	/**
-	 * スレッドに登録されたコネクションを取得する。
-	 *
-	 * @return コネクション
-	 * @throws SQLException データベース関連例外
-	 */
-	static Connection getConnection() throws SQLException
-	{
-		Connection con = _conHolder.get();
-		if(con == null)
-		{
-			throw new SQLException("You have to get a connection first through beginTransaction().");
-		}
-
-		return _conHolder.get();
-	}
-
-	/**
-	 * コネクションを生成する。
-	 *
-	 * @return コネクション
-	 * @throws SQLException データベース関連例外
-	 */
-	private static Connection createConnection(ServletContext context) throws SQLException
-	{
-		// コネクションの生成
-		Connection con = null;
-		try
-		{
-			Context ctx = new InitialContext();
-			DataSource ds = (DataSource)ctx.lookup("java:comp/env/jdbc/datasource");
-			con = ds.getConnection();
-		}
-		catch(NamingException ex)
-		{
-			throw new SQLException(ex);
-		}
-
-		// オート・コミットOFF
-		con.setAutoCommit(false);
-
-		// トランザクション分離レベルの設定
-		DatabaseMetaData meta = con.getMetaData();
-		if(meta.supportsTransactionIsolationLevel(Connection.TRANSACTION_READ_COMMITTED))
-		{
-			// ※SQLite は未サポート
-			con.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
-		}
-		else
-		{
-			con.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
-		}
-
-		return con;
-	}
-}
+package com.fw.db;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.servlet.ServletContext;
+import javax.sql.DataSource;
+
+/**
+ * データベースとの処理のやり取りを担当
+ * <p>
+ * トランザクション（{@link Transaction}）はスレッド毎に設定される。
+ * 別スレッドで処理を行う場合、{@link #attach(Transaction) attach(null)} により現在のスレッドから登録を解除したトランザクションを
+ * {@link Transaction#execute(Transaction.Work)} により引き継ぐこと。
+ * トランザクションは同時に一つのスレッドでのみ利用できるため、登録を解除せずに別スレッドで実行した場合は
+ * {@link IllegalStateException} となる。元のスレッドで再び利用する場合は、別スレッドの処理の終了後に
+ * {@link #attach(Transaction)} により登録し直す。
+ * </p>
+ * <pre>
+ * Transaction tx = DBAgent.attach(null);
+ * try
+ * {
+ *     executor.submit(() -&gt; tx.execute(() -&gt; QueryLoader.loadAsList(Item.class, "..."))).get();
+ * }
+ * finally
+ * {
+ *     DBAgent.attach(tx);
+ * }
+ * </pre>
+ * <p>
+ * コネクションは web.xml のコンテキストパラメータで指定されたデータソースから取得する。
+ * データソースの検索は最初の一度のみ行う。
+ * </p>
+ * <ul>
+ * <li>"db.datasource": データソースの JNDI 名（デフォルト: java:comp/env/jdbc/datasource）</li>
+ * <li>"db.pool.enabled": true の場合、組み込みのコネクションプール（{@link ConnectionPool}）を利用する。
+ * false（デフォルト）の場合、トランザクション毎にデータソースからコネクションを取得し、終了時にクローズする。</li>
+ * <li>"db.pool.max.size": 最大数（デフォルト: 10）</li>
+ * <li>"db.pool.min.idle": 最小数（デフォルト: 0）</li>
+ * <li>"db.pool.max.lifetime": 最大生存期間（ミリ秒、デフォルト: 1800000）</li>
+ * <li>"db.pool.borrow.timeout": 待機タイムアウト（ミリ秒、デフォルト: 30000）</li>
+ * <li>"db.pool.leak.threshold": リーク検出の閾値（ミリ秒、デフォルト: 0 = 無効）</li>
+ * <li>"db.statement.cache.size": 物理コネクション毎の PreparedStatement キャッシュの最大数（0 の場合は無効）。
+ * デフォルトは組み込みのコネクションプールを利用する場合は 64、利用しない場合は 0。
+ * コネクションプールを利用しない場合、キャッシュはトランザクション毎にコネクションと共に破棄されるため、
+ * データソース側の PreparedStatement キャッシュ（JDBC ドライバの設定等）を利用すること。</li>
+ * <li>"db.query.cache.size": {@link QueryCache} の件数の上限（デフォルト: 1000）</li>
+ * <li>"db.query.cache.ttl": {@link QueryCache} の有効期間（ミリ秒、デフォルト: 60000）</li>
+ * <li>"db.query.cache.replica.ttl": {@link QueryCache} でリードレプリカから取得した結果の有効期間（ミリ秒、デフォルト: 5000）。
+ * コミットによる無効化の後も、遅延しているリードレプリカの古い結果を返す可能性がある期間の上限となる。</li>
+ * <li>"db.binary.cache.size": {@link BinaryContentCache} の合計サイズの上限（バイト、デフォルト: 0 = 無効）。
+ * リードレプリカから取得したデータはキャッシュせず、そのまま転送する。</li>
+ * <li>"db.binary.cache.dir": {@link BinaryContentCache} のキャッシュディレクトリ（デフォルト: コンテナの一時ディレクトリ配下の fw-binary-cache）</li>
+ * <li>"db.parallel.max.concurrency": {@link ParallelQueries} で全リクエストを通して同時に並列実行するクエリ数の上限（デフォルト: 0 = 並列実行しない）。
+ * 並列実行するクエリは元のリクエストとは別にコネクションを利用するため、コネクションプールの最大数を見直した上で指定すること。</li>
+ * <li>"db.replica.datasources": リードレプリカのデータソースの JNDI 名（カンマ区切りで複数指定可）。
+ * 指定した場合、参照専用のトランザクションはリードレプリカに接続する。</li>
+ * <li>"db.replica.selection": リードレプリカの選択方法。"round-robin"（デフォルト）または "least-loaded"（利用中のコネクション数が最少のもの）</li>
+ * </ul>
+ *
+ * @author t.yoshida
+ */
+public class DBAgent
+{
+	// データソースの JNDI 名のデフォルト値
+	private static final String DEFAULT_DATASOURCE = "java:comp/env/jdbc/datasource";
+
+	// スレッド単位でトランザクションを保持するスレッドローカル
+	private static final ThreadLocal<Transaction> _txHolder = new ThreadLocal<>();
+
+	// コネクションの取得元
+	private static volatile ConnectionSource _source;
+
+	// リードレプリカのコネクションの取得元（未指定の場合、空）
+	private static volatile ConnectionSource[] _replicas = new ConnectionSource[0];
+
+	// リードレプリカの選択方法が利用中のコネクション数か否か
+	private static volatile boolean _leastLoaded;
+
+	// ラウンドロビンの位置
+	private static final AtomicInteger _replicaCursor = new AtomicInteger();
+
+	private DBAgent()
+	{
+
+	}
+
+	/**
+	 * コンテキストパラメータを基にコネクションの取得元を初期化する。
+	 * <p>
+	 * 初期化済みの場合は何もしない。
+	 * </p>
+	 *
+	 * @param context サーブレットコンテキスト
+	 * @throws SQLException データソースが取得できない場合
+	 */
+	public static void init(ServletContext context) throws SQLException
+	{
+		if(_source != null) return;
+
+		synchronized(DBAgent.class)
+		{
+			if(_source == null)
+			{
+				String replicas = getParameter(context, "db.replica.datasources", "").trim();
+				if(!replicas.isEmpty())
+				{
+					String[] names = replicas.split("\\s*,\\s*");
+					ConnectionSource[] sources = new ConnectionSource[names.length];
+					for(int i=0; i<names.length; i++)
+					{
+						sources[i] = createSource(context, names[i], true);
+					}
+					_replicas = sources;
+					_leastLoaded = "least-loaded".equals(getParameter(context, "db.replica.selection", "round-robin"));
+				}
+
+				QueryCache.setInstance(new QueryCache
+				(
+					Integer.parseInt(getParameter(context, "db.query.cache.size", "1000")),
+					Long.parseLong(getParameter(context, "db.query.cache.ttl", "60000")),
+					Long.parseLong(getParameter(context, "db.query.cache.replica.ttl", "5000"))
+				));
+
+				long binaryCacheSize = Long.parseLong(getParameter(context, "db.binary.cache.size", "0"));
+				if(binaryCacheSize > 0)
+				{
+					File directory = getBinaryCacheDirectory(context);
+					try
+					{
+						BinaryContentCache.setInstance(new BinaryContentCache(directory, binaryCacheSize));
+					}
+					catch(IOException ex)
+					{
+						// キャッシュが利用できなくてもデータベースからの取得は可能なため、無効のまま続行
+						context.log("Binary content cache is disabled: " + directory, ex);
+					}
+				}
+
+				ParallelQueries.init(Integer.parseInt(getParameter(context, "db.parallel.max.concurrency", "0")));
+
+				_source = createSource(context, getParameter(context, "db.datasource", DEFAULT_DATASOURCE), false);
+			}
+		}
+	}
+
+	/**
+	 * コネクションの取得元を破棄する。
+	 * <p>
+	 * コネクションプールを利用している場合、空きコネクションを全てクローズし、貸し出し中のコネクションは返却時にクローズする。
+	 * {@link BinaryContentCache} を利用している場合、キャッシュしたファイルを全て削除する。
+	 * </p>
+	 */
+	public static synchronized void shutdown()
+	{
+		ConnectionSource source = _source;
+		_source = null;
+		if(source != null)
+		{
+			source.close();
+		}
+
+		ConnectionSource[] replicas = _replicas;
+		_replicas = new ConnectionSource[0];
+		for(ConnectionSource replica : replicas)
+		{
+			replica.close();
+		}
+
+		BinaryContentCache.setInstance(null);
+		ParallelQueries.shutdown();
+	}
+
+	/**
+	 * リードレプリカが設定されているか否かを返す。
+	 *
+	 * @return 設定されている場合: true
+	 */
+	public static boolean hasReplicas()
+	{
+		return _replicas.length > 0;
+	}
+
+	/**
+	 * 組み込みのコネクションプールを返す。
+	 *
+	 * @return コネクションプール（利用していない場合、null）
+	 */
+	public static ConnectionPool getPool()
+	{
+		ConnectionSource source = _source;
+		return source instanceof ConnectionPool ? (ConnectionPool)source : null;
+	}
+
+	/**
+	 * トランザクションの開始
+	 * <p>
+	 * コネクションは {@link QueryLoader}, {@link QueryUpdater} が最初にクエリを実行する時点で取得する。
+	 * データベースにアクセスしない {@link com.fw.core.Action} ではコネクションを取得しない。
+	 * </p>
+	 *
+	 * @return 開始したトランザクション
+	 */
+	public static Transaction beginTransaction(ServletContext context) throws SQLException
+	{
+		return beginTransaction(context, false);
+	}
+
+	/**
+	 * トランザクションの開始
+	 * <p>
+	 * 参照専用の場合、リードレプリカが設定されていればリードレプリカに接続する。
+	 * リードレプリカのコネクションには {@link Connection#setReadOnly(boolean)} が設定される。
+	 * </p>
+	 *
+	 * @param context サーブレットコンテキスト
+	 * @param readOnly 参照専用の場合: true
+	 * @return 開始したトランザクション
+	 */
+	public static Transaction beginTransaction(ServletContext context, boolean readOnly) throws SQLException
+	{
+		return beginTransaction(context, readOnly, false);
+	}
+
+	/**
+	 * トランザクションの開始
+	 * <p>
+	 * 参照専用であっても、直前の更新を参照する必要がある場合（リードレプリカの遅延を避ける場合）は
+	 * routeToPrimary を指定してプライマリに接続する。接続先に関わらず、参照専用のトランザクションとして扱う
+	 * （{@link ParallelQueries} も利用でき、並列実行するクエリも同じ接続先を利用する）。
+	 * </p>
+	 *
+	 * @param context サーブレットコンテキスト
+	 * @param readOnly 参照専用の場合: true
+	 * @param routeToPrimary リードレプリカが設定されていてもプライマリに接続する場合: true
+	 * @return 開始したトランザクション
+	 */
+	public static Transaction beginTransaction(ServletContext context, boolean readOnly, boolean routeToPrimary) throws SQLException
+	{
+		Transaction tx = _txHolder.get();
+		if(tx != null)
+		{
+			// 既にコネクションが取得されていた場合、そのコネクションは破棄
+			dispose();
+		}
+
+		init(context);
+
+		// スレッドローカルにトランザクションを登録（コネクションは最初のクエリ実行時に取得）
+		attach(tx = new Transaction(readOnly && !routeToPrimary ? selectReplica() : _source, readOnly));
+
+		return tx;
+	}
+
+	/**
+	 * 現在のスレッドに登録されたトランザクションを返す。
+	 *
+	 * @return トランザクション（未登録の場合、null）
+	 */
+	public static Transaction currentTransaction()
+	{
+		return _txHolder.get();
+	}
+
+	/**
+	 * 現在のスレッドにトランザクションを登録する。
+	 *
+	 * @param tx トランザクション（null の場合、登録を解除）
+	 * @return 登録前のトランザクション（未登録の場合、null）
+	 * @throws IllegalStateException 指定トランザクションが別スレッドで利用中の場合
+	 */
+	public static Transaction attach(Transaction tx)
+	{
+		Transaction previous = _txHolder.get();
+		if(previous == tx) return previous;
+
+		if(tx != null)
+		{
+			tx.acquire();
+		}
+		if(previous != null)
+		{
+			previous.release();
+		}
+
+		if(tx == null)
+		{
+			_txHolder.remove();
+		}
+		else
+		{
+			_txHolder.set(tx);
+		}
+
+		return previous;
+	}
+
+	/**
+	 * トランザクションのコミット
+	 *
+	 * @throws SQLException データベース関連例外
+	 */
+	public static void commit() throws SQLException
+	{
+		requireTransaction().commit();
+	}
+
+	/**
+	 * トランザクションのロールバック
+	 *
+	 * @throws SQLException データベース関連例外
+	 */
+	public static void rollback() throws SQLException
+	{
+		requireTransaction().rollback();
+	}
+
+	/**
+	 * コネクションのクローズやリソースの開放等の最終処理
+	 */
+	public static void dispose() throws SQLException
+	{
+		Transaction tx = _txHolder.get();
+		if(tx != null)
+		{
+			try
+			{
+				// コネクションのクローズ
+				tx.dispose();
+			}
+			finally
+			{
+				// スレッドローカルが保持していたトランザクションを開放
+				attach(null);
+			}
+		}
+	}
+
+	/**
+	 * スレッドに登録されたコネクションを取得する。
+	 *
+	 * @return コネクション
+	 * @throws SQLException データベース関連例外
+	 */
+	static Connection getConnection() throws SQLException
+	{
+		return requireTransaction().getConnection();
+	}
+
+	/**
+	 * スレッドに登録された管理情報付きのコネクションを取得する。
+	 *
+	 * @return コネクション
+	 * @throws SQLException データベース関連例外
+	 */
+	static ManagedConnection getManagedConnection() throws SQLException
+	{
+		return requireTransaction().getManagedConnection();
+	}
+
+	/**
+	 * スレッドに登録されたトランザクションを取得する。
+	 *
+	 * @return トランザクション
+	 * @throws SQLException トランザクションが開始されていない場合
+	 */
+	static Transaction requireTransaction() throws SQLException
+	{
+		Transaction tx = _txHolder.get();
+		if(tx == null)
+		{
+			throw new SQLException("You have to get a connection first through beginTransaction().");
+		}
+
+		return tx;
+	}
+	/**
+	 * 参照専用のトランザクションの接続先を選択する。
+	 *
+	 * @return リードレプリカ（未設定の場合、プライマリ）
+	 */
+	private static ConnectionSource selectReplica()
+	{
+		ConnectionSource[] replicas = _replicas;
+		if(replicas.length == 0) return _source;
+		if(replicas.length == 1) return replicas[0];
+
+		if(_leastLoaded)
+		{
+			ConnectionSource selected = replicas[0];
+			for(int i=1; i<replicas.length; i++)
+			{
+				if(replicas[i].getActiveCount() < selected.getActiveCount())
+				{
+					selected = replicas[i];
+				}
+			}
+			return selected;
+		}
+
+		return replicas[Math.floorMod(_replicaCursor.getAndIncrement(), replicas.length)];
+	}
+
+	/**
+	 * コンテキストパラメータを基にコネクションの取得元を生成する。
+	 *
+	 * @param context サーブレットコンテキスト
+	 * @param name データソースの JNDI 名
+	 * @param readOnly 参照専用（リードレプリカ）の場合: true
+	 * @return コネクションの取得元
+	 * @throws SQLException データベース関連例外
+	 */
+	private static ConnectionSource createSource(ServletContext context, String name, boolean readOnly) throws SQLException
+	{
+		DataSource ds;
+		try
+		{
+			Context ctx = new InitialContext();
+			ds = (DataSource)ctx.lookup(name);
+		}
+		catch(NamingException ex)
+		{
+			throw new SQLException(ex);
+		}
+
+		boolean pooled = Boolean.parseBoolean(getParameter(context, "db.pool.enabled", "false"));
+		int statementCacheSize = Integer.parseInt(getParameter(context, "db.statement.cache.size", pooled ? "64" : "0"));
+		if(!pooled)
+		{
+			return new DataSourceConnectionSource(ds, readOnly, statementCacheSize);
+		}
+
+		return new ConnectionPool
+		(
+			ds,
+			readOnly,
+			statementCacheSize,
+			Integer.parseInt(getParameter(context, "db.pool.max.size", "10")),
+			Integer.parseInt(getParameter(context, "db.pool.min.idle", "0")),
+			Long.parseLong(getParameter(context, "db.pool.max.lifetime", "1800000")),
+			Long.parseLong(getParameter(context, "db.pool.borrow.timeout", "30000")),
+			Long.parseLong(getParameter(context, "db.pool.leak.threshold", "0")),
+			context::log
+		);
+	}
+
+	/**
+	 * {@link BinaryContentCache} のキャッシュディレクトリを返す。
+	 *
+	 * @param context サーブレットコンテキスト
+	 * @return キャッシュディレクトリ
+	 */
+	private static File getBinaryCacheDirectory(ServletContext context)
+	{
+		String directory = getParameter(context, "db.binary.cache.dir", "");
+		if(!directory.isEmpty()) return new File(directory);
+
+		File temp = (File)context.getAttribute("javax.servlet.context.tempdir");
+		if(temp == null)
+		{
+			temp = new File(System.getProperty("java.io.tmpdir"));
+		}
+
+		return new File(temp, "fw-binary-cache");
+	}
+
+	/**
+	 * コンテキストパラメータを取得する。
+	 *
+	 * @param context サーブレットコンテキスト
+	 * @param name パラメータ名
+	 * @param defaultValue 未指定時の値
+	 * @return パラメータ値
+	 */
+	private static String getParameter(ServletContext context, String name, String defaultValue)
+	{
+		String value = context.getInitParameter(name);
+		return value == null ? defaultValue : value;
+	}
+}
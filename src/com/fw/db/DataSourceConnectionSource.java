@@ -0,0 +1,56 @@
+package com.fw.db;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+/**
+ * トランザクション毎にデータソースからコネクションを取得し、終了時にクローズする {@link ConnectionSource}
+ * <p>
+ * コネクションのプーリングはデータソース（アプリケーションサーバー）に委ねる。
+ * コネクション毎の {@link StatementCache} はトランザクション終了時に破棄されるため、
+ * トランザクションをまたいだ PreparedStatement の再利用もデータソースに委ねる。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+final class DataSourceConnectionSource extends ConnectionSource
+{
+	// 利用中のコネクション数
+	private final AtomicInteger _active = new AtomicInteger();
+
+	/**
+	 * データソースを指定して {@link DataSourceConnectionSource} を生成する。
+	 *
+	 * @param dataSource データソース
+	 * @param readOnly 参照専用（リードレプリカ）の場合: true
+	 * @param statementCacheSize PreparedStatement キャッシュの最大数（0 以下の場合、キャッシュしない）
+	 */
+	DataSourceConnectionSource(DataSource dataSource, boolean readOnly, int statementCacheSize)
+	{
+		super(dataSource, readOnly, statementCacheSize);
+	}
+
+	@Override
+	ManagedConnection acquire() throws SQLException
+	{
+		ManagedConnection con = openManagedConnection();
+		_active.incrementAndGet();
+
+		return con;
+	}
+
+	@Override
+	void release(ManagedConnection con) throws SQLException
+	{
+		_active.decrementAndGet();
+		con.close();
+	}
+
+	@Override
+	int getActiveCount()
+	{
+		return _active.get();
+	}
+}
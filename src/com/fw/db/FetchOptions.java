@@ -0,0 +1,85 @@
+package com.fw.db;
+
+/**
+ * {@link QueryLoader#forEach(Class, String, FetchOptions, java.util.function.Consumer, Object...)} 等の
+ * ストリーミング取得時のオプション
+ * <p>
+ * 不変クラスであり、各設定メソッドは設定を変更した新たなインスタンスを返す。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+public final class FetchOptions
+{
+	/**
+	 * デフォルトのオプション（フェッチサイズ: 500、エンティティの再利用なし）
+	 */
+	public static final FetchOptions DEFAULT = new FetchOptions(500, false);
+
+	// フェッチサイズ
+	private final int _fetchSize;
+
+	// エンティティを再利用するか否か
+	private final boolean _reuseEntity;
+
+	/**
+	 * {@link FetchOptions} を生成する。
+	 *
+	 * @param fetchSize フェッチサイズ
+	 * @param reuseEntity エンティティを再利用する場合: true
+	 */
+	private FetchOptions(int fetchSize, boolean reuseEntity)
+	{
+		_fetchSize = fetchSize;
+		_reuseEntity = reuseEntity;
+	}
+
+	/**
+	 * フェッチサイズを指定したオプションを返す。
+	 * <p>
+	 * データベースから一度に取得する行数のヒント。
+	 * MySQL で行単位のストリーミングを行う場合は {@link Integer#MIN_VALUE} を指定する。
+	 * </p>
+	 *
+	 * @param fetchSize フェッチサイズ
+	 * @return オプション
+	 */
+	public FetchOptions fetchSize(int fetchSize)
+	{
+		return new FetchOptions(fetchSize, _reuseEntity);
+	}
+
+	/**
+	 * 全ての行で同一のエンティティインスタンスに値を設定するオプションを返す。
+	 * <p>
+	 * 行毎のインスタンス生成を省略できるが、受け取ったエンティティを
+	 * 次の行の処理以降も保持してはならない。
+	 * </p>
+	 *
+	 * @return オプション
+	 */
+	public FetchOptions reuseEntity()
+	{
+		return new FetchOptions(_fetchSize, true);
+	}
+
+	/**
+	 * フェッチサイズを返す。
+	 *
+	 * @return フェッチサイズ
+	 */
+	public int getFetchSize()
+	{
+		return _fetchSize;
+	}
+
+	/**
+	 * エンティティを再利用するか否かを返す。
+	 *
+	 * @return 再利用する場合: true
+	 */
+	public boolean isReuseEntity()
+	{
+		return _reuseEntity;
+	}
+}
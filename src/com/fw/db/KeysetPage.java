@@ -0,0 +1,84 @@
+package com.fw.db;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.OptionalLong;
+
+/**
+ * キーセット方式のページングで取得した 1 ページ分の結果
+ *
+ * @param <T> エンティティクラス
+ * @author t.yoshida
+ * @see KeysetPager
+ */
+public final class KeysetPage<T>
+{
+	// ページ内のエンティティ
+	private final List<T> _items;
+
+	// 次ページの継続トークン（最終ページの場合、null）
+	private final String _nextToken;
+
+	// 全件数（取得しない場合、-1）
+	private final long _totalCount;
+
+	/**
+	 * ページの内容を指定して {@link KeysetPage} を生成する。
+	 *
+	 * @param items ページ内のエンティティ
+	 * @param nextToken 次ページの継続トークン
+	 * @param totalCount 全件数
+	 */
+	KeysetPage(List<T> items, String nextToken, long totalCount)
+	{
+		_items = Collections.unmodifiableList(items);
+		_nextToken = nextToken;
+		_totalCount = totalCount;
+	}
+
+	/**
+	 * ページ内のエンティティを返す。
+	 *
+	 * @return エンティティ（変更不可）
+	 */
+	public List<T> getItems()
+	{
+		return _items;
+	}
+
+	/**
+	 * 次ページが存在するか否かを返す。
+	 *
+	 * @return 存在する場合: true
+	 */
+	public boolean hasNext()
+	{
+		return _nextToken != null;
+	}
+
+	/**
+	 * 次ページの継続トークンを返す。
+	 * <p>
+	 * {@link KeysetPager#load(String)} に指定することで次ページを取得する。
+	 * </p>
+	 *
+	 * @return 継続トークン（最終ページの場合、null）
+	 */
+	public String getNextToken()
+	{
+		return _nextToken;
+	}
+
+	/**
+	 * 全件数を返す。
+	 * <p>
+	 * 件数は最初のページの取得時にのみ数え、以降のページは継続トークンに引き継ぐ。
+	 * </p>
+	 *
+	 * @return 全件数（{@link KeysetPager#withCount()} 等を指定していない場合、空）
+	 */
+	public OptionalLong getTotalCount()
+	{
+		return _totalCount < 0 ? OptionalLong.empty() : OptionalLong.of(_totalCount);
+	}
+}
@@ -0,0 +1,527 @@
+package com.fw.db;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * キーセット方式のページング
+ * <p>
+ * 元のクエリを副問い合わせとし、前ページの最終行のキーより後の行のみを取得する。
+ * OFFSET のように読み飛ばす行が無いため、深いページでも応答時間が変わらない。
+ * </p>
+ * <pre>
+ * KeysetPage&lt;Item&gt; page = QueryLoader.keyset(Item.class, "SELECT id, name, created FROM item WHERE shop_id = ?", shopId)
+ *     .orderByDesc("created").orderByDesc("id")
+ *     .pageSize(50)
+ *     .withCount("item")
+ *     .load(token);
+ * </pre>
+ * <p>
+ * キーとなる列は元のクエリの列名（エイリアス名）で指定し、NULL を含まず、組み合わせで一意となるようにすること。
+ * 継続トークンはキーの値と型を符号化した文字列であり、改ざんを防ぐものではない（値はプレースホルダーで設定する）。
+ * </p>
+ *
+ * @param <T> エンティティクラス
+ * @author t.yoshida
+ */
+public final class KeysetPager<T>
+{
+	// 1 ページの件数のデフォルト値
+	private static final int DEFAULT_PAGE_SIZE = 20;
+
+	// 継続トークンの形式のバージョン
+	private static final int TOKEN_VERSION = 1;
+
+	// キーとなる列名の形式
+	private static final Pattern COLUMN = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+	// エンティティクラス
+	private final Class<T> _entityClass;
+
+	// 元のクエリ
+	private final String _query;
+
+	// 元のクエリのパラメータ
+	private final Object[] _params;
+
+	// キーとなる列名
+	private final List<String> _columns = new ArrayList<>();
+
+	// キー毎の降順指定
+	private final List<Boolean> _descending = new ArrayList<>();
+
+	// 1 ページの件数
+	private int _pageSize = DEFAULT_PAGE_SIZE;
+
+	// 全件数を取得するか否か
+	private boolean _count;
+
+	// 全件数をキャッシュする場合の参照テーブル名（キャッシュしない場合、null）
+	private String[] _countTables;
+
+	/**
+	 * 元のクエリを指定して {@link KeysetPager} を生成する。
+	 *
+	 * @param entityClass エンティティクラス
+	 * @param query ORDER BY、OFFSET を含まないクエリ
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 */
+	KeysetPager(Class<T> entityClass, String query, Object[] params)
+	{
+		_entityClass = entityClass;
+		_query = query;
+		_params = params.clone();
+	}
+
+	/**
+	 * 昇順のキーとなる列を追加する。
+	 *
+	 * @param column 列名（エイリアス名）
+	 * @return この {@link KeysetPager}
+	 */
+	public KeysetPager<T> orderBy(String column)
+	{
+		return addKey(column, false);
+	}
+
+	/**
+	 * 降順のキーとなる列を追加する。
+	 *
+	 * @param column 列名（エイリアス名）
+	 * @return この {@link KeysetPager}
+	 */
+	public KeysetPager<T> orderByDesc(String column)
+	{
+		return addKey(column, true);
+	}
+
+	/**
+	 * 1 ページの件数を設定する。
+	 *
+	 * @param pageSize 件数
+	 * @return この {@link KeysetPager}
+	 */
+	public KeysetPager<T> pageSize(int pageSize)
+	{
+		if(pageSize <= 0) throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+
+		_pageSize = pageSize;
+		return this;
+	}
+
+	/**
+	 * 最初のページの取得時に全件数を数える。
+	 *
+	 * @return この {@link KeysetPager}
+	 */
+	public KeysetPager<T> withCount()
+	{
+		_count = true;
+		_countTables = null;
+		return this;
+	}
+
+	/**
+	 * 最初のページの取得時に全件数を数え、{@link QueryCache} にキャッシュする。
+	 *
+	 * @param tables クエリが参照するテーブル名（更新時の無効化に利用）
+	 * @return この {@link KeysetPager}
+	 */
+	public KeysetPager<T> withCount(String... tables)
+	{
+		_count = true;
+		_countTables = tables.clone();
+		return this;
+	}
+
+	/**
+	 * 1 ページ分の結果を取得する。
+	 *
+	 * @param token 前ページの継続トークン（最初のページの場合、null）
+	 * @return {@link KeysetPage}
+	 * @throws SQLException データベース関連例外
+	 * @throws IllegalArgumentException 継続トークンが不正な場合
+	 */
+	public KeysetPage<T> load(String token) throws SQLException
+	{
+		if(_columns.isEmpty()) throw new IllegalStateException("No key column is specified.");
+
+		StringBuilder order = new StringBuilder();
+		for(int i=0; i<_columns.size(); i++)
+		{
+			if(i > 0) order.append(", ");
+			order.append(_columns.get(i)).append(_descending.get(i) ? " DESC" : " ASC");
+		}
+		int fingerprint = (_query + " ORDER BY " + order).hashCode();
+
+		long total = -1;
+		StringBuilder query = new StringBuilder("SELECT * FROM (").append(_query).append(") k");
+		List<Object> params = new ArrayList<>(_params.length + _columns.size() * 2);
+		for(Object param : _params)
+		{
+			params.add(param);
+		}
+
+		if(token == null)
+		{
+			if(_count)
+			{
+				total = count();
+			}
+		}
+		else
+		{
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(decode(token)));
+			Object[] keys;
+			try
+			{
+				if(in.readUnsignedByte() != TOKEN_VERSION || in.readInt() != fingerprint) throw invalidToken(null);
+
+				total = in.readLong();
+				keys = new Object[in.readUnsignedByte()];
+				if(keys.length != _columns.size()) throw invalidToken(null);
+
+				for(int i=0; i<keys.length; i++)
+				{
+					keys[i] = readKey(in);
+				}
+			}
+			catch(IOException ex)
+			{
+				throw invalidToken(ex);
+			}
+
+			// (k1 > ?) OR (k1 = ? AND k2 > ?) OR ...
+			query.append(" WHERE ");
+			for(int i=0; i<keys.length; i++)
+			{
+				if(i > 0) query.append(" OR ");
+				query.append('(');
+				for(int j=0; j<i; j++)
+				{
+					query.append(_columns.get(j)).append(" = ? AND ");
+					params.add(keys[j]);
+				}
+				query.append(_columns.get(i)).append(_descending.get(i) ? " < ?" : " > ?");
+				params.add(keys[i]);
+				query.append(')');
+			}
+		}
+		query.append(" ORDER BY ").append(order);
+
+		List<T> items = new ArrayList<>(Math.min(_pageSize, 1024));
+		Object[] lastKeys = null;
+		boolean hasNext = false;
+		try
+		(
+			StatementLease stmt = QueryLoader.createStatement(query.toString(), params.toArray());
+		)
+		{
+			// 次ページの有無を判定するため、1 件多く取得する
+			PreparedStatement ps = stmt.get();
+			ps.setMaxRows(_pageSize + 1);
+			try
+			(
+				ResultSet rs = stmt.executeQuery();
+			)
+			{
+				RowMapper<T> mapper = RowMapper.of(_entityClass, rs.getMetaData());
+				while(rs.next())
+				{
+					if(items.size() == _pageSize)
+					{
+						hasNext = true;
+						break;
+					}
+
+					items.add(mapper.map(rs));
+					if(items.size() == _pageSize)
+					{
+						lastKeys = readKeys(rs);
+					}
+				}
+			}
+			finally
+			{
+				// キャッシュされるステートメントのため元に戻す
+				ps.setMaxRows(0);
+			}
+		}
+
+		return new KeysetPage<>(items, hasNext ? encode(fingerprint, total, lastKeys) : null, total);
+	}
+
+	/**
+	 * キーとなる列を追加する。
+	 *
+	 * @param column 列名（エイリアス名）
+	 * @param descending 降順の場合: true
+	 * @return この {@link KeysetPager}
+	 */
+	private KeysetPager<T> addKey(String column, boolean descending)
+	{
+		if(!COLUMN.matcher(column).matches()) throw new IllegalArgumentException("Invalid key column: " + column);
+
+		_columns.add(column);
+		_descending.add(descending);
+		return this;
+	}
+
+	/**
+	 * 全件数を数える。
+	 *
+	 * @return 全件数
+	 * @throws SQLException データベース関連例外
+	 */
+	private long count() throws SQLException
+	{
+		String query = "SELECT COUNT(*) FROM (" + _query + ") k";
+		Long count = _countTables == null
+			? QueryLoader.loadAsLong(query, _params)
+			: QueryLoader.loadAsLongCached(_countTables, query, _params);
+
+		return count == null ? 0 : count;
+	}
+
+	/**
+	 * 現在行のキーの値を取得する。
+	 *
+	 * @param rs 結果セット
+	 * @return キーの値
+	 * @throws SQLException データベース関連例外
+	 */
+	private Object[] readKeys(ResultSet rs) throws SQLException
+	{
+		Object[] keys = new Object[_columns.size()];
+		for(int i=0; i<keys.length; i++)
+		{
+			keys[i] = rs.getObject(_columns.get(i));
+			if(keys[i] == null) throw new IllegalStateException("Key column [" + _columns.get(i) + "] must not be NULL.");
+		}
+
+		return keys;
+	}
+
+	/**
+	 * 継続トークンを生成する。
+	 *
+	 * @param fingerprint クエリと並び順のハッシュ値
+	 * @param total 全件数
+	 * @param keys 最終行のキーの値
+	 * @return 継続トークン
+	 */
+	private static String encode(int fingerprint, long total, Object[] keys)
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		try(DataOutputStream out = new DataOutputStream(bytes))
+		{
+			out.writeByte(TOKEN_VERSION);
+			out.writeInt(fingerprint);
+			out.writeLong(total);
+			out.writeByte(keys.length);
+			for(Object key : keys)
+			{
+				writeKey(out, key);
+			}
+		}
+		catch(IOException ex)
+		{
+			throw new IllegalStateException(ex);
+		}
+
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+	}
+
+	/**
+	 * 継続トークンを復号する。
+	 *
+	 * @param token 継続トークン
+	 * @return 符号化された内容
+	 */
+	private static byte[] decode(String token)
+	{
+		try
+		{
+			return Base64.getUrlDecoder().decode(token);
+		}
+		catch(IllegalArgumentException ex)
+		{
+			throw invalidToken(ex);
+		}
+	}
+
+	/**
+	 * キーの値を型と共に書き込む。
+	 *
+	 * @param out 出力先
+	 * @param key キーの値
+	 * @throws IOException 入出力例外
+	 */
+	private static void writeKey(DataOutputStream out, Object key) throws IOException
+	{
+		if(key instanceof Integer)
+		{
+			out.writeByte('I');
+			out.writeInt((Integer)key);
+		}
+		else if(key instanceof Long)
+		{
+			out.writeByte('J');
+			out.writeLong((Long)key);
+		}
+		else if(key instanceof Short)
+		{
+			out.writeByte('S');
+			out.writeShort((Short)key);
+		}
+		else if(key instanceof Byte)
+		{
+			out.writeByte('B');
+			out.writeByte((Byte)key);
+		}
+		else if(key instanceof Double)
+		{
+			out.writeByte('D');
+			out.writeDouble((Double)key);
+		}
+		else if(key instanceof Float)
+		{
+			out.writeByte('F');
+			out.writeFloat((Float)key);
+		}
+		else if(key instanceof Boolean)
+		{
+			out.writeByte('Z');
+			out.writeBoolean((Boolean)key);
+		}
+		else if(key instanceof String)
+		{
+			out.writeByte('s');
+			out.writeUTF((String)key);
+		}
+		else if(key instanceof BigDecimal)
+		{
+			out.writeByte('N');
+			out.writeUTF(key.toString());
+		}
+		else if(key instanceof BigInteger)
+		{
+			out.writeByte('G');
+			out.writeUTF(key.toString());
+		}
+		else if(key instanceof Timestamp)
+		{
+			out.writeByte('P');
+			out.writeLong(((Timestamp)key).getTime());
+			out.writeInt(((Timestamp)key).getNanos());
+		}
+		else if(key instanceof java.sql.Date)
+		{
+			out.writeByte('d');
+			out.writeLong(((java.sql.Date)key).getTime());
+		}
+		else if(key instanceof Time)
+		{
+			out.writeByte('t');
+			out.writeLong(((Time)key).getTime());
+		}
+		else if(key instanceof LocalDate)
+		{
+			out.writeByte('L');
+			out.writeUTF(key.toString());
+		}
+		else if(key instanceof LocalDateTime)
+		{
+			out.writeByte('M');
+			out.writeUTF(key.toString());
+		}
+		else if(key instanceof OffsetDateTime)
+		{
+			out.writeByte('O');
+			out.writeUTF(key.toString());
+		}
+		else if(key instanceof UUID)
+		{
+			out.writeByte('U');
+			out.writeLong(((UUID)key).getMostSignificantBits());
+			out.writeLong(((UUID)key).getLeastSignificantBits());
+		}
+		else
+		{
+			throw new IllegalStateException("Unsupported key type: " + key.getClass().getName());
+		}
+	}
+
+	/**
+	 * 型と共に書き込まれたキーの値を読み込む。
+	 *
+	 * @param in 入力元
+	 * @return キーの値
+	 * @throws IOException 入出力例外
+	 */
+	private static Object readKey(DataInputStream in) throws IOException
+	{
+		int type = in.readUnsignedByte();
+		try
+		{
+			switch(type)
+			{
+				case 'I': return in.readInt();
+				case 'J': return in.readLong();
+				case 'S': return in.readShort();
+				case 'B': return in.readByte();
+				case 'D': return in.readDouble();
+				case 'F': return in.readFloat();
+				case 'Z': return in.readBoolean();
+				case 's': return in.readUTF();
+				case 'N': return new BigDecimal(in.readUTF());
+				case 'G': return new BigInteger(in.readUTF());
+				case 'P':
+					Timestamp timestamp = new Timestamp(in.readLong());
+					timestamp.setNanos(in.readInt());
+					return timestamp;
+				case 'd': return new java.sql.Date(in.readLong());
+				case 't': return new Time(in.readLong());
+				case 'L': return LocalDate.parse(in.readUTF());
+				case 'M': return LocalDateTime.parse(in.readUTF());
+				case 'O': return OffsetDateTime.parse(in.readUTF());
+				case 'U': return new UUID(in.readLong(), in.readLong());
+				default: throw invalidToken(null);
+			}
+		}
+		catch(NumberFormatException | DateTimeException ex)
+		{
+			throw invalidToken(ex);
+		}
+	}
+
+	/**
+	 * 継続トークンが不正であることを表す例外を生成する。
+	 *
+	 * @param cause 原因
+	 * @return 例外
+	 */
+	private static IllegalArgumentException invalidToken(Exception cause)
+	{
+		return new IllegalArgumentException("Invalid continuation token.", cause);
+	}
+}
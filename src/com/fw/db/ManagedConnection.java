@@ -0,0 +1,64 @@
+package com.fw.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * {@link ConnectionSource} が管理するコネクション
+ *
+ * @author t.yoshida
+ */
+final class ManagedConnection
+{
+	// 物理コネクション
+	final Connection connection;
+
+	// PreparedStatement キャッシュ（無効の場合、null）
+	final StatementCache statements;
+
+	// 生成時刻（ミリ秒）
+	final long createdAt;
+
+	// 最終利用時刻（ミリ秒）
+	volatile long lastUsedAt;
+
+	// 貸し出し時刻（ミリ秒）
+	volatile long borrowedAt;
+
+	// 貸し出し箇所（リーク検出が有効な場合のみ）
+	volatile Throwable borrowTrace;
+
+	// リークとして報告済みか否か
+	volatile boolean leakReported;
+
+	// 最後のコミット・ロールバック以降に利用されたか否か（返却時にロールバックが必要か否か）
+	volatile boolean pending;
+
+	/**
+	 * 物理コネクションを指定して {@link ManagedConnection} を生成する。
+	 *
+	 * @param connection 物理コネクション
+	 * @param statementCacheSize PreparedStatement キャッシュの最大数（0 以下の場合、無効）
+	 */
+	ManagedConnection(Connection connection, int statementCacheSize)
+	{
+		this.connection = connection;
+		this.statements = statementCacheSize > 0 ? new StatementCache(statementCacheSize) : null;
+		this.createdAt = System.currentTimeMillis();
+		this.lastUsedAt = createdAt;
+	}
+
+	/**
+	 * PreparedStatement キャッシュを破棄し、物理コネクションをクローズする。
+	 *
+	 * @throws SQLException データベース関連例外
+	 */
+	void close() throws SQLException
+	{
+		if(statements != null)
+		{
+			statements.clear();
+		}
+		connection.close();
+	}
+}
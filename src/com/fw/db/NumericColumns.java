@@ -0,0 +1,344 @@
+package com.fw.db;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * 列指向の数値の表
+ * <p>
+ * クエリ結果の各列を、整数型の列は long 配列、それ以外の列は double 配列として保持する。
+ * 行毎のオブジェクトを生成しないため、大量の数値を集計する場合に利用する。
+ * 列、行の番号は 0 から始まる。
+ * </p>
+ * <p>
+ * {@link #getLongs(int)}、{@link #getDoubles(int)} が返す配列は内部の配列のため、変更してはならない。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+public final class NumericColumns
+{
+	// 列の配列の初期容量
+	private static final int INITIAL_CAPACITY = 64;
+
+	// 列名（エイリアス名）
+	private final String[] _labels;
+
+	// 整数型の列の値（整数型以外の列は null）
+	private final long[][] _longs;
+
+	// 整数型以外の列の値（整数型の列は null）
+	private final double[][] _doubles;
+
+	// NULL の行（NULL が無い列は null）
+	private final BitSet[] _nulls;
+
+	// 行数
+	private final int _rowCount;
+
+	/**
+	 * 各列の値を指定して {@link NumericColumns} を生成する。
+	 *
+	 * @param labels 列名
+	 * @param longs 整数型の列の値
+	 * @param doubles 整数型以外の列の値
+	 * @param nulls NULL の行
+	 * @param rowCount 行数
+	 */
+	private NumericColumns(String[] labels, long[][] longs, double[][] doubles, BitSet[] nulls, int rowCount)
+	{
+		_labels = labels;
+		_longs = longs;
+		_doubles = doubles;
+		_nulls = nulls;
+		_rowCount = rowCount;
+	}
+
+	/**
+	 * 結果セットの全行を読み込む。
+	 *
+	 * @param rs 結果セット
+	 * @return {@link NumericColumns}
+	 * @throws SQLException データベース関連例外
+	 */
+	static NumericColumns read(ResultSet rs) throws SQLException
+	{
+		ResultSetMetaData meta = rs.getMetaData();
+		int columnCount = meta.getColumnCount();
+
+		String[] labels = new String[columnCount];
+		long[][] longs = new long[columnCount][];
+		double[][] doubles = new double[columnCount][];
+		BitSet[] nulls = new BitSet[columnCount];
+		for(int i=0; i<columnCount; i++)
+		{
+			labels[i] = meta.getColumnLabel(i + 1);
+			if(isIntegral(meta, i + 1))
+			{
+				longs[i] = new long[INITIAL_CAPACITY];
+			}
+			else
+			{
+				doubles[i] = new double[INITIAL_CAPACITY];
+			}
+		}
+
+		int capacity = INITIAL_CAPACITY;
+		int row = 0;
+		while(rs.next())
+		{
+			if(row == capacity)
+			{
+				capacity *= 2;
+				for(int i=0; i<columnCount; i++)
+				{
+					if(longs[i] != null)
+					{
+						longs[i] = Arrays.copyOf(longs[i], capacity);
+					}
+					else
+					{
+						doubles[i] = Arrays.copyOf(doubles[i], capacity);
+					}
+				}
+			}
+
+			for(int i=0; i<columnCount; i++)
+			{
+				if(longs[i] != null)
+				{
+					longs[i][row] = rs.getLong(i + 1);
+				}
+				else
+				{
+					doubles[i][row] = rs.getDouble(i + 1);
+				}
+
+				if(rs.wasNull())
+				{
+					if(nulls[i] == null)
+					{
+						nulls[i] = new BitSet();
+					}
+					nulls[i].set(row);
+				}
+			}
+			row++;
+		}
+
+		for(int i=0; i<columnCount; i++)
+		{
+			if(longs[i] != null)
+			{
+				longs[i] = Arrays.copyOf(longs[i], row);
+			}
+			else
+			{
+				doubles[i] = Arrays.copyOf(doubles[i], row);
+			}
+		}
+
+		return new NumericColumns(labels, longs, doubles, nulls, row);
+	}
+
+	/**
+	 * 列が整数型か否かを返す。
+	 * <p>
+	 * 小数部を持たない DECIMAL、NUMERIC 型も、long の範囲に収まる精度であれば整数型とする。
+	 * </p>
+	 *
+	 * @param meta 結果セットのメタデータ
+	 * @param column 列番号（1 から始まる）
+	 * @return 整数型の場合: true
+	 * @throws SQLException データベース関連例外
+	 */
+	private static boolean isIntegral(ResultSetMetaData meta, int column) throws SQLException
+	{
+		switch(meta.getColumnType(column))
+		{
+			case Types.BIT:
+			case Types.BOOLEAN:
+			case Types.TINYINT:
+			case Types.SMALLINT:
+			case Types.INTEGER:
+			case Types.BIGINT:
+				return true;
+
+			case Types.DECIMAL:
+			case Types.NUMERIC:
+				return meta.getScale(column) == 0 && meta.getPrecision(column) > 0 && meta.getPrecision(column) <= 18;
+
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * 行数を返す。
+	 *
+	 * @return 行数
+	 */
+	public int getRowCount()
+	{
+		return _rowCount;
+	}
+
+	/**
+	 * 列数を返す。
+	 *
+	 * @return 列数
+	 */
+	public int getColumnCount()
+	{
+		return _labels.length;
+	}
+
+	/**
+	 * 列名（エイリアス名）を返す。
+	 *
+	 * @param column 列番号
+	 * @return 列名
+	 */
+	public String getLabel(int column)
+	{
+		return _labels[column];
+	}
+
+	/**
+	 * 列名（エイリアス名）に対応する列番号を返す。
+	 * <p>
+	 * 大文字と小文字は区別しない。
+	 * </p>
+	 *
+	 * @param label 列名
+	 * @return 列番号（存在しない場合、-1）
+	 */
+	public int indexOf(String label)
+	{
+		for(int i=0; i<_labels.length; i++)
+		{
+			if(_labels[i].equalsIgnoreCase(label)) return i;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * 列が整数型として保持されているか否かを返す。
+	 *
+	 * @param column 列番号
+	 * @return 整数型の場合: true
+	 */
+	public boolean isIntegral(int column)
+	{
+		return _longs[column] != null;
+	}
+
+	/**
+	 * 値が NULL か否かを返す。
+	 *
+	 * @param column 列番号
+	 * @param row 行番号
+	 * @return NULL の場合: true
+	 */
+	public boolean isNull(int column, int row)
+	{
+		checkRow(row);
+		return _nulls[column] != null && _nulls[column].get(row);
+	}
+
+	/**
+	 * 値を int 型で返す。
+	 * <p>
+	 * NULL の場合は 0 を返す。
+	 * </p>
+	 *
+	 * @param column 列番号
+	 * @param row 行番号
+	 * @return 値
+	 */
+	public int getInt(int column, int row)
+	{
+		return (int)getLong(column, row);
+	}
+
+	/**
+	 * 値を long 型で返す。
+	 * <p>
+	 * NULL の場合は 0 を返す。整数型以外の列は小数部を切り捨てる。
+	 * </p>
+	 *
+	 * @param column 列番号
+	 * @param row 行番号
+	 * @return 値
+	 */
+	public long getLong(int column, int row)
+	{
+		checkRow(row);
+		return _longs[column] != null ? _longs[column][row] : (long)_doubles[column][row];
+	}
+
+	/**
+	 * 値を double 型で返す。
+	 * <p>
+	 * NULL の場合は 0 を返す。
+	 * </p>
+	 *
+	 * @param column 列番号
+	 * @param row 行番号
+	 * @return 値
+	 */
+	public double getDouble(int column, int row)
+	{
+		checkRow(row);
+		return _doubles[column] != null ? _doubles[column][row] : _longs[column][row];
+	}
+
+	/**
+	 * 整数型の列の全行の値を返す。
+	 * <p>
+	 * NULL の行は 0 が格納されている。
+	 * </p>
+	 *
+	 * @param column 列番号
+	 * @return 値（内部の配列）
+	 * @throws IllegalArgumentException 整数型の列でない場合
+	 */
+	public long[] getLongs(int column)
+	{
+		if(_longs[column] == null) throw new IllegalArgumentException("Column [" + _labels[column] + "] is not integral.");
+
+		return _longs[column];
+	}
+
+	/**
+	 * 整数型以外の列の全行の値を返す。
+	 * <p>
+	 * NULL の行は 0 が格納されている。
+	 * </p>
+	 *
+	 * @param column 列番号
+	 * @return 値（内部の配列）
+	 * @throws IllegalArgumentException 整数型の列の場合
+	 */
+	public double[] getDoubles(int column)
+	{
+		if(_doubles[column] == null) throw new IllegalArgumentException("Column [" + _labels[column] + "] is integral.");
+
+		return _doubles[column];
+	}
+
+	/**
+	 * 行番号の範囲を検査する。
+	 *
+	 * @param row 行番号
+	 */
+	private void checkRow(int row)
+	{
+		if(row < 0 || row >= _rowCount) throw new IndexOutOfBoundsException("row: " + row + ", size: " + _rowCount);
+	}
+}
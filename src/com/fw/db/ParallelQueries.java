@@ -0,0 +1,288 @@
+package com.fw.db;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 参照専用のトランザクション内で、互いに独立した参照系クエリを並列に実行する
+ * <p>
+ * {@link QueryLoader#parallel()} により生成する。
+ * {@link #submit(Transaction.Work)} した処理は、それぞれ別のスレッド、別のコネクション（元のトランザクションと同じ接続先）で、
+ * 元のトランザクションとは独立した参照専用のトランザクションとして実行される。
+ * 処理内で {@link QueryUpdater} を実行した場合は {@link SQLException} となる。
+ * </p>
+ * <pre>
+ * try(ParallelQueries parallel = QueryLoader.parallel())
+ * {
+ *     CompletableFuture&lt;List&lt;Item&gt;&gt; items = parallel.submit(() -&gt; QueryLoader.loadAsList(Item.class, "..."));
+ *     CompletableFuture&lt;Integer&gt; count = parallel.submit(() -&gt; QueryLoader.loadAsInteger("..."));
+ *     parallel.join();
+ *
+ *     container.setAttr("items", items.join());
+ *     container.setAttr("count", count.join());
+ * }
+ * </pre>
+ * <p>
+ * 同時に並列実行する処理数は全リクエストで "db.parallel.max.concurrency" 以内とする（{@link DBAgent} 参照、デフォルトは並列実行しない）。
+ * 上限に達している場合、処理は呼び出し元のスレッドで元のトランザクションのコネクションを利用して順に実行する。
+ * コネクションプールを利用する場合、上限はプールの最大数から同時実行するリクエスト数を引いた値以下とすること。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+public final class ParallelQueries implements AutoCloseable
+{
+	// 並列実行数の上限（初期化前は並列実行しない）
+	private static volatile Semaphore _permits = new Semaphore(0);
+
+	// 並列実行用のスレッド（初期化前は null）
+	private static volatile ExecutorService _executor;
+
+	/*
+	 * 統計情報
+	 */
+	private static final LongAdder _parallelCount = new LongAdder();
+	private static final LongAdder _inlineCount = new LongAdder();
+
+	// 元のトランザクション
+	private final Transaction _parent;
+
+	// 実行した処理
+	private final List<CompletableFuture<?>> _futures = new ArrayList<>();
+
+	// 終了したか否か
+	private boolean _closed;
+
+	/**
+	 * 元のトランザクションを指定して {@link ParallelQueries} を生成する。
+	 *
+	 * @param parent 元のトランザクション
+	 * @throws SQLException 元のトランザクションが参照専用でない場合
+	 */
+	ParallelQueries(Transaction parent) throws SQLException
+	{
+		if(!parent.isReadOnly())
+		{
+			throw new SQLException("Parallel queries are only available in read-only transactions.");
+		}
+
+		_parent = parent;
+	}
+
+	/**
+	 * 並列実行数の上限を設定し、並列実行用のスレッドを生成する。
+	 *
+	 * @param maxConcurrency 並列実行数の上限（0 の場合は並列実行しない）
+	 */
+	static synchronized void init(int maxConcurrency)
+	{
+		shutdown();
+		if(maxConcurrency <= 0) return;
+
+		AtomicInteger sequence = new AtomicInteger();
+		_executor = Executors.newCachedThreadPool(r ->
+		{
+			Thread thread = new Thread(r, "fw-parallel-query-" + sequence.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		_permits = new Semaphore(maxConcurrency);
+	}
+
+	/**
+	 * 並列実行用のスレッドを終了する。
+	 * <p>
+	 * 実行中の処理は完了まで継続する。
+	 * </p>
+	 */
+	static synchronized void shutdown()
+	{
+		ExecutorService executor = _executor;
+		_executor = null;
+		_permits = new Semaphore(0);
+		if(executor != null)
+		{
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * 処理を並列に実行する。
+	 * <p>
+	 * 並列実行数の上限に達している場合、このスレッドで処理を実行してから返す。
+	 * 元のトランザクションを利用しているスレッドから呼び出すこと。
+	 * </p>
+	 *
+	 * @param work 処理（参照系クエリのみ）
+	 * @return 処理結果
+	 * @throws IllegalStateException 既に終了している場合
+	 */
+	public <T> CompletableFuture<T> submit(Transaction.Work<T> work)
+	{
+		if(_closed) throw new IllegalStateException("ParallelQueries has already been closed.");
+
+		CompletableFuture<T> future = new CompletableFuture<>();
+		_futures.add(future);
+
+		Semaphore permits = _permits;
+		ExecutorService executor = _executor;
+		if(executor != null && permits.tryAcquire())
+		{
+			try
+			{
+				executor.execute(() ->
+				{
+					try
+					{
+						future.complete(executeForked(work));
+					}
+					catch(Throwable ex)
+					{
+						future.completeExceptionally(ex);
+					}
+					finally
+					{
+						permits.release();
+					}
+				});
+				_parallelCount.increment();
+				return future;
+			}
+			catch(RejectedExecutionException ex)
+			{
+				// 終了処理中のため、このスレッドで実行
+				permits.release();
+			}
+		}
+
+		// 上限に達しているため、元のトランザクションのコネクションで実行
+		_inlineCount.increment();
+		try
+		{
+			future.complete(_parent.executeQueryOnly(work));
+		}
+		catch(Throwable ex)
+		{
+			future.completeExceptionally(ex);
+		}
+
+		return future;
+	}
+
+	/**
+	 * 新たな参照専用のトランザクションで処理を実行する。
+	 *
+	 * @param work 処理
+	 * @return 処理結果
+	 * @throws SQLException データベース関連例外
+	 */
+	private <T> T executeForked(Transaction.Work<T> work) throws SQLException
+	{
+		Transaction tx = _parent.fork();
+		try
+		{
+			return tx.execute(work);
+		}
+		finally
+		{
+			tx.dispose();
+		}
+	}
+
+	/**
+	 * 全ての処理の完了を待つ。
+	 * <p>
+	 * 処理で例外が発生した場合、全ての処理の完了後に最初の例外を送出する。
+	 * 正常に返った場合、{@link #submit(Transaction.Work)} が返した結果は {@link CompletableFuture#join()} で取得できる。
+	 * </p>
+	 *
+	 * @throws SQLException 処理で発生したデータベース関連例外
+	 */
+	public void join() throws SQLException
+	{
+		Throwable error = null;
+		boolean interrupted = false;
+		for(CompletableFuture<?> future : _futures)
+		{
+			while(true)
+			{
+				try
+				{
+					future.get();
+					break;
+				}
+				catch(InterruptedException ex)
+				{
+					// クエリ実行中のコネクションを返却させるため、完了までは待つ
+					interrupted = true;
+				}
+				catch(ExecutionException ex)
+				{
+					if(error == null) error = ex.getCause();
+					break;
+				}
+			}
+		}
+
+		if(interrupted)
+		{
+			Thread.currentThread().interrupt();
+		}
+
+		if(error instanceof SQLException) throw (SQLException)error;
+		if(error instanceof RuntimeException) throw (RuntimeException)error;
+		if(error instanceof Error) throw (Error)error;
+		if(error != null) throw new SQLException(error);
+	}
+
+	/**
+	 * 全ての処理の完了を待って終了する。
+	 * <p>
+	 * 処理で発生した例外は無視する（{@link #join()} または各処理結果で確認すること）。
+	 * </p>
+	 */
+	@Override
+	public void close()
+	{
+		if(_closed) return;
+
+		_closed = true;
+		try
+		{
+			join();
+		}
+		catch(SQLException | RuntimeException ex)
+		{
+			// 各処理結果で確認済み
+		}
+	}
+
+	/**
+	 * 並列に実行した処理数を返す。
+	 *
+	 * @return 処理数
+	 */
+	public static long getParallelCount()
+	{
+		return _parallelCount.sum();
+	}
+
+	/**
+	 * 並列実行数の上限に達していたため、呼び出し元のスレッドで実行した処理数を返す。
+	 *
+	 * @return 処理数
+	 */
+	public static long getInlineCount()
+	{
+		return _inlineCount.sum();
+	}
+}
@@ -0,0 +1,1324 @@
+package com.fw.db;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLType;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.Map;
+
+/**
+ * 行数、バイト数（概算）、行の取得に掛かった時間を {@link QueryProbe} に加算する {@link ResultSet}
+ * <p>
+ * 時間を計測するのは {@link #next()} のみとし、値の取得はバイト数の加算のみ行う。
+ * それ以外のメソッドはそのまま委譲する。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+final class ProbedResultSet implements ResultSet
+{
+	// 委譲先の ResultSet
+	private final ResultSet _rs;
+
+	// 加算先の計測
+	private final QueryProbe _probe;
+
+	/**
+	 * 委譲先の {@link ResultSet} と加算先の計測を指定して {@link ProbedResultSet} を生成する。
+	 *
+	 * @param rs 委譲先の {@link ResultSet}
+	 * @param probe 加算先の計測
+	 */
+	ProbedResultSet(ResultSet rs, QueryProbe probe)
+	{
+		_rs = rs;
+		_probe = probe;
+	}
+
+	@Override
+	public boolean absolute(int row) throws SQLException
+	{
+		return _rs.absolute(row);
+	}
+
+	@Override
+	public void afterLast() throws SQLException
+	{
+		_rs.afterLast();
+	}
+
+	@Override
+	public void beforeFirst() throws SQLException
+	{
+		_rs.beforeFirst();
+	}
+
+	@Override
+	public void cancelRowUpdates() throws SQLException
+	{
+		_rs.cancelRowUpdates();
+	}
+
+	@Override
+	public void clearWarnings() throws SQLException
+	{
+		_rs.clearWarnings();
+	}
+
+	@Override
+	public void close() throws SQLException
+	{
+		_rs.close();
+	}
+
+	@Override
+	public void deleteRow() throws SQLException
+	{
+		_rs.deleteRow();
+	}
+
+	@Override
+	public int findColumn(String columnLabel) throws SQLException
+	{
+		return _rs.findColumn(columnLabel);
+	}
+
+	@Override
+	public boolean first() throws SQLException
+	{
+		return _rs.first();
+	}
+
+	@Override
+	public Array getArray(String columnLabel) throws SQLException
+	{
+		return _rs.getArray(columnLabel);
+	}
+
+	@Override
+	public Array getArray(int columnIndex) throws SQLException
+	{
+		return _rs.getArray(columnIndex);
+	}
+
+	@Override
+	public InputStream getAsciiStream(String columnLabel) throws SQLException
+	{
+		return _rs.getAsciiStream(columnLabel);
+	}
+
+	@Override
+	public InputStream getAsciiStream(int columnIndex) throws SQLException
+	{
+		return _rs.getAsciiStream(columnIndex);
+	}
+
+	@Deprecated
+	@Override
+	public BigDecimal getBigDecimal(String columnLabel, int scale) throws SQLException
+	{
+		BigDecimal value = _rs.getBigDecimal(columnLabel, scale);
+		_probe.addBytes(value == null ? 0 : 8);
+		return value;
+	}
+
+	@Override
+	public BigDecimal getBigDecimal(String columnLabel) throws SQLException
+	{
+		BigDecimal value = _rs.getBigDecimal(columnLabel);
+		_probe.addBytes(value == null ? 0 : 8);
+		return value;
+	}
+
+	@Deprecated
+	@Override
+	public BigDecimal getBigDecimal(int columnIndex, int scale) throws SQLException
+	{
+		BigDecimal value = _rs.getBigDecimal(columnIndex, scale);
+		_probe.addBytes(value == null ? 0 : 8);
+		return value;
+	}
+
+	@Override
+	public BigDecimal getBigDecimal(int columnIndex) throws SQLException
+	{
+		BigDecimal value = _rs.getBigDecimal(columnIndex);
+		_probe.addBytes(value == null ? 0 : 8);
+		return value;
+	}
+
+	@Override
+	public InputStream getBinaryStream(String columnLabel) throws SQLException
+	{
+		return _rs.getBinaryStream(columnLabel);
+	}
+
+	@Override
+	public InputStream getBinaryStream(int columnIndex) throws SQLException
+	{
+		return _rs.getBinaryStream(columnIndex);
+	}
+
+	@Override
+	public Blob getBlob(String columnLabel) throws SQLException
+	{
+		return _rs.getBlob(columnLabel);
+	}
+
+	@Override
+	public Blob getBlob(int columnIndex) throws SQLException
+	{
+		return _rs.getBlob(columnIndex);
+	}
+
+	@Override
+	public boolean getBoolean(String columnLabel) throws SQLException
+	{
+		boolean value = _rs.getBoolean(columnLabel);
+		_probe.addBytes(8);
+		return value;
+	}
+
+	@Override
+	public boolean getBoolean(int columnIndex) throws SQLException
+	{
+		boolean value = _rs.getBoolean(columnIndex);
+		_probe.addBytes(8);
+		return value;
+	}
+
+	@Override
+	public byte getByte(String columnLabel) throws SQLException
+	{
+		byte value = _rs.getByte(columnLabel);
+		_probe.addBytes(8);
+		return value;
+	}
+
+	@Override
+	public byte getByte(int columnIndex) throws SQLException
+	{
+		byte value = _rs.getByte(columnIndex);
+		_probe.addBytes(8);
+		return value;
+	}
+
+	@Override
+	public byte[] getBytes(String columnLabel) throws SQLException
+	{
+		byte[] value = _rs.getBytes(columnLabel);
+		_probe.addBytes(value == null ? 0 : value.length);
+		return value;
+	}
+
+	@Override
+	public byte[] getBytes(int columnIndex) throws SQLException
+	{
+		byte[] value = _rs.getBytes(columnIndex);
+		_probe.addBytes(value == null ? 0 : value.length);
+		return value;
+	}
+
+	@Override
+	public Reader getCharacterStream(String columnLabel) throws SQLException
+	{
+		return _rs.getCharacterStream(columnLabel);
+	}
+
+	@Override
+	public Reader getCharacterStream(int columnIndex) throws SQLException
+	{
+		return _rs.getCharacterStream(columnIndex);
+	}
+
+	@Override
+	public Clob getClob(String columnLabel) throws SQLException
+	{
+		return _rs.getClob(columnLabel);
+	}
+
+	@Override
+	public Clob getClob(int columnIndex) throws SQLException
+	{
+		return _rs.getClob(columnIndex);
+	}
+
+	@Override
+	public int getConcurrency() throws SQLException
+	{
+		return _rs.getConcurrency();
+	}
+
+	@Override
+	public String getCursorName() throws SQLException
+	{
+		return _rs.getCursorName();
+	}
+
+	@Override
+	public Date getDate(String columnLabel, Calendar cal) throws SQLException
+	{
+		Date value = _rs.getDate(columnLabel, cal);
+		_probe.addBytes(value == null ? 0 : 8);
+		return value;
+	}
+
+	@Override
+	public Date getDate(String columnLabel) throws SQLException
+	{
+		Date value = _rs.getDate(columnLabel);
+		_probe.addBytes(value == null ? 0 : 8);
+		return value;
+	}
+
+	@Override
+	public Date getDate(int columnIndex, Calendar cal) throws SQLException
+	{
+		Date value = _rs.getDate(columnIndex, cal);
+		_probe.addBytes(value == null ? 0 : 8);
+		return value;
+	}
+
+	@Override
+	public Date getDate(int columnIndex) throws SQLException
+	{
+		Date value = _rs.getDate(columnIndex);
+		_probe.addBytes(value == null ? 0 : 8);
+		return value;
+	}
+
+	@Override
+	public double getDouble(String columnLabel) throws SQLException
+	{
+		double value = _rs.getDouble(columnLabel);
+		_probe.addBytes(8);
+		return value;
+	}
+
+	@Override
+	public double getDouble(int columnIndex) throws SQLException
+	{
+		double value = _rs.getDouble(columnIndex);
+		_probe.addBytes(8);
+		return value;
+	}
+
+	@Override
+	public int getFetchDirection() throws SQLException
+	{
+		return _rs.getFetchDirection();
+	}
+
+	@Override
+	public int getFetchSize() throws SQLException
+	{
+		return _rs.getFetchSize();
+	}
+
+	@Override
+	public float getFloat(String columnLabel) throws SQLException
+	{
+		float value = _rs.getFloat(columnLabel);
+		_probe.addBytes(8);
+		return value;
+	}
+
+	@Override
+	public float getFloat(int columnIndex) throws SQLException
+	{
+		float value = _rs.getFloat(columnIndex);
+		_probe.addBytes(8);
+		return value;
+	}
+
+	@Override
+	public int getHoldability() throws SQLException
+	{
+		return _rs.getHoldability();
+	}
+
+	@Override
+	public int getInt(String columnLabel) throws SQLException
+	{
+		int value = _rs.getInt(columnLabel);
+		_probe.addBytes(8);
+		return value;
+	}
+
+	@Override
+	public int getInt(int columnIndex) throws SQLException
+	{
+		int value = _rs.getInt(columnIndex);
+		_probe.addBytes(8);
+		return value;
+	}
+
+	@Override
+	public long getLong(String columnLabel) throws SQLException
+	{
+		long value = _rs.getLong(columnLabel);
+		_probe.addBytes(8);
+		return value;
+	}
+
+	@Override
+	public long getLong(int columnIndex) throws SQLException
+	{
+		long value = _rs.getLong(columnIndex);
+		_probe.addBytes(8);
+		return value;
+	}
+
+	@Override
+	public ResultSetMetaData getMetaData() throws SQLException
+	{
+		return _rs.getMetaData();
+	}
+
+	@Override
+	public Reader getNCharacterStream(String columnLabel) throws SQLException
+	{
+		return _rs.getNCharacterStream(columnLabel);
+	}
+
+	@Override
+	public Reader getNCharacterStream(int columnIndex) throws SQLException
+	{
+		return _rs.getNCharacterStream(columnIndex);
+	}
+
+	@Override
+	public NClob getNClob(String columnLabel) throws SQLException
+	{
+		return _rs.getNClob(columnLabel);
+	}
+
+	@Override
+	public NClob getNClob(int columnIndex) throws SQLException
+	{
+		return _rs.getNClob(columnIndex);
+	}
+
+	@Override
+	public String getNString(String columnLabel) throws SQLException
+	{
+		String value = _rs.getNString(columnLabel);
+		_probe.addBytes(value == null ? 0 : value.length());
+		return value;
+	}
+
+	@Override
+	public String getNString(int columnIndex) throws SQLException
+	{
+		String value = _rs.getNString(columnIndex);
+		_probe.addBytes(value == null ? 0 : value.length());
+		return value;
+	}
+
+	@Override
+	public <T> T getObject(String columnLabel, Class<T> type) throws SQLException
+	{
+		T value = _rs.getObject(columnLabel, type);
+		_probe.addBytes(QueryProbe.sizeOf(value));
+		return value;
+	}
+
+	@Override
+	public Object getObject(String columnLabel, Map<String, Class<?>> map) throws SQLException
+	{
+		Object value = _rs.getObject(columnLabel, map);
+		_probe.addBytes(QueryProbe.sizeOf(value));
+		return value;
+	}
+
+	@Override
+	public Object getObject(String columnLabel) throws SQLException
+	{
+		Object value = _rs.getObject(columnLabel);
+		_probe.addBytes(QueryProbe.sizeOf(value));
+		return value;
+	}
+
+	@Override
+	public <T> T getObject(int columnIndex, Class<T> type) throws SQLException
+	{
+		T value = _rs.getObject(columnIndex, type);
+		_probe.addBytes(QueryProbe.sizeOf(value));
+		return value;
+	}
+
+	@Override
+	public Object getObject(int columnIndex, Map<String, Class<?>> map) throws SQLException
+	{
+		Object value = _rs.getObject(columnIndex, map);
+		_probe.addBytes(QueryProbe.sizeOf(value));
+		return value;
+	}
+
+	@Override
+	public Object getObject(int columnIndex) throws SQLException
+	{
+		Object value = _rs.getObject(columnIndex);
+		_probe.addBytes(QueryProbe.sizeOf(value));
+		return value;
+	}
+
+	@Override
+	public Ref getRef(String columnLabel) throws SQLException
+	{
+		return _rs.getRef(columnLabel);
+	}
+
+	@Override
+	public Ref getRef(int columnIndex) throws SQLException
+	{
+		return _rs.getRef(columnIndex);
+	}
+
+	@Override
+	public int getRow() throws SQLException
+	{
+		return _rs.getRow();
+	}
+
+	@Override
+	public RowId getRowId(String columnLabel) throws SQLException
+	{
+		return _rs.getRowId(columnLabel);
+	}
+
+	@Override
+	public RowId getRowId(int columnIndex) throws SQLException
+	{
+		return _rs.getRowId(columnIndex);
+	}
+
+	@Override
+	public SQLXML getSQLXML(String columnLabel) throws SQLException
+	{
+		return _rs.getSQLXML(columnLabel);
+	}
+
+	@Override
+	public SQLXML getSQLXML(int columnIndex) throws SQLException
+	{
+		return _rs.getSQLXML(columnIndex);
+	}
+
+	@Override
+	public short getShort(String columnLabel) throws SQLException
+	{
+		short value = _rs.getShort(columnLabel);
+		_probe.addBytes(8);
+		return value;
+	}
+
+	@Override
+	public short getShort(int columnIndex) throws SQLException
+	{
+		short value = _rs.getShort(columnIndex);
+		_probe.addBytes(8);
+		return value;
+	}
+
+	@Override
+	public Statement getStatement() throws SQLException
+	{
+		return _rs.getStatement();
+	}
+
+	@Override
+	public String getString(String columnLabel) throws SQLException
+	{
+		String value = _rs.getString(columnLabel);
+		_probe.addBytes(value == null ? 0 : value.length());
+		return value;
+	}
+
+	@Override
+	public String getString(int columnIndex) throws SQLException
+	{
+		String value = _rs.getString(columnIndex);
+		_probe.addBytes(value == null ? 0 : value.length());
+		return value;
+	}
+
+	@Override
+	public Time getTime(String columnLabel, Calendar cal) throws SQLException
+	{
+		Time value = _rs.getTime(columnLabel, cal);
+		_probe.addBytes(value == null ? 0 : 8);
+		return value;
+	}
+
+	@Override
+	public Time getTime(String columnLabel) throws SQLException
+	{
+		Time value = _rs.getTime(columnLabel);
+		_probe.addBytes(value == null ? 0 : 8);
+		return value;
+	}
+
+	@Override
+	public Time getTime(int columnIndex, Calendar cal) throws SQLException
+	{
+		Time value = _rs.getTime(columnIndex, cal);
+		_probe.addBytes(value == null ? 0 : 8);
+		return value;
+	}
+
+	@Override
+	public Time getTime(int columnIndex) throws SQLException
+	{
+		Time value = _rs.getTime(columnIndex);
+		_probe.addBytes(value == null ? 0 : 8);
+		return value;
+	}
+
+	@Override
+	public Timestamp getTimestamp(String columnLabel, Calendar cal) throws SQLException
+	{
+		Timestamp value = _rs.getTimestamp(columnLabel, cal);
+		_probe.addBytes(value == null ? 0 : 8);
+		return value;
+	}
+
+	@Override
+	public Timestamp getTimestamp(String columnLabel) throws SQLException
+	{
+		Timestamp value = _rs.getTimestamp(columnLabel);
+		_probe.addBytes(value == null ? 0 : 8);
+		return value;
+	}
+
+	@Override
+	public Timestamp getTimestamp(int columnIndex, Calendar cal) throws SQLException
+	{
+		Timestamp value = _rs.getTimestamp(columnIndex, cal);
+		_probe.addBytes(value == null ? 0 : 8);
+		return value;
+	}
+
+	@Override
+	public Timestamp getTimestamp(int columnIndex) throws SQLException
+	{
+		Timestamp value = _rs.getTimestamp(columnIndex);
+		_probe.addBytes(value == null ? 0 : 8);
+		return value;
+	}
+
+	@Override
+	public int getType() throws SQLException
+	{
+		return _rs.getType();
+	}
+
+	@Override
+	public URL getURL(String columnLabel) throws SQLException
+	{
+		return _rs.getURL(columnLabel);
+	}
+
+	@Override
+	public URL getURL(int columnIndex) throws SQLException
+	{
+		return _rs.getURL(columnIndex);
+	}
+
+	@Deprecated
+	@Override
+	public InputStream getUnicodeStream(String columnLabel) throws SQLException
+	{
+		return _rs.getUnicodeStream(columnLabel);
+	}
+
+	@Deprecated
+	@Override
+	public InputStream getUnicodeStream(int columnIndex) throws SQLException
+	{
+		return _rs.getUnicodeStream(columnIndex);
+	}
+
+	@Override
+	public SQLWarning getWarnings() throws SQLException
+	{
+		return _rs.getWarnings();
+	}
+
+	@Override
+	public void insertRow() throws SQLException
+	{
+		_rs.insertRow();
+	}
+
+	@Override
+	public boolean isAfterLast() throws SQLException
+	{
+		return _rs.isAfterLast();
+	}
+
+	@Override
+	public boolean isBeforeFirst() throws SQLException
+	{
+		return _rs.isBeforeFirst();
+	}
+
+	@Override
+	public boolean isClosed() throws SQLException
+	{
+		return _rs.isClosed();
+	}
+
+	@Override
+	public boolean isFirst() throws SQLException
+	{
+		return _rs.isFirst();
+	}
+
+	@Override
+	public boolean isLast() throws SQLException
+	{
+		return _rs.isLast();
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) throws SQLException
+	{
+		return _rs.isWrapperFor(iface);
+	}
+
+	@Override
+	public boolean last() throws SQLException
+	{
+		return _rs.last();
+	}
+
+	@Override
+	public void moveToCurrentRow() throws SQLException
+	{
+		_rs.moveToCurrentRow();
+	}
+
+	@Override
+	public void moveToInsertRow() throws SQLException
+	{
+		_rs.moveToInsertRow();
+	}
+
+	@Override
+	public boolean next() throws SQLException
+	{
+		long startedAt = System.nanoTime();
+		boolean next;
+		try
+		{
+			next = _rs.next();
+		}
+		finally
+		{
+			_probe.addElapsed(System.nanoTime() - startedAt);
+		}
+
+		if(next) _probe.addRows(1);
+		return next;
+	}
+
+	@Override
+	public boolean previous() throws SQLException
+	{
+		return _rs.previous();
+	}
+
+	@Override
+	public void refreshRow() throws SQLException
+	{
+		_rs.refreshRow();
+	}
+
+	@Override
+	public boolean relative(int rows) throws SQLException
+	{
+		return _rs.relative(rows);
+	}
+
+	@Override
+	public boolean rowDeleted() throws SQLException
+	{
+		return _rs.rowDeleted();
+	}
+
+	@Override
+	public boolean rowInserted() throws SQLException
+	{
+		return _rs.rowInserted();
+	}
+
+	@Override
+	public boolean rowUpdated() throws SQLException
+	{
+		return _rs.rowUpdated();
+	}
+
+	@Override
+	public void setFetchDirection(int direction) throws SQLException
+	{
+		_rs.setFetchDirection(direction);
+	}
+
+	@Override
+	public void setFetchSize(int rows) throws SQLException
+	{
+		_rs.setFetchSize(rows);
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException
+	{
+		return _rs.unwrap(iface);
+	}
+
+	@Override
+	public void updateArray(String columnLabel, Array x) throws SQLException
+	{
+		_rs.updateArray(columnLabel, x);
+	}
+
+	@Override
+	public void updateArray(int columnIndex, Array x) throws SQLException
+	{
+		_rs.updateArray(columnIndex, x);
+	}
+
+	@Override
+	public void updateAsciiStream(String columnLabel, InputStream x, int length) throws SQLException
+	{
+		_rs.updateAsciiStream(columnLabel, x, length);
+	}
+
+	@Override
+	public void updateAsciiStream(String columnLabel, InputStream x, long length) throws SQLException
+	{
+		_rs.updateAsciiStream(columnLabel, x, length);
+	}
+
+	@Override
+	public void updateAsciiStream(String columnLabel, InputStream x) throws SQLException
+	{
+		_rs.updateAsciiStream(columnLabel, x);
+	}
+
+	@Override
+	public void updateAsciiStream(int columnIndex, InputStream x, int length) throws SQLException
+	{
+		_rs.updateAsciiStream(columnIndex, x, length);
+	}
+
+	@Override
+	public void updateAsciiStream(int columnIndex, InputStream x, long length) throws SQLException
+	{
+		_rs.updateAsciiStream(columnIndex, x, length);
+	}
+
+	@Override
+	public void updateAsciiStream(int columnIndex, InputStream x) throws SQLException
+	{
+		_rs.updateAsciiStream(columnIndex, x);
+	}
+
+	@Override
+	public void updateBigDecimal(String columnLabel, BigDecimal x) throws SQLException
+	{
+		_rs.updateBigDecimal(columnLabel, x);
+	}
+
+	@Override
+	public void updateBigDecimal(int columnIndex, BigDecimal x) throws SQLException
+	{
+		_rs.updateBigDecimal(columnIndex, x);
+	}
+
+	@Override
+	public void updateBinaryStream(String columnLabel, InputStream x, int length) throws SQLException
+	{
+		_rs.updateBinaryStream(columnLabel, x, length);
+	}
+
+	@Override
+	public void updateBinaryStream(String columnLabel, InputStream x, long length) throws SQLException
+	{
+		_rs.updateBinaryStream(columnLabel, x, length);
+	}
+
+	@Override
+	public void updateBinaryStream(String columnLabel, InputStream x) throws SQLException
+	{
+		_rs.updateBinaryStream(columnLabel, x);
+	}
+
+	@Override
+	public void updateBinaryStream(int columnIndex, InputStream x, int length) throws SQLException
+	{
+		_rs.updateBinaryStream(columnIndex, x, length);
+	}
+
+	@Override
+	public void updateBinaryStream(int columnIndex, InputStream x, long length) throws SQLException
+	{
+		_rs.updateBinaryStream(columnIndex, x, length);
+	}
+
+	@Override
+	public void updateBinaryStream(int columnIndex, InputStream x) throws SQLException
+	{
+		_rs.updateBinaryStream(columnIndex, x);
+	}
+
+	@Override
+	public void updateBlob(String columnLabel, InputStream x, long length) throws SQLException
+	{
+		_rs.updateBlob(columnLabel, x, length);
+	}
+
+	@Override
+	public void updateBlob(String columnLabel, InputStream x) throws SQLException
+	{
+		_rs.updateBlob(columnLabel, x);
+	}
+
+	@Override
+	public void updateBlob(String columnLabel, Blob x) throws SQLException
+	{
+		_rs.updateBlob(columnLabel, x);
+	}
+
+	@Override
+	public void updateBlob(int columnIndex, InputStream x, long length) throws SQLException
+	{
+		_rs.updateBlob(columnIndex, x, length);
+	}
+
+	@Override
+	public void updateBlob(int columnIndex, InputStream x) throws SQLException
+	{
+		_rs.updateBlob(columnIndex, x);
+	}
+
+	@Override
+	public void updateBlob(int columnIndex, Blob x) throws SQLException
+	{
+		_rs.updateBlob(columnIndex, x);
+	}
+
+	@Override
+	public void updateBoolean(String columnLabel, boolean x) throws SQLException
+	{
+		_rs.updateBoolean(columnLabel, x);
+	}
+
+	@Override
+	public void updateBoolean(int columnIndex, boolean x) throws SQLException
+	{
+		_rs.updateBoolean(columnIndex, x);
+	}
+
+	@Override
+	public void updateByte(String columnLabel, byte x) throws SQLException
+	{
+		_rs.updateByte(columnLabel, x);
+	}
+
+	@Override
+	public void updateByte(int columnIndex, byte x) throws SQLException
+	{
+		_rs.updateByte(columnIndex, x);
+	}
+
+	@Override
+	public void updateBytes(String columnLabel, byte[] x) throws SQLException
+	{
+		_rs.updateBytes(columnLabel, x);
+	}
+
+	@Override
+	public void updateBytes(int columnIndex, byte[] x) throws SQLException
+	{
+		_rs.updateBytes(columnIndex, x);
+	}
+
+	@Override
+	public void updateCharacterStream(String columnLabel, Reader x, int length) throws SQLException
+	{
+		_rs.updateCharacterStream(columnLabel, x, length);
+	}
+
+	@Override
+	public void updateCharacterStream(String columnLabel, Reader x, long length) throws SQLException
+	{
+		_rs.updateCharacterStream(columnLabel, x, length);
+	}
+
+	@Override
+	public void updateCharacterStream(String columnLabel, Reader x) throws SQLException
+	{
+		_rs.updateCharacterStream(columnLabel, x);
+	}
+
+	@Override
+	public void updateCharacterStream(int columnIndex, Reader x, int length) throws SQLException
+	{
+		_rs.updateCharacterStream(columnIndex, x, length);
+	}
+
+	@Override
+	public void updateCharacterStream(int columnIndex, Reader x, long length) throws SQLException
+	{
+		_rs.updateCharacterStream(columnIndex, x, length);
+	}
+
+	@Override
+	public void updateCharacterStream(int columnIndex, Reader x) throws SQLException
+	{
+		_rs.updateCharacterStream(columnIndex, x);
+	}
+
+	@Override
+	public void updateClob(String columnLabel, Reader x, long length) throws SQLException
+	{
+		_rs.updateClob(columnLabel, x, length);
+	}
+
+	@Override
+	public void updateClob(String columnLabel, Reader x) throws SQLException
+	{
+		_rs.updateClob(columnLabel, x);
+	}
+
+	@Override
+	public void updateClob(String columnLabel, Clob x) throws SQLException
+	{
+		_rs.updateClob(columnLabel, x);
+	}
+
+	@Override
+	public void updateClob(int columnIndex, Reader x, long length) throws SQLException
+	{
+		_rs.updateClob(columnIndex, x, length);
+	}
+
+	@Override
+	public void updateClob(int columnIndex, Reader x) throws SQLException
+	{
+		_rs.updateClob(columnIndex, x);
+	}
+
+	@Override
+	public void updateClob(int columnIndex, Clob x) throws SQLException
+	{
+		_rs.updateClob(columnIndex, x);
+	}
+
+	@Override
+	public void updateDate(String columnLabel, Date x) throws SQLException
+	{
+		_rs.updateDate(columnLabel, x);
+	}
+
+	@Override
+	public void updateDate(int columnIndex, Date x) throws SQLException
+	{
+		_rs.updateDate(columnIndex, x);
+	}
+
+	@Override
+	public void updateDouble(String columnLabel, double x) throws SQLException
+	{
+		_rs.updateDouble(columnLabel, x);
+	}
+
+	@Override
+	public void updateDouble(int columnIndex, double x) throws SQLException
+	{
+		_rs.updateDouble(columnIndex, x);
+	}
+
+	@Override
+	public void updateFloat(String columnLabel, float x) throws SQLException
+	{
+		_rs.updateFloat(columnLabel, x);
+	}
+
+	@Override
+	public void updateFloat(int columnIndex, float x) throws SQLException
+	{
+		_rs.updateFloat(columnIndex, x);
+	}
+
+	@Override
+	public void updateInt(String columnLabel, int x) throws SQLException
+	{
+		_rs.updateInt(columnLabel, x);
+	}
+
+	@Override
+	public void updateInt(int columnIndex, int x) throws SQLException
+	{
+		_rs.updateInt(columnIndex, x);
+	}
+
+	@Override
+	public void updateLong(String columnLabel, long x) throws SQLException
+	{
+		_rs.updateLong(columnLabel, x);
+	}
+
+	@Override
+	public void updateLong(int columnIndex, long x) throws SQLException
+	{
+		_rs.updateLong(columnIndex, x);
+	}
+
+	@Override
+	public void updateNCharacterStream(String columnLabel, Reader x, long length) throws SQLException
+	{
+		_rs.updateNCharacterStream(columnLabel, x, length);
+	}
+
+	@Override
+	public void updateNCharacterStream(String columnLabel, Reader x) throws SQLException
+	{
+		_rs.updateNCharacterStream(columnLabel, x);
+	}
+
+	@Override
+	public void updateNCharacterStream(int columnIndex, Reader x, long length) throws SQLException
+	{
+		_rs.updateNCharacterStream(columnIndex, x, length);
+	}
+
+	@Override
+	public void updateNCharacterStream(int columnIndex, Reader x) throws SQLException
+	{
+		_rs.updateNCharacterStream(columnIndex, x);
+	}
+
+	@Override
+	public void updateNClob(String columnLabel, Reader x, long length) throws SQLException
+	{
+		_rs.updateNClob(columnLabel, x, length);
+	}
+
+	@Override
+	public void updateNClob(String columnLabel, Reader x) throws SQLException
+	{
+		_rs.updateNClob(columnLabel, x);
+	}
+
+	@Override
+	public void updateNClob(String columnLabel, NClob x) throws SQLException
+	{
+		_rs.updateNClob(columnLabel, x);
+	}
+
+	@Override
+	public void updateNClob(int columnIndex, Reader x, long length) throws SQLException
+	{
+		_rs.updateNClob(columnIndex, x, length);
+	}
+
+	@Override
+	public void updateNClob(int columnIndex, Reader x) throws SQLException
+	{
+		_rs.updateNClob(columnIndex, x);
+	}
+
+	@Override
+	public void updateNClob(int columnIndex, NClob x) throws SQLException
+	{
+		_rs.updateNClob(columnIndex, x);
+	}
+
+	@Override
+	public void updateNString(String columnLabel, String x) throws SQLException
+	{
+		_rs.updateNString(columnLabel, x);
+	}
+
+	@Override
+	public void updateNString(int columnIndex, String x) throws SQLException
+	{
+		_rs.updateNString(columnIndex, x);
+	}
+
+	@Override
+	public void updateNull(String columnLabel) throws SQLException
+	{
+		_rs.updateNull(columnLabel);
+	}
+
+	@Override
+	public void updateNull(int columnIndex) throws SQLException
+	{
+		_rs.updateNull(columnIndex);
+	}
+
+	@Override
+	public void updateObject(String columnLabel, Object x, int scaleOrLength) throws SQLException
+	{
+		_rs.updateObject(columnLabel, x, scaleOrLength);
+	}
+
+	@Override
+	public void updateObject(String columnLabel, Object x, SQLType targetSqlType, int scaleOrLength) throws SQLException
+	{
+		_rs.updateObject(columnLabel, x, targetSqlType, scaleOrLength);
+	}
+
+	@Override
+	public void updateObject(String columnLabel, Object x, SQLType targetSqlType) throws SQLException
+	{
+		_rs.updateObject(columnLabel, x, targetSqlType);
+	}
+
+	@Override
+	public void updateObject(String columnLabel, Object x) throws SQLException
+	{
+		_rs.updateObject(columnLabel, x);
+	}
+
+	@Override
+	public void updateObject(int columnIndex, Object x, int scaleOrLength) throws SQLException
+	{
+		_rs.updateObject(columnIndex, x, scaleOrLength);
+	}
+
+	@Override
+	public void updateObject(int columnIndex, Object x, SQLType targetSqlType, int scaleOrLength) throws SQLException
+	{
+		_rs.updateObject(columnIndex, x, targetSqlType, scaleOrLength);
+	}
+
+	@Override
+	public void updateObject(int columnIndex, Object x, SQLType targetSqlType) throws SQLException
+	{
+		_rs.updateObject(columnIndex, x, targetSqlType);
+	}
+
+	@Override
+	public void updateObject(int columnIndex, Object x) throws SQLException
+	{
+		_rs.updateObject(columnIndex, x);
+	}
+
+	@Override
+	public void updateRef(String columnLabel, Ref x) throws SQLException
+	{
+		_rs.updateRef(columnLabel, x);
+	}
+
+	@Override
+	public void updateRef(int columnIndex, Ref x) throws SQLException
+	{
+		_rs.updateRef(columnIndex, x);
+	}
+
+	@Override
+	public void updateRow() throws SQLException
+	{
+		_rs.updateRow();
+	}
+
+	@Override
+	public void updateRowId(String columnLabel, RowId x) throws SQLException
+	{
+		_rs.updateRowId(columnLabel, x);
+	}
+
+	@Override
+	public void updateRowId(int columnIndex, RowId x) throws SQLException
+	{
+		_rs.updateRowId(columnIndex, x);
+	}
+
+	@Override
+	public void updateSQLXML(String columnLabel, SQLXML x) throws SQLException
+	{
+		_rs.updateSQLXML(columnLabel, x);
+	}
+
+	@Override
+	public void updateSQLXML(int columnIndex, SQLXML x) throws SQLException
+	{
+		_rs.updateSQLXML(columnIndex, x);
+	}
+
+	@Override
+	public void updateShort(String columnLabel, short x) throws SQLException
+	{
+		_rs.updateShort(columnLabel, x);
+	}
+
+	@Override
+	public void updateShort(int columnIndex, short x) throws SQLException
+	{
+		_rs.updateShort(columnIndex, x);
+	}
+
+	@Override
+	public void updateString(String columnLabel, String x) throws SQLException
+	{
+		_rs.updateString(columnLabel, x);
+	}
+
+	@Override
+	public void updateString(int columnIndex, String x) throws SQLException
+	{
+		_rs.updateString(columnIndex, x);
+	}
+
+	@Override
+	public void updateTime(String columnLabel, Time x) throws SQLException
+	{
+		_rs.updateTime(columnLabel, x);
+	}
+
+	@Override
+	public void updateTime(int columnIndex, Time x) throws SQLException
+	{
+		_rs.updateTime(columnIndex, x);
+	}
+
+	@Override
+	public void updateTimestamp(String columnLabel, Timestamp x) throws SQLException
+	{
+		_rs.updateTimestamp(columnLabel, x);
+	}
+
+	@Override
+	public void updateTimestamp(int columnIndex, Timestamp x) throws SQLException
+	{
+		_rs.updateTimestamp(columnIndex, x);
+	}
+
+	@Override
+	public boolean wasNull() throws SQLException
+	{
+		return _rs.wasNull();
+	}
+}
@@ -0,0 +1,474 @@
+package com.fw.db;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * リクエストをまたいで参照系クエリの結果を保持するキャッシュ
+ * <p>
+ * キーはクエリ、パラメータ、取得形式（エンティティクラス等）の組み合わせとし、
+ * 各結果にはクエリが参照するテーブル名をタグとして付与する。
+ * {@link QueryUpdater} が更新したテーブルのタグは、{@link DBAgent#commit()} の成功後に無効化される。
+ * リードレプリカで取得した結果はプライマリの更新より遅れている可能性があるため、
+ * 無効化後も古い結果を返す期間が長くならないよう、リードレプリカ用の短い有効期間でキャッシュする。
+ * また、プライマリに接続するトランザクション（直前の更新を参照する場合等）には返さない。
+ * </p>
+ * <p>
+ * 件数の上限を超えた場合、セグメント化 LRU により破棄する。
+ * 新規の結果は試用領域に入り、再度参照された結果のみが保護領域（上限の 8 割）に移るため、
+ * 一度しか参照されない大量のクエリによって頻繁に参照される結果が追い出されることは無い。
+ * また、有効期限を超えた結果は参照時に破棄する。
+ * </p>
+ * <p>
+ * キャッシュされたエンティティは複数のリクエストで共有されるため、変更してはならない。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+public final class QueryCache
+{
+	// 保護領域の割合
+	private static final double PROTECTED_RATIO = 0.8;
+
+	// 全テーブルを表すタグ
+	private static final String ALL_TABLES = "*";
+
+	// デフォルトのインスタンス
+	private static volatile QueryCache _instance = new QueryCache(1000, 60_000);
+
+	// 試用領域（アクセス順）
+	private final LinkedHashMap<Key, Entry> _probation = new LinkedHashMap<>(16, 0.75f, true);
+
+	// 保護領域（アクセス順）
+	private final LinkedHashMap<Key, Entry> _protected = new LinkedHashMap<>(16, 0.75f, true);
+
+	// テーブル毎の世代（無効化される度に増加）
+	private final Map<String, AtomicLong> _generations = new ConcurrentHashMap<>();
+
+	// 件数の上限
+	private final int _maxEntries;
+
+	// 保護領域の件数の上限
+	private final int _maxProtected;
+
+	// 有効期間（ミリ秒）
+	private final long _ttlMillis;
+
+	// リードレプリカで取得した結果の有効期間（ミリ秒）
+	private final long _replicaTtlMillis;
+
+	/*
+	 * 統計情報
+	 */
+	private final LongAdder _hits = new LongAdder();
+	private final LongAdder _misses = new LongAdder();
+	private final LongAdder _evictions = new LongAdder();
+	private final LongAdder _expirations = new LongAdder();
+	private final LongAdder _invalidations = new LongAdder();
+
+	/**
+	 * キャッシュのキー
+	 */
+	static final class Key
+	{
+		final Object kind;
+		final String query;
+		final Object[] params;
+		final int hash;
+
+		Key(Object kind, String query, Object[] params)
+		{
+			this.kind = kind;
+			this.query = query;
+			this.params = params.clone();
+			this.hash = (kind.hashCode() * 31 + query.hashCode()) * 31 + Arrays.deepHashCode(params);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if(!(obj instanceof Key)) return false;
+
+			Key other = (Key)obj;
+			return hash == other.hash && kind.equals(other.kind) && query.equals(other.query) && Arrays.deepEquals(params, other.params);
+		}
+	}
+
+	/**
+	 * キャッシュされた結果
+	 */
+	private static final class Entry
+	{
+		final Object value;
+		final long expiresAt;
+		final String[] tables;
+		final long[] generations;
+		final boolean replica;
+
+		Entry(Object value, long expiresAt, String[] tables, long[] generations, boolean replica)
+		{
+			this.value = value;
+			this.expiresAt = expiresAt;
+			this.tables = tables;
+			this.generations = generations;
+			this.replica = replica;
+		}
+	}
+
+	/**
+	 * 件数の上限と有効期間を指定して {@link QueryCache} を生成する。
+	 *
+	 * @param maxEntries 件数の上限
+	 * @param ttlMillis 有効期間（ミリ秒）
+	 */
+	public QueryCache(int maxEntries, long ttlMillis)
+	{
+		this(maxEntries, ttlMillis, ttlMillis);
+	}
+
+	/**
+	 * 件数の上限と有効期間を指定して {@link QueryCache} を生成する。
+	 *
+	 * @param maxEntries 件数の上限
+	 * @param ttlMillis 有効期間（ミリ秒）
+	 * @param replicaTtlMillis リードレプリカで取得した結果の有効期間（ミリ秒、有効期間を上限とする）
+	 */
+	public QueryCache(int maxEntries, long ttlMillis, long replicaTtlMillis)
+	{
+		_maxEntries = Math.max(maxEntries, 1);
+		_maxProtected = (int)(_maxEntries * PROTECTED_RATIO);
+		_ttlMillis = ttlMillis;
+		_replicaTtlMillis = Math.min(replicaTtlMillis, ttlMillis);
+	}
+
+	/**
+	 * デフォルトのインスタンスを返す。
+	 *
+	 * @return {@link QueryCache}
+	 */
+	public static QueryCache getInstance()
+	{
+		return _instance;
+	}
+
+	/**
+	 * デフォルトのインスタンスを置き換える。
+	 *
+	 * @param cache {@link QueryCache}
+	 */
+	public static void setInstance(QueryCache cache)
+	{
+		_instance = cache;
+	}
+
+	/**
+	 * テーブル名をタグとして正規化する。
+	 * <p>
+	 * 引用符、スキーマ名を除き、小文字に変換する。
+	 * </p>
+	 *
+	 * @param table テーブル名
+	 * @return タグ
+	 */
+	static String normalize(String table)
+	{
+		String name = table.replaceAll("[\"`\\[\\]]", "");
+		int idx = name.lastIndexOf('.');
+		if(idx >= 0) name = name.substring(idx + 1);
+
+		return name.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * 指定テーブルの現在の世代を返す。
+	 * <p>
+	 * クエリ実行前に取得し、{@link #put} に渡すことで、
+	 * 実行中に無効化された結果がキャッシュされることを防ぐ。
+	 * </p>
+	 *
+	 * @param tables タグ（正規化済みのテーブル名）
+	 * @return 世代
+	 */
+	long[] generations(String[] tables)
+	{
+		long[] generations = new long[tables.length + 1];
+		generations[0] = generation(ALL_TABLES);
+		for(int i=0; i<tables.length; i++)
+		{
+			generations[i + 1] = generation(tables[i]);
+		}
+
+		return generations;
+	}
+
+	/**
+	 * キャッシュされた結果を返す。
+	 * <p>
+	 * リードレプリカで取得した結果は、リードレプリカに接続するトランザクションにのみ返す。
+	 * </p>
+	 *
+	 * @param key キー
+	 * @param replica リードレプリカに接続するトランザクションの場合: true
+	 * @return 結果（存在しない場合、null）
+	 */
+	Object get(Key key, boolean replica)
+	{
+		long now = System.currentTimeMillis();
+		synchronized(this)
+		{
+			Entry entry = _protected.get(key);
+			boolean probation = false;
+			if(entry == null)
+			{
+				entry = _probation.get(key);
+				probation = entry != null;
+			}
+
+			if(entry != null && !isAlive(entry, now))
+			{
+				_protected.remove(key);
+				_probation.remove(key);
+				entry = null;
+			}
+			else if(probation)
+			{
+				// 再度参照されたため保護領域へ移動
+				_probation.remove(key);
+				_protected.put(key, entry);
+				demote();
+			}
+
+			if(entry != null && entry.replica && !replica)
+			{
+				// プライマリで取得し直した結果で置き換える
+				entry = null;
+			}
+
+			if(entry == null)
+			{
+				_misses.increment();
+				return null;
+			}
+
+			_hits.increment();
+			return entry.value;
+		}
+	}
+
+	/**
+	 * 結果をキャッシュする。
+	 *
+	 * @param key キー
+	 * @param value 結果
+	 * @param tables タグ（正規化済みのテーブル名）
+	 * @param generations クエリ実行前に {@link #generations(String[])} で取得した世代
+	 * @param replica リードレプリカで取得した結果の場合: true
+	 */
+	void put(Key key, Object value, String[] tables, long[] generations, boolean replica)
+	{
+		long ttlMillis = replica ? _replicaTtlMillis : _ttlMillis;
+		Entry entry = new Entry(value, System.currentTimeMillis() + ttlMillis, tables, generations, replica);
+		if(!isCurrent(entry)) return;
+
+		synchronized(this)
+		{
+			if(_protected.containsKey(key))
+			{
+				_protected.put(key, entry);
+				return;
+			}
+
+			_probation.put(key, entry);
+			while(_probation.size() + _protected.size() > _maxEntries)
+			{
+				Iterator<Key> it = (_probation.isEmpty() ? _protected : _probation).keySet().iterator();
+				it.next();
+				it.remove();
+				_evictions.increment();
+			}
+		}
+	}
+
+	/**
+	 * 指定テーブルをタグに持つ結果を無効化する。
+	 *
+	 * @param tables テーブル名
+	 */
+	public void invalidate(String... tables)
+	{
+		invalidateAll(Arrays.asList(tables));
+	}
+
+	/**
+	 * 指定テーブルをタグに持つ結果を無効化する。
+	 *
+	 * @param tables テーブル名
+	 */
+	void invalidateAll(Collection<String> tables)
+	{
+		for(String table : tables)
+		{
+			_generations.computeIfAbsent(normalize(table), k -> new AtomicLong()).incrementAndGet();
+			_invalidations.increment();
+		}
+	}
+
+	/**
+	 * 全ての結果を無効化する。
+	 */
+	public void clear()
+	{
+		invalidate(ALL_TABLES);
+		synchronized(this)
+		{
+			_probation.clear();
+			_protected.clear();
+		}
+	}
+
+	/**
+	 * 保護領域の上限を超えた結果を試用領域に戻す。
+	 */
+	private void demote()
+	{
+		while(_protected.size() > _maxProtected)
+		{
+			Iterator<Map.Entry<Key, Entry>> it = _protected.entrySet().iterator();
+			Map.Entry<Key, Entry> eldest = it.next();
+			it.remove();
+			_probation.put(eldest.getKey(), eldest.getValue());
+		}
+	}
+
+	/**
+	 * 結果が有効か否かを返す。
+	 *
+	 * @param entry 結果
+	 * @param now 現在時刻（ミリ秒）
+	 * @return 有効な場合: true
+	 */
+	private boolean isAlive(Entry entry, long now)
+	{
+		if(now > entry.expiresAt)
+		{
+			_expirations.increment();
+			return false;
+		}
+
+		return isCurrent(entry);
+	}
+
+	/**
+	 * 結果のタグが無効化されていないか否かを返す。
+	 *
+	 * @param entry 結果
+	 * @return 無効化されていない場合: true
+	 */
+	private boolean isCurrent(Entry entry)
+	{
+		if(entry.generations[0] != generation(ALL_TABLES)) return false;
+		for(int i=0; i<entry.tables.length; i++)
+		{
+			if(entry.generations[i + 1] != generation(entry.tables[i])) return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * 指定タグの現在の世代を返す。
+	 *
+	 * @param table タグ
+	 * @return 世代
+	 */
+	private long generation(String table)
+	{
+		AtomicLong generation = _generations.get(table);
+		return generation == null ? 0 : generation.get();
+	}
+
+	/**
+	 * キャッシュ件数を返す。
+	 *
+	 * @return キャッシュ件数
+	 */
+	public synchronized int size()
+	{
+		return _probation.size() + _protected.size();
+	}
+
+	/**
+	 * ヒット数を返す。
+	 *
+	 * @return ヒット数
+	 */
+	public long getHitCount()
+	{
+		return _hits.sum();
+	}
+
+	/**
+	 * ミス数を返す。
+	 *
+	 * @return ミス数
+	 */
+	public long getMissCount()
+	{
+		return _misses.sum();
+	}
+
+	/**
+	 * ヒット率を返す。
+	 *
+	 * @return ヒット率（0.0 ～ 1.0）
+	 */
+	public double getHitRatio()
+	{
+		long hits = _hits.sum();
+		long total = hits + _misses.sum();
+		return total == 0 ? 0 : (double)hits / total;
+	}
+
+	/**
+	 * 件数の上限による破棄数を返す。
+	 *
+	 * @return 破棄数
+	 */
+	public long getEvictionCount()
+	{
+		return _evictions.sum();
+	}
+
+	/**
+	 * 有効期限切れによる破棄数を返す。
+	 *
+	 * @return 破棄数
+	 */
+	public long getExpirationCount()
+	{
+		return _expirations.sum();
+	}
+
+	/**
+	 * テーブルの無効化回数を返す。
+	 *
+	 * @return 無効化回数
+	 */
+	public long getInvalidationCount()
+	{
+		return _invalidations.sum();
+	}
+}
@@ -1,216 +1,957 @@
-package com.fw.db;
-
-import java.beans.PropertyDescriptor;
-import java.io.InputStream;
-import java.lang.reflect.Method;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
-import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.List;
-
-/**
- * 参照系クエリ実行クラス
- *
- * @author t.yoshida
- */
-public class QueryLoader
-{
-	/**
-	 * 指定されたクエリを基に {@link PreparedStatement} を作成する。
-	 * <p>
-	 * クエリに指定されたプレースホルダーには対応する値を設定する。
-	 * </p>
-	 *
-	 * @param query クエリ
-	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
-	 * @return {@link PreparedStatement}
-	 * @throws SQLException データベース関連例外
-	 */
-	static PreparedStatement createStatement(String query, Object... params) throws SQLException
-	{
-		Connection con = DBAgent.getConnection();
-		PreparedStatement stmt = con.prepareStatement(query);
-		for(int i=0; i<params.length; i++)
-		{
-			int idxParam = i + 1;
-			stmt.setObject(idxParam, params[i]);
-		}
-
-		return stmt;
-	}
-
-	/**
-	 * 整数値をデータベースから取得する。
-	 * <p>
-	 * 単一の整数型の値を取得する場合に利用する。
-	 * </p>
-	 *
-	 * @param query クエリ
-	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
-	 * @return データベースから取得した整数値（取得できなかった場合、null）
-	 * @throws SQLException データベース関連例外
-	 */
-	public static Integer loadAsInteger(String query, Object... params) throws SQLException
-	{
-		Integer value = null;
-		try
-		(
-			PreparedStatement stmt = createStatement(query, params);
-		)
-		{
-			ResultSet rs = stmt.executeQuery();
-			if(rs.next())
-			{
-				value = new Integer(rs.getInt(1));
-				if(rs.wasNull())
-				{
-					value = null;
-				}
-			}
-		}
-
-		return value;
-	}
-
-	/**
-	 * バイナリデータをデータベースから取得する。
-	 * <p>
-	 * 単一の InputSteram 型の値を取得する場合に利用する。
-	 * </p>
-	 *
-	 * @param query クエリ
-	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
-	 * @return データベースから取得したバイナリ値（取得できなかった場合、null）
-	 * @throws SQLException データベース関連例外
-	 */
-	public static InputStream loadAsBinary(String query, Object... params) throws SQLException
-	{
-		InputStream value = null;
-		try
-		(
-			PreparedStatement stmt = createStatement(query, params);
-		)
-		{
-			ResultSet rs = stmt.executeQuery();
-			if(rs.next())
-			{
-				value = rs.getBinaryStream(1);
-				if(rs.wasNull())
-				{
-					value = null;
-				}
-			}
-		}
-
-		return value;
-	}
-
-	/**
-	 * クエリを基にデータベースから値を取得し、指定エンティティクラスに値を設定して返す。
-	 * <p>
-	 * SELECT文で指定したカラム名（エイリアス名）と一致するセッターをエンティティクラスから探し、
-	 * データベースから取得した値をそのセッターを通じてエンティティクラスに設定する。
-	 * </p>
-	 *
-	 * @param entityClass エンティティクラス
-	 * @param query クエリ
-	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
-	 * @return データベースから取得した値を設定したエンティティクラス
-	 * @throws SQLException データベース関連例外
-	 */
-	public static <T> T load(Class<T> entityClass, String query, Object... params) throws SQLException
-	{
-		T entity = null;
-
-		try
-		(
-			PreparedStatement stmt = createStatement(query, params);
-		)
-		{
-			ResultSet rs = stmt.executeQuery();
-
-			ResultSetMetaData meta = rs.getMetaData();
-			int size = meta.getColumnCount();
-			if(rs.next())
-			{
-				entity = entityClass.getDeclaredConstructor().newInstance();
-				for(int i=1; i<=size; i++)
-				{
-					setValue(rs, meta, i, entity);
-				}
-			}
-		}
-		catch(Exception ex)
-		{
-			throw new RuntimeException(ex);
-		}
-
-		return entity;
-	}
-
-	/**
-	 * クエリを基にデータベースから値を取得し、指定エンティティクラスに値を設定し、リストとして返す。
-	 * <p>
-	 * SELECT文で指定したカラム名（エイリアス名）と一致するセッターをエンティティクラスから探し、
-	 * データベースから取得した値をそのセッターを通じてエンティティクラスに設定し、リストにまとめる。
-	 * </p>
-	 *
-	 * @param entityClass エンティティクラス
-	 * @param query クエリ
-	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
-	 * @return データベースから取得した値を設定したエンティティクラスのリスト
-	 * @throws SQLException データベース関連例外
-	 */
-	public static <T> List<T> loadAsList(Class<T> entityClass, String query, Object... params) throws SQLException
-	{
-		List<T> list = new ArrayList<>();
-
-		try
-		(
-			PreparedStatement stmt = createStatement(query, params);
-		)
-		{
-			ResultSet rs = stmt.executeQuery();
-
-			ResultSetMetaData meta = rs.getMetaData();
-			int size = meta.getColumnCount();
-			while(rs.next())
-			{
-				T entity = entityClass.getDeclaredConstructor().newInstance();
-				for(int i=1; i<=size; i++)
-				{
-					setValue(rs, meta, i, entity);
-				}
-				list.add(entity);
-			}
-		}
-		catch(Exception ex)
-		{
-			throw new RuntimeException(ex);
-		}
-
-		return list;
-	}
-
-	/**
-	 * セッターを通じて対応するカラムの値をエンティティクラスに設定する。
-	 *
-	 * @param rs {@link ResultSet}
-	 * @param meta {@link ResultSetMetaData}
-	 * @param idxColumn カラムインデックス
-	 * @param entity エンティティ
-	 * @throws Exception セッターを通じて値を設定する際に発生するエラー
-	 */
-	private static <T> void setValue(ResultSet rs, ResultSetMetaData meta, int idxColumn, T entity) throws Exception
-	{
-		String name = meta.getColumnLabel(idxColumn);
-		Object value = rs.getObject(name);
-
-		PropertyDescriptor prop = new PropertyDescriptor(name, entity.getClass());
-		Method setter = prop.getWriteMethod();
-		setter.invoke(entity, value);
-	}
-}
+package com.fw.db;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.sql.Blob;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+
+import com.fw.util.BufferPool;
+
+/**
+ * 参照系クエリ実行クラス
+ *
+ * @author t.yoshida
+ */
+public class QueryLoader
+{
+	// 列の配列の初期容量
+	private static final int INITIAL_COLUMN_CAPACITY = 64;
+
+	/**
+	 * 指定されたクエリを基に {@link PreparedStatement} を作成する。
+	 * <p>
+	 * クエリに指定されたプレースホルダーには対応する値を設定する。
+	 * {@link PreparedStatement} はコネクション毎にキャッシュされ、
+	 * {@link StatementLease#close()} によりキャッシュに返却される。
+	 * </p>
+	 *
+	 * @param query クエリ
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @return 貸し出し中の {@link PreparedStatement}
+	 * @throws SQLException データベース関連例外
+	 */
+	static StatementLease createStatement(String query, Object... params) throws SQLException
+	{
+		ManagedConnection con = DBAgent.getManagedConnection();
+		StatementCache cache = con.statements;
+		PreparedStatement stmt = cache == null ? con.connection.prepareStatement(query) : cache.borrow(con.connection, query);
+		StatementLease lease = new StatementLease(query, stmt, cache);
+		try
+		{
+			for(int i=0; i<params.length; i++)
+			{
+				int idxParam = i + 1;
+				stmt.setObject(idxParam, params[i]);
+			}
+		}
+		catch(SQLException ex)
+		{
+			lease.close();
+			throw ex;
+		}
+
+		return lease;
+	}
+
+	/**
+	 * 整数値をデータベースから取得する。
+	 * <p>
+	 * 単一の整数型の値を取得する場合に利用する。
+	 * </p>
+	 *
+	 * @param query クエリ
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @return データベースから取得した整数値（取得できなかった場合、null）
+	 * @throws SQLException データベース関連例外
+	 */
+	public static Integer loadAsInteger(String query, Object... params) throws SQLException
+	{
+		Integer value = null;
+		try
+		(
+			StatementLease stmt = createStatement(query, params);
+			ResultSet rs = stmt.executeQuery();
+		)
+		{
+			if(rs.next())
+			{
+				value = Integer.valueOf(rs.getInt(1));
+				if(rs.wasNull())
+				{
+					value = null;
+				}
+			}
+		}
+
+		return value;
+	}
+
+	/**
+	 * 整数値をデータベースから取得する。
+	 * <p>
+	 * 単一の整数型の値を取得する場合に利用する。
+	 * </p>
+	 *
+	 * @param query クエリ
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @return データベースから取得した整数値（取得できなかった場合、null）
+	 * @throws SQLException データベース関連例外
+	 */
+	public static Long loadAsLong(String query, Object... params) throws SQLException
+	{
+		Long value = null;
+		try
+		(
+			StatementLease stmt = createStatement(query, params);
+			ResultSet rs = stmt.executeQuery();
+		)
+		{
+			if(rs.next())
+			{
+				value = Long.valueOf(rs.getLong(1));
+				if(rs.wasNull())
+				{
+					value = null;
+				}
+			}
+		}
+
+		return value;
+	}
+
+	/**
+	 * 実数値をデータベースから取得する。
+	 * <p>
+	 * 単一の実数型の値を取得する場合に利用する。
+	 * </p>
+	 *
+	 * @param query クエリ
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @return データベースから取得した実数値（取得できなかった場合、null）
+	 * @throws SQLException データベース関連例外
+	 */
+	public static Double loadAsDouble(String query, Object... params) throws SQLException
+	{
+		Double value = null;
+		try
+		(
+			StatementLease stmt = createStatement(query, params);
+			ResultSet rs = stmt.executeQuery();
+		)
+		{
+			if(rs.next())
+			{
+				value = Double.valueOf(rs.getDouble(1));
+				if(rs.wasNull())
+				{
+					value = null;
+				}
+			}
+		}
+
+		return value;
+	}
+
+	/**
+	 * 整数値をボクシングせずにデータベースから取得する。
+	 * <p>
+	 * 単一の整数型の値を取得する場合に利用する。
+	 * </p>
+	 *
+	 * @param query クエリ
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @return データベースから取得した整数値（取得できなかった場合、又は NULL の場合、空）
+	 * @throws SQLException データベース関連例外
+	 */
+	public static OptionalInt loadAsOptionalInt(String query, Object... params) throws SQLException
+	{
+		try
+		(
+			StatementLease stmt = createStatement(query, params);
+			ResultSet rs = stmt.executeQuery();
+		)
+		{
+			if(rs.next())
+			{
+				int value = rs.getInt(1);
+				if(!rs.wasNull()) return OptionalInt.of(value);
+			}
+		}
+
+		return OptionalInt.empty();
+	}
+
+	/**
+	 * 整数値をボクシングせずにデータベースから取得する。
+	 * <p>
+	 * 単一の整数型の値を取得する場合に利用する。
+	 * </p>
+	 *
+	 * @param query クエリ
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @return データベースから取得した整数値（取得できなかった場合、又は NULL の場合、空）
+	 * @throws SQLException データベース関連例外
+	 */
+	public static OptionalLong loadAsOptionalLong(String query, Object... params) throws SQLException
+	{
+		try
+		(
+			StatementLease stmt = createStatement(query, params);
+			ResultSet rs = stmt.executeQuery();
+		)
+		{
+			if(rs.next())
+			{
+				long value = rs.getLong(1);
+				if(!rs.wasNull()) return OptionalLong.of(value);
+			}
+		}
+
+		return OptionalLong.empty();
+	}
+
+	/**
+	 * 実数値をボクシングせずにデータベースから取得する。
+	 * <p>
+	 * 単一の実数型の値を取得する場合に利用する。
+	 * </p>
+	 *
+	 * @param query クエリ
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @return データベースから取得した実数値（取得できなかった場合、又は NULL の場合、空）
+	 * @throws SQLException データベース関連例外
+	 */
+	public static OptionalDouble loadAsOptionalDouble(String query, Object... params) throws SQLException
+	{
+		try
+		(
+			StatementLease stmt = createStatement(query, params);
+			ResultSet rs = stmt.executeQuery();
+		)
+		{
+			if(rs.next())
+			{
+				double value = rs.getDouble(1);
+				if(!rs.wasNull()) return OptionalDouble.of(value);
+			}
+		}
+
+		return OptionalDouble.empty();
+	}
+
+	/**
+	 * 整数値の列をデータベースから取得する。
+	 * <p>
+	 * 1 列目の整数値を全行分、行毎のオブジェクトを生成せずに配列として取得する。
+	 * NULL は 0 として格納する。
+	 * </p>
+	 *
+	 * @param query クエリ
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @return データベースから取得した整数値（取得できなかった場合、空の配列）
+	 * @throws SQLException データベース関連例外
+	 */
+	public static int[] loadAsIntArray(String query, Object... params) throws SQLException
+	{
+		int[] values = new int[INITIAL_COLUMN_CAPACITY];
+		int size = 0;
+		try
+		(
+			StatementLease stmt = createStatement(query, params);
+			ResultSet rs = stmt.executeQuery();
+		)
+		{
+			while(rs.next())
+			{
+				if(size == values.length)
+				{
+					values = Arrays.copyOf(values, size * 2);
+				}
+				values[size++] = rs.getInt(1);
+			}
+		}
+
+		return Arrays.copyOf(values, size);
+	}
+
+	/**
+	 * 整数値の列をデータベースから取得する。
+	 * <p>
+	 * 1 列目の整数値を全行分、行毎のオブジェクトを生成せずに配列として取得する。
+	 * NULL は 0 として格納する。
+	 * </p>
+	 *
+	 * @param query クエリ
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @return データベースから取得した整数値（取得できなかった場合、空の配列）
+	 * @throws SQLException データベース関連例外
+	 */
+	public static long[] loadAsLongArray(String query, Object... params) throws SQLException
+	{
+		long[] values = new long[INITIAL_COLUMN_CAPACITY];
+		int size = 0;
+		try
+		(
+			StatementLease stmt = createStatement(query, params);
+			ResultSet rs = stmt.executeQuery();
+		)
+		{
+			while(rs.next())
+			{
+				if(size == values.length)
+				{
+					values = Arrays.copyOf(values, size * 2);
+				}
+				values[size++] = rs.getLong(1);
+			}
+		}
+
+		return Arrays.copyOf(values, size);
+	}
+
+	/**
+	 * 実数値の列をデータベースから取得する。
+	 * <p>
+	 * 1 列目の実数値を全行分、行毎のオブジェクトを生成せずに配列として取得する。
+	 * NULL は 0 として格納する。
+	 * </p>
+	 *
+	 * @param query クエリ
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @return データベースから取得した実数値（取得できなかった場合、空の配列）
+	 * @throws SQLException データベース関連例外
+	 */
+	public static double[] loadAsDoubleArray(String query, Object... params) throws SQLException
+	{
+		double[] values = new double[INITIAL_COLUMN_CAPACITY];
+		int size = 0;
+		try
+		(
+			StatementLease stmt = createStatement(query, params);
+			ResultSet rs = stmt.executeQuery();
+		)
+		{
+			while(rs.next())
+			{
+				if(size == values.length)
+				{
+					values = Arrays.copyOf(values, size * 2);
+				}
+				values[size++] = rs.getDouble(1);
+			}
+		}
+
+		return Arrays.copyOf(values, size);
+	}
+
+	/**
+	 * 数値の表をデータベースから取得する。
+	 * <p>
+	 * 複数列の数値を全行分、列毎のプリミティブ配列として取得する（{@link NumericColumns}）。
+	 * 集計処理等で大量の数値を扱う場合に、行毎のエンティティの生成を避けるために利用する。
+	 * </p>
+	 *
+	 * @param query クエリ
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @return データベースから取得した数値の表
+	 * @throws SQLException データベース関連例外
+	 */
+	public static NumericColumns loadAsColumns(String query, Object... params) throws SQLException
+	{
+		try
+		(
+			StatementLease stmt = createStatement(query, params);
+			ResultSet rs = stmt.executeQuery();
+		)
+		{
+			return NumericColumns.read(rs);
+		}
+	}
+
+	/**
+	 * 互いに独立した参照系クエリを並列に実行する {@link ParallelQueries} を作成する。
+	 * <p>
+	 * 各クエリは別のコネクションで実行されるため、応答時間は各クエリの合計ではなく最も遅いクエリに近くなる。
+	 * 参照専用のトランザクション内でのみ利用できる。
+	 * </p>
+	 *
+	 * @return {@link ParallelQueries}（利用後にクローズすること）
+	 * @throws SQLException トランザクションが開始されていない場合、または参照専用でない場合
+	 */
+	public static ParallelQueries parallel() throws SQLException
+	{
+		return new ParallelQueries(DBAgent.requireTransaction());
+	}
+
+	/**
+	 * キーセット方式のページングを作成する。
+	 * <p>
+	 * OFFSET を利用せず、前ページの最終行のキーより後の行を取得するため、深いページでも応答時間が変わらない。
+	 * {@link KeysetPager#orderBy(String)} 等でキーとなる列を指定し、{@link KeysetPager#load(String)} で取得する。
+	 * </p>
+	 *
+	 * @param entityClass エンティティクラス
+	 * @param query ORDER BY、OFFSET を含まないクエリ
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @return {@link KeysetPager}
+	 */
+	public static <T> KeysetPager<T> keyset(Class<T> entityClass, String query, Object... params)
+	{
+		return new KeysetPager<>(entityClass, query, params);
+	}
+
+	/**
+	 * バイナリデータをデータベースから取得する。
+	 * <p>
+	 * 単一の InputSteram 型の値を取得する場合に利用する。
+	 * </p>
+	 *
+	 * @param query クエリ
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @return データベースから取得したバイナリ値（取得できなかった場合、null）
+	 * @throws SQLException データベース関連例外
+	 * @deprecated 返却時にはステートメントがクローズ済みのため、ドライバによってはストリームが無効、
+	 *             又は全体がメモリ上に読み込まれる。{@link #writeBinary(OutputStream, String, Object...)} 等を利用すること。
+	 */
+	@Deprecated
+	public static InputStream loadAsBinary(String query, Object... params) throws SQLException
+	{
+		InputStream value = null;
+		try
+		(
+			StatementLease stmt = createStatement(query, params);
+			ResultSet rs = stmt.executeQuery();
+		)
+		{
+			if(rs.next())
+			{
+				value = rs.getBinaryStream(1);
+				if(rs.wasNull())
+				{
+					value = null;
+				}
+			}
+		}
+
+		return value;
+	}
+
+	/**
+	 * バイナリデータをデータベースから取得し、指定ストリームに書き出す。
+	 * <p>
+	 * 単一の BLOB 型等の値を、ステートメントを開いたまま固定長バッファ（{@link BufferPool}）で転送する。
+	 * 値全体をメモリ上に保持することはない。指定ストリームはクローズしない。
+	 * </p>
+	 *
+	 * @param out 出力先ストリーム
+	 * @param query クエリ
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @return 書き出したバイト数（取得できなかった場合、-1）
+	 * @throws SQLException データベース関連例外
+	 * @throws IOException 入出力例外
+	 */
+	public static long writeBinary(OutputStream out, String query, Object... params) throws SQLException, IOException
+	{
+		return transferBinary(query, params, new BinarySink()
+		{
+			@Override
+			public void write(ByteBuffer chunk) throws IOException
+			{
+				out.write(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+			}
+		});
+	}
+
+	/**
+	 * バイナリデータをデータベースから取得し、指定チャネルに書き出す。
+	 * <p>
+	 * 単一の BLOB 型等の値を、ステートメントを開いたまま固定長バッファ（{@link BufferPool}）で転送する。
+	 * 値全体をメモリ上に保持することはない。指定チャネルはクローズしない。
+	 * </p>
+	 *
+	 * @param channel 出力先チャネル
+	 * @param query クエリ
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @return 書き出したバイト数（取得できなかった場合、-1）
+	 * @throws SQLException データベース関連例外
+	 * @throws IOException 入出力例外
+	 */
+	public static long writeBinary(WritableByteChannel channel, String query, Object... params) throws SQLException, IOException
+	{
+		return transferBinary(query, params, new BinarySink()
+		{
+			@Override
+			public void write(ByteBuffer chunk) throws IOException
+			{
+				while(chunk.hasRemaining())
+				{
+					channel.write(chunk);
+				}
+			}
+		});
+	}
+
+	/**
+	 * バイナリデータをデータベースから取得し、レスポンスに書き出す。
+	 * <p>
+	 * 単一の BLOB 型等の値を、ステートメントを開いたまま固定長バッファ（{@link BufferPool}）で転送する。
+	 * BLOB 型の場合はその長さを Content-Length に設定する。
+	 * 値を取得できなかった場合はレスポンスに何も書き出さないため、呼び出し元でステータスを設定すること。
+	 * </p>
+	 *
+	 * @param response レスポンス
+	 * @param query クエリ
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @return 書き出したバイト数（取得できなかった場合、-1）
+	 * @throws SQLException データベース関連例外
+	 * @throws IOException 入出力例外
+	 */
+	public static long writeBinary(HttpServletResponse response, String query, Object... params) throws SQLException, IOException
+	{
+		return transferBinary(query, params, new BinarySink()
+		{
+			// レスポンスの出力ストリーム
+			private ServletOutputStream _out;
+
+			@Override
+			public void begin(long length) throws IOException
+			{
+				if(length >= 0)
+				{
+					response.setContentLengthLong(length);
+				}
+				_out = response.getOutputStream();
+			}
+
+			@Override
+			public void write(ByteBuffer chunk) throws IOException
+			{
+				_out.write(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+			}
+		});
+	}
+
+	/**
+	 * バイナリデータの出力先
+	 */
+	interface BinarySink
+	{
+		/**
+		 * 転送開始時に呼び出される。
+		 *
+		 * @param length データ長（不明な場合、-1）
+		 * @throws IOException 入出力例外
+		 */
+		default void begin(long length) throws IOException
+		{
+		}
+
+		/**
+		 * 読み込んだデータを書き出す。
+		 *
+		 * @param chunk 読み込んだデータ（position から limit まで）
+		 * @throws IOException 入出力例外
+		 */
+		void write(ByteBuffer chunk) throws IOException;
+	}
+
+	/**
+	 * バイナリデータをデータベースから取得し、指定の出力先に転送する。
+	 *
+	 * @param query クエリ
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @param sink 出力先
+	 * @return 転送したバイト数（取得できなかった場合、-1）
+	 * @throws SQLException データベース関連例外
+	 * @throws IOException 入出力例外
+	 */
+	static long transferBinary(String query, Object[] params, BinarySink sink) throws SQLException, IOException
+	{
+		try
+		(
+			StatementLease stmt = createStatement(query, params);
+			ResultSet rs = stmt.executeQuery();
+		)
+		{
+			if(!rs.next()) return -1;
+
+			Blob blob = null;
+			InputStream in;
+			long length = -1;
+			if(rs.getMetaData().getColumnType(1) == Types.BLOB)
+			{
+				blob = rs.getBlob(1);
+				if(blob == null) return -1;
+
+				length = blob.length();
+				in = blob.getBinaryStream();
+			}
+			else
+			{
+				in = rs.getBinaryStream(1);
+				if(in == null) return -1;
+			}
+
+			BufferPool pool = BufferPool.getShared();
+			byte[] buffer = pool.acquire();
+			try
+			(
+				InputStream input = in;
+			)
+			{
+				ByteBuffer chunk = ByteBuffer.wrap(buffer);
+				sink.begin(length);
+
+				long total = 0;
+				int read;
+				while((read = input.read(buffer)) != -1)
+				{
+					chunk.clear().limit(read);
+					sink.write(chunk);
+					total += read;
+				}
+
+				stmt.addBytes(total);
+				return total;
+			}
+			finally
+			{
+				pool.release(buffer);
+				if(blob != null)
+				{
+					blob.free();
+				}
+			}
+		}
+	}
+
+	/**
+	 * クエリを基にデータベースから値を取得し、指定エンティティクラスに値を設定して返す。
+	 * <p>
+	 * SELECT文で指定したカラム名（エイリアス名）と一致するセッターをエンティティクラスから探し、
+	 * データベースから取得した値をそのセッターを通じてエンティティクラスに設定する。
+	 * セッターの解析結果はエンティティクラスとカラム構成毎にキャッシュされる（{@link RowMapper}）。
+	 * </p>
+	 *
+	 * @param entityClass エンティティクラス
+	 * @param query クエリ
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @return データベースから取得した値を設定したエンティティクラス
+	 * @throws SQLException データベース関連例外
+	 */
+	public static <T> T load(Class<T> entityClass, String query, Object... params) throws SQLException
+	{
+		T entity = null;
+
+		try
+		(
+			StatementLease stmt = createStatement(query, params);
+			ResultSet rs = stmt.executeQuery();
+		)
+		{
+			RowMapper<T> mapper = RowMapper.of(entityClass, rs.getMetaData());
+			if(rs.next())
+			{
+				entity = mapper.map(rs);
+			}
+		}
+		catch(Exception ex)
+		{
+			throw new RuntimeException(ex);
+		}
+
+		return entity;
+	}
+
+	/**
+	 * クエリを基にデータベースから値を取得し、指定エンティティクラスに値を設定し、リストとして返す。
+	 * <p>
+	 * SELECT文で指定したカラム名（エイリアス名）と一致するセッターをエンティティクラスから探し、
+	 * データベースから取得した値をそのセッターを通じてエンティティクラスに設定し、リストにまとめる。
+	 * </p>
+	 *
+	 * @param entityClass エンティティクラス
+	 * @param query クエリ
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @return データベースから取得した値を設定したエンティティクラスのリスト
+	 * @throws SQLException データベース関連例外
+	 */
+	public static <T> List<T> loadAsList(Class<T> entityClass, String query, Object... params) throws SQLException
+	{
+		List<T> list = new ArrayList<>();
+
+		try
+		(
+			StatementLease stmt = createStatement(query, params);
+			ResultSet rs = stmt.executeQuery();
+		)
+		{
+			RowMapper<T> mapper = RowMapper.of(entityClass, rs.getMetaData());
+			while(rs.next())
+			{
+				list.add(mapper.map(rs));
+			}
+		}
+		catch(Exception ex)
+		{
+			throw new RuntimeException(ex);
+		}
+
+		return list;
+	}
+
+	/**
+	 * クエリを基にデータベースから値を 1 行ずつ取得し、エンティティクラスに値を設定して指定の処理に渡す。
+	 * <p>
+	 * 結果をリストにまとめないため、行数に関わらずメモリ使用量は一定となる。
+	 * {@link FetchOptions#DEFAULT} のオプションで取得する。
+	 * </p>
+	 *
+	 * @param entityClass エンティティクラス
+	 * @param query クエリ
+	 * @param consumer 行毎の処理
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @throws SQLException データベース関連例外
+	 */
+	public static <T> void forEach(Class<T> entityClass, String query, Consumer<? super T> consumer, Object... params) throws SQLException
+	{
+		forEach(entityClass, query, FetchOptions.DEFAULT, consumer, params);
+	}
+
+	/**
+	 * クエリを基にデータベースから値を 1 行ずつ取得し、エンティティクラスに値を設定して指定の処理に渡す。
+	 * <p>
+	 * 結果をリストにまとめないため、行数に関わらずメモリ使用量は一定となる。
+	 * </p>
+	 *
+	 * @param entityClass エンティティクラス
+	 * @param query クエリ
+	 * @param options フェッチサイズ等のオプション
+	 * @param consumer 行毎の処理
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @throws SQLException データベース関連例外
+	 */
+	public static <T> void forEach(Class<T> entityClass, String query, FetchOptions options, Consumer<? super T> consumer, Object... params) throws SQLException
+	{
+		try
+		(
+			ResultCursor<T> cursor = new ResultCursor<>(entityClass, query, options, params);
+		)
+		{
+			T entity;
+			while((entity = cursor.next()) != null)
+			{
+				consumer.accept(entity);
+			}
+		}
+	}
+
+	/**
+	 * クエリを基にデータベースから値を 1 行ずつ取得する {@link Stream} を返す。
+	 * <p>
+	 * {@link FetchOptions#DEFAULT} のオプションで取得する。
+	 * </p>
+	 *
+	 * @param entityClass エンティティクラス
+	 * @param query クエリ
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @return エンティティクラスの {@link Stream}
+	 * @throws SQLException データベース関連例外
+	 * @see #stream(Class, String, FetchOptions, Object...)
+	 */
+	public static <T> Stream<T> stream(Class<T> entityClass, String query, Object... params) throws SQLException
+	{
+		return stream(entityClass, query, FetchOptions.DEFAULT, params);
+	}
+
+	/**
+	 * クエリを基にデータベースから値を 1 行ずつ取得する {@link Stream} を返す。
+	 * <p>
+	 * カーソルは最終行まで取得した時点、または {@link Stream#close()} によりクローズされる。
+	 * 途中で処理を終える場合は try-with-resources を利用すること。
+	 * クローズされなかった場合でも、{@link DBAgent#dispose()} 時にクローズされる。
+	 * 取得中に発生した {@link SQLException} は {@link RuntimeException} に包んで送出される。
+	 * </p>
+	 *
+	 * @param entityClass エンティティクラス
+	 * @param query クエリ
+	 * @param options フェッチサイズ等のオプション
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @return エンティティクラスの {@link Stream}
+	 * @throws SQLException データベース関連例外
+	 */
+	public static <T> Stream<T> stream(Class<T> entityClass, String query, FetchOptions options, Object... params) throws SQLException
+	{
+		ResultCursor<T> cursor = new ResultCursor<>(entityClass, query, options, params);
+		Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL)
+		{
+			@Override
+			public boolean tryAdvance(Consumer<? super T> action)
+			{
+				try
+				{
+					T entity = cursor.next();
+					if(entity == null) return false;
+
+					action.accept(entity);
+					return true;
+				}
+				catch(SQLException ex)
+				{
+					throw new RuntimeException(ex);
+				}
+			}
+		};
+
+		return StreamSupport.stream(spliterator, false).onClose(() ->
+		{
+			try
+			{
+				cursor.close();
+			}
+			catch(SQLException ex)
+			{
+				throw new RuntimeException(ex);
+			}
+		});
+	}
+
+	/**
+	 * {@link #loadAsInteger(String, Object...)} の結果を {@link QueryCache} にキャッシュする。
+	 * <p>
+	 * キャッシュに結果が存在する場合、データベースにはアクセスしない。
+	 * 現在のトランザクションで参照テーブルを更新している場合はキャッシュを利用しない。
+	 * </p>
+	 *
+	 * @param tables クエリが参照するテーブル名（更新時の無効化に利用）
+	 * @param query クエリ
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @return データベースから取得した整数値（取得できなかった場合、null）
+	 * @throws SQLException データベース関連例外
+	 */
+	public static Integer loadAsIntegerCached(String[] tables, String query, Object... params) throws SQLException
+	{
+		return cached(Integer.class, tables, query, params, () -> loadAsInteger(query, params));
+	}
+
+	/**
+	 * {@link #loadAsLong(String, Object...)} の結果を {@link QueryCache} にキャッシュする。
+	 * <p>
+	 * キャッシュに結果が存在する場合、データベースにはアクセスしない。
+	 * 現在のトランザクションで参照テーブルを更新している場合はキャッシュを利用しない。
+	 * </p>
+	 *
+	 * @param tables クエリが参照するテーブル名（更新時の無効化に利用）
+	 * @param query クエリ
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @return データベースから取得した整数値（取得できなかった場合、null）
+	 * @throws SQLException データベース関連例外
+	 */
+	public static Long loadAsLongCached(String[] tables, String query, Object... params) throws SQLException
+	{
+		return cached(Long.class, tables, query, params, () -> loadAsLong(query, params));
+	}
+
+	/**
+	 * {@link #load(Class, String, Object...)} の結果を {@link QueryCache} にキャッシュする。
+	 * <p>
+	 * キャッシュに結果が存在する場合、データベースにはアクセスしない。
+	 * 現在のトランザクションで参照テーブルを更新している場合はキャッシュを利用しない。
+	 * 返されるエンティティは複数のリクエストで共有されるため、変更してはならない。
+	 * </p>
+	 *
+	 * @param tables クエリが参照するテーブル名（更新時の無効化に利用）
+	 * @param entityClass エンティティクラス
+	 * @param query クエリ
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @return データベースから取得した値を設定したエンティティクラス
+	 * @throws SQLException データベース関連例外
+	 */
+	public static <T> T loadCached(String[] tables, Class<T> entityClass, String query, Object... params) throws SQLException
+	{
+		return cached(Arrays.asList("load", entityClass), tables, query, params, () -> load(entityClass, query, params));
+	}
+
+	/**
+	 * {@link #loadAsList(Class, String, Object...)} の結果を {@link QueryCache} にキャッシュする。
+	 * <p>
+	 * キャッシュに結果が存在する場合、データベースにはアクセスしない。
+	 * 現在のトランザクションで参照テーブルを更新している場合はキャッシュを利用しない。
+	 * 返されるリストは変更不可であり、エンティティは複数のリクエストで共有されるため、変更してはならない。
+	 * </p>
+	 *
+	 * @param tables クエリが参照するテーブル名（更新時の無効化に利用）
+	 * @param entityClass エンティティクラス
+	 * @param query クエリ
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @return データベースから取得した値を設定したエンティティクラスのリスト
+	 * @throws SQLException データベース関連例外
+	 */
+	public static <T> List<T> loadAsListCached(String[] tables, Class<T> entityClass, String query, Object... params) throws SQLException
+	{
+		return cached(Arrays.asList("list", entityClass), tables, query, params,
+			() -> Collections.unmodifiableList(loadAsList(entityClass, query, params)));
+	}
+
+	/**
+	 * {@link QueryCache} に結果が存在すれば返し、存在しなければ取得してキャッシュする。
+	 *
+	 * @param kind 取得形式
+	 * @param tables クエリが参照するテーブル名
+	 * @param query クエリ
+	 * @param params プレースホルダーに対応する値
+	 * @param loader 取得処理
+	 * @return 結果
+	 * @throws SQLException データベース関連例外
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> T cached(Object kind, String[] tables, String query, Object[] params, Transaction.Work<T> loader) throws SQLException
+	{
+		String[] tags = new String[tables.length];
+		for(int i=0; i<tables.length; i++)
+		{
+			tags[i] = QueryCache.normalize(tables[i]);
+		}
+
+		// 自トランザクションでの未コミットの更新を参照できるよう、キャッシュを利用しない
+		Transaction tx = DBAgent.requireTransaction();
+		if(tx.hasWritten(tags)) return loader.execute();
+
+		QueryCache cache = QueryCache.getInstance();
+		QueryCache.Key key = new QueryCache.Key(kind, query, params);
+		Object value = cache.get(key, tx.isReplica());
+		if(value != null) return (T)value;
+
+		long[] generations = cache.generations(tags);
+		T result = loader.execute();
+
+		// リードレプリカの結果はプライマリのコミットより遅れている可能性があるため、短い有効期間でキャッシュする
+		if(result != null)
+		{
+			cache.put(key, result, tags, generations, tx.isReplica());
+		}
+
+		return result;
+	}
+}
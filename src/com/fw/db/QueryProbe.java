@@ -0,0 +1,152 @@
+package com.fw.db;
+
+import java.sql.ResultSet;
+
+import com.fw.metrics.SqlMetrics;
+
+/**
+ * 1 回分のクエリ実行の計測
+ * <p>
+ * {@link SqlMetrics} が有効な場合のみ生成され、実行時間、取得・更新した行数、読み込んだバイト数（概算）を記録する。
+ * 取得した {@link ResultSet} は {@link #wrap(ResultSet)} により {@link ProbedResultSet} で包み、行数とバイト数を数える。
+ * </p>
+ * <p>
+ * {@link ResultSet} を取得するクエリの実行時間は、実行開始から {@link ResultSet} を取得するまでの時間と、
+ * {@link ResultSet#next()} に掛かった時間の合計とする。
+ * 行毎の処理（入れ子のクエリを含む）に掛かった時間は、{@link #finish()} までの間であっても含めない。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+final class QueryProbe
+{
+	// 計測対象のクエリ
+	private final String _query;
+
+	// 実行したトランザクション（不明な場合、null）
+	private final Transaction _tx;
+
+	// 開始時刻（ナノ秒）
+	private final long _startedAt = System.nanoTime();
+
+	// ResultSet 取得後の実行時間の合計（ナノ秒）
+	private long _elapsed;
+
+	// ResultSet を取得したか否か
+	private boolean _wrapped;
+
+	// 行数
+	private long _rows;
+
+	// バイト数（概算）
+	private long _bytes;
+
+	// 記録済みか否か
+	private boolean _finished;
+
+	/**
+	 * 計測対象のクエリを指定して {@link QueryProbe} を生成する。
+	 *
+	 * @param query クエリ
+	 */
+	private QueryProbe(String query)
+	{
+		_query = query;
+		_tx = DBAgent.currentTransaction();
+	}
+
+	/**
+	 * クエリ実行の計測を開始する。
+	 *
+	 * @param query クエリ
+	 * @return {@link QueryProbe}（計測しない場合、null）
+	 */
+	static QueryProbe start(String query)
+	{
+		return SqlMetrics.getInstance().isEnabled() ? new QueryProbe(query) : null;
+	}
+
+	/**
+	 * 行数とバイト数を数える {@link ResultSet} を返す。
+	 *
+	 * @param rs {@link ResultSet}
+	 * @return 計測用の {@link ResultSet}
+	 */
+	ResultSet wrap(ResultSet rs)
+	{
+		_elapsed = System.nanoTime() - _startedAt;
+		_wrapped = true;
+		return new ProbedResultSet(rs, this);
+	}
+
+	/**
+	 * 行数を加算する。
+	 *
+	 * @param rows 行数
+	 */
+	void addRows(long rows)
+	{
+		_rows += rows;
+	}
+
+	/**
+	 * バイト数を加算する。
+	 *
+	 * @param bytes バイト数
+	 */
+	void addBytes(long bytes)
+	{
+		_bytes += bytes;
+	}
+
+	/**
+	 * 実行時間を加算する。
+	 *
+	 * @param nanos 実行時間（ナノ秒）
+	 */
+	void addElapsed(long nanos)
+	{
+		_elapsed += nanos;
+	}
+
+	/**
+	 * 計測を終了し、記録する。
+	 * <p>
+	 * トランザクション内での実行回数を加算する（N+1 の検出に利用）。
+	 * 2 回目以降の呼び出しは何もしない。
+	 * </p>
+	 */
+	void finish()
+	{
+		if(_finished) return;
+
+		_finished = true;
+		SqlMetrics metrics = SqlMetrics.getInstance();
+		String sql = metrics.normalize(_query);
+		long nanos = !_wrapped ? System.nanoTime() - _startedAt : _elapsed;
+		metrics.record(sql, nanos, _rows, _bytes, _tx == null ? null : _tx.getLabel());
+		if(_tx != null)
+		{
+			_tx.countExecution(sql);
+		}
+	}
+
+	/**
+	 * 取得した値のバイト数を概算する。
+	 * <p>
+	 * 文字列は文字数、バイナリはバイト数、ストリーム等は 0、その他は 8 とする。
+	 * </p>
+	 *
+	 * @param value 値
+	 * @return バイト数
+	 */
+	static long sizeOf(Object value)
+	{
+		if(value == null) return 0;
+		if(value instanceof String) return ((String)value).length();
+		if(value instanceof byte[]) return ((byte[])value).length;
+		if(value instanceof Number || value instanceof Boolean || value instanceof java.util.Date) return 8;
+
+		return 0;
+	}
+}
@@ -1,35 +1,235 @@
-package com.fw.db;
-
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
-
-/**
- * 更新系クエリ実行クラス
- *
- * @author t.yoshida
- */
-public class QueryUpdater
-{
-	/**
-	 * 指定クエリを実行し、テーブル更新する。
-	 *
-	 * @param query クエリ
-	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
-	 * @return 更新レコード数
-	 * @throws SQLException データベース関連例外
-	 */
-	public static int update(String query, Object... params) throws SQLException
-	{
-		int cntUpdated = 0;
-
-		try
-		(
-			PreparedStatement stmt = QueryLoader.createStatement(query, params);
-		)
-		{
-			cntUpdated = stmt.executeUpdate();
-		}
-
-		return cntUpdated;
-	}
-}
+package com.fw.db;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 更新系クエリ実行クラス
+ *
+ * @author t.yoshida
+ */
+public class QueryUpdater
+{
+	/**
+	 * バッチ実行時に一度に送信する件数のデフォルト値
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+	// 更新対象テーブル名の抽出
+	private static final Pattern TARGET_TABLE = Pattern.compile(
+		"^\\s*(?:INSERT\\s+INTO|UPDATE|DELETE\\s+FROM|MERGE\\s+INTO|REPLACE\\s+INTO|TRUNCATE\\s+TABLE|TRUNCATE)\\s+([\\w.\"`\\[\\]]+)",
+		Pattern.CASE_INSENSITIVE);
+
+	/**
+	 * 指定クエリを実行し、テーブル更新する。
+	 * <p>
+	 * 更新対象のテーブルは、コミット成功後に {@link QueryCache} から無効化される。
+	 * </p>
+	 *
+	 * @param query クエリ
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @return 更新レコード数
+	 * @throws SQLException データベース関連例外
+	 */
+	public static int update(String query, Object... params) throws SQLException
+	{
+		DBAgent.requireTransaction().checkWritable();
+		int cntUpdated = 0;
+
+		try
+		(
+			StatementLease stmt = QueryLoader.createStatement(query, params);
+		)
+		{
+			cntUpdated = stmt.executeUpdate();
+		}
+		markWritten(query);
+
+		return cntUpdated;
+	}
+
+	/**
+	 * 指定クエリをパラメータ毎にバッチ実行し、テーブル更新する。
+	 * <p>
+	 * {@link #DEFAULT_CHUNK_SIZE} 件毎にデータベースへ送信する。
+	 * 現在のトランザクション内で実行されるため、コミット、ロールバックは通常の更新と同様に行われる。
+	 * </p>
+	 *
+	 * @param query クエリ
+	 * @param params 1 件毎のプレースホルダーに対応する値
+	 * @return 1 件毎の更新レコード数（ドライバが件数を返さない場合、{@link java.sql.Statement#SUCCESS_NO_INFO}）
+	 * @throws SQLException データベース関連例外
+	 */
+	public static int[] updateBatch(String query, Iterable<Object[]> params) throws SQLException
+	{
+		return updateBatch(query, params, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * 指定クエリをパラメータ毎にバッチ実行し、テーブル更新する。
+	 * <p>
+	 * 指定件数毎にデータベースへ送信する。
+	 * 現在のトランザクション内で実行されるため、コミット、ロールバックは通常の更新と同様に行われる。
+	 * MySQL の rewriteBatchedStatements、PostgreSQL の reWriteBatchedInserts 等、
+	 * ドライバによる複数行 INSERT への書き換えを利用する場合は、データソースの接続プロパティに指定すること。
+	 * </p>
+	 *
+	 * @param query クエリ
+	 * @param params 1 件毎のプレースホルダーに対応する値
+	 * @param chunkSize 一度に送信する件数
+	 * @return 1 件毎の更新レコード数（ドライバが件数を返さない場合、{@link java.sql.Statement#SUCCESS_NO_INFO}）
+	 * @throws SQLException データベース関連例外
+	 */
+	public static int[] updateBatch(String query, Iterable<Object[]> params, int chunkSize) throws SQLException
+	{
+		if(chunkSize <= 0) throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+		DBAgent.requireTransaction().checkWritable();
+
+		int[] counts = new int[16];
+		int size = 0;
+		try
+		(
+			StatementLease lease = QueryLoader.createStatement(query);
+		)
+		{
+			// 例外により未実行のバッチが残った場合も、返却時に破棄される
+			PreparedStatement stmt = lease.get();
+			int pending = 0;
+			for(Object[] row : params)
+			{
+				for(int i=0; i<row.length; i++)
+				{
+					stmt.setObject(i + 1, row[i]);
+				}
+				stmt.addBatch();
+
+				if(++pending == chunkSize)
+				{
+					counts = append(counts, size, lease.executeBatch());
+					size += pending;
+					pending = 0;
+				}
+			}
+
+			if(pending > 0)
+			{
+				counts = append(counts, size, lease.executeBatch());
+				size += pending;
+			}
+		}
+		markWritten(query);
+
+		return Arrays.copyOf(counts, size);
+	}
+
+	/**
+	 * 指定クエリのバッチ実行を作成する。
+	 * <p>
+	 * {@link Batch#add(Object...)} でパラメータを追加し、{@link Batch#execute()} で実行する。
+	 * </p>
+	 *
+	 * @param query クエリ
+	 * @return {@link Batch}
+	 */
+	public static Batch batch(String query)
+	{
+		return new Batch(query);
+	}
+
+	/**
+	 * バッチ実行
+	 */
+	public static final class Batch
+	{
+		// クエリ
+		private final String _query;
+
+		// 1 件毎のパラメータ
+		private final List<Object[]> _params = new ArrayList<>();
+
+		// 一度に送信する件数
+		private int _chunkSize = DEFAULT_CHUNK_SIZE;
+
+		/**
+		 * クエリを指定して {@link Batch} を生成する。
+		 *
+		 * @param query クエリ
+		 */
+		private Batch(String query)
+		{
+			_query = query;
+		}
+
+		/**
+		 * 一度に送信する件数を設定する。
+		 *
+		 * @param chunkSize 件数
+		 * @return この {@link Batch}
+		 */
+		public Batch chunkSize(int chunkSize)
+		{
+			_chunkSize = chunkSize;
+			return this;
+		}
+
+		/**
+		 * 1 件分のパラメータを追加する。
+		 *
+		 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+		 * @return この {@link Batch}
+		 */
+		public Batch add(Object... params)
+		{
+			_params.add(params);
+			return this;
+		}
+
+		/**
+		 * 追加したパラメータでバッチ実行する。
+		 *
+		 * @return 1 件毎の更新レコード数
+		 * @throws SQLException データベース関連例外
+		 * @see QueryUpdater#updateBatch(String, Iterable, int)
+		 */
+		public int[] execute() throws SQLException
+		{
+			return updateBatch(_query, _params, _chunkSize);
+		}
+	}
+
+	/**
+	 * 更新レコード数の配列に追加する。
+	 *
+	 * @param counts 更新レコード数
+	 * @param size 設定済みの件数
+	 * @param added 追加する更新レコード数
+	 * @return 更新レコード数（容量が不足する場合、拡張した配列）
+	 */
+	private static int[] append(int[] counts, int size, int[] added)
+	{
+		if(size + added.length > counts.length)
+		{
+			counts = Arrays.copyOf(counts, Math.max(counts.length * 2, size + added.length));
+		}
+		System.arraycopy(added, 0, counts, size, added.length);
+
+		return counts;
+	}
+
+	/**
+	 * クエリの更新対象テーブルを現在のトランザクションに記録する。
+	 *
+	 * @param query クエリ
+	 * @throws SQLException データベース関連例外
+	 */
+	static void markWritten(String query) throws SQLException
+	{
+		Matcher matcher = TARGET_TABLE.matcher(query);
+		DBAgent.requireTransaction().markWritten(matcher.find() ? matcher.group(1) : null);
+	}
+}
@@ -0,0 +1,134 @@
+package com.fw.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 前方向・読み取り専用カーソルによるストリーミング取得
+ * <p>
+ * 取得中のカーソルは現在のトランザクションに登録され、
+ * クローズされずに残った場合は {@link DBAgent#dispose()} 時にクローズされる。
+ * </p>
+ *
+ * @author t.yoshida
+ *
+ * @param <T> エンティティクラス
+ */
+final class ResultCursor<T> implements AutoCloseable
+{
+	// トランザクション
+	private final Transaction _tx;
+
+	// PreparedStatement
+	private final PreparedStatement _statement;
+
+	// ResultSet
+	private final ResultSet _rs;
+
+	// 実行の計測（計測しない場合、null）
+	private final QueryProbe _probe;
+
+	// 行の変換
+	private final RowMapper<T> _mapper;
+
+	// 再利用するエンティティ（再利用しない場合、null）
+	private T _reused;
+
+	// 再利用するか否か
+	private final boolean _reuseEntity;
+
+	// クローズ済みか否か
+	private boolean _closed;
+
+	/**
+	 * クエリを実行し、{@link ResultCursor} を生成する。
+	 *
+	 * @param entityClass エンティティクラス
+	 * @param query クエリ
+	 * @param options オプション
+	 * @param params プレースホルダーに対応する値をプレースホルダーの順に指定
+	 * @throws SQLException データベース関連例外
+	 */
+	ResultCursor(Class<T> entityClass, String query, FetchOptions options, Object... params) throws SQLException
+	{
+		_tx = DBAgent.requireTransaction();
+		Connection con = _tx.getConnection();
+		_statement = con.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		try
+		{
+			_statement.setFetchSize(options.getFetchSize());
+			for(int i=0; i<params.length; i++)
+			{
+				_statement.setObject(i + 1, params[i]);
+			}
+			_probe = QueryProbe.start(query);
+			ResultSet rs = _statement.executeQuery();
+			_rs = _probe == null ? rs : _probe.wrap(rs);
+			_mapper = RowMapper.of(entityClass, _rs.getMetaData());
+		}
+		catch(SQLException | RuntimeException ex)
+		{
+			_statement.close();
+			throw ex;
+		}
+
+		_reuseEntity = options.isReuseEntity();
+		_tx.register(this);
+	}
+
+	/**
+	 * 次の行をエンティティに変換して返す。
+	 * <p>
+	 * 最終行まで取得した場合、カーソルをクローズする。
+	 * </p>
+	 *
+	 * @return エンティティ（次の行が無い場合、null）
+	 * @throws SQLException データベース関連例外
+	 */
+	T next() throws SQLException
+	{
+		if(_closed) return null;
+
+		if(!_rs.next())
+		{
+			close();
+			return null;
+		}
+
+		if(!_reuseEntity) return _mapper.map(_rs);
+
+		if(_reused == null)
+		{
+			_reused = _mapper.map(_rs);
+		}
+		else
+		{
+			_mapper.mapInto(_reused, _rs);
+		}
+
+		return _reused;
+	}
+
+	@Override
+	public void close() throws SQLException
+	{
+		if(_closed) return;
+
+		_closed = true;
+		_tx.unregister(this);
+		if(_probe != null)
+		{
+			_probe.finish();
+		}
+		try
+		{
+			_rs.close();
+		}
+		finally
+		{
+			_statement.close();
+		}
+	}
+}
@@ -0,0 +1,344 @@
+package com.fw.db;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link ResultSet} の行をエンティティクラスに変換するクラス
+ * <p>
+ * エンティティクラスとカラム名（エイリアス名）の組み合わせ毎に一度だけ作成し、キャッシュする。
+ * 各カラムはカラムインデックスで取得し、セッターの引数型に対応した取得メソッド
+ * （プリミティブ型の場合は {@link ResultSet#getInt(int)} 等）を通じて設定する。
+ * </p>
+ *
+ * @author t.yoshida
+ *
+ * @param <T> エンティティクラス
+ */
+final class RowMapper<T>
+{
+	// エンティティクラスとカラム名の組み合わせ毎のインスタンス
+	private static final Map<Key, RowMapper<?>> _mappers = new ConcurrentHashMap<>();
+
+	// エンティティクラスのコンストラクタ
+	private final MethodHandle _constructor;
+
+	// カラム毎の設定処理
+	private final ColumnSetter[] _setters;
+
+	/**
+	 * キャッシュのキー
+	 */
+	private static final class Key
+	{
+		final Class<?> entityClass;
+		final String[] labels;
+		final int hash;
+
+		Key(Class<?> entityClass, String[] labels)
+		{
+			this.entityClass = entityClass;
+			this.labels = labels;
+			this.hash = 31 * entityClass.hashCode() + Arrays.hashCode(labels);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if(!(obj instanceof Key)) return false;
+
+			Key other = (Key)obj;
+			return entityClass == other.entityClass && Arrays.equals(labels, other.labels);
+		}
+	}
+
+	/**
+	 * 指定エンティティクラスと {@link ResultSet} のカラム構成に対応する {@link RowMapper} を返す。
+	 *
+	 * @param entityClass エンティティクラス
+	 * @param meta {@link ResultSetMetaData}
+	 * @return {@link RowMapper}
+	 * @throws SQLException データベース関連例外
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> RowMapper<T> of(Class<T> entityClass, ResultSetMetaData meta) throws SQLException
+	{
+		String[] labels = new String[meta.getColumnCount()];
+		for(int i=0; i<labels.length; i++)
+		{
+			labels[i] = meta.getColumnLabel(i + 1);
+		}
+
+		return (RowMapper<T>)_mappers.computeIfAbsent(new Key(entityClass, labels), RowMapper::new);
+	}
+
+	/**
+	 * エンティティクラスのセッターを解析し、{@link RowMapper} を生成する。
+	 *
+	 * @param key エンティティクラスとカラム名
+	 */
+	private RowMapper(Key key)
+	{
+		Class<?> entityClass = key.entityClass;
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		try
+		{
+			_constructor = lookup.unreflectConstructor(entityClass.getDeclaredConstructor())
+				.asType(MethodType.methodType(Object.class));
+
+			Map<String, Method> writers = new HashMap<>();
+			for(PropertyDescriptor prop : Introspector.getBeanInfo(entityClass).getPropertyDescriptors())
+			{
+				if(prop.getWriteMethod() != null)
+				{
+					writers.put(prop.getName(), prop.getWriteMethod());
+				}
+			}
+
+			_setters = new ColumnSetter[key.labels.length];
+			for(int i=0; i<key.labels.length; i++)
+			{
+				Method method = findWriter(writers, key.labels[i]);
+				if(method == null)
+				{
+					throw new IllegalArgumentException("No setter for column [" + key.labels[i] + "] in " + entityClass.getName());
+				}
+				_setters[i] = ColumnSetter.create(i + 1, method.getParameterTypes()[0], lookup.unreflect(method));
+			}
+		}
+		catch(ReflectiveOperationException | IntrospectionException ex)
+		{
+			throw new IllegalArgumentException("Entity class introspection error: " + entityClass.getName(), ex);
+		}
+	}
+
+	/**
+	 * カラム名に対応するセッターを返す。
+	 * <p>
+	 * 完全に一致するプロパティが無い場合、大文字小文字を区別せずに検索する。
+	 * </p>
+	 *
+	 * @param writers プロパティ名とセッター
+	 * @param label カラム名
+	 * @return セッター（存在しない場合、null）
+	 */
+	private static Method findWriter(Map<String, Method> writers, String label)
+	{
+		Method method = writers.get(label);
+		if(method != null) return method;
+
+		for(Map.Entry<String, Method> entry : writers.entrySet())
+		{
+			if(entry.getKey().equalsIgnoreCase(label)) return entry.getValue();
+		}
+
+		return null;
+	}
+
+	/**
+	 * 現在の行をエンティティクラスのインスタンスに変換する。
+	 *
+	 * @param rs {@link ResultSet}
+	 * @return エンティティ
+	 * @throws SQLException データベース関連例外
+	 */
+	@SuppressWarnings("unchecked")
+	T map(ResultSet rs) throws SQLException
+	{
+		T entity;
+		try
+		{
+			entity = (T)_constructor.invokeExact();
+		}
+		catch(Throwable ex)
+		{
+			throw new SQLException("Entity instantiation error", ex);
+		}
+
+		mapInto(entity, rs);
+
+		return entity;
+	}
+
+	/**
+	 * 現在の行の値を指定されたエンティティに設定する。
+	 *
+	 * @param entity エンティティ
+	 * @param rs {@link ResultSet}
+	 * @throws SQLException データベース関連例外
+	 */
+	void mapInto(T entity, ResultSet rs) throws SQLException
+	{
+		for(ColumnSetter setter : _setters)
+		{
+			try
+			{
+				setter.set(entity, rs);
+			}
+			catch(SQLException | RuntimeException | Error ex)
+			{
+				throw ex;
+			}
+			catch(Throwable ex)
+			{
+				throw new SQLException("Entity setter error", ex);
+			}
+		}
+	}
+
+	/**
+	 * カラムの値をセッターを通じて設定する処理
+	 */
+	private static abstract class ColumnSetter
+	{
+		// カラムインデックス
+		final int index;
+
+		// セッター
+		final MethodHandle setter;
+
+		ColumnSetter(int index, MethodHandle setter)
+		{
+			this.index = index;
+			this.setter = setter;
+		}
+
+		/**
+		 * 値を設定する。
+		 *
+		 * @param entity エンティティ
+		 * @param rs {@link ResultSet}
+		 * @throws Throwable セッターの実行時に発生したエラー
+		 */
+		abstract void set(Object entity, ResultSet rs) throws Throwable;
+
+		/**
+		 * セッターの引数型に対応する設定処理を作成する。
+		 *
+		 * @param index カラムインデックス
+		 * @param type セッターの引数型
+		 * @param setter セッター
+		 * @return 設定処理
+		 */
+		static ColumnSetter create(int index, Class<?> type, MethodHandle setter)
+		{
+			if(type == int.class)
+			{
+				MethodHandle mh = setter.asType(MethodType.methodType(void.class, Object.class, int.class));
+				return new ColumnSetter(index, mh)
+				{
+					@Override
+					void set(Object entity, ResultSet rs) throws Throwable
+					{
+						this.setter.invokeExact(entity, rs.getInt(this.index));
+					}
+				};
+			}
+			if(type == long.class)
+			{
+				MethodHandle mh = setter.asType(MethodType.methodType(void.class, Object.class, long.class));
+				return new ColumnSetter(index, mh)
+				{
+					@Override
+					void set(Object entity, ResultSet rs) throws Throwable
+					{
+						this.setter.invokeExact(entity, rs.getLong(this.index));
+					}
+				};
+			}
+			if(type == double.class)
+			{
+				MethodHandle mh = setter.asType(MethodType.methodType(void.class, Object.class, double.class));
+				return new ColumnSetter(index, mh)
+				{
+					@Override
+					void set(Object entity, ResultSet rs) throws Throwable
+					{
+						this.setter.invokeExact(entity, rs.getDouble(this.index));
+					}
+				};
+			}
+			if(type == boolean.class)
+			{
+				MethodHandle mh = setter.asType(MethodType.methodType(void.class, Object.class, boolean.class));
+				return new ColumnSetter(index, mh)
+				{
+					@Override
+					void set(Object entity, ResultSet rs) throws Throwable
+					{
+						this.setter.invokeExact(entity, rs.getBoolean(this.index));
+					}
+				};
+			}
+
+			MethodHandle mh = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+			ColumnReader reader = ColumnReader.of(type);
+			return new ColumnSetter(index, mh)
+			{
+				@Override
+				void set(Object entity, ResultSet rs) throws Throwable
+				{
+					this.setter.invokeExact(entity, reader.read(rs, this.index));
+				}
+			};
+		}
+	}
+
+	/**
+	 * 参照型のカラム値の取得処理
+	 */
+	@FunctionalInterface
+	private interface ColumnReader
+	{
+		/**
+		 * カラム値を取得する。
+		 *
+		 * @param rs {@link ResultSet}
+		 * @param index カラムインデックス
+		 * @return カラム値
+		 * @throws SQLException データベース関連例外
+		 */
+		Object read(ResultSet rs, int index) throws SQLException;
+
+		/**
+		 * セッターの引数型に対応する取得処理を返す。
+		 *
+		 * @param type セッターの引数型
+		 * @return 取得処理
+		 */
+		static ColumnReader of(Class<?> type)
+		{
+			if(type == String.class) return ResultSet::getString;
+			if(type == BigDecimal.class) return ResultSet::getBigDecimal;
+			if(type == byte[].class) return ResultSet::getBytes;
+			if(type == java.sql.Timestamp.class) return ResultSet::getTimestamp;
+			if(type == java.sql.Date.class) return ResultSet::getDate;
+			if(type == java.sql.Time.class) return ResultSet::getTime;
+			if(type == Integer.class) return (rs, i) -> { int v = rs.getInt(i); return rs.wasNull() ? null : Integer.valueOf(v); };
+			if(type == Long.class) return (rs, i) -> { long v = rs.getLong(i); return rs.wasNull() ? null : Long.valueOf(v); };
+			if(type == Double.class) return (rs, i) -> { double v = rs.getDouble(i); return rs.wasNull() ? null : Double.valueOf(v); };
+			if(type == Boolean.class) return (rs, i) -> { boolean v = rs.getBoolean(i); return rs.wasNull() ? null : Boolean.valueOf(v); };
+
+			return ResultSet::getObject;
+		}
+	}
+}
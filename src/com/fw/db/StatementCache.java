@@ -0,0 +1,216 @@
+package com.fw.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 物理コネクション毎の {@link PreparedStatement} キャッシュ
+ * <p>
+ * クエリ文字列をキーとし、最も長く利用されていないものから破棄する（LRU）。
+ * 貸し出し中の {@link PreparedStatement} はキャッシュから取り除かれるため、
+ * 同一クエリを入れ子で実行した場合は新たに作成される。
+ * </p>
+ * <p>
+ * コネクションは同時に一つのスレッドからのみ利用されるため、スレッドセーフではない。
+ * </p>
+ * <p>
+ * キャッシュはコネクションと共に破棄されるため、組み込みのコネクションプール（{@link ConnectionPool}）を利用しない場合は
+ * 一つのトランザクション内でのみ有効となる。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+public final class StatementCache
+{
+	/*
+	 * 全コネクションの統計情報
+	 */
+	private static final LongAdder _totalHits = new LongAdder();
+	private static final LongAdder _totalMisses = new LongAdder();
+
+	// キャッシュ（アクセス順）
+	private final LinkedHashMap<String, PreparedStatement> _statements;
+
+	// 最大数
+	private final int _maxSize;
+
+	/*
+	 * 統計情報
+	 */
+	private long _hits;
+	private long _misses;
+
+	/**
+	 * 最大数を指定して {@link StatementCache} を生成する。
+	 *
+	 * @param maxSize 最大数
+	 */
+	StatementCache(int maxSize)
+	{
+		_maxSize = maxSize;
+		_statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest)
+			{
+				if(size() <= _maxSize) return false;
+
+				closeQuietly(eldest.getValue());
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * 指定クエリの {@link PreparedStatement} を貸し出す。
+	 * <p>
+	 * キャッシュに存在しない場合、新たに作成する。
+	 * </p>
+	 *
+	 * @param con コネクション
+	 * @param query クエリ
+	 * @return {@link PreparedStatement}
+	 * @throws SQLException データベース関連例外
+	 */
+	PreparedStatement borrow(Connection con, String query) throws SQLException
+	{
+		PreparedStatement stmt = _statements.remove(query);
+		if(stmt != null && !stmt.isClosed())
+		{
+			_hits++;
+			_totalHits.increment();
+			return stmt;
+		}
+
+		_misses++;
+		_totalMisses.increment();
+		return con.prepareStatement(query);
+	}
+
+	/**
+	 * 貸し出した {@link PreparedStatement} を返却する。
+	 * <p>
+	 * 次の利用者に設定が引き継がれないよう、パラメータ、未実行のバッチ、最大行数、フェッチサイズ、タイムアウトを初期状態に戻す。
+	 * 初期状態に戻せない場合は破棄する。
+	 * </p>
+	 *
+	 * @param query クエリ
+	 * @param stmt {@link PreparedStatement}
+	 */
+	void release(String query, PreparedStatement stmt)
+	{
+		try
+		{
+			stmt.clearParameters();
+			stmt.clearBatch();
+			stmt.setMaxRows(0);
+			stmt.setFetchSize(0);
+			stmt.setQueryTimeout(0);
+		}
+		catch(SQLException ex)
+		{
+			closeQuietly(stmt);
+			return;
+		}
+
+		PreparedStatement previous = _statements.put(query, stmt);
+		if(previous != null && previous != stmt)
+		{
+			closeQuietly(previous);
+		}
+	}
+
+	/**
+	 * キャッシュされた {@link PreparedStatement} を全てクローズする。
+	 */
+	void clear()
+	{
+		for(PreparedStatement stmt : _statements.values())
+		{
+			closeQuietly(stmt);
+		}
+		_statements.clear();
+	}
+
+	/**
+	 * キャッシュ数を返す。
+	 *
+	 * @return キャッシュ数
+	 */
+	int size()
+	{
+		return _statements.size();
+	}
+
+	/**
+	 * このキャッシュのヒット数を返す。
+	 *
+	 * @return ヒット数
+	 */
+	long getHits()
+	{
+		return _hits;
+	}
+
+	/**
+	 * このキャッシュのミス数を返す。
+	 *
+	 * @return ミス数
+	 */
+	long getMisses()
+	{
+		return _misses;
+	}
+
+	/**
+	 * 全コネクションのキャッシュヒット数を返す。
+	 *
+	 * @return ヒット数
+	 */
+	public static long getTotalHits()
+	{
+		return _totalHits.sum();
+	}
+
+	/**
+	 * 全コネクションのキャッシュミス数を返す。
+	 *
+	 * @return ミス数
+	 */
+	public static long getTotalMisses()
+	{
+		return _totalMisses.sum();
+	}
+
+	/**
+	 * 全コネクションのキャッシュヒット率を返す。
+	 *
+	 * @return ヒット率（0.0 ～ 1.0）
+	 */
+	public static double getHitRatio()
+	{
+		long hits = _totalHits.sum();
+		long total = hits + _totalMisses.sum();
+		return total == 0 ? 0 : (double)hits / total;
+	}
+
+	/**
+	 * 例外を無視して {@link PreparedStatement} をクローズする。
+	 *
+	 * @param stmt {@link PreparedStatement}
+	 */
+	private static void closeQuietly(PreparedStatement stmt)
+	{
+		try
+		{
+			stmt.close();
+		}
+		catch(SQLException ex) { }
+	}
+}
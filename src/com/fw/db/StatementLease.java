@@ -0,0 +1,152 @@
+package com.fw.db;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import com.fw.metrics.SqlMetrics;
+
+/**
+ * 貸し出し中の {@link PreparedStatement}
+ * <p>
+ * {@link #close()} により、キャッシュへの返却（キャッシュ対象外の場合はクローズ）を行う。
+ * </p>
+ * <p>
+ * {@link #executeQuery()} 等で実行した場合、{@link SqlMetrics} が有効であれば
+ * 実行から {@link #close()} までを 1 回の実行として計測する。
+ * 参照系クエリの場合、取得した行の処理に掛かった時間は含めない（{@link QueryProbe} を参照）。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+final class StatementLease implements AutoCloseable
+{
+	// クエリ
+	private final String _query;
+
+	// PreparedStatement
+	private final PreparedStatement _statement;
+
+	// 返却先（キャッシュ対象外の場合、null）
+	private final StatementCache _cache;
+
+	// 実行の計測（計測しない場合、null）
+	private QueryProbe _probe;
+
+	/**
+	 * {@link StatementLease} を生成する。
+	 *
+	 * @param query クエリ
+	 * @param statement {@link PreparedStatement}
+	 * @param cache 返却先（キャッシュ対象外の場合、null）
+	 */
+	StatementLease(String query, PreparedStatement statement, StatementCache cache)
+	{
+		_query = query;
+		_statement = statement;
+		_cache = cache;
+	}
+
+	/**
+	 * {@link PreparedStatement} を返す。
+	 *
+	 * @return {@link PreparedStatement}
+	 */
+	PreparedStatement get()
+	{
+		return _statement;
+	}
+
+	/**
+	 * 参照系クエリを実行する。
+	 *
+	 * @return {@link ResultSet}
+	 * @throws SQLException データベース関連例外
+	 */
+	ResultSet executeQuery() throws SQLException
+	{
+		_probe = QueryProbe.start(_query);
+		ResultSet rs = _statement.executeQuery();
+
+		return _probe == null ? rs : _probe.wrap(rs);
+	}
+
+	/**
+	 * 更新系クエリを実行する。
+	 *
+	 * @return 更新レコード数
+	 * @throws SQLException データベース関連例外
+	 */
+	int executeUpdate() throws SQLException
+	{
+		_probe = QueryProbe.start(_query);
+		int count = _statement.executeUpdate();
+		if(_probe != null)
+		{
+			_probe.addRows(count);
+		}
+
+		return count;
+	}
+
+	/**
+	 * 追加済みのバッチを実行する。
+	 * <p>
+	 * 同じ {@link StatementLease} で複数回実行した場合、合算して 1 回の実行として計測する。
+	 * </p>
+	 *
+	 * @return 1 件毎の更新レコード数
+	 * @throws SQLException データベース関連例外
+	 */
+	int[] executeBatch() throws SQLException
+	{
+		if(_probe == null)
+		{
+			_probe = QueryProbe.start(_query);
+		}
+		int[] counts = _statement.executeBatch();
+		if(_probe != null)
+		{
+			for(int count : counts)
+			{
+				if(count > 0) _probe.addRows(count);
+			}
+		}
+
+		return counts;
+	}
+
+	/**
+	 * 読み込んだバイト数を計測に加算する。
+	 * <p>
+	 * {@link ResultSet} から取得したストリーム等、計測できない読み込みを加算する場合に利用する。
+	 * </p>
+	 *
+	 * @param bytes バイト数
+	 */
+	void addBytes(long bytes)
+	{
+		if(_probe != null)
+		{
+			_probe.addBytes(bytes);
+		}
+	}
+
+	@Override
+	public void close() throws SQLException
+	{
+		if(_probe != null)
+		{
+			_probe.finish();
+		}
+
+		if(_cache == null)
+		{
+			_statement.close();
+		}
+		else
+		{
+			_cache.release(_query, _statement);
+		}
+	}
+}
@@ -0,0 +1,464 @@
+package com.fw.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.fw.metrics.SqlMetrics;
+
+/**
+ * トランザクションの状態を保持するクラス
+ * <p>
+ * {@link DBAgent#beginTransaction(javax.servlet.ServletContext)} により生成され、
+ * 生成したスレッドに登録される。元のスレッドで登録を解除した上で {@link #execute(Work)} を利用することで、
+ * 別スレッドから同一トランザクションの {@link QueryLoader}, {@link QueryUpdater} を実行できる（{@link DBAgent} 参照）。
+ * </p>
+ * <p>
+ * コネクションは最初にクエリを実行する時点で取得する。
+ * コネクションを取得していない場合、コミット、ロールバック、最終処理は何もしない。
+ * </p>
+ * <p>
+ * コネクションはスレッドセーフではないため、同時に利用できるスレッドは一つのみとする。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+public final class Transaction
+{
+	// コネクションの取得元
+	private final ConnectionSource _source;
+
+	// 参照専用か否か
+	private final boolean _readOnly;
+
+	// コネクション（未取得の場合、null）
+	private ManagedConnection _connection;
+
+	// 最終処理済みか否か
+	private boolean _disposed;
+
+	// トランザクション終了時にクローズするリソース
+	private final Set<AutoCloseable> _resources = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	// 更新したテーブル（コミット後に QueryCache、BinaryContentCache から無効化）
+	private final Set<String> _writtenTables = new HashSet<>();
+
+	// 更新したテーブルが特定できない更新を行ったか否か
+	private boolean _writtenUnknown;
+
+	// 現在利用中のスレッド
+	private final AtomicReference<Thread> _owner = new AtomicReference<>();
+
+	// 実行元（ページID、イベントID等）
+	private String _label;
+
+	// 正規化したクエリ毎の実行回数（クエリを計測しない場合、null）
+	private Map<String, int[]> _executions;
+
+	// 更新を禁止するか否か（並列実行する参照系クエリ）
+	private boolean _queryOnly;
+
+	/**
+	 * トランザクション内で実行する処理
+	 *
+	 * @param <T> 処理結果
+	 */
+	@FunctionalInterface
+	public interface Work<T>
+	{
+		/**
+		 * 処理を実行する。
+		 *
+		 * @return 処理結果
+		 * @throws SQLException データベース関連例外
+		 */
+		T execute() throws SQLException;
+	}
+
+	/**
+	 * コネクションの取得元を指定して {@link Transaction} を生成する。
+	 *
+	 * @param source コネクションの取得元
+	 * @param readOnly 参照専用の場合: true
+	 */
+	Transaction(ConnectionSource source, boolean readOnly)
+	{
+		_source = source;
+		_readOnly = readOnly;
+	}
+
+	/**
+	 * 参照専用のトランザクションか否かを返す。
+	 * <p>
+	 * 接続先とは独立しており、直前の更新を参照するためプライマリに接続する場合も参照専用となる（{@link #isReplica()} 参照）。
+	 * </p>
+	 *
+	 * @return 参照専用の場合: true
+	 */
+	public boolean isReadOnly()
+	{
+		return _readOnly;
+	}
+
+	/**
+	 * リードレプリカに接続するトランザクションか否かを返す。
+	 *
+	 * @return リードレプリカの場合: true
+	 */
+	public boolean isReplica()
+	{
+		return _source.isReadOnly();
+	}
+
+	/**
+	 * 実行元を設定する。
+	 * <p>
+	 * 低速クエリ、N+1 の疑いのあるクエリのログ出力に利用する。
+	 * </p>
+	 *
+	 * @param label 実行元（ページID、イベントID等）
+	 */
+	public void setLabel(String label)
+	{
+		_label = label;
+	}
+
+	/**
+	 * 実行元を返す。
+	 *
+	 * @return 実行元（設定されていない場合、null）
+	 */
+	public String getLabel()
+	{
+		return _label;
+	}
+
+	/**
+	 * このトランザクションでのクエリの実行回数を加算する。
+	 *
+	 * @param sql 正規化したクエリ
+	 */
+	void countExecution(String sql)
+	{
+		if(_executions == null)
+		{
+			_executions = new HashMap<>();
+		}
+		_executions.computeIfAbsent(sql, k -> new int[1])[0]++;
+	}
+
+	/**
+	 * 現在のスレッドにこのトランザクションを一時的に登録し、指定された処理を実行する。
+	 * <p>
+	 * 処理終了後、スレッドの登録状態は実行前の状態に戻る。
+	 * 別スレッドから実行する場合、元のスレッドでは事前に {@link DBAgent#attach(Transaction) attach(null)} により登録を解除しておくこと。
+	 * </p>
+	 *
+	 * @param work 処理
+	 * @return 処理結果
+	 * @throws SQLException データベース関連例外
+	 * @throws IllegalStateException このトランザクションが別スレッドに登録されている場合
+	 */
+	public <T> T execute(Work<T> work) throws SQLException
+	{
+		Transaction previous = DBAgent.attach(this);
+		try
+		{
+			return work.execute();
+		}
+		finally
+		{
+			DBAgent.attach(previous);
+		}
+	}
+
+	/**
+	 * 並列実行する参照系クエリ用に、同じ接続先の参照専用のトランザクションを生成する。
+	 * <p>
+	 * 生成したトランザクションは、このトランザクションとは独立したコネクションを利用し、更新を禁止する。
+	 * </p>
+	 *
+	 * @return トランザクション
+	 */
+	Transaction fork()
+	{
+		Transaction tx = new Transaction(_source, true);
+		tx._queryOnly = true;
+		tx._label = _label;
+
+		return tx;
+	}
+
+	/**
+	 * 更新を禁止して、このトランザクションで処理を実行する。
+	 * <p>
+	 * このトランザクションを利用しているスレッドから呼び出すこと。
+	 * </p>
+	 *
+	 * @param work 処理
+	 * @return 処理結果
+	 * @throws SQLException データベース関連例外
+	 */
+	<T> T executeQueryOnly(Work<T> work) throws SQLException
+	{
+		boolean previous = _queryOnly;
+		_queryOnly = true;
+		try
+		{
+			return work.execute();
+		}
+		finally
+		{
+			_queryOnly = previous;
+		}
+	}
+
+	/**
+	 * 更新が可能か検査する。
+	 *
+	 * @throws SQLException 並列実行する参照系クエリの処理内の場合
+	 */
+	void checkWritable() throws SQLException
+	{
+		if(_queryOnly)
+		{
+			throw new SQLException("Updates are not allowed in parallel queries.");
+		}
+	}
+
+	/**
+	 * コネクションを取得済みか否かを返す。
+	 *
+	 * @return 取得済みの場合: true
+	 */
+	public boolean isConnected()
+	{
+		return _connection != null;
+	}
+
+	/**
+	 * コネクションを返す。
+	 * <p>
+	 * 未取得の場合、コネクションの取得元から取得する。
+	 * </p>
+	 *
+	 * @return コネクション
+	 * @throws SQLException トランザクションが終了している場合、またはコネクションの取得に失敗した場合
+	 */
+	Connection getConnection() throws SQLException
+	{
+		return getManagedConnection().connection;
+	}
+
+	/**
+	 * 管理情報付きのコネクションを返す。
+	 * <p>
+	 * 未取得の場合、コネクションの取得元から取得する。
+	 * コミット・ロールバックまでの間に利用されたものとして記録し、返却時にロールバックするか否かの判定に用いる。
+	 * </p>
+	 *
+	 * @return コネクション
+	 * @throws SQLException トランザクションが終了している場合、またはコネクションの取得に失敗した場合
+	 */
+	ManagedConnection getManagedConnection() throws SQLException
+	{
+		if(_disposed)
+		{
+			throw new SQLException("Transaction has already been disposed.");
+		}
+
+		if(_connection == null)
+		{
+			_connection = _source.acquire();
+		}
+		_connection.pending = true;
+
+		return _connection;
+	}
+
+	/**
+	 * トランザクションのコミット
+	 *
+	 * @throws SQLException データベース関連例外
+	 */
+	void commit() throws SQLException
+	{
+		if(_connection != null)
+		{
+			_connection.connection.commit();
+			_connection.pending = false;
+		}
+
+		// コミットが成功した場合のみ、更新したテーブルのキャッシュを無効化
+		if(_writtenUnknown)
+		{
+			QueryCache.getInstance().clear();
+			BinaryContentCache.getInstance().clear();
+		}
+		else if(!_writtenTables.isEmpty())
+		{
+			QueryCache.getInstance().invalidateAll(_writtenTables);
+			BinaryContentCache.getInstance().invalidateAll(_writtenTables);
+		}
+		clearWrites();
+	}
+
+	/**
+	 * トランザクションのロールバック
+	 *
+	 * @throws SQLException データベース関連例外
+	 */
+	void rollback() throws SQLException
+	{
+		clearWrites();
+		if(_connection != null)
+		{
+			_connection.connection.rollback();
+			_connection.pending = false;
+		}
+	}
+
+	/**
+	 * 更新したテーブルを記録する。
+	 *
+	 * @param table テーブル名（特定できない場合、null）
+	 */
+	void markWritten(String table)
+	{
+		if(table == null)
+		{
+			_writtenUnknown = true;
+		}
+		else
+		{
+			_writtenTables.add(QueryCache.normalize(table));
+		}
+	}
+
+	/**
+	 * 指定テーブルのいずれかを、このトランザクションで更新したか否かを返す。
+	 *
+	 * @param tables タグ（正規化済みのテーブル名）
+	 * @return 更新した場合: true
+	 */
+	boolean hasWritten(String[] tables)
+	{
+		if(_writtenUnknown) return true;
+		for(String table : tables)
+		{
+			if(_writtenTables.contains(table)) return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * 更新したテーブルの記録を破棄する。
+	 */
+	private void clearWrites()
+	{
+		_writtenTables.clear();
+		_writtenUnknown = false;
+	}
+
+	/**
+	 * トランザクション終了時にクローズするリソースを登録する。
+	 *
+	 * @param resource リソース
+	 */
+	void register(AutoCloseable resource)
+	{
+		_resources.add(resource);
+	}
+
+	/**
+	 * トランザクション終了時にクローズするリソースの登録を解除する。
+	 *
+	 * @param resource リソース
+	 */
+	void unregister(AutoCloseable resource)
+	{
+		_resources.remove(resource);
+	}
+
+	/**
+	 * コネクションのクローズ（コネクションプール利用時はプールへの返却）
+	 * <p>
+	 * 登録されたリソースが残っている場合、先にクローズする。
+	 * </p>
+	 *
+	 * @throws SQLException データベース関連例外
+	 */
+	void dispose() throws SQLException
+	{
+		SQLException error = null;
+		List<AutoCloseable> resources = new ArrayList<>(_resources);
+		_resources.clear();
+		for(AutoCloseable resource : resources)
+		{
+			try
+			{
+				resource.close();
+			}
+			catch(Exception ex)
+			{
+				if(error == null) error = new SQLException("Resource close error", ex);
+			}
+		}
+
+		clearWrites();
+		if(_executions != null)
+		{
+			// 同じ形のクエリが繰り返し実行されていれば N+1 の疑いとして出力
+			SqlMetrics.getInstance().reportRepeated(_executions, _label);
+			_executions = null;
+		}
+
+		ManagedConnection con = _connection;
+		_connection = null;
+		_disposed = true;
+		if(con != null)
+		{
+			_source.release(con);
+		}
+
+		if(error != null) throw error;
+	}
+
+	/**
+	 * 現在のスレッドを利用中のスレッドとして登録する。
+	 *
+	 * @throws IllegalStateException 別スレッドで利用中の場合
+	 */
+	void acquire()
+	{
+		Thread current = Thread.currentThread();
+		while(!_owner.compareAndSet(null, current))
+		{
+			Thread owner = _owner.get();
+			if(owner == current) return;
+
+			// 判定の間に解放された場合は再度登録を試みる
+			if(owner != null)
+			{
+				throw new IllegalStateException("Transaction is in use by " + owner.getName());
+			}
+		}
+	}
+
+	/**
+	 * 利用中のスレッドの登録を解除する。
+	 */
+	void release()
+	{
+		_owner.compareAndSet(Thread.currentThread(), null);
+	}
+}
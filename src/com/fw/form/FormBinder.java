@@ -0,0 +1,316 @@
+package com.fw.form;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * リクエストパラメータをフォームクラスに設定するクラス
+ * <p>
+ * フォームクラス毎に一度だけセッターを解析し、パラメータ名と変換処理付きのセッターの対応表を保持する。
+ * 対応するセッターが無いパラメータは無視する。
+ * </p>
+ * <p>
+ * セッターの引数型として、文字列、数値（int, long, double, boolean とそのラッパー、{@link BigDecimal}, {@link BigInteger}）、
+ * 日付（{@link LocalDate}, {@link LocalDateTime}, {@link LocalTime}, {@link java.util.Date}, {@link java.sql.Date}：ISO形式）、列挙型、
+ * およびこれらの配列、{@link List} に対応する。
+ * 配列、{@link List} には同名パラメータの全ての値（SELECTタグの複数選択等）が設定される。
+ * </p>
+ *
+ * @author t.yoshida
+ *
+ * @param <P> フォームデータ
+ */
+public final class FormBinder<P>
+{
+	// フォームクラス毎のインスタンス
+	private static final Map<Class<?>, FormBinder<?>> _binders = new ConcurrentHashMap<>();
+
+	// パラメータ名に対応する値の設定処理
+	private final Map<String, Binding> _bindings;
+
+	/**
+	 * 値の変換処理
+	 */
+	@FunctionalInterface
+	private interface Converter
+	{
+		/**
+		 * パラメータ値を変換する。
+		 *
+		 * @param values パラメータ値
+		 * @return 変換後の値（値を設定しない場合、{@link FormBinder#SKIP}）
+		 * @throws Exception 変換エラー
+		 */
+		Object convert(String[] values) throws Exception;
+	}
+
+	// 値を設定しないことを表す変換結果
+	private static final Object SKIP = new Object();
+
+	/**
+	 * パラメータ名に対応するセッターと変換処理
+	 */
+	private static final class Binding
+	{
+		// (Object, Object)void 型に変換したセッター
+		final MethodHandle setter;
+
+		// 変換処理
+		final Converter converter;
+
+		Binding(MethodHandle setter, Converter converter)
+		{
+			this.setter = setter;
+			this.converter = converter;
+		}
+	}
+
+	/**
+	 * 指定フォームクラスに対応する {@link FormBinder} を返す。
+	 *
+	 * @param formClass フォームクラス
+	 * @return {@link FormBinder}
+	 */
+	@SuppressWarnings("unchecked")
+	public static <P> FormBinder<P> of(Class<P> formClass)
+	{
+		return (FormBinder<P>)_binders.computeIfAbsent(formClass, FormBinder::new);
+	}
+
+	/**
+	 * フォームクラスのセッターを解析し、{@link FormBinder} を生成する。
+	 *
+	 * @param formClass フォームクラス
+	 */
+	private FormBinder(Class<?> formClass)
+	{
+		Map<String, Binding> bindings = new HashMap<>();
+		try
+		{
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			MethodType type = MethodType.methodType(void.class, Object.class, Object.class);
+			for(PropertyDescriptor prop : Introspector.getBeanInfo(formClass).getPropertyDescriptors())
+			{
+				Method method = prop.getWriteMethod();
+				if(method == null) continue;
+
+				Converter converter = createConverter(method.getParameterTypes()[0], method.getGenericParameterTypes()[0]);
+				if(converter == null) continue;
+
+				try
+				{
+					bindings.put(prop.getName(), new Binding(lookup.unreflect(method).asType(type), converter));
+				}
+				catch(IllegalAccessException ex)
+				{
+					// アクセスできないセッターは対象外
+				}
+			}
+		}
+		catch(IntrospectionException ex)
+		{
+			throw new IllegalStateException("Form class introspection error: " + formClass.getName(), ex);
+		}
+
+		_bindings = Collections.unmodifiableMap(bindings);
+	}
+
+	/**
+	 * リクエストパラメータをフォームに設定する。
+	 * <p>
+	 * 値の変換に失敗した場合、エラー通知を行い、次の値の設定に進む。
+	 * </p>
+	 *
+	 * @param form フォーム
+	 * @param params リクエストパラメータ（パラメータ名 → 値）
+	 * @param onError エラー通知（パラメータ名, 発生例外）
+	 */
+	public void bind(P form, Map<String, String[]> params, BiConsumer<String, Exception> onError)
+	{
+		for(Map.Entry<String, String[]> param : params.entrySet())
+		{
+			Binding binding = _bindings.get(param.getKey());
+			if(binding == null) continue;
+
+			String[] values = param.getValue();
+			if(values == null || values.length == 0) continue;
+
+			try
+			{
+				Object value = binding.converter.convert(values);
+				if(value != SKIP)
+				{
+					binding.setter.invokeExact((Object)form, value);
+				}
+			}
+			catch(Exception ex)
+			{
+				onError.accept(param.getKey(), ex);
+			}
+			catch(Throwable ex)
+			{
+				onError.accept(param.getKey(), new RuntimeException(ex));
+			}
+		}
+	}
+
+	/**
+	 * セッターの引数型に対応する変換処理を作成する。
+	 *
+	 * @param type 引数型
+	 * @param genericType 引数型（ジェネリクス情報付き）
+	 * @return 変換処理（未対応の型の場合、null）
+	 */
+	private static Converter createConverter(Class<?> type, Type genericType)
+	{
+		// 複数値
+		if(type.isArray())
+		{
+			Class<?> component = type.getComponentType();
+			if(component == String.class) return values -> values;
+
+			ScalarConverter element = scalarConverter(component);
+			if(element == null) return null;
+
+			return values ->
+			{
+				Object array = Array.newInstance(component, values.length);
+				for(int i=0; i<values.length; i++)
+				{
+					Object value = element.convert(values[i]);
+					if(value != null) Array.set(array, i, value);
+				}
+				return array;
+			};
+		}
+		if(type == List.class || type == Collection.class)
+		{
+			Class<?> component = String.class;
+			if(genericType instanceof ParameterizedType)
+			{
+				Type arg = ((ParameterizedType)genericType).getActualTypeArguments()[0];
+				if(!(arg instanceof Class)) return null;
+				component = (Class<?>)arg;
+			}
+
+			ScalarConverter element = scalarConverter(component);
+			if(element == null) return null;
+
+			return values ->
+			{
+				List<Object> list = new ArrayList<>(values.length);
+				for(String value : values)
+				{
+					list.add(element.convert(value));
+				}
+				return list;
+			};
+		}
+
+		// 単一値（同名パラメータが複数ある場合は先頭の値）
+		ScalarConverter scalar = scalarConverter(type);
+		if(scalar == null) return null;
+
+		if(type.isPrimitive())
+		{
+			// 空文字の場合、プリミティブ型には設定しない
+			return values ->
+			{
+				Object value = scalar.convert(values[0]);
+				return value == null ? SKIP : value;
+			};
+		}
+
+		return values -> scalar.convert(values[0]);
+	}
+
+	/**
+	 * 単一値の変換処理
+	 */
+	@FunctionalInterface
+	private interface ScalarConverter
+	{
+		/**
+		 * パラメータ値を変換する。
+		 *
+		 * @param value パラメータ値
+		 * @return 変換後の値
+		 * @throws Exception 変換エラー
+		 */
+		Object convert(String value) throws Exception;
+	}
+
+	/**
+	 * 単一値の型に対応する変換処理を作成する。
+	 * <p>
+	 * 文字列以外の型では、空文字は null に変換する。
+	 * </p>
+	 *
+	 * @param type 値の型
+	 * @return 変換処理（未対応の型の場合、null）
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static ScalarConverter scalarConverter(Class<?> type)
+	{
+		if(type == String.class || type == Object.class) return value -> value;
+
+		ScalarConverter converter;
+		if(type == int.class || type == Integer.class) converter = Integer::valueOf;
+		else if(type == long.class || type == Long.class) converter = Long::valueOf;
+		else if(type == double.class || type == Double.class) converter = Double::valueOf;
+		else if(type == boolean.class || type == Boolean.class) converter = FormBinder::toBoolean;
+		else if(type == BigDecimal.class) converter = BigDecimal::new;
+		else if(type == BigInteger.class) converter = BigInteger::new;
+		else if(type == LocalDate.class) converter = LocalDate::parse;
+		else if(type == LocalDateTime.class) converter = LocalDateTime::parse;
+		else if(type == LocalTime.class) converter = LocalTime::parse;
+		else if(type == java.sql.Date.class) converter = value -> java.sql.Date.valueOf(LocalDate.parse(value));
+		else if(type == java.util.Date.class) converter = value -> java.util.Date.from(LocalDate.parse(value).atStartOfDay(ZoneId.systemDefault()).toInstant());
+		else if(type.isEnum()) converter = value -> Enum.valueOf((Class<? extends Enum>)type, value);
+		else return null;
+
+		return value ->
+		{
+			if(value == null) return null;
+
+			String trimmed = value.trim();
+			return trimmed.isEmpty() ? null : converter.convert(trimmed);
+		};
+	}
+
+	/**
+	 * 真偽値に変換する。
+	 * <p>
+	 * チェックボックスの既定値 "on" も真とする。
+	 * </p>
+	 *
+	 * @param value 値
+	 * @return 真偽値
+	 */
+	private static Boolean toBoolean(String value)
+	{
+		return "true".equalsIgnoreCase(value) || "on".equalsIgnoreCase(value) || "1".equals(value);
+	}
+}
@@ -0,0 +1,145 @@
+package com.fw.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ページID、イベントID毎の計測結果
+ *
+ * @author t.yoshida
+ */
+public final class ActionMetrics
+{
+	// ページID
+	private final String _pageId;
+
+	// イベントID
+	private final String _eventId;
+
+	// リクエスト全体の処理時間
+	private final Histogram _total = new Histogram();
+
+	// 段階毎の処理時間
+	private final Histogram[] _phases = new Histogram[Phase.values().length];
+
+	// 例外が発生した回数
+	private final LongAdder _errors = new LongAdder();
+
+	// ロールバックした回数
+	private final LongAdder _rollbacks = new LongAdder();
+
+	/**
+	 * ページID、イベントIDを指定して {@link ActionMetrics} を生成する。
+	 *
+	 * @param pageId ページID
+	 * @param eventId イベントID
+	 */
+	ActionMetrics(String pageId, String eventId)
+	{
+		_pageId = pageId;
+		_eventId = eventId;
+		for(int i=0; i<_phases.length; i++)
+		{
+			_phases[i] = new Histogram();
+		}
+	}
+
+	/**
+	 * ページIDを返す。
+	 *
+	 * @return ページID
+	 */
+	public String getPageId()
+	{
+		return _pageId;
+	}
+
+	/**
+	 * イベントIDを返す。
+	 *
+	 * @return イベントID
+	 */
+	public String getEventId()
+	{
+		return _eventId;
+	}
+
+	/**
+	 * リクエスト全体の処理時間を返す。
+	 *
+	 * @return {@link Histogram}
+	 */
+	public Histogram getTotal()
+	{
+		return _total;
+	}
+
+	/**
+	 * 指定段階の処理時間を返す。
+	 *
+	 * @param phase 段階
+	 * @return {@link Histogram}
+	 */
+	public Histogram getPhase(Phase phase)
+	{
+		return _phases[phase.ordinal()];
+	}
+
+	/**
+	 * リクエスト数を返す。
+	 *
+	 * @return リクエスト数
+	 */
+	public long getRequestCount()
+	{
+		return _total.getCount();
+	}
+
+	/**
+	 * 例外が発生した回数を返す。
+	 *
+	 * @return 回数
+	 */
+	public long getErrorCount()
+	{
+		return _errors.sum();
+	}
+
+	/**
+	 * ロールバックした回数を返す。
+	 *
+	 * @return 回数
+	 */
+	public long getRollbackCount()
+	{
+		return _rollbacks.sum();
+	}
+
+	/**
+	 * 1 リクエスト分の計測結果を記録する。
+	 *
+	 * @param totalNanos リクエスト全体の処理時間（ナノ秒）
+	 * @param phaseNanos 段階毎の処理時間（ナノ秒、計測していない段階は負数）
+	 * @param error 例外が発生した場合: true
+	 * @param rollback ロールバックした場合: true
+	 */
+	void record(long totalNanos, long[] phaseNanos, boolean error, boolean rollback)
+	{
+		_total.record(totalNanos);
+		for(int i=0; i<phaseNanos.length; i++)
+		{
+			if(phaseNanos[i] >= 0)
+			{
+				_phases[i].record(phaseNanos[i]);
+			}
+		}
+
+		if(error)
+		{
+			_errors.increment();
+		}
+		if(rollback)
+		{
+			_rollbacks.increment();
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package com.fw.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ReflectionException;
+
+/**
+ * {@link ActionMetrics} を公開する Dynamic MBean
+ * <p>
+ * リクエスト数、例外発生数、ロールバック数と、リクエスト全体及び段階毎の処理時間
+ * （平均、50/90/99/99.9 パーセンタイル、最大、マイクロ秒）を参照専用の属性として公開する。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+final class ActionMetricsDynamicMBean implements DynamicMBean
+{
+	// 属性名と値の取得処理
+	private final Map<String, Function<ActionMetrics, Object>> _attributes = new LinkedHashMap<>();
+
+	// 公開する計測結果
+	private final ActionMetrics _metrics;
+
+	// MBean 情報
+	private final MBeanInfo _info;
+
+	/**
+	 * 公開する計測結果を指定して {@link ActionMetricsDynamicMBean} を生成する。
+	 *
+	 * @param metrics 計測結果
+	 */
+	ActionMetricsDynamicMBean(ActionMetrics metrics)
+	{
+		_metrics = metrics;
+
+		_attributes.put("RequestCount", ActionMetrics::getRequestCount);
+		_attributes.put("ErrorCount", ActionMetrics::getErrorCount);
+		_attributes.put("RollbackCount", ActionMetrics::getRollbackCount);
+		addHistogram("Total", ActionMetrics::getTotal);
+		for(Phase phase : Phase.values())
+		{
+			addHistogram(phase.getLabel(), m -> m.getPhase(phase));
+		}
+
+		List<MBeanAttributeInfo> infos = new ArrayList<>();
+		for(String name : _attributes.keySet())
+		{
+			String type = name.endsWith("Mean") ? Double.class.getName() : Long.class.getName();
+			infos.add(new MBeanAttributeInfo(name, type, name, true, false, false));
+		}
+		_info = new MBeanInfo
+		(
+			ActionMetrics.class.getName(),
+			"Latency of pageId=" + metrics.getPageId() + ", eventId=" + metrics.getEventId(),
+			infos.toArray(new MBeanAttributeInfo[infos.size()]), null, new MBeanOperationInfo[0], null
+		);
+	}
+
+	/**
+	 * ヒストグラムの属性を追加する。
+	 *
+	 * @param prefix 属性名の接頭辞
+	 * @param histogram ヒストグラムの取得処理
+	 */
+	private void addHistogram(String prefix, Function<ActionMetrics, Histogram> histogram)
+	{
+		_attributes.put(prefix + "Mean", m -> histogram.apply(m).getMean());
+		addLong(prefix + "P50", histogram, h -> h.getPercentile(50));
+		addLong(prefix + "P90", histogram, h -> h.getPercentile(90));
+		addLong(prefix + "P99", histogram, h -> h.getPercentile(99));
+		addLong(prefix + "P999", histogram, h -> h.getPercentile(99.9));
+		addLong(prefix + "Max", histogram, Histogram::getMax);
+	}
+
+	/**
+	 * ヒストグラムから整数値を取得する属性を追加する。
+	 *
+	 * @param name 属性名
+	 * @param histogram ヒストグラムの取得処理
+	 * @param value 値の取得処理
+	 */
+	private void addLong(String name, Function<ActionMetrics, Histogram> histogram, ToLongFunction<Histogram> value)
+	{
+		_attributes.put(name, m -> value.applyAsLong(histogram.apply(m)));
+	}
+
+	@Override
+	public Object getAttribute(String attribute) throws AttributeNotFoundException
+	{
+		Function<ActionMetrics, Object> getter = _attributes.get(attribute);
+		if(getter == null) throw new AttributeNotFoundException(attribute);
+
+		return getter.apply(_metrics);
+	}
+
+	@Override
+	public AttributeList getAttributes(String[] attributes)
+	{
+		AttributeList list = new AttributeList();
+		for(String name : attributes)
+		{
+			Function<ActionMetrics, Object> getter = _attributes.get(name);
+			if(getter != null)
+			{
+				list.add(new Attribute(name, getter.apply(_metrics)));
+			}
+		}
+
+		return list;
+	}
+
+	@Override
+	public void setAttribute(Attribute attribute) throws AttributeNotFoundException
+	{
+		throw new AttributeNotFoundException("Read-only attribute: " + attribute.getName());
+	}
+
+	@Override
+	public AttributeList setAttributes(AttributeList attributes)
+	{
+		return new AttributeList();
+	}
+
+	@Override
+	public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException
+	{
+		throw new ReflectionException(new NoSuchMethodException(actionName));
+	}
+
+	@Override
+	public MBeanInfo getMBeanInfo()
+	{
+		return _info;
+	}
+}
@@ -0,0 +1,162 @@
+package com.fw.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 処理時間のヒストグラム
+ * <p>
+ * マイクロ秒単位の処理時間を対数バケットで数える。32 マイクロ秒未満は 1 マイクロ秒毎、
+ * それ以上は 2 の冪毎の区間を 16 分割したバケットとするため、パーセンタイルの相対誤差は最大で約 6% となる。
+ * 記録はロックを取らず、各バケットのカウンタを加算するのみで行う。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+public final class Histogram
+{
+	// 1 マイクロ秒毎に数える範囲
+	private static final int LINEAR_BUCKETS = 32;
+
+	// 2 の冪毎の区間の分割数（ビット数）
+	private static final int SUB_BUCKET_BITS = 4;
+
+	// 2 の冪毎の区間の分割数
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	// 記録可能な最大値（マイクロ秒、約 71 分）
+	private static final long MAX_VALUE = (1L << 32) - 1;
+
+	// 対数バケットが始まる区間（2 の冪の指数）
+	private static final int FIRST_EXPONENT = 5;
+
+	// バケット毎の件数
+	private final AtomicLongArray _counts = new AtomicLongArray(index(MAX_VALUE) + 1);
+
+	// 合計（マイクロ秒）
+	private final LongAdder _sum = new LongAdder();
+
+	// 最大値（マイクロ秒）
+	private final AtomicLong _max = new AtomicLong();
+
+	/**
+	 * 処理時間を記録する。
+	 *
+	 * @param nanos 処理時間（ナノ秒）
+	 */
+	public void record(long nanos)
+	{
+		long micros = Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 0), MAX_VALUE);
+		_counts.incrementAndGet(index(micros));
+		_sum.add(micros);
+
+		long max = _max.get();
+		while(micros > max && !_max.compareAndSet(max, micros))
+		{
+			max = _max.get();
+		}
+	}
+
+	/**
+	 * 記録件数を返す。
+	 *
+	 * @return 件数
+	 */
+	public long getCount()
+	{
+		long count = 0;
+		for(int i=0; i<_counts.length(); i++)
+		{
+			count += _counts.get(i);
+		}
+
+		return count;
+	}
+
+	/**
+	 * 平均値を返す。
+	 *
+	 * @return 平均値（マイクロ秒、記録が無い場合、0）
+	 */
+	public double getMean()
+	{
+		long count = getCount();
+		return count == 0 ? 0 : (double)_sum.sum() / count;
+	}
+
+	/**
+	 * 最大値を返す。
+	 *
+	 * @return 最大値（マイクロ秒）
+	 */
+	public long getMax()
+	{
+		return _max.get();
+	}
+
+	/**
+	 * 指定パーセンタイルの値を返す。
+	 * <p>
+	 * 該当するバケットの上限値（最大値を超える場合、最大値）を返す。
+	 * </p>
+	 *
+	 * @param percentile パーセンタイル（0 ～ 100）
+	 * @return 値（マイクロ秒、記録が無い場合、0）
+	 */
+	public long getPercentile(double percentile)
+	{
+		long[] counts = new long[_counts.length()];
+		long total = 0;
+		for(int i=0; i<counts.length; i++)
+		{
+			counts[i] = _counts.get(i);
+			total += counts[i];
+		}
+		if(total == 0) return 0;
+
+		long rank = Math.max((long)Math.ceil(total * Math.min(Math.max(percentile, 0), 100) / 100), 1);
+		long seen = 0;
+		for(int i=0; i<counts.length; i++)
+		{
+			seen += counts[i];
+			if(seen >= rank) return Math.min(upperBound(i), getMax());
+		}
+
+		return getMax();
+	}
+
+	/**
+	 * 値に対応するバケットの位置を返す。
+	 *
+	 * @param micros 値（マイクロ秒）
+	 * @return バケットの位置
+	 */
+	private static int index(long micros)
+	{
+		if(micros < LINEAR_BUCKETS) return (int)micros;
+
+		int exponent = 63 - Long.numberOfLeadingZeros(micros);
+		int sub = (int)(micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+
+		return LINEAR_BUCKETS + (exponent - FIRST_EXPONENT) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * バケットの上限値を返す。
+	 *
+	 * @param index バケットの位置
+	 * @return 上限値（マイクロ秒）
+	 */
+	private static long upperBound(int index)
+	{
+		if(index < LINEAR_BUCKETS) return index;
+
+		int exponent = (index - LINEAR_BUCKETS) / SUB_BUCKETS + FIRST_EXPONENT;
+		int sub = (index - LINEAR_BUCKETS) % SUB_BUCKETS;
+		int shift = exponent - SUB_BUCKET_BITS;
+
+		return ((long)(SUB_BUCKETS + sub + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,43 @@
+package com.fw.metrics;
+
+import java.util.Collection;
+
+/**
+ * 計測結果の出力先
+ * <p>
+ * web.xml のコンテキストパラメータ "metrics.exporter" に実装クラス名を指定すると、
+ * "metrics.export.interval"（ミリ秒、デフォルト: 60000）毎に {@link #export(Collection)} が呼び出される。
+ * 実装クラスは引数無しのコンストラクタを持つこと。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+public interface MetricsExporter
+{
+	/**
+	 * 計測結果を出力する。
+	 * <p>
+	 * 計測結果は累積値であり、呼び出し毎にリセットされない。
+	 * </p>
+	 *
+	 * @param metrics ページID、イベントID毎の計測結果
+	 * @throws Exception 出力に失敗した場合
+	 */
+	void export(Collection<ActionMetrics> metrics) throws Exception;
+
+	/**
+	 * クエリの実行統計を出力する。
+	 * <p>
+	 * {@link #export(Collection)} の後に呼び出される。統計は累積値であり、呼び出し毎にリセットされない。
+	 * </p>
+	 *
+	 * @param statistics 正規化したクエリ毎の実行統計
+	 * @throws Exception 出力に失敗した場合
+	 */
+	default void exportSql(Collection<SqlStatistics> statistics) throws Exception { }
+
+	/**
+	 * 出力を終了する。
+	 */
+	default void close() { }
+}
@@ -0,0 +1,279 @@
+package com.fw.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.servlet.ServletContext;
+
+/**
+ * リクエスト処理の計測結果の管理
+ * <p>
+ * web.xml のコンテキストパラメータで設定する。
+ * 無効な場合、{@link #startTimer()} は {@link PhaseTimer#DISABLED} を返し、計測は行わない。
+ * </p>
+ * <ul>
+ * <li>"metrics.enabled": true の場合、計測する（デフォルト: false）</li>
+ * <li>"metrics.jmx": true の場合、計測結果をプラットフォーム MBean サーバーに
+ * "com.fw:type=ActionMetrics,pageId=...,eventId=..." として登録する（デフォルト: true）</li>
+ * <li>"metrics.exporter": {@link MetricsExporter} の実装クラス名</li>
+ * <li>"metrics.export.interval": {@link MetricsExporter} の呼び出し間隔（ミリ秒、デフォルト: 60000）</li>
+ * </ul>
+ * <p>
+ * 有効な場合、クエリの実行統計（{@link SqlMetrics}）も計測する。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+public final class MetricsRegistry
+{
+	// MBean のドメイン
+	private static final String JMX_DOMAIN = "com.fw";
+
+	// デフォルトのインスタンス
+	private static final MetricsRegistry _instance = new MetricsRegistry();
+
+	// ページID、イベントID毎の計測結果
+	private final Map<String, ActionMetrics> _metrics = new ConcurrentHashMap<>();
+
+	// 計測するか否か
+	private volatile boolean _enabled;
+
+	// MBean を登録するか否か
+	private volatile boolean _jmx;
+
+	// 登録した MBean
+	private final Collection<ObjectName> _registered = Collections.synchronizedList(new ArrayList<>());
+
+	// 計測結果の出力先
+	private MetricsExporter _exporter;
+
+	// 計測結果の出力用スレッド
+	private ScheduledExecutorService _scheduler;
+
+	// ログ出力
+	private volatile BiConsumer<String, Throwable> _logger = (message, ex) -> { };
+
+	private MetricsRegistry()
+	{
+
+	}
+
+	/**
+	 * デフォルトのインスタンスを返す。
+	 *
+	 * @return {@link MetricsRegistry}
+	 */
+	public static MetricsRegistry getInstance()
+	{
+		return _instance;
+	}
+
+	/**
+	 * コンテキストパラメータを基に計測を開始する。
+	 *
+	 * @param context サーブレットコンテキスト
+	 */
+	public synchronized void init(ServletContext context)
+	{
+		if(!Boolean.parseBoolean(context.getInitParameter("metrics.enabled"))) return;
+
+		_logger = context::log;
+		_jmx = !"false".equals(context.getInitParameter("metrics.jmx"));
+		if(_jmx && _registered.isEmpty())
+		{
+			// 再初期化された場合、計測済みの結果を登録し直す
+			_metrics.values().forEach(this::register);
+		}
+
+		String exporterClassName = context.getInitParameter("metrics.exporter");
+		if(exporterClassName != null && _exporter == null)
+		{
+			try
+			{
+				Class<?> exporterClass = Class.forName(exporterClassName, true, Thread.currentThread().getContextClassLoader());
+				MetricsExporter exporter = (MetricsExporter)exporterClass.getDeclaredConstructor().newInstance();
+
+				String interval = context.getInitParameter("metrics.export.interval");
+				startExporting(exporter, interval == null ? 60_000 : Long.parseLong(interval));
+			}
+			catch(ReflectiveOperationException | ClassCastException ex)
+			{
+				context.log("MetricsExporter instantiation error: " + exporterClassName, ex);
+			}
+		}
+
+		SqlMetrics.getInstance().init(context);
+		_enabled = true;
+	}
+
+	/**
+	 * 計測を終了する。
+	 * <p>
+	 * 登録した MBean を解除し、出力先を閉じる。計測結果は保持する。
+	 * </p>
+	 */
+	public synchronized void shutdown()
+	{
+		_enabled = false;
+		SqlMetrics.getInstance().shutdown();
+
+		if(_scheduler != null)
+		{
+			_scheduler.shutdownNow();
+			_scheduler = null;
+		}
+		if(_exporter != null)
+		{
+			_exporter.close();
+			_exporter = null;
+		}
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		synchronized(_registered)
+		{
+			for(ObjectName name : _registered)
+			{
+				try
+				{
+					server.unregisterMBean(name);
+				}
+				catch(JMException ex)
+				{
+					_logger.accept("MBean unregistration error: " + name, ex);
+				}
+			}
+			_registered.clear();
+		}
+	}
+
+	/**
+	 * 計測するか否かを返す。
+	 *
+	 * @return 計測する場合: true
+	 */
+	public boolean isEnabled()
+	{
+		return _enabled;
+	}
+
+	/**
+	 * 計測するか否かを設定する。
+	 *
+	 * @param enabled 計測する場合: true
+	 */
+	public void setEnabled(boolean enabled)
+	{
+		_enabled = enabled;
+	}
+
+	/**
+	 * 1 リクエスト分の計測を開始する。
+	 *
+	 * @return {@link PhaseTimer}（計測しない場合、{@link PhaseTimer#DISABLED}）
+	 */
+	public PhaseTimer startTimer()
+	{
+		if(!_enabled) return PhaseTimer.DISABLED;
+
+		return new PhaseTimer(this, System.nanoTime());
+	}
+
+	/**
+	 * 指定ページID、イベントIDの計測結果を返す。
+	 * <p>
+	 * 存在しない場合は作成し、MBean を登録する。
+	 * </p>
+	 *
+	 * @param pageId ページID
+	 * @param eventId イベントID
+	 * @return {@link ActionMetrics}
+	 */
+	public ActionMetrics getActionMetrics(String pageId, String eventId)
+	{
+		ActionMetrics metrics = _metrics.get(pageId + '\u0000' + eventId);
+		if(metrics != null) return metrics;
+
+		return _metrics.computeIfAbsent(pageId + '\u0000' + eventId, k ->
+		{
+			ActionMetrics created = new ActionMetrics(pageId, eventId);
+			if(_jmx)
+			{
+				register(created);
+			}
+			return created;
+		});
+	}
+
+	/**
+	 * 全ての計測結果を返す。
+	 *
+	 * @return 計測結果（変更不可）
+	 */
+	public Collection<ActionMetrics> getAll()
+	{
+		return Collections.unmodifiableCollection(_metrics.values());
+	}
+
+	/**
+	 * 計測結果の定期的な出力を開始する。
+	 *
+	 * @param exporter 出力先
+	 * @param intervalMillis 出力間隔（ミリ秒）
+	 */
+	public synchronized void startExporting(MetricsExporter exporter, long intervalMillis)
+	{
+		if(_scheduler != null) throw new IllegalStateException("MetricsExporter is already started.");
+
+		_exporter = exporter;
+		_scheduler = Executors.newSingleThreadScheduledExecutor(r ->
+		{
+			Thread thread = new Thread(r, "fw-metrics-exporter");
+			thread.setDaemon(true);
+			return thread;
+		});
+		_scheduler.scheduleWithFixedDelay(() ->
+		{
+			try
+			{
+				exporter.export(getAll());
+				exporter.exportSql(SqlMetrics.getInstance().getAll());
+			}
+			catch(Exception ex)
+			{
+				_logger.accept("Metrics export error", ex);
+			}
+		}, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 計測結果を MBean として登録する。
+	 *
+	 * @param metrics 計測結果
+	 */
+	private void register(ActionMetrics metrics)
+	{
+		try
+		{
+			ObjectName name = new ObjectName(JMX_DOMAIN + ":type=ActionMetrics"
+				+ ",pageId=" + ObjectName.quote(metrics.getPageId())
+				+ ",eventId=" + ObjectName.quote(metrics.getEventId()));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(new ActionMetricsDynamicMBean(metrics), name);
+			_registered.add(name);
+		}
+		catch(JMException ex)
+		{
+			_logger.accept("MBean registration error: " + metrics.getPageId() + "/" + metrics.getEventId(), ex);
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package com.fw.metrics;
+
+/**
+ * リクエスト処理の段階
+ *
+ * @author t.yoshida
+ */
+public enum Phase
+{
+	/** {@link com.fw.core.Action} の検索 */
+	LOOKUP("Lookup"),
+
+	/** フォームクラスへのパラメータ設定 */
+	BIND("Bind"),
+
+	/** トランザクションの開始 */
+	BEGIN("Begin"),
+
+	/** {@link com.fw.core.Action#execute} の実行 */
+	EXECUTE("Execute"),
+
+	/** コミット */
+	COMMIT("Commit"),
+
+	/** {@link com.fw.core.Action#onCommitCompleted} の実行 */
+	ON_COMMIT_COMPLETED("OnCommitCompleted"),
+
+	/** 遷移先ページへのフォワード */
+	FORWARD("Forward");
+
+	// 表示名（JMX の属性名等に利用）
+	private final String _label;
+
+	/**
+	 * 表示名を指定して {@link Phase} を生成する。
+	 *
+	 * @param label 表示名
+	 */
+	private Phase(String label)
+	{
+		_label = label;
+	}
+
+	/**
+	 * 表示名を返す。
+	 *
+	 * @return 表示名
+	 */
+	public String getLabel()
+	{
+		return _label;
+	}
+}
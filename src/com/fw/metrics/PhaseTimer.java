@@ -0,0 +1,156 @@
+package com.fw.metrics;
+
+import java.util.Arrays;
+
+/**
+ * 1 リクエスト分の段階毎の処理時間の計測
+ * <p>
+ * {@link MetricsRegistry#startTimer()} で開始し、各段階の終了時に {@link #mark(Phase)} を呼び出す。
+ * 段階の処理時間は、前回の {@link #mark(Phase)}（又は開始）からの経過時間とする。
+ * {@link #finish()} で {@link ActionMetrics} に記録する。
+ * </p>
+ * <p>
+ * 計測が無効な場合は {@link #DISABLED} が返され、全ての操作は何もしない。
+ * 1 リクエストの処理中のみ利用し、複数のスレッドから同時に利用してはならない。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+public final class PhaseTimer
+{
+	/**
+	 * 計測しないタイマー
+	 */
+	public static final PhaseTimer DISABLED = new PhaseTimer(null, 0);
+
+	// 記録先（計測しない場合、null）
+	private final MetricsRegistry _registry;
+
+	// 開始時刻（ナノ秒）
+	private final long _startedAt;
+
+	// 前回の段階の終了時刻（ナノ秒）
+	private long _lastAt;
+
+	// 段階毎の処理時間（ナノ秒、計測していない段階は -1）
+	private final long[] _phases;
+
+	// 記録先
+	private ActionMetrics _metrics;
+
+	// 例外が発生したか否か
+	private boolean _error;
+
+	// ロールバックしたか否か
+	private boolean _rollback;
+
+	// 記録済みか否か
+	private boolean _finished;
+
+	/**
+	 * 記録先と開始時刻を指定して {@link PhaseTimer} を生成する。
+	 *
+	 * @param registry 記録先
+	 * @param startedAt 開始時刻（ナノ秒）
+	 */
+	PhaseTimer(MetricsRegistry registry, long startedAt)
+	{
+		_registry = registry;
+		_startedAt = startedAt;
+		_lastAt = startedAt;
+		_phases = registry == null ? null : new long[Phase.values().length];
+		if(_phases != null)
+		{
+			Arrays.fill(_phases, -1);
+		}
+	}
+
+	/**
+	 * 計測中か否かを返す。
+	 *
+	 * @return 計測中の場合: true
+	 */
+	public boolean isEnabled()
+	{
+		return _registry != null;
+	}
+
+	/**
+	 * 記録先のページID、イベントIDを設定する。
+	 *
+	 * @param pageId ページID
+	 * @param eventId イベントID
+	 */
+	public void setAction(String pageId, String eventId)
+	{
+		if(_registry == null) return;
+
+		_metrics = _registry.getActionMetrics(pageId, eventId);
+	}
+
+	/**
+	 * 段階の終了を記録する。
+	 * <p>
+	 * 同じ段階を複数回記録した場合は合算する。
+	 * </p>
+	 *
+	 * @param phase 終了した段階
+	 */
+	public void mark(Phase phase)
+	{
+		if(_registry == null) return;
+
+		long now = System.nanoTime();
+		long elapsed = now - _lastAt;
+		int i = phase.ordinal();
+		_phases[i] = _phases[i] < 0 ? elapsed : _phases[i] + elapsed;
+		_lastAt = now;
+	}
+
+	/**
+	 * 前回の段階の終了時刻を現在時刻にする。
+	 * <p>
+	 * 段階に含めない処理（待機等）の後に呼び出す。
+	 * </p>
+	 */
+	public void skip()
+	{
+		if(_registry == null) return;
+
+		_lastAt = System.nanoTime();
+	}
+
+	/**
+	 * 例外が発生したことを記録する。
+	 */
+	public void error()
+	{
+		if(_registry == null) return;
+
+		_error = true;
+	}
+
+	/**
+	 * ロールバックしたことを記録する。
+	 */
+	public void rollback()
+	{
+		if(_registry == null) return;
+
+		_rollback = true;
+	}
+
+	/**
+	 * 計測を終了し、記録する。
+	 * <p>
+	 * 2 回目以降の呼び出しは何もしない。
+	 * </p>
+	 */
+	public void finish()
+	{
+		if(_registry == null || _finished || _metrics == null) return;
+
+		_finished = true;
+		_metrics.record(System.nanoTime() - _startedAt, _phases, _error, _rollback);
+	}
+}
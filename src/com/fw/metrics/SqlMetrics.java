@@ -0,0 +1,315 @@
+package com.fw.metrics;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+
+import javax.servlet.ServletContext;
+
+/**
+ * クエリの実行統計の管理
+ * <p>
+ * {@link MetricsRegistry} が有効な場合に、{@link com.fw.db.QueryLoader}、{@link com.fw.db.QueryUpdater} が実行したクエリを
+ * 正規化したクエリ（リテラル、プレースホルダーの並びを置換したもの）毎に集計する。
+ * web.xml のコンテキストパラメータで設定する。
+ * </p>
+ * <ul>
+ * <li>"metrics.sql": false の場合、クエリを計測しない（デフォルト: true）</li>
+ * <li>"metrics.sql.slow.threshold": 実行時間がこれを超えたクエリをログに出力する（ミリ秒、デフォルト: 1000）</li>
+ * <li>"metrics.sql.repeat.threshold": 1 トランザクション内で同じ形のクエリをこれ以上実行した場合、
+ * N+1 の疑いとしてログに出力する（デフォルト: 20、0 の場合は検出しない）</li>
+ * </ul>
+ *
+ * @author t.yoshida
+ */
+public final class SqlMetrics
+{
+	// 正規化結果のキャッシュの上限
+	private static final int MAX_NORMALIZED_CACHE = 10_000;
+
+	// 連続するプレースホルダー
+	private static final Pattern PLACEHOLDERS = Pattern.compile("\\?(?:\\s*,\\s*\\?)+");
+
+	// デフォルトのインスタンス
+	private static final SqlMetrics _instance = new SqlMetrics();
+
+	// 正規化したクエリ毎の統計
+	private final Map<String, SqlStatistics> _statistics = new ConcurrentHashMap<>();
+
+	// 正規化結果のキャッシュ
+	private final Map<String, String> _normalized = new ConcurrentHashMap<>();
+
+	// 計測するか否か
+	private volatile boolean _enabled;
+
+	// 低速クエリの閾値（ナノ秒）
+	private volatile long _slowThresholdNanos = TimeUnit.SECONDS.toNanos(1);
+
+	// N+1 の検出閾値
+	private volatile int _repeatThreshold = 20;
+
+	// ログ出力
+	private volatile BiConsumer<String, Throwable> _logger = (message, ex) -> { };
+
+	private SqlMetrics()
+	{
+
+	}
+
+	/**
+	 * デフォルトのインスタンスを返す。
+	 *
+	 * @return {@link SqlMetrics}
+	 */
+	public static SqlMetrics getInstance()
+	{
+		return _instance;
+	}
+
+	/**
+	 * コンテキストパラメータを基に計測を開始する。
+	 *
+	 * @param context サーブレットコンテキスト
+	 */
+	synchronized void init(ServletContext context)
+	{
+		if("false".equals(context.getInitParameter("metrics.sql"))) return;
+
+		_logger = context::log;
+
+		String slow = context.getInitParameter("metrics.sql.slow.threshold");
+		_slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slow == null ? 1000 : Long.parseLong(slow));
+
+		String repeat = context.getInitParameter("metrics.sql.repeat.threshold");
+		_repeatThreshold = repeat == null ? 20 : Integer.parseInt(repeat);
+
+		_enabled = true;
+	}
+
+	/**
+	 * 計測を終了する。
+	 */
+	void shutdown()
+	{
+		_enabled = false;
+	}
+
+	/**
+	 * 計測するか否かを返す。
+	 *
+	 * @return 計測する場合: true
+	 */
+	public boolean isEnabled()
+	{
+		return _enabled;
+	}
+
+	/**
+	 * 計測するか否かを設定する。
+	 *
+	 * @param enabled 計測する場合: true
+	 */
+	public void setEnabled(boolean enabled)
+	{
+		_enabled = enabled;
+	}
+
+	/**
+	 * N+1 の検出閾値を返す。
+	 *
+	 * @return 1 トランザクション内での実行回数（0 の場合は検出しない）
+	 */
+	public int getRepeatThreshold()
+	{
+		return _repeatThreshold;
+	}
+
+	/**
+	 * 1 回分の実行を記録する。
+	 * <p>
+	 * 実行時間が閾値を超えた場合、ログに出力する。
+	 * </p>
+	 *
+	 * @param sql 正規化したクエリ
+	 * @param nanos 実行時間（ナノ秒、結果の読み込みを含む）
+	 * @param rows 取得・更新した行数
+	 * @param bytes 読み込んだバイト数（概算）
+	 * @param label 実行元（ページID、イベントID等、不明な場合は null）
+	 */
+	public void record(String sql, long nanos, long rows, long bytes, String label)
+	{
+		boolean slow = nanos > _slowThresholdNanos;
+		statistics(sql).record(nanos, rows, bytes, slow);
+
+		if(slow)
+		{
+			_logger.accept("Slow query: " + TimeUnit.NANOSECONDS.toMillis(nanos) + "ms, " + rows + " rows"
+				+ " [" + (label == null ? "-" : label) + "] " + sql, null);
+		}
+	}
+
+	/**
+	 * 1 トランザクション内での実行回数を検査し、閾値以上の場合は N+1 の疑いとしてログに出力する。
+	 *
+	 * @param counts 正規化したクエリ毎の実行回数
+	 * @param label 実行元（ページID、イベントID等、不明な場合は null）
+	 */
+	public void reportRepeated(Map<String, int[]> counts, String label)
+	{
+		int threshold = _repeatThreshold;
+		if(threshold <= 0) return;
+
+		counts.forEach((sql, count) ->
+		{
+			if(count[0] < threshold) return;
+
+			statistics(sql).recordRepeated();
+			_logger.accept("Possible N+1 query: executed " + count[0] + " times in one transaction"
+				+ " [" + (label == null ? "-" : label) + "] " + sql, null);
+		});
+	}
+
+	/**
+	 * 全ての統計を返す。
+	 *
+	 * @return 統計（変更不可）
+	 */
+	public Collection<SqlStatistics> getAll()
+	{
+		return Collections.unmodifiableCollection(_statistics.values());
+	}
+
+	/**
+	 * クエリを正規化する。
+	 * <p>
+	 * コメントを除き、文字列・数値リテラルを ? に、連続するプレースホルダー（IN 句等）を ?+ に置換し、
+	 * 空白を 1 文字にまとめる。
+	 * </p>
+	 *
+	 * @param sql クエリ
+	 * @return 正規化したクエリ
+	 */
+	public String normalize(String sql)
+	{
+		String normalized = _normalized.get(sql);
+		if(normalized != null) return normalized;
+
+		normalized = PLACEHOLDERS.matcher(strip(sql)).replaceAll("?+");
+		if(_normalized.size() < MAX_NORMALIZED_CACHE)
+		{
+			_normalized.put(sql, normalized);
+		}
+
+		return normalized;
+	}
+
+	/**
+	 * コメント、リテラル、余分な空白を除く。
+	 *
+	 * @param sql クエリ
+	 * @return 変換後のクエリ
+	 */
+	private static String strip(String sql)
+	{
+		StringBuilder builder = new StringBuilder(sql.length());
+		int length = sql.length();
+		int i = 0;
+		while(i < length)
+		{
+			char c = sql.charAt(i);
+			if(c == '\'')
+			{
+				// 文字列リテラル（'' はエスケープ）
+				i++;
+				while(i < length)
+				{
+					if(sql.charAt(i) == '\'')
+					{
+						if(i + 1 < length && sql.charAt(i + 1) == '\'')
+						{
+							i += 2;
+							continue;
+						}
+						break;
+					}
+					i++;
+				}
+				builder.append('?');
+				i++;
+			}
+			else if(c == '-' && i + 1 < length && sql.charAt(i + 1) == '-')
+			{
+				while(i < length && sql.charAt(i) != '\n') i++;
+				appendSpace(builder);
+			}
+			else if(c == '/' && i + 1 < length && sql.charAt(i + 1) == '*')
+			{
+				int end = sql.indexOf("*/", i + 2);
+				i = end < 0 ? length : end + 2;
+				appendSpace(builder);
+			}
+			else if(Character.isDigit(c) && !isIdentifierPart(builder))
+			{
+				while(i < length && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) i++;
+				builder.append('?');
+			}
+			else if(Character.isWhitespace(c))
+			{
+				appendSpace(builder);
+				i++;
+			}
+			else
+			{
+				builder.append(c);
+				i++;
+			}
+		}
+
+		return builder.toString().trim();
+	}
+
+	/**
+	 * 直前が空白でない場合、空白を 1 文字追加する。
+	 *
+	 * @param builder 変換中のクエリ
+	 */
+	private static void appendSpace(StringBuilder builder)
+	{
+		if(builder.length() > 0 && builder.charAt(builder.length() - 1) != ' ')
+		{
+			builder.append(' ');
+		}
+	}
+
+	/**
+	 * 直前の文字が識別子の一部か否かを返す。
+	 *
+	 * @param builder 変換中のクエリ
+	 * @return 識別子の一部の場合: true
+	 */
+	private static boolean isIdentifierPart(StringBuilder builder)
+	{
+		if(builder.length() == 0) return false;
+
+		char last = builder.charAt(builder.length() - 1);
+		return Character.isLetterOrDigit(last) || last == '_' || last == '$';
+	}
+
+	/**
+	 * 正規化したクエリの統計を返す。
+	 *
+	 * @param sql 正規化したクエリ
+	 * @return {@link SqlStatistics}
+	 */
+	private SqlStatistics statistics(String sql)
+	{
+		SqlStatistics statistics = _statistics.get(sql);
+		if(statistics != null) return statistics;
+
+		return _statistics.computeIfAbsent(sql, SqlStatistics::new);
+	}
+}
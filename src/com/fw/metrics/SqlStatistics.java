@@ -0,0 +1,137 @@
+package com.fw.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 正規化したクエリ毎の実行統計
+ *
+ * @author t.yoshida
+ * @see SqlMetrics
+ */
+public final class SqlStatistics
+{
+	// 正規化したクエリ
+	private final String _sql;
+
+	// 実行時間（結果の読み込みを含む）
+	private final Histogram _time = new Histogram();
+
+	// 取得・更新した行数
+	private final LongAdder _rows = new LongAdder();
+
+	// 読み込んだバイト数（概算）
+	private final LongAdder _bytes = new LongAdder();
+
+	// 閾値を超えた実行の回数
+	private final LongAdder _slow = new LongAdder();
+
+	// 1 トランザクション内で繰り返し実行された回数（N+1 の検出回数）
+	private final LongAdder _repeated = new LongAdder();
+
+	/**
+	 * 正規化したクエリを指定して {@link SqlStatistics} を生成する。
+	 *
+	 * @param sql 正規化したクエリ
+	 */
+	SqlStatistics(String sql)
+	{
+		_sql = sql;
+	}
+
+	/**
+	 * 正規化したクエリを返す。
+	 *
+	 * @return クエリ
+	 */
+	public String getSql()
+	{
+		return _sql;
+	}
+
+	/**
+	 * 実行時間を返す。
+	 *
+	 * @return {@link Histogram}
+	 */
+	public Histogram getTime()
+	{
+		return _time;
+	}
+
+	/**
+	 * 実行回数を返す。
+	 *
+	 * @return 回数
+	 */
+	public long getExecutionCount()
+	{
+		return _time.getCount();
+	}
+
+	/**
+	 * 取得・更新した行数の合計を返す。
+	 *
+	 * @return 行数
+	 */
+	public long getRowCount()
+	{
+		return _rows.sum();
+	}
+
+	/**
+	 * 読み込んだバイト数の合計（概算）を返す。
+	 *
+	 * @return バイト数
+	 */
+	public long getBytesRead()
+	{
+		return _bytes.sum();
+	}
+
+	/**
+	 * 閾値を超えた実行の回数を返す。
+	 *
+	 * @return 回数
+	 */
+	public long getSlowCount()
+	{
+		return _slow.sum();
+	}
+
+	/**
+	 * 1 トランザクション内で閾値以上繰り返し実行された回数（N+1 の検出回数）を返す。
+	 *
+	 * @return 回数
+	 */
+	public long getRepeatedCount()
+	{
+		return _repeated.sum();
+	}
+
+	/**
+	 * 1 回分の実行を記録する。
+	 *
+	 * @param nanos 実行時間（ナノ秒）
+	 * @param rows 行数
+	 * @param bytes バイト数
+	 * @param slow 閾値を超えた場合: true
+	 */
+	void record(long nanos, long rows, long bytes, boolean slow)
+	{
+		_time.record(nanos);
+		_rows.add(rows);
+		_bytes.add(bytes);
+		if(slow)
+		{
+			_slow.increment();
+		}
+	}
+
+	/**
+	 * N+1 の検出を記録する。
+	 */
+	void recordRepeated()
+	{
+		_repeated.increment();
+	}
+}
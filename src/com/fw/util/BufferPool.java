@@ -0,0 +1,127 @@
+package com.fw.util;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 固定長バッファプール
+ * <p>
+ * バイナリのコピー等で使用する固定長のバイト配列を再利用する。
+ * 保持するバッファ数は上限までとし、上限を超えて返却されたバッファは破棄する。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+public final class BufferPool
+{
+	/**
+	 * バッファサイズのデフォルト値
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+	/**
+	 * 保持するバッファ数のデフォルト値
+	 */
+	public static final int DEFAULT_MAX_POOLED = 64;
+
+	// 共有インスタンス
+	private static final BufferPool _shared = new BufferPool(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_POOLED);
+
+	// バッファサイズ
+	private final int _bufferSize;
+
+	// 保持するバッファ数の上限
+	private final int _maxPooled;
+
+	// 返却済みのバッファ
+	private final ConcurrentLinkedQueue<byte[]> _buffers = new ConcurrentLinkedQueue<>();
+
+	// 保持しているバッファ数
+	private final AtomicInteger _pooled = new AtomicInteger();
+
+	/**
+	 * バッファサイズと保持するバッファ数の上限を指定して {@link BufferPool} を生成する。
+	 *
+	 * @param bufferSize バッファサイズ
+	 * @param maxPooled 保持するバッファ数の上限
+	 */
+	public BufferPool(int bufferSize, int maxPooled)
+	{
+		if(bufferSize <= 0) throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+		if(maxPooled < 0) throw new IllegalArgumentException("maxPooled must not be negative: " + maxPooled);
+
+		_bufferSize = bufferSize;
+		_maxPooled = maxPooled;
+	}
+
+	/**
+	 * 共有の {@link BufferPool} を返す。
+	 *
+	 * @return {@link BufferPool}
+	 */
+	public static BufferPool getShared()
+	{
+		return _shared;
+	}
+
+	/**
+	 * バッファを借りる。
+	 * <p>
+	 * 返却済みのバッファがない場合、新たに生成する。
+	 * 使用後は {@link #release(byte[])} で返却すること。
+	 * </p>
+	 *
+	 * @return バッファ
+	 */
+	public byte[] acquire()
+	{
+		byte[] buffer = _buffers.poll();
+		if(buffer == null)
+		{
+			return new byte[_bufferSize];
+		}
+		_pooled.decrementAndGet();
+
+		return buffer;
+	}
+
+	/**
+	 * バッファを返却する。
+	 * <p>
+	 * サイズの異なるバッファ、及び上限を超えて返却されたバッファは破棄する。
+	 * </p>
+	 *
+	 * @param buffer バッファ
+	 */
+	public void release(byte[] buffer)
+	{
+		if(buffer == null || buffer.length != _bufferSize) return;
+
+		if(_pooled.incrementAndGet() > _maxPooled)
+		{
+			_pooled.decrementAndGet();
+			return;
+		}
+		_buffers.offer(buffer);
+	}
+
+	/**
+	 * バッファサイズを返す。
+	 *
+	 * @return バッファサイズ
+	 */
+	public int getBufferSize()
+	{
+		return _bufferSize;
+	}
+
+	/**
+	 * 保持しているバッファ数を返す。
+	 *
+	 * @return バッファ数
+	 */
+	public int getPooledCount()
+	{
+		return _pooled.get();
+	}
+}
@@ -1,41 +1,213 @@
-package com.fw.util;
-
-/**
- * HTML関連ユーティリティ
- *
- * @author t.yoshida
- */
-public class HTMLUtils
-{
-	/**
-	 * サニタイズを行う。
-	 *
-	 * @param text 対象文字列
-	 * @return サニタイズ後文字列
-	 */
-	public static String sanitize(String text)
-	{
-		text = text.replaceAll("&",  "&amp;");
-		text = text.replaceAll("<",  "&lt;");
-		text = text.replaceAll(">",  "&gt;");
-		text = text.replaceAll("\"", "&quot;");
-		text = text.replaceAll("'" , "&#39;");
-
-		return text;
-	}
-
-	/**
-	 * 改行コードを改行タグに変換する。
-	 *
-	 * @param text 対象文字列
-	 * @return 変換後文字列
-	 */
-	public static String convRetCodeToTag(String text)
-	{
-		text = text.replaceAll("\r\n", "<br/>");
-		text = text.replaceAll("\n", "<br/>");
-		text = text.replaceAll("\r", "<br/>");
-
-		return text;
-	}
-}
+package com.fw.util;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * HTML関連ユーティリティ
+ * <p>
+ * 変換は置換文字列の表を引きながら 1 回の走査で行い、変換対象の文字を含まない場合は引数をそのまま返す。
+ * JSP 等で出力先が決まっている場合は {@link Appendable} を引数に取るメソッドを利用すると、
+ * 変換後の文字列を生成せずに直接書き込む。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+public class HTMLUtils
+{
+	// 改行タグ
+	private static final String BR = "<br/>";
+
+	// サニタイズの置換文字列（ASCII の文字コード → 置換文字列）
+	private static final String[] SANITIZE = new String[128];
+
+	// 改行コードの置換文字列
+	private static final String[] RET_CODE = new String[128];
+
+	// サニタイズと改行コードの置換文字列
+	private static final String[] SANITIZE_AND_RET_CODE = new String[128];
+
+	static
+	{
+		SANITIZE['&']  = "&amp;";
+		SANITIZE['<']  = "&lt;";
+		SANITIZE['>']  = "&gt;";
+		SANITIZE['"']  = "&quot;";
+		SANITIZE['\''] = "&#39;";
+
+		RET_CODE['\r'] = BR;
+		RET_CODE['\n'] = BR;
+
+		for(int i=0; i<128; i++)
+		{
+			SANITIZE_AND_RET_CODE[i] = SANITIZE[i] != null ? SANITIZE[i] : RET_CODE[i];
+		}
+	}
+
+	/**
+	 * サニタイズを行う。
+	 *
+	 * @param text 対象文字列
+	 * @return サニタイズ後文字列（変換対象が無い場合、対象文字列そのもの）
+	 */
+	public static String sanitize(String text)
+	{
+		return convert(text, SANITIZE);
+	}
+
+	/**
+	 * サニタイズを行い、出力先に書き込む。
+	 *
+	 * @param text 対象文字列
+	 * @param out 出力先（JspWriter 等）
+	 * @throws IOException 出力エラー
+	 */
+	public static void sanitize(CharSequence text, Appendable out) throws IOException
+	{
+		convert(text, 0, SANITIZE, out);
+	}
+
+	/**
+	 * 改行コードを改行タグに変換する。
+	 *
+	 * @param text 対象文字列
+	 * @return 変換後文字列（改行コードが無い場合、対象文字列そのもの）
+	 */
+	public static String convRetCodeToTag(String text)
+	{
+		return convert(text, RET_CODE);
+	}
+
+	/**
+	 * 改行コードを改行タグに変換し、出力先に書き込む。
+	 *
+	 * @param text 対象文字列
+	 * @param out 出力先（JspWriter 等）
+	 * @throws IOException 出力エラー
+	 */
+	public static void convRetCodeToTag(CharSequence text, Appendable out) throws IOException
+	{
+		convert(text, 0, RET_CODE, out);
+	}
+
+	/**
+	 * サニタイズを行い、改行コードを改行タグに変換する。
+	 * <p>
+	 * convRetCodeToTag(sanitize(text)) と同じ結果を 1 回の走査で返す。
+	 * </p>
+	 *
+	 * @param text 対象文字列
+	 * @return 変換後文字列（変換対象が無い場合、対象文字列そのもの）
+	 */
+	public static String sanitizeAndConvRetCodeToTag(String text)
+	{
+		return convert(text, SANITIZE_AND_RET_CODE);
+	}
+
+	/**
+	 * サニタイズを行い、改行コードを改行タグに変換して出力先に書き込む。
+	 *
+	 * @param text 対象文字列
+	 * @param out 出力先（JspWriter 等）
+	 * @throws IOException 出力エラー
+	 */
+	public static void sanitizeAndConvRetCodeToTag(CharSequence text, Appendable out) throws IOException
+	{
+		convert(text, 0, SANITIZE_AND_RET_CODE, out);
+	}
+
+	/**
+	 * 置換文字列の表に従って変換した文字列を返す。
+	 *
+	 * @param text 対象文字列
+	 * @param table 置換文字列の表
+	 * @return 変換後文字列（変換対象が無い場合、対象文字列そのもの）
+	 */
+	private static String convert(String text, String[] table)
+	{
+		int length = text.length();
+		for(int i=0; i<length; i++)
+		{
+			char c = text.charAt(i);
+			if(c < 128 && table[c] != null)
+			{
+				StringBuilder builder = new StringBuilder(length + 16);
+				try
+				{
+					convert(text, i, table, builder);
+				}
+				catch(IOException ex)
+				{
+					// StringBuilder への追加では発生しない
+					throw new IllegalStateException(ex);
+				}
+				return builder.toString();
+			}
+		}
+
+		return text;
+	}
+
+	/**
+	 * 置換文字列の表に従って変換し、出力先に書き込む。
+	 * <p>
+	 * 変換対象の間の文字列は、区間単位でまとめて書き込む。
+	 * CR+LF は 1 つの改行として扱う。
+	 * </p>
+	 *
+	 * @param text 対象文字列
+	 * @param from 走査の開始位置（これより前に変換対象が無いこと）
+	 * @param table 置換文字列の表
+	 * @param out 出力先
+	 * @throws IOException 出力エラー
+	 */
+	private static void convert(CharSequence text, int from, String[] table, Appendable out) throws IOException
+	{
+		int length = text.length();
+		int start = 0;
+		for(int i=from; i<length; i++)
+		{
+			char c = text.charAt(i);
+			if(c >= 128) continue;
+
+			String replacement = table[c];
+			if(replacement == null) continue;
+
+			appendRange(text, start, i, out);
+			out.append(replacement);
+			if(c == '\r' && i + 1 < length && text.charAt(i + 1) == '\n')
+			{
+				i++;
+			}
+			start = i + 1;
+		}
+
+		appendRange(text, start, length, out);
+	}
+
+	/**
+	 * 文字列の区間を出力先に書き込む。
+	 * <p>
+	 * {@link Writer} に {@link String} を書き込む場合、部分文字列を生成せずに書き込む。
+	 * </p>
+	 *
+	 * @param text 対象文字列
+	 * @param start 開始位置
+	 * @param end 終了位置（この位置を含まない）
+	 * @param out 出力先
+	 * @throws IOException 出力エラー
+	 */
+	private static void appendRange(CharSequence text, int start, int end, Appendable out) throws IOException
+	{
+		if(start == end) return;
+
+		if(out instanceof Writer && text instanceof String)
+		{
+			((Writer)out).write((String)text, start, end - start);
+		}
+		else
+		{
+			out.append(text, start, end);
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package com.fw.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.fw.db.TestDatabase;
+
+/**
+ * {@link AfterCommitExecutor} のテスト
+ *
+ * @author t.yoshida
+ */
+public class AfterCommitExecutorTest
+{
+	private AfterCommitExecutor _executor;
+
+	@BeforeClass
+	public static void install()
+	{
+		TestDatabase.install();
+	}
+
+	@Before
+	public void setUp() throws SQLException
+	{
+		TestDatabase.reset();
+		_executor = new AfterCommitExecutor(1, 10, true, 10_000, (message, ex) -> { }, TestDatabase.context());
+	}
+
+	@After
+	public void tearDown() throws SQLException
+	{
+		TestDatabase.reset();
+	}
+
+	@Test
+	public void countsFailedTasksOnlyAsFailed()
+	{
+		_executor.submit(Arrays.asList
+		(
+			() -> { },
+			() -> { throw new IllegalStateException("failure"); },
+			() -> { }
+		));
+		_executor.shutdown();
+
+		assertEquals(2, _executor.getCompletedCount());
+		assertEquals(1, _executor.getFailedCount());
+	}
+}
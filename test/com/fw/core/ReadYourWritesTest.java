@@ -0,0 +1,268 @@
+package com.fw.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.fw.core.testaction.NoteReadAction;
+import com.fw.db.TestDatabase;
+import com.fw.form.BaseForm;
+
+/**
+ * 更新後に同一セッションの参照をプライマリで行う期間（read-your-writes）のテスト
+ * <p>
+ * プライマリとリードレプリカを別のデータベースとし、更新がリードレプリカに反映されない状態で
+ * {@link MainServlet} を経由して参照先を検証する。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+public class ReadYourWritesTest
+{
+	// 最終コミット時刻を保持するセッションキー
+	private static final String LAST_WRITE_KEY = "com.fw.db.lastWrite";
+
+	// プライマリで参照を行う期間（ミリ秒）
+	private static final long WINDOW = 300;
+
+	private TestServlet _servlet;
+
+	@BeforeClass
+	public static void install()
+	{
+		TestDatabase.install();
+	}
+
+	@Before
+	public void setUp() throws SQLException, ServletException
+	{
+		TestDatabase.reset();
+		TestDatabase.execute(TestDatabase.PRIMARY,
+			"CREATE TABLE note(id INT PRIMARY KEY, body VARCHAR(100))",
+			"INSERT INTO note VALUES (1, 'primary')");
+		TestDatabase.execute(TestDatabase.REPLICA,
+			"CREATE TABLE note(id INT PRIMARY KEY, body VARCHAR(100))",
+			"INSERT INTO note VALUES (1, 'replica')");
+
+		ServletContext context = TestDatabase.context
+		(
+			"class.manager.action.info", TestInfo.class.getName(),
+			"db.replica.datasources", TestDatabase.REPLICA,
+			"db.replica.read.your.writes", String.valueOf(WINDOW)
+		);
+		_servlet = new TestServlet();
+		_servlet.init((ServletConfig)Proxy.newProxyInstance
+		(
+			getClass().getClassLoader(),
+			new Class<?>[] { ServletConfig.class },
+			(proxy, method, args) ->
+			{
+				switch(method.getName())
+				{
+					case "getServletContext":
+						return context;
+					case "getServletName":
+						return "test";
+					default:
+						return null;
+				}
+			}
+		));
+	}
+
+	@After
+	public void tearDown() throws SQLException
+	{
+		_servlet.destroy();
+		TestDatabase.reset();
+	}
+
+	@Test
+	public void readsFromReplicaWithoutWrites() throws Exception
+	{
+		Map<String, Object> session = new HashMap<>();
+		assertEquals("replica", post(session, "read"));
+	}
+
+	@Test
+	public void readsOwnWritesFromPrimaryWithinWindow() throws Exception
+	{
+		Map<String, Object> session = new HashMap<>();
+		post(session, "write");
+		assertEquals("primary", post(session, "read"));
+
+		// 別のセッションは影響を受けない
+		assertEquals("replica", post(new HashMap<>(), "read"));
+
+		Thread.sleep(WINDOW + 100);
+		assertEquals("replica", post(session, "read"));
+	}
+
+	@Test
+	public void writeWithoutDatabaseAccessKeepsReplica() throws Exception
+	{
+		Map<String, Object> session = new HashMap<>();
+		post(session, "nodb");
+
+		assertNull(session.get(LAST_WRITE_KEY));
+		assertEquals("replica", post(session, "read"));
+	}
+
+	@Test
+	public void writeWithoutSessionDoesNotCreateSession() throws Exception
+	{
+		post(null, "write");
+		assertEquals("replica", post(null, "read"));
+	}
+
+	/**
+	 * {@link MainServlet} に POST リクエストを送信する。
+	 *
+	 * @param session セッション属性（セッションが無い場合、null）
+	 * @param eventId イベントID
+	 * @return リクエスト変数 "body" の値
+	 * @throws Exception 処理中に発生した例外
+	 */
+	private String post(Map<String, Object> session, String eventId) throws Exception
+	{
+		Map<String, String[]> params = new HashMap<>();
+		params.put("pageId", new String[] { "note" });
+		params.put("eventId", new String[] { eventId });
+		Map<String, Object> attributes = new HashMap<>();
+
+		HttpSession httpSession = session == null ? null : (HttpSession)Proxy.newProxyInstance
+		(
+			getClass().getClassLoader(),
+			new Class<?>[] { HttpSession.class },
+			(proxy, method, args) ->
+			{
+				switch(method.getName())
+				{
+					case "getAttribute":
+						return session.get(args[0]);
+					case "setAttribute":
+						return session.put((String)args[0], args[1]);
+					case "removeAttribute":
+						return session.remove(args[0]);
+					default:
+						throw new UnsupportedOperationException(method.getName());
+				}
+			}
+		);
+
+		RequestDispatcher dispatcher = (RequestDispatcher)Proxy.newProxyInstance
+		(
+			getClass().getClassLoader(),
+			new Class<?>[] { RequestDispatcher.class },
+			(proxy, method, args) -> null
+		);
+
+		HttpServletRequest request = (HttpServletRequest)Proxy.newProxyInstance
+		(
+			getClass().getClassLoader(),
+			new Class<?>[] { HttpServletRequest.class },
+			(proxy, method, args) ->
+			{
+				switch(method.getName())
+				{
+					case "getMethod":
+						return "POST";
+					case "getParameter":
+						String[] values = params.get(args[0]);
+						return values == null ? null : values[0];
+					case "getParameterMap":
+						return params;
+					case "getAttribute":
+						return attributes.get(args[0]);
+					case "setAttribute":
+						return attributes.put((String)args[0], args[1]);
+					case "removeAttribute":
+						return attributes.remove(args[0]);
+					case "getSession":
+						if(httpSession == null && (args == null || (Boolean)args[0]))
+						{
+							throw new IllegalStateException("Session must not be created");
+						}
+						return httpSession;
+					case "getRequestDispatcher":
+						return dispatcher;
+					case "isAsyncSupported":
+						return false;
+					case "setCharacterEncoding":
+						return null;
+					default:
+						throw new UnsupportedOperationException(method.getName());
+				}
+			}
+		);
+
+		HttpServletResponse response = (HttpServletResponse)Proxy.newProxyInstance
+		(
+			getClass().getClassLoader(),
+			new Class<?>[] { HttpServletResponse.class },
+			(proxy, method, args) ->
+			{
+				if("setCharacterEncoding".equals(method.getName())) return null;
+				throw new UnsupportedOperationException(method.getName());
+			}
+		);
+
+		_servlet.service(request, response);
+		if(_servlet.error != null) throw _servlet.error;
+
+		return (String)attributes.get("body");
+	}
+
+	/**
+	 * テスト用の {@link MainServlet}
+	 */
+	public static class TestServlet extends MainServlet<BaseForm>
+	{
+		private static final long serialVersionUID = 1L;
+
+		// 発生した例外
+		Exception error;
+
+		@Override
+		protected void moveToInCaseOfError(Exception ex, HttpServletRequest request, HttpServletResponse response)
+		{
+			error = ex;
+		}
+	}
+
+	/**
+	 * テスト用の {@link ActionSpecificInfo}
+	 */
+	public static class TestInfo implements ActionSpecificInfo
+	{
+		@Override
+		@SuppressWarnings("unchecked")
+		public <P extends BaseForm> Action<P> createDefaultAction()
+		{
+			return (Action<P>)new NoteReadAction();
+		}
+
+		@Override
+		public String getPackageNameWhereActionImplExists()
+		{
+			return NoteReadAction.class.getPackage().getName();
+		}
+	}
+}
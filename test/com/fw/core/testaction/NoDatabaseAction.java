@@ -0,0 +1,33 @@
+package com.fw.core.testaction;
+
+import com.fw.core.Action;
+import com.fw.core.DataContainer;
+import com.fw.core.Page;
+import com.fw.form.BaseForm;
+
+/**
+ * 更新系だがデータベースにアクセスしないテスト用の {@link Action}
+ *
+ * @author t.yoshida
+ */
+@Page(pageId = "note", eventId = "nodb")
+public class NoDatabaseAction implements Action<BaseForm>
+{
+	@Override
+	public boolean isReadOnly()
+	{
+		return false;
+	}
+
+	@Override
+	public void execute(BaseForm form, DataContainer container)
+	{
+		container.setAttr("body", "none");
+	}
+
+	@Override
+	public String moveTo()
+	{
+		return "/note.jsp";
+	}
+}
@@ -0,0 +1,37 @@
+package com.fw.core.testaction;
+
+import java.sql.SQLException;
+
+import com.fw.core.Action;
+import com.fw.core.DataContainer;
+import com.fw.core.Page;
+import com.fw.db.Note;
+import com.fw.db.QueryLoader;
+import com.fw.form.BaseForm;
+
+/**
+ * 本文を参照するテスト用の {@link Action}
+ *
+ * @author t.yoshida
+ */
+@Page(pageId = "note", eventId = "read")
+public class NoteReadAction implements Action<BaseForm>
+{
+	@Override
+	public boolean isReadOnly()
+	{
+		return true;
+	}
+
+	@Override
+	public void execute(BaseForm form, DataContainer container) throws SQLException
+	{
+		container.setAttr("body", QueryLoader.load(Note.class, "SELECT id, body FROM note WHERE id = ?", 1).getBody());
+	}
+
+	@Override
+	public String moveTo()
+	{
+		return "/note.jsp";
+	}
+}
@@ -0,0 +1,36 @@
+package com.fw.core.testaction;
+
+import java.sql.SQLException;
+
+import com.fw.core.Action;
+import com.fw.core.DataContainer;
+import com.fw.core.Page;
+import com.fw.db.QueryUpdater;
+import com.fw.form.BaseForm;
+
+/**
+ * 本文を更新するテスト用の {@link Action}
+ *
+ * @author t.yoshida
+ */
+@Page(pageId = "note", eventId = "write")
+public class NoteWriteAction implements Action<BaseForm>
+{
+	@Override
+	public boolean isReadOnly()
+	{
+		return false;
+	}
+
+	@Override
+	public void execute(BaseForm form, DataContainer container) throws SQLException
+	{
+		QueryUpdater.update("UPDATE note SET body = body WHERE id = ?", 1);
+	}
+
+	@Override
+	public String moveTo()
+	{
+		return "/note.jsp";
+	}
+}
@@ -0,0 +1,227 @@
+package com.fw.db;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * {@link BinaryContentCache#serve} のテスト
+ *
+ * @author t.yoshida
+ */
+public class BinaryContentCacheTest
+{
+	private static final String[] TABLES = { "file" };
+
+	// 合計サイズの上限（バイト）
+	private static final int MAX_BYTES = 1024;
+
+	private Path _directory;
+
+	private BinaryContentCache _cache;
+
+	private byte[] _small;
+
+	private byte[] _large;
+
+	// 書き出し時にキャッシュファイルが存在しないこと（直接転送していること）を検証するか否か
+	private boolean _direct;
+
+	@BeforeClass
+	public static void install()
+	{
+		TestDatabase.install();
+	}
+
+	@Before
+	public void setUp() throws SQLException, IOException
+	{
+		Random random = new Random(1L);
+		_small = new byte[MAX_BYTES / 2];
+		_large = new byte[MAX_BYTES * 3];
+		random.nextBytes(_small);
+		random.nextBytes(_large);
+
+		TestDatabase.reset();
+		for(String name : new String[] { TestDatabase.PRIMARY, TestDatabase.REPLICA })
+		{
+			TestDatabase.execute(name, "CREATE TABLE file(id INT PRIMARY KEY, data BLOB, raw VARBINARY(10000))");
+		}
+		DBAgent.beginTransaction(TestDatabase.context());
+		QueryUpdater.update("INSERT INTO file VALUES (?, ?, ?)", 1, _small, _small);
+		QueryUpdater.update("INSERT INTO file VALUES (?, ?, ?)", 2, _large, _large);
+		DBAgent.commit();
+		DBAgent.dispose();
+
+		_directory = Files.createTempDirectory("fw-binary-cache-test");
+		_cache = new BinaryContentCache(_directory.toFile(), MAX_BYTES);
+	}
+
+	@After
+	public void tearDown() throws SQLException, IOException
+	{
+		DBAgent.dispose();
+		TestDatabase.reset();
+		_cache.clear();
+		Files.delete(_directory);
+	}
+
+	@Test
+	public void cachesEntriesWithinLimit() throws SQLException, IOException
+	{
+		DBAgent.beginTransaction(TestDatabase.context());
+		assertArrayEquals(_small, serve("SELECT data FROM file WHERE id = ?", 1));
+		assertArrayEquals(_small, serve("SELECT data FROM file WHERE id = ?", 1));
+
+		assertEquals(1, _cache.size());
+		assertEquals(1, _cache.getMissCount());
+		assertEquals(1, fileCount());
+	}
+
+	@Test
+	public void streamsOversizedBlobWithoutWritingFile() throws SQLException, IOException
+	{
+		DBAgent.beginTransaction(TestDatabase.context());
+		_direct = true;
+		assertArrayEquals(_large, serve("SELECT data FROM file WHERE id = ?", 2));
+
+		assertEquals(0, _cache.size());
+		assertEquals(0, fileCount());
+	}
+
+	@Test
+	public void streamsOversizedStreamOfUnknownLength() throws SQLException, IOException
+	{
+		// BLOB 型以外はデータ長が事前に分からないため、上限を超えた時点でレスポンスに切り替える
+		DBAgent.beginTransaction(TestDatabase.context());
+		assertArrayEquals(_large, serve("SELECT raw FROM file WHERE id = ?", 2));
+		assertArrayEquals(_small, serve("SELECT raw FROM file WHERE id = ?", 1));
+
+		assertEquals(1, _cache.size());
+		assertEquals(1, fileCount());
+	}
+
+	@Test
+	public void streamsReplicaResultsWithoutCaching() throws SQLException, IOException
+	{
+		// レプリケーションが遅延している状態
+		DBAgent.shutdown();
+		TestDatabase.execute(TestDatabase.REPLICA, "INSERT INTO file(id, data) VALUES (1, X'00')");
+
+		DBAgent.beginTransaction(TestDatabase.context("db.replica.datasources", TestDatabase.REPLICA), true);
+		_direct = true;
+		assertArrayEquals(new byte[] { 0 }, serve("SELECT data FROM file WHERE id = ?", 1));
+
+		assertEquals(0, _cache.size());
+		assertEquals(0, fileCount());
+	}
+
+	/**
+	 * {@link BinaryContentCache#serve} で書き出した内容を返す。
+	 *
+	 * @param query クエリ
+	 * @param id ID
+	 * @return 書き出した内容
+	 * @throws SQLException データベース関連例外
+	 * @throws IOException 入出力例外
+	 */
+	private byte[] serve(String query, int id) throws SQLException, IOException
+	{
+		HttpServletRequest request = (HttpServletRequest)Proxy.newProxyInstance
+		(
+			getClass().getClassLoader(),
+			new Class<?>[] { HttpServletRequest.class },
+			(proxy, method, args) ->
+			{
+				if("getHeader".equals(method.getName())) return null;
+				throw new UnsupportedOperationException(method.getName());
+			}
+		);
+
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		ServletOutputStream out = new ServletOutputStream()
+		{
+			@Override
+			public void write(int b) throws IOException
+			{
+				write(new byte[] { (byte)b }, 0, 1);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException
+			{
+				if(_direct) assertEquals(0, fileCount());
+				body.write(b, off, len);
+			}
+
+			@Override
+			public boolean isReady()
+			{
+				return true;
+			}
+
+			@Override
+			public void setWriteListener(WriteListener listener)
+			{
+				throw new IllegalStateException();
+			}
+		};
+		HttpServletResponse response = (HttpServletResponse)Proxy.newProxyInstance
+		(
+			getClass().getClassLoader(),
+			new Class<?>[] { HttpServletResponse.class },
+			(proxy, method, args) ->
+			{
+				switch(method.getName())
+				{
+					case "getOutputStream":
+						return out;
+					case "setHeader":
+					case "setContentLengthLong":
+						return null;
+					default:
+						throw new UnsupportedOperationException(method.getName());
+				}
+			}
+		);
+
+		assertTrue(_cache.serve(request, response, TABLES, query, id));
+		return body.toByteArray();
+	}
+
+	/**
+	 * キャッシュディレクトリのファイル数を返す。
+	 *
+	 * @return ファイル数
+	 * @throws IOException 入出力例外
+	 */
+	private long fileCount() throws IOException
+	{
+		try
+		(
+			Stream<Path> files = Files.list(_directory);
+		)
+		{
+			return files.count();
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package com.fw.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+
+import javax.servlet.ServletContext;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * {@link ConnectionPool} の返却時のロールバック、クローズ後の返却のテスト
+ *
+ * @author t.yoshida
+ */
+public class ConnectionPoolTest
+{
+	private ServletContext _context;
+
+	@BeforeClass
+	public static void install()
+	{
+		TestDatabase.install();
+	}
+
+	@Before
+	public void setUp() throws SQLException
+	{
+		TestDatabase.reset();
+		TestDatabase.execute(TestDatabase.PRIMARY,
+			"CREATE TABLE note(id INT PRIMARY KEY, body VARCHAR(100))",
+			"INSERT INTO note VALUES (1, 'v1')");
+		_context = TestDatabase.context("db.pool.enabled", "true", "db.pool.max.size", "1");
+	}
+
+	@After
+	public void tearDown() throws SQLException
+	{
+		DBAgent.dispose();
+		TestDatabase.reset();
+	}
+
+	@Test
+	public void committedConnectionIsNotRolledBack() throws SQLException
+	{
+		DBAgent.beginTransaction(_context);
+		ManagedConnection con = DBAgent.getManagedConnection();
+		QueryUpdater.update("UPDATE note SET body = ? WHERE id = ?", "v2", 1);
+		assertTrue(con.pending);
+		DBAgent.commit();
+		assertFalse(con.pending);
+		DBAgent.dispose();
+
+		DBAgent.beginTransaction(_context);
+		assertSame(con, DBAgent.getManagedConnection());
+		assertEquals("v2", readBody());
+	}
+
+	@Test
+	public void unfinishedTransactionIsRolledBackOnRelease() throws SQLException
+	{
+		DBAgent.beginTransaction(_context);
+		ManagedConnection con = DBAgent.getManagedConnection();
+		QueryUpdater.update("UPDATE note SET body = ? WHERE id = ?", "v2", 1);
+		DBAgent.dispose();
+		assertFalse(con.pending);
+
+		// 同じ物理コネクションを再利用しても、未コミットの更新は残らない
+		DBAgent.beginTransaction(_context);
+		assertSame(con, DBAgent.getManagedConnection());
+		assertEquals("v1", readBody());
+	}
+
+	@Test
+	public void usageAfterCommitIsRolledBackOnRelease() throws SQLException
+	{
+		DBAgent.beginTransaction(_context);
+		ManagedConnection con = DBAgent.getManagedConnection();
+		DBAgent.commit();
+		QueryUpdater.update("UPDATE note SET body = ? WHERE id = ?", "v2", 1);
+		assertTrue(con.pending);
+		DBAgent.dispose();
+
+		DBAgent.beginTransaction(_context);
+		assertEquals("v1", readBody());
+	}
+
+	@Test
+	public void connectionInUseIsClosedOnReleaseAfterShutdown() throws SQLException
+	{
+		DBAgent.beginTransaction(_context);
+		ManagedConnection con = DBAgent.getManagedConnection();
+		QueryUpdater.update("UPDATE note SET body = ? WHERE id = ?", "v2", 1);
+
+		DBAgent.shutdown();
+		assertFalse(con.connection.isClosed());
+
+		// 返却時に未完了のトランザクションを破棄してクローズする
+		DBAgent.dispose();
+		assertTrue(con.connection.isClosed());
+
+		DBAgent.beginTransaction(_context);
+		assertNotSame(con, DBAgent.getManagedConnection());
+		assertEquals("v1", readBody());
+	}
+
+	/**
+	 * 現在のトランザクションで本文を取得する。
+	 *
+	 * @return 本文
+	 * @throws SQLException データベース関連例外
+	 */
+	private static String readBody() throws SQLException
+	{
+		return QueryLoader.load(Note.class, "SELECT id, body FROM note WHERE id = ?", 1).getBody();
+	}
+}
@@ -0,0 +1,208 @@
+package com.fw.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * {@link KeysetPager} の継続トークンのテスト
+ *
+ * @author t.yoshida
+ */
+public class KeysetPagerTest
+{
+	private static final int ROWS = 25;
+
+	private static final String QUERY = "SELECT id, shop_id, created FROM item WHERE shop_id = ?";
+
+	@BeforeClass
+	public static void install()
+	{
+		TestDatabase.install();
+	}
+
+	@Before
+	public void setUp() throws SQLException
+	{
+		TestDatabase.reset();
+		TestDatabase.execute(TestDatabase.PRIMARY, "CREATE TABLE item(id INT PRIMARY KEY, shop_id INT, created TIMESTAMP)");
+
+		// 作成日時は 3 件ずつ同じ値とし、同じ値の中での順序を id で決める
+		String[] rows = new String[ROWS + 1];
+		for(int i=1; i<=ROWS; i++)
+		{
+			rows[i - 1] = "INSERT INTO item VALUES (" + i + ", 1, TIMESTAMP '2024-01-01 00:00:00' + INTERVAL '" + (i / 3) + "' HOUR)";
+		}
+		rows[ROWS] = "INSERT INTO item VALUES (100, 2, CURRENT_TIMESTAMP)";
+		TestDatabase.execute(TestDatabase.PRIMARY, rows);
+
+		DBAgent.beginTransaction(TestDatabase.context(), true);
+	}
+
+	@After
+	public void tearDown() throws SQLException
+	{
+		DBAgent.dispose();
+		TestDatabase.reset();
+	}
+
+	@Test
+	public void walksAllPagesInAscendingOrder() throws SQLException
+	{
+		List<Integer> ids = new ArrayList<>();
+		String token = null;
+		int pages = 0;
+		do
+		{
+			KeysetPage<Item> page = QueryLoader.keyset(Item.class, QUERY, 1).orderBy("id").pageSize(10).load(token);
+			for(Item item : page.getItems())
+			{
+				ids.add(item.getId());
+			}
+			token = page.getNextToken();
+			assertEquals(token != null, page.hasNext());
+			pages++;
+		}
+		while(token != null);
+
+		assertEquals(3, pages);
+		assertEquals(ROWS, ids.size());
+		for(int i=0; i<ROWS; i++)
+		{
+			assertEquals(i + 1, (int)ids.get(i));
+		}
+	}
+
+	@Test
+	public void roundTripsTimestampAndIntegerKeysInDescendingOrder() throws SQLException
+	{
+		List<Integer> ids = new ArrayList<>();
+		String token = null;
+		do
+		{
+			KeysetPage<Item> page = QueryLoader.keyset(Item.class, QUERY, 1)
+				.orderByDesc("created").orderByDesc("id").pageSize(4).load(token);
+			for(Item item : page.getItems())
+			{
+				ids.add(item.getId());
+			}
+			token = page.getNextToken();
+		}
+		while(token != null);
+
+		assertEquals(ROWS, ids.size());
+		for(int i=0; i<ROWS; i++)
+		{
+			assertEquals(ROWS - i, (int)ids.get(i));
+		}
+	}
+
+	@Test
+	public void carriesTotalCountInToken() throws SQLException
+	{
+		KeysetPage<Item> first = QueryLoader.keyset(Item.class, QUERY, 1).orderBy("id").pageSize(10).withCount().load(null);
+		assertEquals(ROWS, first.getTotalCount().getAsLong());
+
+		KeysetPage<Item> second = QueryLoader.keyset(Item.class, QUERY, 1).orderBy("id").pageSize(10).withCount().load(first.getNextToken());
+		assertEquals(ROWS, second.getTotalCount().getAsLong());
+		assertEquals(11, second.getItems().get(0).getId());
+	}
+
+	@Test
+	public void lastPageHasNoToken() throws SQLException
+	{
+		KeysetPage<Item> page = QueryLoader.keyset(Item.class, QUERY, 1).orderBy("id").pageSize(ROWS).load(null);
+		assertEquals(ROWS, page.getItems().size());
+		assertFalse(page.hasNext());
+		assertNull(page.getNextToken());
+	}
+
+	@Test
+	public void rejectsTokenOfAnotherOrder() throws SQLException
+	{
+		String token = QueryLoader.keyset(Item.class, QUERY, 1).orderBy("id").pageSize(10).load(null).getNextToken();
+		assertInvalid(QueryLoader.keyset(Item.class, QUERY, 1).orderByDesc("id").pageSize(10), token);
+	}
+
+	@Test
+	public void rejectsMalformedToken() throws SQLException
+	{
+		String token = QueryLoader.keyset(Item.class, QUERY, 1).orderBy("id").pageSize(10).load(null).getNextToken();
+		KeysetPager<Item> pager = QueryLoader.keyset(Item.class, QUERY, 1).orderBy("id").pageSize(10);
+
+		assertInvalid(pager, "not a token!");
+		assertInvalid(pager, token.substring(0, token.length() - 2));
+	}
+
+	/**
+	 * 継続トークンが不正として扱われることを検証する。
+	 *
+	 * @param pager {@link KeysetPager}
+	 * @param token 継続トークン
+	 * @throws SQLException データベース関連例外
+	 */
+	private static void assertInvalid(KeysetPager<Item> pager, String token) throws SQLException
+	{
+		try
+		{
+			pager.load(token);
+			fail("Token should be rejected: " + token);
+		}
+		catch(IllegalArgumentException ex)
+		{
+			assertTrue(ex.getMessage(), ex.getMessage().toLowerCase().contains("token"));
+		}
+	}
+
+	/**
+	 * テスト用のエンティティ
+	 */
+	public static class Item
+	{
+		private int id;
+		private int shopId;
+		private Timestamp created;
+
+		public int getId()
+		{
+			return id;
+		}
+
+		public void setId(int id)
+		{
+			this.id = id;
+		}
+
+		public int getShop_id()
+		{
+			return shopId;
+		}
+
+		public void setShop_id(int shopId)
+		{
+			this.shopId = shopId;
+		}
+
+		public Timestamp getCreated()
+		{
+			return created;
+		}
+
+		public void setCreated(Timestamp created)
+		{
+			this.created = created;
+		}
+	}
+}
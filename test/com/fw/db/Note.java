@@ -0,0 +1,32 @@
+package com.fw.db;
+
+/**
+ * テスト用のエンティティ
+ *
+ * @author t.yoshida
+ */
+public class Note
+{
+	private int id;
+	private String body;
+
+	public int getId()
+	{
+		return id;
+	}
+
+	public void setId(int id)
+	{
+		this.id = id;
+	}
+
+	public String getBody()
+	{
+		return body;
+	}
+
+	public void setBody(String body)
+	{
+		this.body = body;
+	}
+}
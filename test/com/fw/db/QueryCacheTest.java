@@ -0,0 +1,175 @@
+package com.fw.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import javax.servlet.ServletContext;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * {@link QueryCache} のコミット時の無効化のテスト
+ *
+ * @author t.yoshida
+ */
+public class QueryCacheTest
+{
+	private static final String[] TABLES = { "note" };
+
+	private static final String QUERY = "SELECT id, body FROM note ORDER BY id";
+
+	private ServletContext _context;
+
+	@BeforeClass
+	public static void install()
+	{
+		TestDatabase.install();
+	}
+
+	@Before
+	public void setUp() throws SQLException
+	{
+		TestDatabase.reset();
+		for(String name : new String[] { TestDatabase.PRIMARY, TestDatabase.REPLICA })
+		{
+			TestDatabase.execute(name,
+				"CREATE TABLE note(id INT PRIMARY KEY, body VARCHAR(100))",
+				"INSERT INTO note VALUES (1, 'v1')");
+		}
+		_context = TestDatabase.context();
+	}
+
+	@After
+	public void tearDown() throws SQLException
+	{
+		DBAgent.dispose();
+		TestDatabase.reset();
+	}
+
+	@Test
+	public void servesCachedResultUntilCommitInvalidates() throws SQLException
+	{
+		assertEquals("v1", readBody());
+
+		// フレームワークを経由しない更新は検知しないため、キャッシュの値を返す
+		TestDatabase.execute(TestDatabase.PRIMARY, "UPDATE note SET body = 'v2' WHERE id = 1");
+		assertEquals("v1", readBody());
+
+		DBAgent.beginTransaction(_context);
+		QueryUpdater.update("UPDATE note SET body = ? WHERE id = ?", "v3", 1);
+
+		// 自トランザクションの未コミットの更新はキャッシュを経由せずに参照する
+		assertEquals("v3", QueryLoader.loadAsListCached(TABLES, Note.class, QUERY).get(0).getBody());
+		DBAgent.commit();
+		DBAgent.dispose();
+
+		assertEquals("v3", readBody());
+	}
+
+	@Test
+	public void rollbackKeepsCachedResult() throws SQLException
+	{
+		assertEquals("v1", readBody());
+
+		DBAgent.beginTransaction(_context);
+		QueryUpdater.update("UPDATE note SET body = ? WHERE id = ?", "v2", 1);
+		DBAgent.rollback();
+		DBAgent.dispose();
+
+		assertEquals(1, QueryCache.getInstance().size());
+		assertEquals("v1", readBody());
+	}
+
+	@Test
+	public void updateOfOtherTableKeepsCachedResult() throws SQLException
+	{
+		TestDatabase.execute(TestDatabase.PRIMARY, "CREATE TABLE other(id INT)");
+		assertEquals("v1", readBody());
+
+		DBAgent.beginTransaction(_context);
+		QueryUpdater.update("INSERT INTO other VALUES (?)", 1);
+		DBAgent.commit();
+		DBAgent.dispose();
+
+		assertEquals(1, QueryCache.getInstance().size());
+	}
+
+	@Test
+	public void cachesReplicaResultsOnlyForReplicaTtl() throws Exception
+	{
+		DBAgent.shutdown();
+		_context = TestDatabase.context("db.replica.datasources", TestDatabase.REPLICA, "db.query.cache.replica.ttl", "200");
+
+		// レプリケーションが遅延している状態
+		TestDatabase.execute(TestDatabase.PRIMARY, "UPDATE note SET body = 'new' WHERE id = 1");
+		TestDatabase.execute(TestDatabase.REPLICA, "UPDATE note SET body = 'stale' WHERE id = 1");
+		assertEquals("stale", readBody());
+		assertEquals(1, QueryCache.getInstance().size());
+
+		// リードレプリカの遅延が解消しても、リードレプリカ用の有効期間内はキャッシュの値を返す
+		TestDatabase.execute(TestDatabase.REPLICA, "UPDATE note SET body = 'new' WHERE id = 1");
+		assertEquals("stale", readBody());
+
+		Thread.sleep(300);
+		assertEquals("new", readBody());
+	}
+
+	@Test
+	public void primaryTransactionsSkipReplicaResults() throws SQLException
+	{
+		DBAgent.shutdown();
+		_context = TestDatabase.context("db.replica.datasources", TestDatabase.REPLICA);
+
+		TestDatabase.execute(TestDatabase.PRIMARY, "UPDATE note SET body = 'new' WHERE id = 1");
+		TestDatabase.execute(TestDatabase.REPLICA, "UPDATE note SET body = 'stale' WHERE id = 1");
+		assertEquals("stale", readBody());
+
+		// 直前の更新を参照するためプライマリに接続する場合、リードレプリカの結果は返さない
+		DBAgent.beginTransaction(_context, true, true);
+		assertEquals("new", QueryLoader.loadAsListCached(TABLES, Note.class, QUERY).get(0).getBody());
+		DBAgent.dispose();
+
+		// プライマリで取得した結果に置き換わり、リードレプリカのトランザクションからも参照する
+		assertEquals("new", readBody());
+		assertEquals(1, QueryCache.getInstance().size());
+	}
+
+	@Test
+	public void countsExpirationOnce() throws InterruptedException
+	{
+		QueryCache cache = new QueryCache(10, 50);
+		QueryCache.Key key = new QueryCache.Key(Note.class, QUERY, new Object[0]);
+		cache.put(key, "value", new String[] { "note" }, cache.generations(new String[] { "note" }), false);
+
+		Thread.sleep(100);
+		assertNull(cache.get(key, false));
+		assertEquals(1, cache.getExpirationCount());
+		assertEquals(0, cache.size());
+	}
+
+	/**
+	 * 参照専用のトランザクションでキャッシュを利用して取得する。
+	 *
+	 * @return 本文
+	 * @throws SQLException データベース関連例外
+	 */
+	private String readBody() throws SQLException
+	{
+		DBAgent.beginTransaction(_context, true);
+		try
+		{
+			List<Note> notes = QueryLoader.loadAsListCached(TABLES, Note.class, QUERY);
+			return notes.get(0).getBody();
+		}
+		finally
+		{
+			DBAgent.dispose();
+		}
+	}
+}
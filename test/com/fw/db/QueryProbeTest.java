@@ -0,0 +1,119 @@
+package com.fw.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.fw.metrics.SqlMetrics;
+import com.fw.metrics.SqlStatistics;
+
+/**
+ * {@link QueryProbe} の実行時間の計測のテスト
+ *
+ * @author t.yoshida
+ */
+public class QueryProbeTest
+{
+	// 行毎の処理に掛ける時間（ミリ秒）
+	private static final long SLEEP = 100;
+
+	@BeforeClass
+	public static void install()
+	{
+		TestDatabase.install();
+	}
+
+	@Before
+	public void setUp() throws SQLException
+	{
+		TestDatabase.reset();
+		TestDatabase.execute(TestDatabase.PRIMARY,
+			"CREATE TABLE note(id INT PRIMARY KEY, body VARCHAR(100))",
+			"INSERT INTO note VALUES (1, 'a'), (2, 'b'), (3, 'c')");
+		SqlMetrics.getInstance().setEnabled(true);
+		DBAgent.beginTransaction(TestDatabase.context());
+	}
+
+	@After
+	public void tearDown() throws SQLException
+	{
+		DBAgent.dispose();
+		SqlMetrics.getInstance().setEnabled(false);
+		TestDatabase.reset();
+	}
+
+	@Test
+	public void forEachExcludesConsumerTime() throws SQLException
+	{
+		String query = "SELECT id, body FROM note ORDER BY id";
+		QueryLoader.forEach(Note.class, query, note ->
+		{
+			try
+			{
+				QueryLoader.load(Note.class, "SELECT id, body FROM note WHERE id = ?", note.getId());
+			}
+			catch(SQLException ex)
+			{
+				throw new RuntimeException(ex);
+			}
+			sleep();
+		});
+
+		assertExcludesConsumerTime(query);
+	}
+
+	@Test
+	public void streamExcludesConsumerTime() throws SQLException
+	{
+		String query = "SELECT id, body FROM note ORDER BY body";
+		try
+		(
+			Stream<Note> notes = QueryLoader.stream(Note.class, query);
+		)
+		{
+			notes.forEach(note -> sleep());
+		}
+
+		assertExcludesConsumerTime(query);
+	}
+
+	/**
+	 * 1 回の実行として 3 行分の行数とバイト数が記録され、行毎の処理の時間を含まないことを検証する。
+	 *
+	 * @param query クエリ
+	 */
+	private static void assertExcludesConsumerTime(String query)
+	{
+		SqlMetrics metrics = SqlMetrics.getInstance();
+		String sql = metrics.normalize(query);
+		SqlStatistics statistics = metrics.getAll().stream().filter(s -> s.getSql().equals(sql)).findFirst().get();
+
+		assertEquals(1, statistics.getExecutionCount());
+		assertEquals(3, statistics.getRowCount());
+		assertEquals(3 * (8 + 1), statistics.getBytesRead());
+		assertTrue(statistics.getTime().getMax() < TimeUnit.MILLISECONDS.toMicros(SLEEP));
+	}
+
+	/**
+	 * 行毎の処理に時間が掛かる状態を再現する。
+	 */
+	private static void sleep()
+	{
+		try
+		{
+			Thread.sleep(SLEEP);
+		}
+		catch(InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package com.fw.db;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * {@link QueryUpdater#updateBatch(String, Iterable, int)} のテスト
+ *
+ * @author t.yoshida
+ */
+public class QueryUpdaterTest
+{
+	private static final String INSERT = "INSERT INTO note(id, body) VALUES (?, ?)";
+
+	@BeforeClass
+	public static void install()
+	{
+		TestDatabase.install();
+	}
+
+	@Before
+	public void setUp() throws SQLException
+	{
+		TestDatabase.reset();
+		TestDatabase.execute(TestDatabase.PRIMARY, "CREATE TABLE note(id INT PRIMARY KEY, body VARCHAR(100))");
+
+		// PreparedStatement キャッシュを有効にし、同じクエリで同じ PreparedStatement を再利用する
+		DBAgent.beginTransaction(TestDatabase.context("db.pool.enabled", "true", "db.pool.max.size", "1"));
+	}
+
+	@After
+	public void tearDown() throws SQLException
+	{
+		DBAgent.dispose();
+		TestDatabase.reset();
+	}
+
+	@Test
+	public void sendsRowsInChunks() throws SQLException
+	{
+		int[] counts = QueryUpdater.updateBatch(INSERT, Arrays.asList(row(1), row(2), row(3), row(4), row(5)), 2);
+
+		assertArrayEquals(new int[] { 1, 1, 1, 1, 1 }, counts);
+		assertEquals(5, count());
+	}
+
+	@Test
+	public void failedBatchDoesNotLeakRowsIntoNextBatch() throws SQLException
+	{
+		// 行の取得中に例外が発生し、未実行のバッチが残る
+		Iterable<Object[]> failing = () -> new Iterator<Object[]>()
+		{
+			private int _next = 1;
+
+			@Override
+			public boolean hasNext()
+			{
+				return true;
+			}
+
+			@Override
+			public Object[] next()
+			{
+				if(_next > 2) throw new IllegalStateException("row source failure");
+				return row(_next++);
+			}
+		};
+		try
+		{
+			QueryUpdater.updateBatch(INSERT, failing, 10);
+			fail();
+		}
+		catch(IllegalStateException ex)
+		{
+			// 想定通り
+		}
+
+		assertArrayEquals(new int[] { 1 }, QueryUpdater.updateBatch(INSERT, Arrays.<Object[]>asList(row(3)), 10));
+		assertEquals(1, count());
+	}
+
+	/**
+	 * 1 件分のパラメータを生成する。
+	 *
+	 * @param id ID
+	 * @return パラメータ
+	 */
+	private static Object[] row(int id)
+	{
+		return new Object[] { id, "body" + id };
+	}
+
+	/**
+	 * 件数を取得する。
+	 *
+	 * @return 件数
+	 * @throws SQLException データベース関連例外
+	 */
+	private static int count() throws SQLException
+	{
+		return QueryLoader.loadAsInteger("SELECT COUNT(*) FROM note");
+	}
+}
@@ -0,0 +1,148 @@
+package com.fw.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import javax.servlet.ServletContext;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * {@link DBAgent} のリードレプリカへの振り分けのテスト
+ *
+ * @author t.yoshida
+ */
+public class ReplicaRoutingTest
+{
+	@BeforeClass
+	public static void install()
+	{
+		TestDatabase.install();
+	}
+
+	@Before
+	public void setUp() throws SQLException
+	{
+		TestDatabase.reset();
+		TestDatabase.execute(TestDatabase.PRIMARY,
+			"CREATE TABLE note(id INT PRIMARY KEY, body VARCHAR(100))",
+			"INSERT INTO note VALUES (1, 'primary')");
+		TestDatabase.execute(TestDatabase.REPLICA,
+			"CREATE TABLE note(id INT PRIMARY KEY, body VARCHAR(100))",
+			"INSERT INTO note VALUES (1, 'replica')");
+	}
+
+	@After
+	public void tearDown() throws SQLException
+	{
+		DBAgent.dispose();
+		TestDatabase.reset();
+	}
+
+	@Test
+	public void routesReadOnlyTransactionsToReplica() throws SQLException
+	{
+		ServletContext context = TestDatabase.context("db.replica.datasources", TestDatabase.REPLICA);
+
+		Transaction tx = DBAgent.beginTransaction(context, true);
+		assertTrue(tx.isReplica());
+		assertEquals("replica", readBody());
+		DBAgent.dispose();
+
+		tx = DBAgent.beginTransaction(context, false);
+		assertFalse(tx.isReplica());
+		assertEquals("primary", readBody());
+		DBAgent.dispose();
+	}
+
+	@Test
+	public void readsFromPrimaryWithoutReplicas() throws SQLException
+	{
+		Transaction tx = DBAgent.beginTransaction(TestDatabase.context(), true);
+		assertFalse(tx.isReplica());
+		assertTrue(tx.isReadOnly());
+		assertEquals("primary", readBody());
+	}
+
+	@Test
+	public void writesOnlyReachPrimary() throws SQLException
+	{
+		ServletContext context = TestDatabase.context("db.replica.datasources", TestDatabase.REPLICA);
+
+		DBAgent.beginTransaction(context, false);
+		QueryUpdater.update("UPDATE note SET body = ? WHERE id = ?", "updated", 1);
+		DBAgent.commit();
+		DBAgent.dispose();
+
+		// 別のデータベースのため、リードレプリカには反映されない（レプリケーションの遅延）
+		DBAgent.beginTransaction(context, true);
+		assertEquals("replica", readBody());
+		DBAgent.dispose();
+
+		DBAgent.beginTransaction(context, false);
+		assertEquals("updated", readBody());
+	}
+
+	@Test
+	public void routesToPrimaryWithoutLosingReadOnly() throws Exception
+	{
+		ServletContext context = TestDatabase.context("db.replica.datasources", TestDatabase.REPLICA, "db.parallel.max.concurrency", "2");
+
+		// 直前の更新を参照するためプライマリに接続しても、並列実行を含め参照専用として扱う
+		Transaction tx = DBAgent.beginTransaction(context, true, true);
+		assertTrue(tx.isReadOnly());
+		assertFalse(tx.isReplica());
+		assertEquals("primary", readBody());
+		try
+		(
+			ParallelQueries parallel = QueryLoader.parallel();
+		)
+		{
+			CompletableFuture<String> first = parallel.submit(ReplicaRoutingTest::readBody);
+			CompletableFuture<String> second = parallel.submit(ReplicaRoutingTest::readBody);
+			parallel.join();
+
+			assertEquals("primary", first.join());
+			assertEquals("primary", second.join());
+		}
+	}
+
+	@Test
+	public void roundRobinUsesEveryReplica() throws SQLException
+	{
+		TestDatabase.execute(TestDatabase.PRIMARY, "UPDATE note SET body = 'replica2' WHERE id = 1");
+
+		// プライマリのデータベースを 2 台目のリードレプリカとして扱う
+		ServletContext context = TestDatabase.context("db.replica.datasources", TestDatabase.REPLICA + "," + TestDatabase.PRIMARY);
+
+		Set<String> bodies = new HashSet<>();
+		for(int i=0; i<4; i++)
+		{
+			DBAgent.beginTransaction(context, true);
+			bodies.add(readBody());
+			DBAgent.dispose();
+		}
+
+		assertEquals(2, bodies.size());
+	}
+
+	/**
+	 * 現在のトランザクションで本文を取得する。
+	 *
+	 * @return 本文
+	 * @throws SQLException データベース関連例外
+	 */
+	private static String readBody() throws SQLException
+	{
+		return QueryLoader.load(Note.class, "SELECT id, body FROM note WHERE id = ?", 1).getBody();
+	}
+}
@@ -0,0 +1,159 @@
+package com.fw.db;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+
+import javax.naming.Context;
+import javax.naming.spi.InitialContextFactory;
+import javax.servlet.ServletContext;
+
+import org.h2.jdbcx.JdbcDataSource;
+
+/**
+ * テスト用のインメモリデータベース（H2）
+ * <p>
+ * {@link DBAgent} は JNDI からデータソースを取得するため、
+ * 本クラスを {@link InitialContextFactory} として登録し、JNDI 名毎に別の H2 データベースを返す。
+ * プライマリとリードレプリカを別のデータベースとすることで、レプリケーションの遅延を再現する。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+public final class TestDatabase implements InitialContextFactory
+{
+	/**
+	 * プライマリの JNDI 名
+	 */
+	public static final String PRIMARY = "jdbc/primary";
+
+	/**
+	 * リードレプリカの JNDI 名
+	 */
+	public static final String REPLICA = "jdbc/replica";
+
+	/**
+	 * コンテキストパラメータを指定してサーブレットコンテキストを生成する。
+	 * <p>
+	 * "db.datasource" はプライマリ、"metrics.jmx" は false をデフォルトとする。
+	 * </p>
+	 *
+	 * @param params コンテキストパラメータ（パラメータ名、値の順に指定）
+	 * @return {@link ServletContext}
+	 */
+	public static ServletContext context(String... params)
+	{
+		Map<String, String> values = new HashMap<>();
+		values.put("db.datasource", PRIMARY);
+		values.put("metrics.jmx", "false");
+		for(int i=0; i<params.length; i+=2)
+		{
+			values.put(params[i], params[i + 1]);
+		}
+
+		return (ServletContext)Proxy.newProxyInstance
+		(
+			TestDatabase.class.getClassLoader(),
+			new Class<?>[] { ServletContext.class },
+			(proxy, method, args) ->
+			{
+				switch(method.getName())
+				{
+					case "getInitParameter":
+						return values.get(args[0]);
+					case "getAttribute":
+					case "log":
+						return null;
+					case "toString":
+						return "TestDatabase.context" + values;
+					default:
+						throw new UnsupportedOperationException(method.getName());
+				}
+			}
+		);
+	}
+
+	/**
+	 * {@link DBAgent} が JNDI から H2 のデータソースを取得するよう設定する。
+	 */
+	public static void install()
+	{
+		System.setProperty(Context.INITIAL_CONTEXT_FACTORY, TestDatabase.class.getName());
+	}
+
+	/**
+	 * {@link DBAgent} を破棄し、全データベースの内容を削除する。
+	 *
+	 * @throws SQLException データベース関連例外
+	 */
+	public static void reset() throws SQLException
+	{
+		DBAgent.shutdown();
+		for(String name : new String[] { PRIMARY, REPLICA })
+		{
+			execute(name, "DROP ALL OBJECTS");
+		}
+	}
+
+	/**
+	 * テストの準備等、{@link DBAgent} を経由せずにクエリを直接実行する。
+	 *
+	 * @param name JNDI 名
+	 * @param sqls クエリ
+	 * @throws SQLException データベース関連例外
+	 */
+	public static void execute(String name, String... sqls) throws SQLException
+	{
+		try
+		(
+			Connection conn = createDataSource(name).getConnection();
+			Statement stmt = conn.createStatement();
+		)
+		{
+			for(String sql : sqls)
+			{
+				stmt.execute(sql);
+			}
+		}
+	}
+
+	/**
+	 * JNDI 名に対応する H2 のデータソースを生成する。
+	 *
+	 * @param name JNDI 名
+	 * @return データソース
+	 */
+	private static JdbcDataSource createDataSource(String name)
+	{
+		// 最後のコネクションをクローズしても破棄しない
+		JdbcDataSource ds = new JdbcDataSource();
+		ds.setURL("jdbc:h2:mem:" + name.replace('/', '_') + ";DB_CLOSE_DELAY=-1");
+		return ds;
+	}
+
+	@Override
+	public Context getInitialContext(Hashtable<?, ?> environment)
+	{
+		return (Context)Proxy.newProxyInstance
+		(
+			TestDatabase.class.getClassLoader(),
+			new Class<?>[] { Context.class },
+			(proxy, method, args) ->
+			{
+				switch(method.getName())
+				{
+					case "lookup":
+						return createDataSource(String.valueOf(args[0]));
+					case "close":
+						return null;
+					default:
+						throw new UnsupportedOperationException(method.getName());
+				}
+			}
+		);
+	}
+}
@@ -0,0 +1,103 @@
+package com.fw.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * {@link Transaction#execute(Transaction.Work)} による別スレッドへの引き継ぎのテスト
+ *
+ * @author t.yoshida
+ */
+public class TransactionHandOffTest
+{
+	private ExecutorService _executor;
+
+	@BeforeClass
+	public static void install()
+	{
+		TestDatabase.install();
+	}
+
+	@Before
+	public void setUp() throws SQLException
+	{
+		TestDatabase.reset();
+		TestDatabase.execute(TestDatabase.PRIMARY,
+			"CREATE TABLE note(id INT PRIMARY KEY, body VARCHAR(100))",
+			"INSERT INTO note VALUES (1, 'v1')");
+		_executor = Executors.newSingleThreadExecutor();
+	}
+
+	@After
+	public void tearDown() throws SQLException
+	{
+		_executor.shutdownNow();
+		DBAgent.dispose();
+		TestDatabase.reset();
+	}
+
+	@Test
+	public void runsQueriesOnAnotherThreadAfterDetaching() throws Exception
+	{
+		DBAgent.beginTransaction(TestDatabase.context());
+		QueryUpdater.update("UPDATE note SET body = ? WHERE id = ?", "v2", 1);
+
+		Transaction tx = DBAgent.attach(null);
+		try
+		{
+			// 同じコネクションを利用するため、未コミットの更新を参照できる
+			String body = _executor.submit(() -> tx.execute(TransactionHandOffTest::readBody)).get();
+			assertEquals("v2", body);
+
+			// 処理終了後、別スレッドの登録は解除される
+			assertNull(_executor.submit(DBAgent::currentTransaction).get());
+		}
+		finally
+		{
+			DBAgent.attach(tx);
+		}
+
+		assertSame(tx, DBAgent.currentTransaction());
+		DBAgent.commit();
+		assertEquals("v2", readBody());
+	}
+
+	@Test
+	public void rejectsExecutionWhileAttachedToAnotherThread() throws Exception
+	{
+		Transaction tx = DBAgent.beginTransaction(TestDatabase.context());
+		try
+		{
+			_executor.submit(() -> tx.execute(TransactionHandOffTest::readBody)).get();
+			fail();
+		}
+		catch(ExecutionException ex)
+		{
+			assertTrue(ex.getCause() instanceof IllegalStateException);
+		}
+	}
+
+	/**
+	 * 現在のトランザクションで本文を取得する。
+	 *
+	 * @return 本文
+	 * @throws SQLException データベース関連例外
+	 */
+	private static String readBody() throws SQLException
+	{
+		return QueryLoader.load(Note.class, "SELECT id, body FROM note WHERE id = ?", 1).getBody();
+	}
+}
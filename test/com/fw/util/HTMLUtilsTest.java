@@ -0,0 +1,111 @@
+package com.fw.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * {@link HTMLUtils} のテスト
+ * <p>
+ * 置換を繰り返していた以前の実装と結果が一致することを検証する。
+ * </p>
+ *
+ * @author t.yoshida
+ */
+public class HTMLUtilsTest
+{
+	// 生成する文字列に含める文字（エスケープ対象、改行、サロゲートペアを含む）
+	private static final String[] ALPHABET = { "a", "Z", "0", " ", "&", "<", ">", "\"", "'", "\r", "\n", "\r\n", "あ", "𠮷", "&amp;", "\t" };
+
+	@Test
+	public void matchesLegacyImplementation() throws IOException
+	{
+		Random random = new Random(20240101L);
+		for(int n=0; n<5000; n++)
+		{
+			String text = randomText(random, random.nextInt(40));
+
+			assertEquals(legacySanitize(text), HTMLUtils.sanitize(text));
+			assertEquals(legacyConvRetCodeToTag(text), HTMLUtils.convRetCodeToTag(text));
+			assertEquals(legacyConvRetCodeToTag(legacySanitize(text)), HTMLUtils.sanitizeAndConvRetCodeToTag(text));
+
+			StringBuilder builder = new StringBuilder();
+			HTMLUtils.sanitize(text, builder);
+			assertEquals(legacySanitize(text), builder.toString());
+
+			StringWriter writer = new StringWriter();
+			HTMLUtils.convRetCodeToTag(text, writer);
+			assertEquals(legacyConvRetCodeToTag(text), writer.toString());
+
+			writer = new StringWriter();
+			HTMLUtils.sanitizeAndConvRetCodeToTag(text, writer);
+			assertEquals(legacyConvRetCodeToTag(legacySanitize(text)), writer.toString());
+		}
+	}
+
+	@Test
+	public void returnsSameInstanceWhenNothingToEscape()
+	{
+		String text = "plain text あいう";
+		assertSame(text, HTMLUtils.sanitize(text));
+		assertSame(text, HTMLUtils.convRetCodeToTag(text));
+		assertSame(text, HTMLUtils.sanitizeAndConvRetCodeToTag(text));
+	}
+
+	@Test
+	public void escapesEveryTarget()
+	{
+		assertEquals("&amp;&lt;&gt;&quot;&#39;", HTMLUtils.sanitize("&<>\"'"));
+		assertEquals("a<br/>b<br/>c<br/>d", HTMLUtils.convRetCodeToTag("a\r\nb\nc\rd"));
+		assertEquals("&lt;b&gt;<br/><br/>", HTMLUtils.sanitizeAndConvRetCodeToTag("<b>\n\r"));
+	}
+
+	/**
+	 * ランダムな文字列を生成する。
+	 *
+	 * @param random 乱数
+	 * @param length 要素数
+	 * @return 文字列
+	 */
+	private static String randomText(Random random, int length)
+	{
+		StringBuilder builder = new StringBuilder();
+		for(int i=0; i<length; i++)
+		{
+			builder.append(ALPHABET[random.nextInt(ALPHABET.length)]);
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * 以前の {@link HTMLUtils#sanitize(String)}
+	 */
+	private static String legacySanitize(String text)
+	{
+		text = text.replaceAll("&",  "&amp;");
+		text = text.replaceAll("<",  "&lt;");
+		text = text.replaceAll(">",  "&gt;");
+		text = text.replaceAll("\"", "&quot;");
+		text = text.replaceAll("'" , "&#39;");
+
+		return text;
+	}
+
+	/**
+	 * 以前の {@link HTMLUtils#convRetCodeToTag(String)}
+	 */
+	private static String legacyConvRetCodeToTag(String text)
+	{
+		text = text.replaceAll("\r\n", "<br/>");
+		text = text.replaceAll("\n", "<br/>");
+		text = text.replaceAll("\r", "<br/>");
+
+		return text;
+	}
+}